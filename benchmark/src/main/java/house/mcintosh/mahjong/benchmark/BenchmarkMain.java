@@ -0,0 +1,35 @@
+package house.mcintosh.mahjong.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the standard JMH command line, always adding the GC profiler so
+ * that allocation rates are reported alongside times.
+ */
+public class BenchmarkMain
+{
+	public static void main(String[] args) throws Exception
+	{
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		
+		// Anything other than a run is left to the standard JMH main.
+		
+		if (commandLine.shouldHelp()
+				|| commandLine.shouldList()
+				|| commandLine.shouldListWithParams()
+				|| commandLine.shouldListProfilers()
+				|| commandLine.shouldListResultFormats())
+		{
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+		
+		new Runner(new OptionsBuilder()
+				.parent(commandLine)
+				.addProfiler(GCProfiler.class)
+				.build()).run();
+	}
+}
@@ -0,0 +1,110 @@
+package house.mcintosh.mahjong.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import house.mcintosh.mahjong.model.Group;
+import house.mcintosh.mahjong.persistence.BinaryCodec;
+import house.mcintosh.mahjong.scoring.ScoredGroup;
+import house.mcintosh.mahjong.scoring.ScoredHand;
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+
+/**
+ * Binary encoding and decoding of hands, per hand of the corpus, against constructing the
+ * same hands from their groups.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(CodecBenchmark.HANDS)
+public class CodecBenchmark
+{
+	static final int HANDS = 1024;
+	
+	@Param("1")
+	private long			m_seed;
+	
+	private ScoringScheme	m_scheme;
+	private HandCorpus		m_corpus;
+	private ScoredHand[]	m_hands;
+	private Group[][]		m_groups;
+	private ByteBuffer		m_encoded;
+	private ByteBuffer		m_buffer;
+	
+	@Setup
+	public void setup()
+	{
+		m_scheme	= ScoringScheme.instance();
+		m_corpus	= new HandCorpus(m_scheme, m_seed, HANDS);
+		m_hands		= new ScoredHand[HANDS];
+		m_groups	= new Group[HANDS][];
+		
+		int size = 0;
+		
+		for (int hand = 0 ; hand < HANDS ; hand++)
+		{
+			m_hands[hand]	= m_corpus.toScoredHand(hand);
+			m_groups[hand]	= m_corpus.getGroups(hand);
+			size			+= BinaryCodec.handSize(m_hands[hand]);
+		}
+		
+		m_encoded	= ByteBuffer.allocate(size);
+		m_buffer	= ByteBuffer.allocate(size);
+		
+		for (int hand = 0 ; hand < HANDS ; hand++)
+			BinaryCodec.encode(m_encoded, m_hands[hand], m_corpus.getOwnWind(hand), m_corpus.getPrevailingWind(hand));
+		
+		m_encoded.flip();
+	}
+	
+	@Benchmark
+	public ByteBuffer encode()
+	{
+		m_buffer.clear();
+		
+		for (int hand = 0 ; hand < HANDS ; hand++)
+			BinaryCodec.encode(m_buffer, m_hands[hand], m_corpus.getOwnWind(hand), m_corpus.getPrevailingWind(hand));
+		
+		return m_buffer;
+	}
+	
+	@Benchmark
+	public void decode(Blackhole blackhole)
+	{
+		m_encoded.rewind();
+		
+		for (int hand = 0 ; hand < HANDS ; hand++)
+			blackhole.consume(BinaryCodec.decodeHand(m_encoded, m_scheme, null));
+	}
+	
+	@Benchmark
+	public void construct(Blackhole blackhole)
+	{
+		for (int hand = 0 ; hand < HANDS ; hand++)
+		{
+			ScoredHand scoredHand = new ScoredHand(m_scheme);
+			
+			for (Group group : m_groups[hand])
+				scoredHand.add(new ScoredGroup(group, m_scheme, m_corpus.getOwnWind(hand), m_corpus.getPrevailingWind(hand)));
+			
+			blackhole.consume(scoredHand);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package house.mcintosh.mahjong.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import house.mcintosh.mahjong.model.Game;
+import house.mcintosh.mahjong.model.Player;
+import house.mcintosh.mahjong.model.Round;
+import house.mcintosh.mahjong.model.Wind;
+import house.mcintosh.mahjong.scoring.ScoredHand;
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+
+/**
+ * Settling rounds and playing them into a game.  Each operation is one complete game, or
+ * the settlement of every player in every round of one game.  roundGetPlayerScore reads
+ * scores from rounds that are already settled, while roundSettle builds each round afresh
+ * and settles it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark
+{
+	@Param("1")
+	private long			m_seed;
+	
+	private ScoringScheme	m_scheme;
+	private Player[]		m_players;
+	private Round[]			m_rounds;
+	/** Hand and wind of each player in each round, indexed by round then player. */
+	private ScoredHand[][]	m_hands;
+	private Wind[][]		m_winds;
+	
+	@Setup
+	public void setup()
+	{
+		m_scheme	= ScoringScheme.instance();
+		m_players	= new Player[] { Player.get("Benchmark East"), Player.get("Benchmark South"), Player.get("Benchmark West"), Player.get("Benchmark North") };
+		
+		List<Round> rounds = HandCorpus.playGame(m_scheme, m_seed, m_players);
+		
+		m_rounds	= rounds.toArray(new Round[rounds.size()]);
+		m_hands		= new ScoredHand[m_rounds.length][m_players.length];
+		m_winds		= new Wind[m_rounds.length][m_players.length];
+		
+		for (int round = 0 ; round < m_rounds.length ; round++)
+			for (int player = 0 ; player < m_players.length ; player++)
+			{
+				m_hands[round][player] = m_rounds[round].getHand(m_players[player]);
+				m_winds[round][player] = m_rounds[round].getPlayerWind(m_players[player]);
+			}
+	}
+	
+	@Benchmark
+	public void roundGetPlayerScore(Blackhole blackhole)
+	{
+		for (Round round : m_rounds)
+			for (Player player : m_players)
+				blackhole.consume(round.getPlayerScore(player));
+	}
+	
+	@Benchmark
+	public void roundSettle(Blackhole blackhole)
+	{
+		for (int index = 0 ; index < m_rounds.length ; index++)
+		{
+			Round round = new Round(m_rounds[index].getPrevailingWind());
+			
+			for (int player = 0 ; player < m_players.length ; player++)
+				round.addHand(m_players[player], m_hands[index][player], m_winds[index][player]);
+			
+			for (Player player : m_players)
+				blackhole.consume(round.getPlayerScore(player));
+		}
+	}
+	
+	@Benchmark
+	public Game gameAddRound()
+	{
+		Game game = HandCorpus.newGame(m_scheme, m_players);
+		
+		for (Round round : m_rounds)
+			game.addRound(round);
+		
+		return game;
+	}
+}
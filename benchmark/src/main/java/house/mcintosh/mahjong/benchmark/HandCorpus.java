@@ -0,0 +1,156 @@
+package house.mcintosh.mahjong.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import house.mcintosh.mahjong.model.Game;
+import house.mcintosh.mahjong.model.Group;
+import house.mcintosh.mahjong.model.GroupCode;
+import house.mcintosh.mahjong.model.Player;
+import house.mcintosh.mahjong.model.Round;
+import house.mcintosh.mahjong.model.Wind;
+import house.mcintosh.mahjong.scoring.ScoredHand;
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+import house.mcintosh.mahjong.simulation.HandGenerator;
+
+/**
+ * A deterministic set of hands for benchmarks, generated from a seed.  The same seed always
+ * gives the same hands, so results can be compared between runs and between versions of
+ * the library.
+ * 
+ * Hands are drawn in rounds of four from a shared set of tiles by HandGenerator, so one in
+ * four is a mahjong hand.
+ */
+public final class HandCorpus
+{
+	private static final Wind[]	WINDS	= Wind.values();
+	private static final int	SEATS	= WINDS.length;
+	
+	private final ScoringScheme	m_scheme;
+	private final int[][]		m_codes;
+	private final int[]			m_flags;
+	private final Wind[]		m_ownWinds;
+	private final Wind[]		m_prevailingWinds;
+	
+	public HandCorpus(ScoringScheme scheme, long seed, int size)
+	{
+		m_scheme			= scheme;
+		m_codes				= new int[size][];
+		m_flags				= new int[size];
+		m_ownWinds			= new Wind[size];
+		m_prevailingWinds	= new Wind[size];
+		
+		SplittableRandom	random		= new SplittableRandom(seed);
+		HandGenerator		generator	= new HandGenerator(scheme);
+		
+		for (int hand = 0 ; hand < size ; hand++)
+		{
+			int seat = hand % SEATS;
+			
+			if (seat == 0)
+				generator.reset();
+			
+			Wind		ownWind			= WINDS[seat];
+			Wind		prevailingWind	= WINDS[(hand / SEATS) % SEATS];
+			ScoredHand	scored			= seat == 0
+					? generator.mahjongHand(random, ownWind, prevailingWind)
+					: generator.losingHand(random, ownWind, prevailingWind);
+			
+			m_codes[hand]			= scored.getGroupCodes();
+			m_flags[hand]			= scored.getFlags();
+			m_ownWinds[hand]		= ownWind;
+			m_prevailingWinds[hand]	= prevailingWind;
+		}
+	}
+	
+	public int size()
+	{
+		return m_codes.length;
+	}
+	
+	public int[] getCodes(int hand)
+	{
+		return m_codes[hand];
+	}
+	
+	/**
+	 * @return New Group instances for the hand, as a client building a hand would have.
+	 */
+	public Group[] getGroups(int hand)
+	{
+		Group[] groups = new Group[m_codes[hand].length];
+		
+		for (int index = 0 ; index < groups.length ; index++)
+		{
+			Group shared = GroupCode.decode(m_codes[hand][index]);
+			
+			groups[index] = new Group(shared.getType(), shared.getFirstTile(), shared.getVisibility());
+		}
+		
+		return groups;
+	}
+	
+	public int getFlags(int hand)
+	{
+		return m_flags[hand];
+	}
+	
+	public Wind getOwnWind(int hand)
+	{
+		return m_ownWinds[hand];
+	}
+	
+	public Wind getPrevailingWind(int hand)
+	{
+		return m_prevailingWinds[hand];
+	}
+	
+	public ScoredHand toScoredHand(int hand)
+	{
+		ScoredHand.Builder builder = new ScoredHand.Builder(m_scheme).setFlags(m_flags[hand]);
+		
+		for (int code : m_codes[hand])
+			builder.add(code, m_ownWinds[hand], m_prevailingWinds[hand]);
+		
+		return builder.build();
+	}
+	
+	/**
+	 * Play a complete game between four players with random rounds, and return the rounds in
+	 * order.  Adding the same rounds in the same order to a new game with the same seating
+	 * plays exactly the same game again.
+	 */
+	public static List<Round> playGame(ScoringScheme scheme, long seed, Player[] players)
+	{
+		SplittableRandom	random		= new SplittableRandom(seed);
+		HandGenerator		generator	= new HandGenerator(scheme);
+		Game				game		= newGame(scheme, players);
+		List<Round>			rounds		= new ArrayList<>();
+		
+		while (!game.isFinished())
+		{
+			Round round = generator.round(random, game);
+			
+			game.addRound(round);
+			rounds.add(round);
+		}
+		
+		return rounds;
+	}
+	
+	/**
+	 * @return A started game with the players seated in order, and the first of them east.
+	 */
+	public static Game newGame(ScoringScheme scheme, Player[] players)
+	{
+		Game game = new Game(scheme);
+		
+		for (int seat = 0 ; seat < players.length ; seat++)
+			game.setPlayer(players[seat], seat);
+		
+		game.startGame(players[0]);
+		
+		return game;
+	}
+}
@@ -0,0 +1,70 @@
+package house.mcintosh.mahjong.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import house.mcintosh.mahjong.model.Player;
+
+/**
+ * Looking up existing players by name, with a number of players already registered.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerBenchmark
+{
+	@Param({ "4", "1000" })
+	private int			m_registered;
+	
+	private String[]	m_names;
+	
+	@Setup
+	public void setup()
+	{
+		m_names = new String[m_registered];
+		
+		for (int player = 0 ; player < m_registered ; player++)
+		{
+			m_names[player] = "Player " + player;
+			Player.get(m_names[player]);
+		}
+	}
+	
+	@State(Scope.Thread)
+	public static class Cursor
+	{
+		int next;
+	}
+	
+	@Benchmark
+	public Player get(Cursor cursor)
+	{
+		cursor.next = (cursor.next + 1) % m_names.length;
+		
+		return Player.get(m_names[cursor.next]);
+	}
+	
+	@Benchmark
+	@Threads(4)
+	public Player getContended(Cursor cursor)
+	{
+		cursor.next = (cursor.next + 1) % m_names.length;
+		
+		return Player.get(m_names[cursor.next]);
+	}
+}
@@ -0,0 +1,152 @@
+package house.mcintosh.mahjong.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import house.mcintosh.mahjong.model.Group;
+import house.mcintosh.mahjong.scoring.HandScorer;
+import house.mcintosh.mahjong.scoring.ScoredGroup;
+import house.mcintosh.mahjong.scoring.ScoredHand;
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+
+/**
+ * Scoring of groups and hands, per hand of the corpus.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(ScoringBenchmark.HANDS)
+public class ScoringBenchmark
+{
+	static final int HANDS = 1024;
+	
+	@Param("1")
+	private long			m_seed;
+	
+	private ScoringScheme	m_scheme;
+	private HandCorpus		m_corpus;
+	private Group[][]		m_groups;
+	private ScoredGroup[][]	m_scoredGroups;
+	private int[]			m_result;
+	
+	@Setup
+	public void setup()
+	{
+		m_scheme		= ScoringScheme.instance();
+		m_corpus		= new HandCorpus(m_scheme, m_seed, HANDS);
+		m_groups		= new Group[HANDS][];
+		m_scoredGroups	= new ScoredGroup[HANDS][];
+		m_result		= new int[HandScorer.RESULT_SIZE];
+		
+		for (int hand = 0 ; hand < HANDS ; hand++)
+		{
+			m_groups[hand]			= m_corpus.getGroups(hand);
+			m_scoredGroups[hand]	= new ScoredGroup[m_groups[hand].length];
+			
+			for (int index = 0 ; index < m_groups[hand].length ; index++)
+				m_scoredGroups[hand][index] = ScoredGroup.get(m_groups[hand][index], m_scheme, m_corpus.getOwnWind(hand), m_corpus.getPrevailingWind(hand));
+		}
+	}
+	
+	/**
+	 * Construct a new ScoredGroup for every group of a hand.
+	 */
+	@Benchmark
+	public void scoredGroupConstruction(Blackhole blackhole)
+	{
+		for (int hand = 0 ; hand < HANDS ; hand++)
+			for (Group group : m_groups[hand])
+				blackhole.consume(new ScoredGroup(group, m_scheme, m_corpus.getOwnWind(hand), m_corpus.getPrevailingWind(hand)));
+	}
+	
+	/**
+	 * Look up the shared ScoredGroup for every group of a hand.
+	 */
+	@Benchmark
+	public void scoredGroupShared(Blackhole blackhole)
+	{
+		for (int hand = 0 ; hand < HANDS ; hand++)
+			for (Group group : m_groups[hand])
+				blackhole.consume(ScoredGroup.get(group, m_scheme, m_corpus.getOwnWind(hand), m_corpus.getPrevailingWind(hand)));
+	}
+	
+	/**
+	 * Build a ScoredHand one group at a time, rescoring after each add, and set the same flags
+	 * as scoredHandBuilder, rescoring after each.
+	 */
+	@Benchmark
+	public void scoredHandAdd(Blackhole blackhole)
+	{
+		for (int hand = 0 ; hand < HANDS ; hand++)
+		{
+			ScoredHand scoredHand = new ScoredHand(m_scheme);
+			
+			for (ScoredGroup group : m_scoredGroups[hand])
+				scoredHand.add(group);
+			
+			int flags = m_corpus.getFlags(hand);
+			
+			scoredHand.setMahjongPairConcealed((flags & HandScorer.FLAG_MAHJONG_PAIR_CONCEALED) != 0);
+			scoredHand.setMahjongByLooseTile((flags & HandScorer.FLAG_MAHJONG_BY_LOOSE_TILE) != 0);
+			scoredHand.setMahjongByWallTile((flags & HandScorer.FLAG_MAHJONG_BY_WALL_TILE) != 0);
+			scoredHand.setMahjongByLastWallTile((flags & HandScorer.FLAG_MAHJONG_BY_LAST_WALL_TILE) != 0);
+			scoredHand.setMahjongByLastDiscard((flags & HandScorer.FLAG_MAHJONG_BY_LAST_DISCARD) != 0);
+			scoredHand.setMahjongByRobbingKong((flags & HandScorer.FLAG_MAHJONG_BY_ROBBING_KONG) != 0);
+			scoredHand.setMahjongByOnlyPossibleTile((flags & HandScorer.FLAG_MAHJONG_BY_ONLY_POSSIBLE_TILE) != 0);
+			scoredHand.setMahjongByOriginalCall((flags & HandScorer.FLAG_MAHJONG_BY_ORIGINAL_CALL) != 0);
+			scoredHand.setNonMahjongByOriginalCall((flags & HandScorer.FLAG_NON_MAHJONG_BY_ORIGINAL_CALL) != 0);
+			
+			blackhole.consume(scoredHand.getTotalScore());
+		}
+	}
+	
+	/**
+	 * Build a ScoredHand in one go, scoring it once.
+	 */
+	@Benchmark
+	public void scoredHandBuilder(Blackhole blackhole)
+	{
+		for (int hand = 0 ; hand < HANDS ; hand++)
+		{
+			ScoredHand.Builder builder = new ScoredHand.Builder(m_scheme).setFlags(m_corpus.getFlags(hand));
+			
+			for (ScoredGroup group : m_scoredGroups[hand])
+				builder.add(group);
+			
+			blackhole.consume(builder.build().getTotalScore());
+		}
+	}
+	
+	/**
+	 * Score the group codes of a hand without creating any objects.
+	 */
+	@Benchmark
+	public void handScorer(Blackhole blackhole)
+	{
+		for (int hand = 0 ; hand < HANDS ; hand++)
+		{
+			int[] codes = m_corpus.getCodes(hand);
+			
+			HandScorer.score(m_scheme, codes, 0, codes.length, m_corpus.getFlags(hand),
+					m_corpus.getOwnWind(hand).ordinal(), m_corpus.getPrevailingWind(hand).ordinal(), m_result, 0);
+			
+			blackhole.consume(m_result[HandScorer.RESULT_TOTAL]);
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package house.mcintosh.mahjong.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import house.mcintosh.mahjong.model.Group;
+import house.mcintosh.mahjong.model.SetComparator;
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+
+/**
+ * Sorting the groups of each hand of the corpus into display order, per hand.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(SetComparatorBenchmark.HANDS)
+public class SetComparatorBenchmark
+{
+	static final int HANDS = 1024;
+	
+	private static final SetComparator COMPARATOR = new SetComparator();
+	
+	@Param("1")
+	private long		m_seed;
+	
+	private Group[][]	m_groups;
+	private Group[]		m_scratch;
+	
+	@Setup
+	public void setup()
+	{
+		HandCorpus corpus = new HandCorpus(ScoringScheme.instance(), m_seed, HANDS);
+		
+		m_groups	= new Group[HANDS][];
+		m_scratch	= new Group[0];
+		
+		// Reverse the groups, since hands are held already sorted.
+		
+		for (int hand = 0 ; hand < HANDS ; hand++)
+		{
+			Group[] groups = corpus.getGroups(hand);
+			
+			m_groups[hand] = new Group[groups.length];
+			
+			for (int index = 0 ; index < groups.length ; index++)
+				m_groups[hand][index] = groups[groups.length - 1 - index];
+		}
+	}
+	
+	@Benchmark
+	public void sort(Blackhole blackhole)
+	{
+		for (int hand = 0 ; hand < HANDS ; hand++)
+		{
+			Group[] groups = m_groups[hand];
+			
+			if (m_scratch.length < groups.length)
+				m_scratch = new Group[groups.length];
+			
+			System.arraycopy(groups, 0, m_scratch, 0, groups.length);
+			Arrays.sort(m_scratch, 0, groups.length, COMPARATOR);
+			
+			blackhole.consume(m_scratch[0]);
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package house.mcintosh.mahjong.fx;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import house.mcintosh.mahjong.scoring.ScoredGroup;
+import house.mcintosh.mahjong.scoring.ScoredHand;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+/**
+ * Adapts a ScoredHand for a JavaFX user interface, publishing the sorted groups and the
+ * score as observables.  The scoring classes have no JavaFX dependency, so this module is
+ * the only place that needs JavaFX on the classpath.
+ * 
+ * Changes made through this adapter are published immediately.  If the hand is changed
+ * directly, call refresh() to publish the changes.
+ */
+public class ObservableScoredHand
+{
+	private final ScoredHand					m_hand;
+	private final ObservableList<ScoredGroup>	m_groups		= FXCollections.observableArrayList();
+	private final ObservableList<ScoredGroup>	m_readOnlyGroups	= FXCollections.unmodifiableObservableList(m_groups);
+	private final ReadOnlyIntegerWrapper		m_totalScore	= new ReadOnlyIntegerWrapper();
+	private final ReadOnlyBooleanWrapper		m_mahjong		= new ReadOnlyBooleanWrapper();
+	
+	public ObservableScoredHand(ScoredHand hand)
+	{
+		m_hand = hand;
+		refresh();
+	}
+	
+	public ScoredHand getHand()
+	{
+		return m_hand;
+	}
+	
+	/**
+	 * Add a group to the hand.  The observables are refreshed even if the hand rejects
+	 * the group as invalid.
+	 */
+	public void add(ScoredGroup group)
+	{
+		try
+		{
+			m_hand.add(group);
+		}
+		finally
+		{
+			refresh();
+		}
+	}
+	
+	/**
+	 * @return The groups in the hand, in SetComparator order.
+	 */
+	public ObservableList<ScoredGroup> getGroups()
+	{
+		return m_readOnlyGroups;
+	}
+	
+	public ReadOnlyIntegerProperty totalScoreProperty()
+	{
+		return m_totalScore.getReadOnlyProperty();
+	}
+	
+	public ReadOnlyBooleanProperty mahjongProperty()
+	{
+		return m_mahjong.getReadOnlyProperty();
+	}
+	
+	/**
+	 * Publish the current state of the hand.
+	 */
+	public void refresh()
+	{
+		List<ScoredGroup> groups = new ArrayList<>(m_hand.getGroupCount());
+		
+		for (ScoredGroup group : m_hand)
+			groups.add(group);
+		
+		m_groups.setAll(groups);
+		m_totalScore.set(m_hand.getTotalScore());
+		m_mahjong.set(m_hand.isMahjong());
+	}
+}
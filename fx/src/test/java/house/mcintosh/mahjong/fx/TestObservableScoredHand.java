@@ -0,0 +1,97 @@
+package house.mcintosh.mahjong.fx;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import house.mcintosh.mahjong.exception.InvalidHandException;
+import house.mcintosh.mahjong.model.Group;
+import house.mcintosh.mahjong.model.Tile;
+import house.mcintosh.mahjong.model.Wind;
+import house.mcintosh.mahjong.scoring.ScoredGroup;
+import house.mcintosh.mahjong.scoring.ScoredHand;
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+
+public class TestObservableScoredHand
+{
+	private final ScoringScheme scheme = ScoringScheme.instance();
+	
+	@Test
+	public void followsHand()
+	{
+		ScoredHand				hand		= new ScoredHand(scheme);
+		ObservableScoredHand	observable	= new ObservableScoredHand(hand);
+		final List<Number>		totals		= new ArrayList<>();
+		
+		observable.totalScoreProperty().addListener(new ChangeListener<Number>()
+		{
+			@Override
+			public void changed(ObservableValue<? extends Number> value, Number oldTotal, Number newTotal)
+			{
+				totals.add(newTotal);
+			}
+		});
+		
+		assertEquals(hand.getTotalScore(), observable.totalScoreProperty().get());
+		assertTrue(observable.getGroups().isEmpty());
+		
+		// Changes through the adapter are published at once.
+		
+		observable.add(group(Group.Type.PUNG, new Tile(Tile.Dragon.RED)));
+		observable.add(group(Group.Type.CHOW, new Tile(Tile.Suit.BAMBOO, Tile.Number.TWO)));
+		
+		assertEquals(hand.getTotalScore(), observable.totalScoreProperty().get());
+		assertEquals(hand.getTotalScore(), totals.get(totals.size() - 1));
+		assertEquals(2, observable.getGroups().size());
+		assertFalse(observable.mahjongProperty().get());
+		
+		// Changes made directly are published by refresh.
+		
+		hand.add(group(Group.Type.PUNG, new Tile(Wind.EAST)));
+		hand.add(group(Group.Type.CHOW, new Tile(Tile.Suit.CIRCLES, Tile.Number.FIVE)));
+		
+		assertEquals(2, observable.getGroups().size());
+		
+		observable.refresh();
+		
+		assertEquals(4, observable.getGroups().size());
+		assertEquals(hand.getTotalScore(), observable.totalScoreProperty().get());
+		
+		observable.add(group(Group.Type.PAIR, new Tile(Tile.Dragon.GREEN)));
+		
+		assertTrue(observable.mahjongProperty().get());
+		assertEquals(hand.getTotalScore(), observable.totalScoreProperty().get());
+		assertEquals(hand.getTotalScore(), totals.get(totals.size() - 1));
+	}
+	
+	@Test
+	public void refreshedAfterInvalidGroup()
+	{
+		ScoredHand				hand		= new ScoredHand(scheme);
+		ObservableScoredHand	observable	= new ObservableScoredHand(hand);
+		
+		try
+		{
+			for (int index = 0 ; index < 6 ; index++)
+				observable.add(group(Group.Type.PUNG, new Tile(Tile.Dragon.RED)));
+			
+			fail();
+		}
+		catch (InvalidHandException e)
+		{
+		}
+		
+		assertEquals(hand.getGroupCount(), observable.getGroups().size());
+		assertEquals(hand.getTotalScore(), observable.totalScoreProperty().get());
+	}
+	
+	private ScoredGroup group(Group.Type type, Tile tile)
+	{
+		return ScoredGroup.get(new Group(type, tile, Group.Visibility.EXPOSED), scheme, Wind.EAST, Wind.EAST);
+	}
+}
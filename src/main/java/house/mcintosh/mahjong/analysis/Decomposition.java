@@ -0,0 +1,90 @@
+package house.mcintosh.mahjong.analysis;
+
+import house.mcintosh.mahjong.model.GroupCode;
+import house.mcintosh.mahjong.model.Wind;
+import house.mcintosh.mahjong.scoring.ScoredHand;
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+
+/**
+ * One way of dividing a set of tiles into groups that make a mahjong hand, with its score.
+ * Immutable.
+ */
+public final class Decomposition
+{
+	private final ScoringScheme	m_scheme;
+	private final int[]			m_codes;
+	private final int			m_flags;
+	private final Wind			m_ownWind;
+	private final Wind			m_prevailingWind;
+	private final int			m_totalScore;
+	private final int			m_totalScoreUnlimited;
+	
+	Decomposition(ScoringScheme scheme, int[] codes, int flags, Wind ownWind, Wind prevailingWind, int totalScore, int totalScoreUnlimited)
+	{
+		m_scheme				= scheme;
+		m_codes					= codes;
+		m_flags					= flags;
+		m_ownWind				= ownWind;
+		m_prevailingWind		= prevailingWind;
+		m_totalScore			= totalScore;
+		m_totalScoreUnlimited	= totalScoreUnlimited;
+	}
+	
+	/**
+	 * @return The GroupCodes of the groups in the hand.
+	 */
+	public int[] getGroupCodes()
+	{
+		return m_codes.clone();
+	}
+	
+	public int getTotalScore()
+	{
+		return m_totalScore;
+	}
+	
+	public int getTotalScoreUnlimited()
+	{
+		return m_totalScoreUnlimited;
+	}
+	
+	/**
+	 * @return A new ScoredHand holding the groups of this decomposition.
+	 */
+	public ScoredHand toScoredHand()
+	{
+		ScoredHand.Builder builder = new ScoredHand.Builder(m_scheme).setFlags(m_flags);
+		
+		for (int code : m_codes)
+			builder.add(code, m_ownWind, m_prevailingWind);
+		
+		return builder.build();
+	}
+	
+	/**
+	 * @return True if this decomposition scores more than the other, comparing the limited
+	 * scores and then the unlimited scores.
+	 */
+	public boolean isBetterThan(Decomposition other)
+	{
+		if (m_totalScore != other.m_totalScore)
+			return m_totalScore > other.m_totalScore;
+		
+		return m_totalScoreUnlimited > other.m_totalScoreUnlimited;
+	}
+	
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		
+		sb.append('[').append(m_totalScore);
+		
+		for (int code : m_codes)
+			sb.append(',').append(GroupCode.decode(code));
+		
+		sb.append(']');
+		
+		return sb.toString();
+	}
+}
@@ -0,0 +1,203 @@
+package house.mcintosh.mahjong.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import house.mcintosh.mahjong.model.Group;
+import house.mcintosh.mahjong.model.GroupCode;
+import house.mcintosh.mahjong.model.Tile;
+import house.mcintosh.mahjong.model.Wind;
+import house.mcintosh.mahjong.scoring.HandScorer;
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+
+/**
+ * Divides raw tiles into the groups of a mahjong hand, and finds the division that scores
+ * best under a ScoringScheme.
+ * 
+ * The tiles in the hand are given as a TileHistogram, and are treated as concealed.  Groups
+ * that have already been declared, such as exposed pungs, are given separately as
+ * GroupCodes.  The decompositions of each suit are memoised by SuitDecompositions, so
+ * finding the decompositions of a hand is a cross product of at most a few entries per suit.
+ * 
+ * Instances are immutable, and can be shared between threads.
+ */
+public class HandDecomposer
+{
+	private static final int[]			NO_CODES	= new int[0];
+	private static final int			SUITS		= Tile.Suit.values().length;
+	private static final Group.Type[]	TYPES		= Group.Type.values();
+	
+	private final ScoringScheme m_scheme;
+	
+	public HandDecomposer(ScoringScheme scheme)
+	{
+		m_scheme = scheme;
+	}
+	
+	/**
+	 * Find the decomposition of the tiles that scores best.
+	 * 
+	 * @param counts		Histogram of the concealed tiles.
+	 * @param meldedCodes	GroupCodes of groups already declared.  May be null.
+	 * @param flags			Bit field of the HandScorer.FLAG_ constants.
+	 * @return The best decomposition, or null if the tiles do not make a mahjong hand.
+	 */
+	public Decomposition best(int[] counts, int[] meldedCodes, int flags, Wind ownWind, Wind prevailingWind)
+	{
+		Search search = new Search(counts, meldedCodes, flags, ownWind, prevailingWind, false);
+		
+		search.run();
+		
+		return search.m_best;
+	}
+	
+	/**
+	 * Find every decomposition of the tiles into a mahjong hand.
+	 * 
+	 * @see #best(int[], int[], int, Wind, Wind)
+	 */
+	public List<Decomposition> decompose(int[] counts, int[] meldedCodes, int flags, Wind ownWind, Wind prevailingWind)
+	{
+		Search search = new Search(counts, meldedCodes, flags, ownWind, prevailingWind, true);
+		
+		search.run();
+		
+		return search.m_all;
+	}
+	
+	/**
+	 * The state of a single search.
+	 */
+	private class Search
+	{
+		private final int[]					m_melded;
+		private final int					m_flags;
+		private final Wind					m_ownWind;
+		private final Wind					m_prevailingWind;
+		private final int[][][]				m_suits			= new int[SUITS][][];
+		private final int[]					m_codes;
+		private final int[]					m_result		= new int[HandScorer.RESULT_SIZE];
+		private final List<Decomposition>	m_all;
+		private int							m_fixedCount;
+		private Decomposition				m_best;
+		private boolean						m_possible		= true;
+		
+		private Search(int[] counts, int[] meldedCodes, int flags, Wind ownWind, Wind prevailingWind, boolean all)
+		{
+			TileHistogram.validate(counts);
+			
+			m_melded			= meldedCodes == null ? NO_CODES : meldedCodes;
+			m_flags				= flags;
+			m_ownWind			= ownWind;
+			m_prevailingWind	= prevailingWind;
+			m_all				= all ? new ArrayList<Decomposition>() : null;
+			
+			int maxGroups = m_melded.length + Tile.COUNT - Tile.FIRST_WIND_ID;
+			
+			for (int suit = 0 ; suit < SUITS ; suit++)
+			{
+				m_suits[suit] = SuitDecompositions.get(TileHistogram.suitKey(counts, suit));
+				
+				if (m_suits[suit].length == 0)
+					m_possible = false;
+				
+				int longest = 0;
+				
+				for (int[] decomposition : m_suits[suit])
+					longest = Math.max(longest, decomposition.length);
+				
+				maxGroups += longest;
+			}
+			
+			m_codes = new int[maxGroups];
+			
+			// The melded groups and the honours can only be grouped one way, so fix them first.
+			
+			System.arraycopy(m_melded, 0, m_codes, 0, m_melded.length);
+			m_fixedCount = m_melded.length;
+			
+			for (int id = Tile.FIRST_WIND_ID ; id < Tile.COUNT && m_possible ; id++)
+			{
+				Group.Type type;
+				
+				switch (counts[id])
+				{
+				case 0:		continue;
+				case 2:		type = Group.Type.PAIR;		break;
+				case 3:		type = Group.Type.PUNG;		break;
+				case 4:		type = Group.Type.KONG;		break;
+				default:	m_possible = false;			continue;
+				}
+				
+				m_codes[m_fixedCount++] = GroupCode.encode(type, id, Group.Visibility.CONCEALED);
+			}
+		}
+		
+		private void run()
+		{
+			if (m_possible)
+				combine(0, m_fixedCount);
+		}
+		
+		/**
+		 * Try every decomposition of each suit in turn, and score each complete combination.
+		 */
+		private void combine(int suit, int count)
+		{
+			if (suit == SUITS)
+			{
+				score(count);
+				return;
+			}
+			
+			int firstId = Tile.FIRST_SUIT_ID + suit * Tile.SUIT_SIZE;
+			
+			for (int[] decomposition : m_suits[suit])
+			{
+				int position = count;
+				
+				for (int local : decomposition)
+				{
+					Group.Type	type	= TYPES[local >>> SuitDecompositions.TYPE_SHIFT];
+					int			tileId	= firstId + (local & SuitDecompositions.NUMBER_MASK);
+					
+					m_codes[position++] = GroupCode.encode(type, tileId, Group.Visibility.CONCEALED);
+				}
+				
+				combine(suit + 1, position);
+			}
+		}
+		
+		private void score(int count)
+		{
+			int status = HandScorer.score(m_scheme, m_codes, 0, count, m_flags, m_ownWind.ordinal(), m_prevailingWind.ordinal(), m_result, 0);
+			
+			if (status != HandScorer.STATUS_OK || m_result[HandScorer.RESULT_MAHJONG] == 0)
+				return;
+			
+			if (m_all == null && m_best != null)
+			{
+				// Avoid creating a decomposition that is no better than the best so far.
+				
+				int total			= m_result[HandScorer.RESULT_TOTAL];
+				int totalUnlimited	= m_result[HandScorer.RESULT_TOTAL_UNLIMITED];
+				
+				if (total < m_best.getTotalScore() || (total == m_best.getTotalScore() && totalUnlimited <= m_best.getTotalScoreUnlimited()))
+					return;
+			}
+			
+			int[] codes = new int[count];
+			
+			System.arraycopy(m_codes, 0, codes, 0, count);
+			
+			Decomposition decomposition = new Decomposition(m_scheme, codes, m_flags, m_ownWind, m_prevailingWind,
+					m_result[HandScorer.RESULT_TOTAL], m_result[HandScorer.RESULT_TOTAL_UNLIMITED]);
+			
+			if (m_all != null)
+				m_all.add(decomposition);
+			
+			if (m_best == null || decomposition.isBetterThan(m_best))
+				m_best = decomposition;
+		}
+	}
+}
@@ -0,0 +1,550 @@
+package house.mcintosh.mahjong.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import house.mcintosh.mahjong.model.Group;
+import house.mcintosh.mahjong.model.GroupCode;
+import house.mcintosh.mahjong.model.Tile;
+import house.mcintosh.mahjong.model.Wind;
+import house.mcintosh.mahjong.scoring.HandScorer;
+import house.mcintosh.mahjong.scoring.ScoreContribution;
+import house.mcintosh.mahjong.scoring.ScoreList;
+import house.mcintosh.mahjong.scoring.ScoreTable;
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+import house.mcintosh.mahjong.scoring.ScoringScheme.ScoreElement;
+
+/**
+ * Counts the scores of every legal mahjong hand of four sets and a pair, for every
+ * combination of own and prevailing wind.  Hands are counted as multisets of groups, so
+ * hands that differ only in the order of their groups are counted once.
+ * 
+ * Rather than scoring every hand, the groups of each suit, and of the honours, are first
+ * reduced to Parts: everything about them that affects the score, with the number of
+ * ways of making it.  The three suits all share one set of Parts, and are combined in
+ * non-decreasing order with a weight for the number of distinct orders, so each
+ * combination of suits is scored once rather than six times.  In the same way the sixteen
+ * combinations of winds reduce to two: own and prevailing wind the same, or different.
+ */
+public class HandSpaceEnumerator
+{
+	private static final int	SETS		= 4;
+	private static final int	SUITS		= Tile.Suit.values().length;
+	private static final int	WINDS		= Wind.values().length;
+	
+	/** Honour parts combined per task. */
+	private static final int	CHUNK_SIZE	= 16;
+	
+	private static final Comparator<Part> BY_GROUPS = new Comparator<Part>()
+	{
+		@Override
+		public int compare(Part part1, Part part2)
+		{
+			return Integer.compare(part1.m_groups, part2.m_groups);
+		}
+	};
+	
+	private final ScoringScheme	m_scheme;
+	private final ScoreTable	m_table;
+	private final ForkJoinPool	m_pool;
+	private final int			m_sets;
+	private final int			m_groups;
+	
+	public HandSpaceEnumerator(ScoringScheme scheme)
+	{
+		this(scheme, ForkJoinPool.commonPool());
+	}
+	
+	public HandSpaceEnumerator(ScoringScheme scheme, ForkJoinPool pool)
+	{
+		this(scheme, pool, SETS);
+	}
+	
+	/**
+	 * Enumerate hands of fewer sets, small enough to check by brute force.
+	 */
+	HandSpaceEnumerator(ScoringScheme scheme, ForkJoinPool pool, int sets)
+	{
+		m_scheme	= scheme;
+		m_table		= scheme.getScoreTable();
+		m_pool		= pool;
+		m_sets		= sets;
+		m_groups	= sets + 1;
+	}
+	
+	/**
+	 * Score every hand.
+	 * 
+	 * @param flags	Bit field of the HandScorer.FLAG_ constants to apply to every hand.
+	 */
+	public ScoreDistribution enumerate(int flags)
+	{
+		// Suit groups score the same whatever the winds.
+		
+		List<Part>		suits		= parts(0, Tile.SUIT_SIZE, 0, 0);
+		List<Part>[][]	suitTriples	= byGroupsAndPairs(triples(suits));
+		
+		ScoreDistribution distribution = new ScoreDistribution();
+		
+		// Representative combinations: own and prevailing wind the same in four of the
+		// sixteen combinations, and different in twelve.
+		
+		distribution.merge(combine(suitTriples, flags, 0, 0, WINDS));
+		distribution.merge(combine(suitTriples, flags, 0, 1, WINDS * (WINDS - 1)));
+		
+		return distribution;
+	}
+	
+	private ScoreDistribution combine(List<Part>[][] suitTriples, int flags, int ownWind, int prevailingWind, long weight)
+	{
+		List<Part> honours = parts(Tile.FIRST_WIND_ID, Tile.COUNT, ownWind, prevailingWind);
+		
+		return m_pool.invoke(new CombineTask(honours, 0, honours.size(), suitTriples, flags, ownWind, prevailingWind, weight));
+	}
+	
+	/**
+	 * Score every hand made from honour parts in the range with the suit triples that
+	 * complete them.
+	 */
+	private ScoreDistribution combineRange(List<Part> honours, int from, int to, List<Part>[][] suitTriples, int flags, int ownWind, int prevailingWind, long weight)
+	{
+		ScoreDistribution	distribution	= new ScoreDistribution();
+		int[]				codes			= new int[m_groups];
+		int[]				result			= new int[HandScorer.RESULT_SIZE];
+		
+		for (int index = from ; index < to ; index++)
+		{
+			Part honour = honours.get(index);
+			
+			System.arraycopy(honour.m_codes, 0, codes, 0, honour.m_groups);
+			
+			for (Part suit : suitTriples[m_groups - honour.m_groups][1 - honour.m_pairs])
+			{
+				System.arraycopy(suit.m_codes, 0, codes, honour.m_groups, suit.m_groups);
+				
+				HandScorer.score(m_scheme, codes, 0, m_groups, flags, ownWind, prevailingWind, result, 0);
+				
+				long elements = honour.m_elements | suit.m_elements | handElements(honour, suit, flags);
+				
+				distribution.add(result[HandScorer.RESULT_TOTAL], elements, honour.m_count * suit.m_count * weight);
+			}
+		}
+		
+		return distribution;
+	}
+	
+	/**
+	 * @return The elements that apply to the whole of a mahjong hand, as HandScorer applies them.
+	 */
+	private long handElements(Part honour, Part suit, int flags)
+	{
+		long elements = mask(ScoreElement.MahjongHandScore);
+		
+		if (!suit.m_chow && !suit.m_minor)
+			elements |= mask(ScoreElement.AllMajorHandScore);
+		
+		if (!suit.m_chow)
+			elements |= mask(ScoreElement.NoChowsHandScore);
+		
+		if (suit.m_suits == 1)
+			elements |= mask(ScoreElement.SingleSuitHandScore);
+		
+		if (!honour.m_exposed && !suit.m_exposed && (flags & HandScorer.FLAG_MAHJONG_PAIR_CONCEALED) != 0)
+			elements |= mask(ScoreElement.AllConcealedHandScore);
+		
+		if ((flags & HandScorer.FLAG_NON_MAHJONG_BY_ORIGINAL_CALL) != 0)
+			elements |= mask(ScoreElement.OriginalCallHandScore);
+		
+		if ((flags & HandScorer.FLAG_MAHJONG_BY_WALL_TILE) != 0)
+			elements |= mask(ScoreElement.MahjongByWallTileHandScore);
+		
+		if ((flags & HandScorer.FLAG_MAHJONG_BY_LAST_WALL_TILE) != 0)
+			elements |= mask(ScoreElement.MahjongByLastWallTileHandScore);
+		
+		if ((flags & HandScorer.FLAG_MAHJONG_BY_ONLY_POSSIBLE_TILE) != 0)
+			elements |= mask(ScoreElement.MahjongByOnlyPossibleTileHandScore);
+		
+		if ((flags & HandScorer.FLAG_MAHJONG_BY_LOOSE_TILE) != 0)
+			elements |= mask(ScoreElement.MahjongByLooseTileHandScore);
+		
+		if ((flags & HandScorer.FLAG_MAHJONG_BY_LAST_DISCARD) != 0)
+			elements |= mask(ScoreElement.MahjongByLastDiscardHandScore);
+		
+		if ((flags & HandScorer.FLAG_MAHJONG_BY_ROBBING_KONG) != 0)
+			elements |= mask(ScoreElement.MahjongByRobbingKongHandScore);
+		
+		if ((flags & HandScorer.FLAG_MAHJONG_BY_ORIGINAL_CALL) != 0)
+			elements |= mask(ScoreElement.MahjongByOriginalCallHandScore);
+		
+		return elements;
+	}
+	
+	private long mask(ScoreElement element)
+	{
+		return mask(m_scheme.getScoreContribution(element));
+	}
+	
+	/**
+	 * @return Bit mask of the ordinals of the elements in the list.
+	 */
+	private static long mask(ScoreList list)
+	{
+		long elements = 0;
+		
+		for (ScoreContribution contribution : list)
+			elements |= 1L << contribution.getElement().ordinal();
+		
+		return elements;
+	}
+	
+	/**
+	 * Find all the parts that can be made from groups of tiles in a range of ids, with up to
+	 * m_sets sets and at most one pair.
+	 */
+	private List<Part> parts(int firstTileId, int endTileId, int ownWind, int prevailingWind)
+	{
+		List<Integer> codes = new ArrayList<>();
+		
+		for (int code = 0 ; code < GroupCode.COUNT ; code++)
+		{
+			int tileId = GroupCode.getTileId(code);
+			
+			if (GroupCode.isValid(code) && tileId >= firstTileId && tileId < endTileId)
+				codes.add(code);
+		}
+		
+		Map<Part, Part>	parts	= new HashMap<>();
+		int[]			counts	= new int[Tile.COUNT];
+		
+		collect(codes, 0, new Part(), counts, ownWind, prevailingWind, parts);
+		
+		return new ArrayList<>(parts.values());
+	}
+	
+	private void collect(List<Integer> codes, int start, Part part, int[] counts, int ownWind, int prevailingWind, Map<Part, Part> parts)
+	{
+		merge(parts, part);
+		
+		if (part.m_groups == m_groups)
+			return;
+		
+		for (int index = start ; index < codes.size() ; index++)
+		{
+			int code = codes.get(index);
+			
+			boolean pair = GroupCode.getType(code) == Group.Type.PAIR;
+			
+			if (pair ? part.m_pairs == 1 : part.m_groups - part.m_pairs == m_sets)
+				continue;
+			
+			if (take(counts, code, 1))
+			{
+				int tableIndex = ScoreTable.index(code, ownWind, prevailingWind);
+				
+				collect(codes, index, part.plus(code, m_table, tableIndex, mask(m_table.getScoreList(tableIndex))), counts, ownWind, prevailingWind, parts);
+			}
+			
+			take(counts, code, -1);
+		}
+	}
+	
+	/**
+	 * Add or remove the tiles of a group from the tile counts.
+	 * 
+	 * @return False if there are then more than four of any tile.
+	 */
+	private static boolean take(int[] counts, int code, int direction)
+	{
+		int tileId = GroupCode.getTileId(code);
+		
+		switch (GroupCode.getType(code))
+		{
+		case CHOW:
+			counts[tileId]		+= direction;
+			counts[tileId + 1]	+= direction;
+			counts[tileId + 2]	+= direction;
+			
+			return counts[tileId] <= TileHistogram.MAX_COUNT
+					&& counts[tileId + 1] <= TileHistogram.MAX_COUNT
+					&& counts[tileId + 2] <= TileHistogram.MAX_COUNT;
+		
+		case PAIR:
+			counts[tileId] += 2 * direction;
+			break;
+		
+		case PUNG:
+			counts[tileId] += 3 * direction;
+			break;
+		
+		default:
+			counts[tileId] += 4 * direction;
+			break;
+		}
+		
+		return counts[tileId] <= TileHistogram.MAX_COUNT;
+	}
+	
+	/**
+	 * Combine suit parts into parts covering all three suits, with no more than m_groups groups
+	 * and one pair between them.  Each combination is taken once in non-decreasing order of
+	 * parts, and weighted by the number of distinct ways of assigning those parts to suits.
+	 */
+	private List<Part> triples(List<Part> parts)
+	{
+		Collections.sort(parts, BY_GROUPS);
+		
+		Map<Part, Part> triples = new HashMap<>();
+		
+		for (int first = 0 ; first < parts.size() ; first++)
+		{
+			Part part1 = parts.get(first);
+			
+			for (int second = first ; second < parts.size() ; second++)
+			{
+				Part part2 = parts.get(second);
+				
+				if (part1.m_groups + part2.m_groups * 2 > m_groups)
+					break;
+				
+				if (part1.m_pairs + part2.m_pairs > 1)
+					continue;
+				
+				for (int third = second ; third < parts.size() ; third++)
+				{
+					Part part3 = parts.get(third);
+					
+					if (part1.m_groups + part2.m_groups + part3.m_groups > m_groups)
+						break;
+					
+					if (part1.m_pairs + part2.m_pairs + part3.m_pairs > 1)
+						continue;
+					
+					int orders;
+					
+					if (first == third)
+						orders = 1;
+					else if (first == second || second == third)
+						orders = 3;
+					else
+						orders = 6;
+					
+					merge(triples, Part.of(part1, part2, part3, orders));
+				}
+			}
+		}
+		
+		return new ArrayList<>(triples.values());
+	}
+	
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private List<Part>[][] byGroupsAndPairs(List<Part> parts)
+	{
+		List<Part>[][] lists = new List[m_groups + 1][2];
+		
+		for (List<Part>[] pairs : lists)
+			for (int pair = 0 ; pair < pairs.length ; pair++)
+				pairs[pair] = new ArrayList<>();
+		
+		for (Part part : parts)
+			lists[part.m_groups][part.m_pairs].add(part);
+		
+		return lists;
+	}
+	
+	private static void merge(Map<Part, Part> parts, Part part)
+	{
+		Part existing = parts.get(part);
+		
+		if (existing == null)
+			parts.put(part, part.copy());
+		else
+			existing.m_count += part.m_count;
+	}
+	
+	/**
+	 * Some groups from one suit, or from the honours, or from all three suits, reduced to what
+	 * affects the score of a hand that includes them.  Equal parts score the same whatever
+	 * other groups they are combined with.  Holds the codes of one example of the part and the
+	 * number of ways of making it, which are not part of its identity.
+	 */
+	private static final class Part
+	{
+		private int		m_groups;
+		private int		m_pairs;
+		private int		m_score;
+		private int		m_multiplier	= 1;
+		private boolean	m_chow;
+		private boolean	m_minor;
+		private boolean	m_exposed;
+		private int		m_suits;
+		private long	m_elements;
+		
+		private int[]	m_codes			= new int[0];
+		private long	m_count			= 1;
+		
+		Part plus(int code, ScoreTable table, int tableIndex, long elements)
+		{
+			Part	part	= copy();
+			int		tileId	= GroupCode.getTileId(code);
+			
+			part.m_codes				= Arrays.copyOf(m_codes, m_groups + 1);
+			part.m_codes[m_groups]		= code;
+			part.m_count				= 1;
+			part.m_score				+= table.getScore(tableIndex);
+			part.m_multiplier			*= table.getMultiplier(tableIndex);
+			part.m_elements				|= elements;
+			part.m_groups++;
+			
+			if (GroupCode.getType(code) == Group.Type.PAIR)
+				part.m_pairs++;
+			else if (!GroupCode.isConcealed(code))
+				part.m_exposed = true;
+			
+			if (GroupCode.getType(code) == Group.Type.CHOW)
+				part.m_chow = true;
+			
+			if (!Tile.isMajor(tileId))
+				part.m_minor = true;
+			
+			part.m_suits = tileId < Tile.FIRST_WIND_ID ? 1 : 0;
+			
+			return part;
+		}
+		
+		/**
+		 * Combine parts for the three suits, the first of which is for the first suit.
+		 */
+		static Part of(Part part1, Part part2, Part part3, int orders)
+		{
+			Part	part	= new Part();
+			Part[]	parts	= { part1, part2, part3 };
+			
+			part.m_codes = new int[part1.m_groups + part2.m_groups + part3.m_groups];
+			part.m_count = orders;
+			
+			for (int suit = 0 ; suit < SUITS ; suit++)
+			{
+				Part other = parts[suit];
+				
+				for (int group = 0 ; group < other.m_groups ; group++)
+					part.m_codes[part.m_groups + group] = other.m_codes[group] + suit * Tile.SUIT_SIZE;
+				
+				part.m_groups		+= other.m_groups;
+				part.m_pairs		+= other.m_pairs;
+				part.m_score		+= other.m_score;
+				part.m_multiplier	*= other.m_multiplier;
+				part.m_chow			|= other.m_chow;
+				part.m_minor		|= other.m_minor;
+				part.m_exposed		|= other.m_exposed;
+				part.m_suits		+= other.m_suits;
+				part.m_elements		|= other.m_elements;
+				part.m_count		*= other.m_count;
+			}
+			
+			return part;
+		}
+		
+		Part copy()
+		{
+			Part part = new Part();
+			
+			part.m_groups		= m_groups;
+			part.m_pairs		= m_pairs;
+			part.m_score		= m_score;
+			part.m_multiplier	= m_multiplier;
+			part.m_chow			= m_chow;
+			part.m_minor		= m_minor;
+			part.m_exposed		= m_exposed;
+			part.m_suits		= m_suits;
+			part.m_elements		= m_elements;
+			part.m_codes		= m_codes;
+			part.m_count		= m_count;
+			
+			return part;
+		}
+		
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (!(obj instanceof Part))
+				return false;
+			
+			Part other = (Part) obj;
+			
+			return m_groups == other.m_groups
+					&& m_pairs == other.m_pairs
+					&& m_score == other.m_score
+					&& m_multiplier == other.m_multiplier
+					&& m_chow == other.m_chow
+					&& m_minor == other.m_minor
+					&& m_exposed == other.m_exposed
+					&& m_suits == other.m_suits
+					&& m_elements == other.m_elements;
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			int hash = m_groups;
+			
+			hash = hash * 31 + m_pairs;
+			hash = hash * 31 + m_score;
+			hash = hash * 31 + m_multiplier;
+			hash = hash * 31 + (m_chow ? 1 : 0) + (m_minor ? 2 : 0) + (m_exposed ? 4 : 0);
+			hash = hash * 31 + m_suits;
+			hash = hash * 31 + Long.hashCode(m_elements);
+			
+			return hash;
+		}
+	}
+	
+	@SuppressWarnings("serial")
+	private class CombineTask extends RecursiveTask<ScoreDistribution>
+	{
+		private final List<Part>	m_honours;
+		private final int			m_from;
+		private final int			m_to;
+		private final List<Part>[][]	m_suitTriples;
+		private final int			m_flags;
+		private final int			m_ownWind;
+		private final int			m_prevailingWind;
+		private final long			m_weight;
+		
+		CombineTask(List<Part> honours, int from, int to, List<Part>[][] suitTriples, int flags, int ownWind, int prevailingWind, long weight)
+		{
+			m_honours			= honours;
+			m_from				= from;
+			m_to				= to;
+			m_suitTriples		= suitTriples;
+			m_flags				= flags;
+			m_ownWind			= ownWind;
+			m_prevailingWind	= prevailingWind;
+			m_weight			= weight;
+		}
+		
+		@Override
+		protected ScoreDistribution compute()
+		{
+			if (m_to - m_from <= CHUNK_SIZE)
+				return combineRange(m_honours, m_from, m_to, m_suitTriples, m_flags, m_ownWind, m_prevailingWind, m_weight);
+			
+			int middle = (m_from + m_to) >>> 1;
+			
+			CombineTask low		= new CombineTask(m_honours, m_from, middle, m_suitTriples, m_flags, m_ownWind, m_prevailingWind, m_weight);
+			CombineTask high	= new CombineTask(m_honours, middle, m_to, m_suitTriples, m_flags, m_ownWind, m_prevailingWind, m_weight);
+			
+			low.fork();
+			
+			ScoreDistribution distribution = high.compute();
+			
+			return distribution.merge(low.join());
+		}
+	}
+}
@@ -0,0 +1,516 @@
+package house.mcintosh.mahjong.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import house.mcintosh.mahjong.model.Game;
+import house.mcintosh.mahjong.model.Player;
+import house.mcintosh.mahjong.model.Round;
+import house.mcintosh.mahjong.model.Wind;
+import house.mcintosh.mahjong.scoring.ScoredHand;
+import house.mcintosh.mahjong.scoring.ScoringScheme.ScoreElement;
+
+/**
+ * The hands of many rounds, held column by column for analysis: one primitive array for each
+ * field, with a row for each hand.  A row takes 26 bytes, a small fraction of the Round,
+ * ScoredHand and groups it is taken from.
+ *
+ * Players are held once, and rows refer to them by an index into the store's own list of
+ * players.  Scans run over whole columns in parallel, in ranges of CHUNK_SIZE rows.
+ *
+ * Rows are added by a single thread.  Scans may run from any thread once the rows have been
+ * added, but not while rows are being added.
+ */
+public final class RoundStore
+{
+	/** What to group rows by when summarising them. */
+	public enum Dimension
+	{
+		/** Every row in one group. */
+		ALL,
+		/** Index of the player in the store. */
+		PLAYER,
+		SEAT,
+		/** Wind ordinal of the player. */
+		WIND,
+		/** Wind ordinal of the round. */
+		PREVAILING_WIND
+	}
+	
+	private static final int			SEATS			= 4;
+	private static final int			WINDS			= Wind.values().length;
+	private static final int			ELEMENTS		= ScoreElement.values().length;
+	private static final ScoreElement[]	ELEMENT_VALUES	= ScoreElement.values();
+	private static final Wind[]			WIND_VALUES		= Wind.values();
+	
+	/** Rows scanned per task. */
+	private static final int			CHUNK_SIZE		= 1 << 16;
+	private static final int			INITIAL_SIZE	= 1 << 10;
+	
+	private final ForkJoinPool			m_pool;
+	
+	// Columns, indexed by row.
+	
+	private int[]						m_players		= new int[INITIAL_SIZE];
+	private byte[]						m_seats			= new byte[INITIAL_SIZE];
+	private byte[]						m_winds			= new byte[INITIAL_SIZE];
+	private byte[]						m_prevailing	= new byte[INITIAL_SIZE];
+	/** 1 for a mahjong hand, otherwise 0, so that it can be summed. */
+	private byte[]						m_mahjong		= new byte[INITIAL_SIZE];
+	/** Score of the hand. */
+	private int[]						m_scores		= new int[INITIAL_SIZE];
+	/** Change to the player's score from the settlement of the round. */
+	private int[]						m_changes		= new int[INITIAL_SIZE];
+	/** HandScorer.FLAG_ bit field of the hand. */
+	private short[]						m_flags			= new short[INITIAL_SIZE];
+	/** Bit set of the ordinals of the ScoreElements that score the hand. */
+	private long[]						m_elements		= new long[INITIAL_SIZE];
+	private int							m_rows;
+	private int							m_rounds;
+	
+	// Players, and the index of each by player id.
+	
+	private final List<Player>			m_playerList	= new ArrayList<>();
+	private int[]						m_playerIndexes	= new int[0];
+	
+	public RoundStore()
+	{
+		this(ForkJoinPool.commonPool());
+	}
+	
+	public RoundStore(ForkJoinPool pool)
+	{
+		m_pool = pool;
+	}
+	
+	/**
+	 * Add a row for every hand of every round of a game.
+	 */
+	public void add(Game game)
+	{
+		for (int round = 0 ; round < game.getRoundCount() ; round++)
+			add(game, game.getRound(round));
+	}
+	
+	/**
+	 * Add a row for every hand of a round of a game.  The game gives the seats of the players.
+	 */
+	public void add(Game game, Round round)
+	{
+		byte	prevailingWind	= (byte) round.getPrevailingWind().ordinal();
+		int[]	seats			= new int[WINDS];
+		int[]	changes			= new int[WINDS];
+		
+		// Read everything that can fail before writing any row, so that a round that cannot be
+		// settled adds nothing.
+		
+		for (Wind wind : WIND_VALUES)
+		{
+			if (round.getHand(wind) == null)
+				continue;
+			
+			seats[wind.ordinal()]	= game.getPlayerSeat(round.getPlayer(wind));
+			changes[wind.ordinal()]	= round.getPlayerScore(wind);
+		}
+		
+		for (Wind wind : WIND_VALUES)
+		{
+			ScoredHand hand = round.getHand(wind);
+			
+			if (hand == null)
+				continue;
+			
+			if (m_rows == m_scores.length)
+				grow();
+			
+			int row = m_rows++;
+			
+			m_players[row]		= playerIndex(round.getPlayer(wind));
+			m_seats[row]		= (byte) seats[wind.ordinal()];
+			m_winds[row]		= (byte) wind.ordinal();
+			m_prevailing[row]	= prevailingWind;
+			m_mahjong[row]		= (byte) (hand.isMahjong() ? 1 : 0);
+			m_scores[row]		= hand.getTotalScore();
+			m_changes[row]		= changes[wind.ordinal()];
+			m_flags[row]		= (short) hand.getFlags();
+			m_elements[row]		= hand.getElementMask();
+		}
+		
+		m_rounds++;
+	}
+	
+	/**
+	 * @return The number of rows, one for each hand.
+	 */
+	public int getRowCount()
+	{
+		return m_rows;
+	}
+	
+	public int getRoundCount()
+	{
+		return m_rounds;
+	}
+	
+	public int getPlayerCount()
+	{
+		return m_playerList.size();
+	}
+	
+	/**
+	 * @return The player with an index in the store.
+	 */
+	public Player getPlayer(int index)
+	{
+		return m_playerList.get(index);
+	}
+	
+	/**
+	 * @return The index of the player in the store, or -1 if the player has no rows.
+	 */
+	public int getPlayerIndex(Player player)
+	{
+		int id = player.getId();
+		
+		if (id >= m_playerIndexes.length)
+			return -1;
+		
+		int index = m_playerIndexes[id] - 1;
+		
+		return index >= 0 && m_playerList.get(index) == player ? index : -1;
+	}
+	
+	/**
+	 * Count, total and count the elements of the rows in each group of a dimension.
+	 */
+	public Summary summarise(Dimension by)
+	{
+		return m_pool.invoke(new SummariseTask(by, 0, m_rows));
+	}
+	
+	/**
+	 * @param elements	Bit set of ScoreElement ordinals.
+	 * @param flags		HandScorer.FLAG_ bit field.
+	 * @return The number of rows scored by all of the elements, with all of the flags set.
+	 */
+	public long countMatching(long elements, int flags)
+	{
+		return m_pool.invoke(new CountTask(elements, flags, 0, m_rows));
+	}
+	
+	private int playerIndex(Player player)
+	{
+		int index = getPlayerIndex(player);
+		
+		if (index >= 0)
+			return index;
+		
+		int id = player.getId();
+		
+		if (id >= m_playerIndexes.length)
+			m_playerIndexes = Arrays.copyOf(m_playerIndexes, Math.max(id + 1, m_playerIndexes.length * 2));
+		
+		m_playerList.add(player);
+		m_playerIndexes[id] = m_playerList.size();
+		
+		return m_playerList.size() - 1;
+	}
+	
+	private void grow()
+	{
+		int length = m_scores.length * 2;
+		
+		m_players		= Arrays.copyOf(m_players, length);
+		m_seats			= Arrays.copyOf(m_seats, length);
+		m_winds			= Arrays.copyOf(m_winds, length);
+		m_prevailing	= Arrays.copyOf(m_prevailing, length);
+		m_mahjong		= Arrays.copyOf(m_mahjong, length);
+		m_scores		= Arrays.copyOf(m_scores, length);
+		m_changes		= Arrays.copyOf(m_changes, length);
+		m_flags			= Arrays.copyOf(m_flags, length);
+		m_elements		= Arrays.copyOf(m_elements, length);
+	}
+	
+	private int groupCount(Dimension by)
+	{
+		switch (by)
+		{
+		case PLAYER:
+			return m_playerList.size();
+		
+		case SEAT:
+			return SEATS;
+		
+		case WIND:
+		case PREVAILING_WIND:
+			return WINDS;
+		
+		default:
+			return 1;
+		}
+	}
+	
+	/**
+	 * Summarise a range of rows.  Each dimension has its own loop over its key column, so
+	 * that each loop reads only primitive arrays.
+	 */
+	private Summary summariseRange(Dimension by, int from, int to)
+	{
+		Summary summary = new Summary(by, groupCount(by));
+		
+		switch (by)
+		{
+		case PLAYER:
+			for (int row = from ; row < to ; row++)
+				summary.add(m_players[row], m_scores[row], m_changes[row], m_mahjong[row], m_elements[row]);
+			break;
+		
+		case SEAT:
+			for (int row = from ; row < to ; row++)
+				summary.add(m_seats[row], m_scores[row], m_changes[row], m_mahjong[row], m_elements[row]);
+			break;
+		
+		case WIND:
+			for (int row = from ; row < to ; row++)
+				summary.add(m_winds[row], m_scores[row], m_changes[row], m_mahjong[row], m_elements[row]);
+			break;
+		
+		case PREVAILING_WIND:
+			for (int row = from ; row < to ; row++)
+				summary.add(m_prevailing[row], m_scores[row], m_changes[row], m_mahjong[row], m_elements[row]);
+			break;
+		
+		default:
+			for (int row = from ; row < to ; row++)
+				summary.add(0, m_scores[row], m_changes[row], m_mahjong[row], m_elements[row]);
+			break;
+		}
+		
+		return summary;
+	}
+	
+	/**
+	 * Count a range of rows with a branch-free loop over the element and flag columns.
+	 */
+	private long countRange(long elements, int flags, int from, int to)
+	{
+		long count = 0;
+		
+		for (int row = from ; row < to ; row++)
+			count += ((m_elements[row] & elements) == elements) & ((m_flags[row] & flags) == flags) ? 1 : 0;
+		
+		return count;
+	}
+	
+	private final class SummariseTask extends RecursiveTask<Summary>
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private final Dimension	m_by;
+		private final int		m_from;
+		private final int		m_to;
+		
+		SummariseTask(Dimension by, int from, int to)
+		{
+			m_by	= by;
+			m_from	= from;
+			m_to	= to;
+		}
+		
+		@Override
+		protected Summary compute()
+		{
+			if (m_to - m_from <= CHUNK_SIZE)
+				return summariseRange(m_by, m_from, m_to);
+			
+			int				middle	= (m_from + m_to) >>> 1;
+			SummariseTask	left	= new SummariseTask(m_by, m_from, middle);
+			
+			left.fork();
+			
+			Summary right = new SummariseTask(m_by, middle, m_to).compute();
+			
+			return left.join().merge(right);
+		}
+	}
+	
+	private final class CountTask extends RecursiveTask<Long>
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private final long	m_elements;
+		private final int	m_flags;
+		private final int	m_from;
+		private final int	m_to;
+		
+		CountTask(long elements, int flags, int from, int to)
+		{
+			m_elements	= elements;
+			m_flags		= flags;
+			m_from		= from;
+			m_to		= to;
+		}
+		
+		@Override
+		protected Long compute()
+		{
+			if (m_to - m_from <= CHUNK_SIZE)
+				return countRange(m_elements, m_flags, m_from, m_to);
+			
+			int			middle	= (m_from + m_to) >>> 1;
+			CountTask	left	= new CountTask(m_elements, m_flags, m_from, middle);
+			
+			left.fork();
+			
+			long right = new CountTask(m_elements, m_flags, middle, m_to).compute();
+			
+			return left.join() + right;
+		}
+	}
+	
+	/**
+	 * Totals for each group of rows of a dimension, indexed by the group's key: the player
+	 * index, seat or wind ordinal.
+	 *
+	 * Built up by a single thread at a time, and then merged.  Should not be changed once
+	 * returned to the caller.
+	 */
+	public static final class Summary
+	{
+		private final Dimension	m_by;
+		private final long[]	m_counts;
+		private final long[]	m_scores;
+		private final long[]	m_changes;
+		private final long[]	m_mahjongs;
+		/** Hits of each element in each group, indexed by key * ELEMENTS + element ordinal. */
+		private final long[]	m_elementHits;
+		
+		Summary(Dimension by, int groups)
+		{
+			m_by			= by;
+			m_counts		= new long[groups];
+			m_scores		= new long[groups];
+			m_changes		= new long[groups];
+			m_mahjongs		= new long[groups];
+			m_elementHits	= new long[groups * ELEMENTS];
+		}
+		
+		void add(int key, int score, int change, int mahjong, long elements)
+		{
+			m_counts[key]++;
+			m_scores[key]	+= score;
+			m_changes[key]	+= change;
+			m_mahjongs[key]	+= mahjong;
+			
+			int base = key * ELEMENTS;
+			
+			while (elements != 0)
+			{
+				m_elementHits[base + Long.numberOfTrailingZeros(elements)]++;
+				elements &= elements - 1;
+			}
+		}
+		
+		Summary merge(Summary other)
+		{
+			for (int key = 0 ; key < m_counts.length ; key++)
+			{
+				m_counts[key]	+= other.m_counts[key];
+				m_scores[key]	+= other.m_scores[key];
+				m_changes[key]	+= other.m_changes[key];
+				m_mahjongs[key]	+= other.m_mahjongs[key];
+			}
+			
+			for (int index = 0 ; index < m_elementHits.length ; index++)
+				m_elementHits[index] += other.m_elementHits[index];
+			
+			return this;
+		}
+		
+		public Dimension getDimension()
+		{
+			return m_by;
+		}
+		
+		/**
+		 * @return The number of groups, one more than the highest key.
+		 */
+		public int getGroupCount()
+		{
+			return m_counts.length;
+		}
+		
+		/**
+		 * @return The number of hands in the group.
+		 */
+		public long getCount(int key)
+		{
+			return m_counts[key];
+		}
+		
+		/**
+		 * @return The total score of the hands in the group.
+		 */
+		public long getTotalScore(int key)
+		{
+			return m_scores[key];
+		}
+		
+		public double getMeanScore(int key)
+		{
+			return m_counts[key] == 0 ? 0 : (double) m_scores[key] / m_counts[key];
+		}
+		
+		/**
+		 * @return The total of the changes to players' scores from the hands in the group.
+		 */
+		public long getTotalChange(int key)
+		{
+			return m_changes[key];
+		}
+		
+		public long getMahjongCount(int key)
+		{
+			return m_mahjongs[key];
+		}
+		
+		/**
+		 * @return The fraction of the hands in the group that are mahjong hands.
+		 */
+		public double getMahjongRate(int key)
+		{
+			return m_counts[key] == 0 ? 0 : (double) m_mahjongs[key] / m_counts[key];
+		}
+		
+		/**
+		 * @return The number of hands in the group that the element scores.
+		 */
+		public long getElementHits(int key, ScoreElement element)
+		{
+			return m_elementHits[key * ELEMENTS + element.ordinal()];
+		}
+		
+		@Override
+		public String toString()
+		{
+			StringBuilder sb = new StringBuilder();
+			
+			for (int key = 0 ; key < m_counts.length ; key++)
+			{
+				sb.append(m_by).append(' ').append(key)
+					.append(": hands ").append(m_counts[key])
+					.append(", mean score ").append(getMeanScore(key))
+					.append(", mahjong rate ").append(getMahjongRate(key)).append('\n');
+				
+				for (ScoreElement element : ELEMENT_VALUES)
+					if (getElementHits(key, element) != 0)
+						sb.append('\t').append(element).append('\t').append(getElementHits(key, element)).append('\n');
+			}
+			
+			return sb.toString();
+		}
+	}
+}
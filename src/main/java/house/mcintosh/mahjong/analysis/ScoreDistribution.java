@@ -0,0 +1,128 @@
+package house.mcintosh.mahjong.analysis;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import house.mcintosh.mahjong.scoring.ScoringScheme.ScoreElement;
+
+/**
+ * The number of hands with each score, and the number of hands to which each ScoreElement
+ * contributes, produced by HandSpaceEnumerator.
+ * 
+ * Built up by a single thread at a time, and then merged.  Should not be changed once returned
+ * to the caller.
+ */
+public final class ScoreDistribution
+{
+	private static final ScoreElement[] ELEMENTS = ScoreElement.values();
+	
+	private final Map<Integer, Long>	m_counts		= new HashMap<>();
+	private final long[]				m_elementHits	= new long[ELEMENTS.length];
+	private long						m_handCount;
+	
+	ScoreDistribution()
+	{
+	}
+	
+	/**
+	 * Record a number of hands with the same score and score elements.
+	 * 
+	 * @param elements	Bit mask of the ordinals of the elements that contribute to the score.
+	 */
+	void add(int score, long elements, long count)
+	{
+		Long previous = m_counts.get(score);
+		
+		m_counts.put(score, previous == null ? count : previous + count);
+		m_handCount += count;
+		
+		while (elements != 0)
+		{
+			m_elementHits[Long.numberOfTrailingZeros(elements)] += count;
+			elements &= elements - 1;
+		}
+	}
+	
+	/**
+	 * Add the counts of another distribution into this one.
+	 */
+	ScoreDistribution merge(ScoreDistribution other)
+	{
+		for (Map.Entry<Integer, Long> entry : other.m_counts.entrySet())
+		{
+			Long previous = m_counts.get(entry.getKey());
+			
+			m_counts.put(entry.getKey(), previous == null ? entry.getValue() : previous + entry.getValue());
+		}
+		
+		for (int element = 0 ; element < m_elementHits.length ; element++)
+			m_elementHits[element] += other.m_elementHits[element];
+		
+		m_handCount += other.m_handCount;
+		
+		return this;
+	}
+	
+	/**
+	 * @return The total number of hands.
+	 */
+	public long getHandCount()
+	{
+		return m_handCount;
+	}
+	
+	/**
+	 * @return The number of hands with the score.
+	 */
+	public long getCount(int score)
+	{
+		Long count = m_counts.get(score);
+		
+		return count == null ? 0 : count;
+	}
+	
+	/**
+	 * @return The number of hands with each score that occurs, in score order.
+	 */
+	public SortedMap<Integer, Long> getCounts()
+	{
+		return new TreeMap<>(m_counts);
+	}
+	
+	/**
+	 * @return The number of hands to which the element contributes.
+	 */
+	public long getElementHits(ScoreElement element)
+	{
+		return m_elementHits[element.ordinal()];
+	}
+	
+	public double getMeanScore()
+	{
+		double total = 0;
+		
+		for (Map.Entry<Integer, Long> entry : m_counts.entrySet())
+			total += (double) entry.getKey() * entry.getValue();
+		
+		return m_handCount == 0 ? 0 : total / m_handCount;
+	}
+	
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		
+		sb.append("Hands: ").append(m_handCount).append('\n');
+		
+		for (Map.Entry<Integer, Long> entry : getCounts().entrySet())
+			sb.append(entry.getKey()).append('\t').append(entry.getValue()).append('\n');
+		
+		for (ScoreElement element : ELEMENTS)
+			if (m_elementHits[element.ordinal()] != 0)
+				sb.append(element).append('\t').append(m_elementHits[element.ordinal()]).append('\n');
+		
+		return sb.toString();
+	}
+}
@@ -0,0 +1,216 @@
+package house.mcintosh.mahjong.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import house.mcintosh.mahjong.model.Group;
+import house.mcintosh.mahjong.model.GroupCode;
+import house.mcintosh.mahjong.model.Tile;
+import house.mcintosh.mahjong.model.Wind;
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+
+/**
+ * Works out how far a partial hand is from mahjong, and which tiles would complete it.
+ * 
+ * Shanten is the number of tiles that must be exchanged before the hand is waiting to
+ * complete: 0 means one tile would complete the hand, and -1 means it is already complete.
+ * It is calculated from one ShantenTables lookup for each suit and one for the honours.
+ * 
+ * The concealed tiles are given as a TileHistogram, and groups that have already been
+ * declared as GroupCodes.  Instances are immutable, and can be shared between threads.
+ */
+public class ShantenCalculator
+{
+	private static final int	SUITS		= Tile.Suit.values().length;
+	private static final int	COMPLETE	= -1;
+	
+	private final HandDecomposer m_decomposer;
+	
+	public ShantenCalculator(ScoringScheme scheme)
+	{
+		m_decomposer = new HandDecomposer(scheme);
+	}
+	
+	/**
+	 * @param counts		Histogram of the concealed tiles.
+	 * @param meldCount		Number of sets already declared.
+	 * @return The shanten of the hand.
+	 */
+	public static int shanten(int[] counts, int meldCount)
+	{
+		return shanten(counts, meldCount, 0);
+	}
+	
+	/**
+	 * @param meldPairs		Number of pairs already declared.  If there is one, the concealed
+	 *						tiles need not hold a pair.
+	 */
+	private static int shanten(int[] counts, int meldCount, int meldPairs)
+	{
+		int setsNeeded = Math.max(ShantenTables.MAX_SETS - meldCount, 0);
+		
+		// Greatest number of partial sets for each combination of pairs and sets so far.
+		
+		int[][] best = new int[2][ShantenTables.MAX_SETS + 1];
+		int[][] next = new int[2][ShantenTables.MAX_SETS + 1];
+		
+		clear(best);
+		best[Math.min(meldPairs, 1)][0] = 0;
+		
+		for (int block = 0 ; block <= SUITS ; block++)
+		{
+			int entry = block < SUITS
+					? ShantenTables.SUITS[TileHistogram.suitKey(counts, block)]
+					: ShantenTables.HONOURS[TileHistogram.honourKey(counts)];
+			
+			clear(next);
+			
+			for (int pairs = 0 ; pairs < 2 ; pairs++)
+			{
+				for (int sets = 0 ; sets <= setsNeeded ; sets++)
+				{
+					if (best[pairs][sets] < 0)
+						continue;
+					
+					for (int blockPairs = 0 ; blockPairs + pairs < 2 ; blockPairs++)
+					{
+						for (int blockSets = 0 ; blockSets <= ShantenTables.MAX_SETS ; blockSets++)
+						{
+							int blockPartials = ShantenTables.get(entry, blockPairs, blockSets);
+							
+							if (blockPartials == ShantenTables.IMPOSSIBLE)
+								continue;
+							
+							int totalSets		= Math.min(sets + blockSets, setsNeeded);
+							int totalPartials	= Math.min(best[pairs][sets] + blockPartials, ShantenTables.MAX_SETS);
+							
+							if (next[pairs + blockPairs][totalSets] < totalPartials)
+								next[pairs + blockPairs][totalSets] = totalPartials;
+						}
+					}
+				}
+			}
+			
+			int[][] swap = best;
+			
+			best = next;
+			next = swap;
+		}
+		
+		int shanten = Integer.MAX_VALUE;
+		
+		for (int pairs = 0 ; pairs < 2 ; pairs++)
+		{
+			for (int sets = 0 ; sets <= setsNeeded ; sets++)
+			{
+				if (best[pairs][sets] < 0)
+					continue;
+				
+				int partials = Math.min(best[pairs][sets], setsNeeded - sets);
+				
+				shanten = Math.min(shanten, 2 * (setsNeeded - sets) - partials - pairs);
+			}
+		}
+		
+		return shanten;
+	}
+	
+	/**
+	 * @param concealed	The concealed tiles.
+	 * @param melds		The sets already declared.
+	 * @return The shanten of the hand.
+	 */
+	public static int shanten(Collection<Tile> concealed, Collection<? extends Group> melds)
+	{
+		int sets = countSets(melds);
+		
+		return shanten(TileHistogram.of(concealed), sets, melds.size() - sets);
+	}
+	
+	/**
+	 * Find the tiles that would complete the hand, with the best score that each would give.
+	 * 
+	 * @param counts		Histogram of the concealed tiles, not including the completing tile.
+	 * @param meldedCodes	GroupCodes of groups already declared.  May be null.
+	 * @param flags			Bit field of the HandScorer.FLAG_ constants for the completed hand.
+	 * @return The waits, in tile id order.  Empty if the hand is not waiting.
+	 */
+	public List<Wait> getWaits(int[] counts, int[] meldedCodes, int flags, Wind ownWind, Wind prevailingWind)
+	{
+		TileHistogram.validate(counts);
+		
+		List<Wait>	waits		= new ArrayList<>();
+		int			meldCount	= countSets(meldedCodes);
+		int			meldPairs	= meldedCodes == null ? 0 : meldedCodes.length - meldCount;
+		
+		if (shanten(counts, meldCount, meldPairs) > 0)
+			return waits;
+		
+		int[] completed = counts.clone();
+		
+		for (int id = 0 ; id < Tile.COUNT ; id++)
+		{
+			if (completed[id] == TileHistogram.MAX_COUNT)
+				continue;
+			
+			completed[id]++;
+			
+			if (shanten(completed, meldCount, meldPairs) == COMPLETE)
+			{
+				Decomposition decomposition = m_decomposer.best(completed, meldedCodes, flags, ownWind, prevailingWind);
+				
+				if (decomposition != null)
+					waits.add(new Wait(Tile.fromId(id), decomposition));
+			}
+			
+			completed[id]--;
+		}
+		
+		return waits;
+	}
+	
+	/**
+	 * @see #getWaits(int[], int[], int, Wind, Wind)
+	 */
+	public List<Wait> getWaits(Collection<Tile> concealed, Collection<? extends Group> melds, int flags, Wind ownWind, Wind prevailingWind)
+	{
+		int[] meldedCodes = new int[melds.size()];
+		int index = 0;
+		
+		for (Group meld : melds)
+			meldedCodes[index++] = meld.getCode();
+		
+		return getWaits(TileHistogram.of(concealed), meldedCodes, flags, ownWind, prevailingWind);
+	}
+	
+	private static int countSets(Collection<? extends Group> melds)
+	{
+		int sets = 0;
+		
+		for (Group meld : melds)
+			if (meld.getType() != Group.Type.PAIR)
+				sets++;
+		
+		return sets;
+	}
+	
+	private static int countSets(int[] meldedCodes)
+	{
+		int sets = 0;
+		
+		if (meldedCodes != null)
+			for (int code : meldedCodes)
+				if (GroupCode.getType(code) != Group.Type.PAIR)
+					sets++;
+		
+		return sets;
+	}
+	
+	private static void clear(int[][] partials)
+	{
+		for (int[] row : partials)
+			Arrays.fill(row, -1);
+	}
+}
@@ -0,0 +1,133 @@
+package house.mcintosh.mahjong.analysis;
+
+import house.mcintosh.mahjong.model.Tile;
+
+/**
+ * Tables of how well each pattern of tiles in a suit, or of the honour tiles, can be divided
+ * into sets, partial sets and a pair.  Built once, when first used.
+ * 
+ * Each entry is indexed by the TileHistogram key of the pattern, and holds the greatest
+ * number of partial sets possible for each combination of pair count (0 or 1) and complete
+ * set count (0 to MAX_SETS).  Each number is held in BITS bits, and is IMPOSSIBLE where the
+ * combination cannot be made.  Counts above MAX_SETS are capped, since a hand never needs
+ * more.
+ */
+final class ShantenTables
+{
+	static final int	MAX_SETS	= 4;
+	static final int	IMPOSSIBLE	= 7;
+	
+	private static final int	BITS		= 3;
+	private static final int	SLOTS		= 2 * (MAX_SETS + 1);
+	private static final int	NONE		= (1 << (BITS * SLOTS)) - 1;
+	private static final int	EMPTY		= set(NONE, 0, 0, 0);
+	
+	static final int[] SUITS	= build(Tile.SUIT_SIZE, TileHistogram.SUIT_KEYS, true);
+	static final int[] HONOURS	= build(Tile.COUNT - Tile.FIRST_WIND_ID, TileHistogram.HONOUR_KEYS, false);
+	
+	private ShantenTables()
+	{
+	}
+	
+	/**
+	 * @return The greatest number of partial sets in the entry with the pair and set counts,
+	 * or IMPOSSIBLE.
+	 */
+	static int get(int entry, int pairs, int sets)
+	{
+		return (entry >>> (BITS * (pairs * (MAX_SETS + 1) + sets))) & IMPOSSIBLE;
+	}
+	
+	private static int set(int entry, int pairs, int sets, int partials)
+	{
+		int shift = BITS * (pairs * (MAX_SETS + 1) + sets);
+		
+		return (entry & ~(IMPOSSIBLE << shift)) | (partials << shift);
+	}
+	
+	/**
+	 * Build the table for all patterns of the given number of tiles.  Removing tiles from a
+	 * pattern always gives a smaller key, so each entry can be built from entries that are
+	 * already complete.
+	 * 
+	 * @param sequences True if the tiles can form chows.
+	 */
+	private static int[] build(int tiles, int keys, boolean sequences)
+	{
+		int[] table		= new int[keys];
+		int[] powers	= new int[tiles];
+		int[] counts	= new int[tiles];
+		
+		for (int tile = 0, power = 1 ; tile < tiles ; tile++, power *= TileHistogram.MAX_COUNT + 1)
+			powers[tile] = power;
+		
+		table[0] = EMPTY;
+		
+		for (int key = 1 ; key < keys ; key++)
+		{
+			int lowest = 0;
+			
+			for (int tile = 0, rest = key ; tile < tiles ; tile++, rest /= TileHistogram.MAX_COUNT + 1)
+				counts[tile] = rest % (TileHistogram.MAX_COUNT + 1);
+			
+			while (counts[lowest] == 0)
+				lowest++;
+			
+			int power = powers[lowest];
+			
+			// Leave the lowest tile on its own.
+			int entry = combine(NONE, table[key - power], 0, 0, 0);
+			
+			if (counts[lowest] >= 3)
+				entry = combine(entry, table[key - 3 * power], 0, 1, 0);
+			
+			if (counts[lowest] >= 2)
+			{
+				entry = combine(entry, table[key - 2 * power], 1, 0, 0);
+				entry = combine(entry, table[key - 2 * power], 0, 0, 1);
+			}
+			
+			if (sequences && lowest + 1 < tiles && counts[lowest + 1] > 0)
+			{
+				entry = combine(entry, table[key - power - powers[lowest + 1]], 0, 0, 1);
+				
+				if (lowest + 2 < tiles && counts[lowest + 2] > 0)
+					entry = combine(entry, table[key - power - powers[lowest + 1] - powers[lowest + 2]], 0, 1, 0);
+			}
+			
+			if (sequences && lowest + 2 < tiles && counts[lowest + 2] > 0)
+				entry = combine(entry, table[key - power - powers[lowest + 2]], 0, 0, 1);
+			
+			table[key] = entry;
+		}
+		
+		return table;
+	}
+	
+	/**
+	 * Merge into an entry the combinations of another entry with some pairs, sets and partial
+	 * sets added, keeping the greatest number of partial sets for each combination.
+	 */
+	private static int combine(int entry, int other, int addPairs, int addSets, int addPartials)
+	{
+		for (int pairs = 0 ; pairs + addPairs < 2 ; pairs++)
+		{
+			for (int sets = 0 ; sets <= MAX_SETS ; sets++)
+			{
+				int partials = get(other, pairs, sets);
+				
+				if (partials == IMPOSSIBLE)
+					continue;
+				
+				int newSets		= Math.min(sets + addSets, MAX_SETS);
+				int newPartials	= Math.min(partials + addPartials, MAX_SETS);
+				int existing	= get(entry, pairs + addPairs, newSets);
+				
+				if (existing == IMPOSSIBLE || existing < newPartials)
+					entry = set(entry, pairs + addPairs, newSets, newPartials);
+			}
+		}
+		
+		return entry;
+	}
+}
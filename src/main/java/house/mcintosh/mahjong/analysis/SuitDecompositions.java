@@ -0,0 +1,120 @@
+package house.mcintosh.mahjong.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import house.mcintosh.mahjong.model.Group;
+import house.mcintosh.mahjong.model.Tile;
+
+/**
+ * Every way in which the tiles of one suit can be divided completely into sets and at most
+ * one pair.  The result for each suit key is computed once and memoised, so that hands
+ * sharing a suit pattern share the work.
+ * 
+ * Each decomposition is an array of local groups.  A local group holds the Group.Type
+ * ordinal shifted left by TYPE_SHIFT, ORed with the Number ordinal of its first tile.
+ */
+final class SuitDecompositions
+{
+	static final int	TYPE_SHIFT	= 4;
+	static final int	NUMBER_MASK	= (1 << TYPE_SHIFT) - 1;
+	
+	private static final int[][]	NONE	= new int[0][];
+	private static final int		PAIR	= Group.Type.PAIR.ordinal();
+	private static final int		CHOW	= Group.Type.CHOW.ordinal();
+	private static final int		PUNG	= Group.Type.PUNG.ordinal();
+	private static final int		KONG	= Group.Type.KONG.ordinal();
+	
+	static private final ConcurrentMap<Integer, int[][]> s_memo = new ConcurrentHashMap<>();
+	
+	private SuitDecompositions()
+	{
+	}
+	
+	/**
+	 * @return All the decompositions of the suit pattern.  Empty if there are none.  Must
+	 * not be modified.
+	 */
+	static int[][] get(int suitKey)
+	{
+		int[][] decompositions = s_memo.get(suitKey);
+		
+		if (decompositions == null)
+		{
+			decompositions = compute(suitKey);
+			s_memo.putIfAbsent(suitKey, decompositions);
+		}
+		
+		return decompositions;
+	}
+	
+	private static int[][] compute(int suitKey)
+	{
+		int[] counts = new int[Tile.SUIT_SIZE];
+		
+		TileHistogram.decodeSuitKey(suitKey, counts);
+		
+		List<int[]> results = new ArrayList<>();
+		
+		search(counts, 0, false, new int[TileHistogram.MAX_COUNT * Tile.SUIT_SIZE], 0, results);
+		
+		return results.isEmpty() ? NONE : results.toArray(new int[results.size()][]);
+	}
+	
+	/**
+	 * Always take a group starting at the lowest remaining tile, so each decomposition is
+	 * found exactly once.
+	 */
+	private static void search(int[] counts, int number, boolean pairUsed, int[] groups, int groupCount, List<int[]> results)
+	{
+		while (number < Tile.SUIT_SIZE && counts[number] == 0)
+			number++;
+		
+		if (number == Tile.SUIT_SIZE)
+		{
+			int[] result = new int[groupCount];
+			
+			System.arraycopy(groups, 0, result, 0, groupCount);
+			results.add(result);
+			return;
+		}
+		
+		if (counts[number] >= 4)
+		{
+			counts[number] -= 4;
+			groups[groupCount] = (KONG << TYPE_SHIFT) | number;
+			search(counts, number, pairUsed, groups, groupCount + 1, results);
+			counts[number] += 4;
+		}
+		
+		if (counts[number] >= 3)
+		{
+			counts[number] -= 3;
+			groups[groupCount] = (PUNG << TYPE_SHIFT) | number;
+			search(counts, number, pairUsed, groups, groupCount + 1, results);
+			counts[number] += 3;
+		}
+		
+		if (counts[number] >= 2 && !pairUsed)
+		{
+			counts[number] -= 2;
+			groups[groupCount] = (PAIR << TYPE_SHIFT) | number;
+			search(counts, number, true, groups, groupCount + 1, results);
+			counts[number] += 2;
+		}
+		
+		if (number + 2 < Tile.SUIT_SIZE && counts[number + 1] > 0 && counts[number + 2] > 0)
+		{
+			counts[number]--;
+			counts[number + 1]--;
+			counts[number + 2]--;
+			groups[groupCount] = (CHOW << TYPE_SHIFT) | number;
+			search(counts, number, pairUsed, groups, groupCount + 1, results);
+			counts[number]++;
+			counts[number + 1]++;
+			counts[number + 2]++;
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package house.mcintosh.mahjong.analysis;
+
+import house.mcintosh.mahjong.metrics.Metrics;
+import house.mcintosh.mahjong.model.Group;
+import house.mcintosh.mahjong.model.Tile;
+
+/**
+ * Helpers for a multiset of tiles held as a histogram: an int array of Tile.COUNT counts,
+ * indexed by tile id.
+ */
+public final class TileHistogram
+{
+	/** Most tiles of one kind in a set of tiles. */
+	public static final int MAX_COUNT = 4;
+	
+	/** Number of different keys returned by suitKey(). */
+	public static final int SUIT_KEYS = 1953125;	// (MAX_COUNT + 1) ^ Tile.SUIT_SIZE
+	
+	/** Number of different keys returned by honourKey(). */
+	public static final int HONOUR_KEYS = 78125;	// (MAX_COUNT + 1) ^ (Tile.COUNT - Tile.FIRST_WIND_ID)
+	
+	private TileHistogram()
+	{
+	}
+	
+	public static int[] create()
+	{
+		return new int[Tile.COUNT];
+	}
+	
+	public static int[] of(Iterable<Tile> tiles)
+	{
+		int[] counts = create();
+		
+		for (Tile tile : tiles)
+			counts[tile.getId()]++;
+		
+		return counts;
+	}
+	
+	public static int[] of(Tile... tiles)
+	{
+		int[] counts = create();
+		
+		for (Tile tile : tiles)
+			counts[tile.getId()]++;
+		
+		return counts;
+	}
+	
+	/**
+	 * Add the tiles of a group to a histogram.
+	 */
+	public static void add(int[] counts, Group group)
+	{
+		for (Tile tile : group.getTiles())
+			counts[tile.getId()]++;
+	}
+	
+	public static int size(int[] counts)
+	{
+		int size = 0;
+		
+		for (int count : counts)
+			size += count;
+		
+		return size;
+	}
+	
+	/**
+	 * Check that a histogram is the right length and that no count is out of range.
+	 */
+	public static void validate(int[] counts)
+	{
+		if (counts.length != Tile.COUNT)
+			throw Metrics.invalidHand("Tile histogram must have " + Tile.COUNT + " counts");
+		
+		for (int id = 0 ; id < Tile.COUNT ; id++)
+			if (counts[id] < 0 || counts[id] > MAX_COUNT)
+				throw Metrics.invalidHand("Invalid count of " + counts[id] + " for " + Tile.fromId(id));
+	}
+	
+	/**
+	 * Encode the counts of one suit as a single number in base MAX_COUNT+1, with the count of
+	 * the tile numbered ONE as the least significant digit.
+	 * 
+	 * @param suit Ordinal of the suit.
+	 */
+	public static int suitKey(int[] counts, int suit)
+	{
+		int first	= Tile.FIRST_SUIT_ID + suit * Tile.SUIT_SIZE;
+		int key		= 0;
+		
+		for (int id = first + Tile.SUIT_SIZE - 1 ; id >= first ; id--)
+			key = key * (MAX_COUNT + 1) + counts[id];
+		
+		return key;
+	}
+	
+	/**
+	 * Encode the counts of the winds and dragons as a single number in base MAX_COUNT+1, with
+	 * the count of the lowest tile id as the least significant digit.
+	 */
+	public static int honourKey(int[] counts)
+	{
+		int key = 0;
+		
+		for (int id = Tile.COUNT - 1 ; id >= Tile.FIRST_WIND_ID ; id--)
+			key = key * (MAX_COUNT + 1) + counts[id];
+		
+		return key;
+	}
+	
+	/**
+	 * Decode a suit key into the counts of the tiles numbered ONE to NINE.
+	 */
+	public static void decodeSuitKey(int key, int[] suitCounts)
+	{
+		for (int number = 0 ; number < Tile.SUIT_SIZE ; number++)
+		{
+			suitCounts[number]	= key % (MAX_COUNT + 1);
+			key					/= MAX_COUNT + 1;
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package house.mcintosh.mahjong.analysis;
+
+import house.mcintosh.mahjong.model.Tile;
+import house.mcintosh.mahjong.scoring.ScoredHand;
+
+/**
+ * A tile that would complete a hand, and the best-scoring hand it would complete.
+ */
+public final class Wait
+{
+	private final Tile			m_tile;
+	private final Decomposition	m_decomposition;
+	
+	Wait(Tile tile, Decomposition decomposition)
+	{
+		m_tile			= tile;
+		m_decomposition	= decomposition;
+	}
+	
+	public Tile getTile()
+	{
+		return m_tile;
+	}
+	
+	public Decomposition getDecomposition()
+	{
+		return m_decomposition;
+	}
+	
+	public int getTotalScore()
+	{
+		return m_decomposition.getTotalScore();
+	}
+	
+	/**
+	 * @return A new ScoredHand for the completed hand.
+	 */
+	public ScoredHand toScoredHand()
+	{
+		return m_decomposition.toScoredHand();
+	}
+	
+	@Override
+	public String toString()
+	{
+		return m_tile.toString() + '=' + getTotalScore();
+	}
+}
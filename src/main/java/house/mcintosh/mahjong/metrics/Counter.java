@@ -0,0 +1,52 @@
+package house.mcintosh.mahjong.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count that many threads can add to at once.  Held in a LongAdder, which spreads updates
+ * across cells on contention, so threads rarely write the same cache line.
+ */
+public final class Counter
+{
+	private final String	m_name;
+	private final LongAdder	m_count	= new LongAdder();
+	
+	Counter(String name)
+	{
+		m_name = name;
+	}
+	
+	public String getName()
+	{
+		return m_name;
+	}
+	
+	public void increment()
+	{
+		m_count.increment();
+	}
+	
+	public void add(long count)
+	{
+		m_count.add(count);
+	}
+	
+	/**
+	 * @return The count.  Not an atomic snapshot if other threads are adding to it.
+	 */
+	public long get()
+	{
+		return m_count.sum();
+	}
+	
+	public void reset()
+	{
+		m_count.reset();
+	}
+	
+	@Override
+	public String toString()
+	{
+		return m_name + "=" + get();
+	}
+}
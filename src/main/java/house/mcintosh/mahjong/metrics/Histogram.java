@@ -0,0 +1,183 @@
+package house.mcintosh.mahjong.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The distribution of values recorded from many threads at once, such as latencies in
+ * nanoseconds.
+ *
+ * Values are counted in buckets: one for each value below SUB_BUCKETS * 2, then SUB_BUCKETS
+ * for each power of two, so a bucket is never wider than 1/SUB_BUCKETS of its values.
+ * Negative values are counted as zero.
+ *
+ * Each thread records into one of a number of stripes, chosen by thread id, so threads on
+ * different cores rarely write to the same cache line.  Each stripe holds its buckets, count,
+ * sum and maximum in one array.  Reads add the stripes up, so they are not an atomic
+ * snapshot while values are being recorded.
+ */
+public final class Histogram
+{
+	private static final int	SUB_BITS		= 3;
+	private static final int	SUB_BUCKETS		= 1 << SUB_BITS;
+	/** Values below this have a bucket each. */
+	private static final int	LINEAR			= SUB_BUCKETS * 2;
+	private static final int	BUCKETS			= LINEAR + (63 - SUB_BITS - 1) * SUB_BUCKETS;
+	
+	// Positions of the totals in a stripe, after the buckets.
+	
+	private static final int	COUNT			= BUCKETS;
+	private static final int	SUM				= BUCKETS + 1;
+	private static final int	MAX				= BUCKETS + 2;
+	private static final int	STRIPE_SIZE		= BUCKETS + 3;
+	
+	private static final int	STRIPES			= Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1;
+	
+	private final String			m_name;
+	private final AtomicLongArray[]	m_stripes	= new AtomicLongArray[STRIPES];
+	
+	Histogram(String name)
+	{
+		m_name = name;
+		
+		for (int stripe = 0 ; stripe < STRIPES ; stripe++)
+			m_stripes[stripe] = new AtomicLongArray(STRIPE_SIZE);
+	}
+	
+	public String getName()
+	{
+		return m_name;
+	}
+	
+	public void record(long value)
+	{
+		if (value < 0)
+			value = 0;
+		
+		AtomicLongArray stripe = m_stripes[(int) Thread.currentThread().getId() & (STRIPES - 1)];
+		
+		stripe.getAndIncrement(bucket(value));
+		stripe.getAndIncrement(COUNT);
+		stripe.getAndAdd(SUM, value);
+		
+		long max = stripe.get(MAX);
+		
+		while (value > max && !stripe.compareAndSet(MAX, max, value))
+			max = stripe.get(MAX);
+	}
+	
+	public long getCount()
+	{
+		return total(COUNT);
+	}
+	
+	public long getSum()
+	{
+		return total(SUM);
+	}
+	
+	public double getMean()
+	{
+		long count = getCount();
+		
+		return count == 0 ? 0 : (double) getSum() / count;
+	}
+	
+	public long getMax()
+	{
+		long max = 0;
+		
+		for (AtomicLongArray stripe : m_stripes)
+			max = Math.max(max, stripe.get(MAX));
+		
+		return max;
+	}
+	
+	/**
+	 * @param percentile	From 0 to 100.
+	 * @return The highest value of the bucket holding the value at the percentile, so no more
+	 * than 1/SUB_BUCKETS above the true value.  Zero if nothing has been recorded.
+	 */
+	public long getPercentile(double percentile)
+	{
+		long[]	counts	= new long[BUCKETS];
+		long	count	= 0;
+		
+		for (AtomicLongArray stripe : m_stripes)
+		{
+			for (int bucket = 0 ; bucket < BUCKETS ; bucket++)
+			{
+				long bucketCount = stripe.get(bucket);
+				
+				counts[bucket]	+= bucketCount;
+				count			+= bucketCount;
+			}
+		}
+		
+		if (count == 0)
+			return 0;
+		
+		long rank = Math.max(1, (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100));
+		
+		for (int bucket = 0 ; bucket < BUCKETS ; bucket++)
+		{
+			rank -= counts[bucket];
+			
+			if (rank <= 0)
+				return Math.min(highest(bucket), getMax());
+		}
+		
+		return getMax();
+	}
+	
+	public void reset()
+	{
+		for (AtomicLongArray stripe : m_stripes)
+			for (int index = 0 ; index < STRIPE_SIZE ; index++)
+				stripe.set(index, 0);
+	}
+	
+	@Override
+	public String toString()
+	{
+		return m_name + ": count=" + getCount() + " mean=" + getMean() + " p50=" + getPercentile(50) + " p99=" + getPercentile(99) + " max=" + getMax();
+	}
+	
+	/**
+	 * @return The bucket of a value that is not negative.
+	 */
+	static int bucket(long value)
+	{
+		if (value < LINEAR)
+			return (int) value;
+		
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		
+		return LINEAR + (exponent - SUB_BITS - 1) * SUB_BUCKETS + (int) ((value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1));
+	}
+	
+	/**
+	 * @return The highest value in a bucket.
+	 */
+	static long highest(int bucket)
+	{
+		if (bucket < LINEAR)
+			return bucket;
+		
+		int exponent	= (bucket - LINEAR) / SUB_BUCKETS + SUB_BITS + 1;
+		int sub			= (bucket - LINEAR) % SUB_BUCKETS;
+		
+		long lowest = (long) (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+		
+		return lowest + (1L << (exponent - SUB_BITS)) - 1;
+	}
+	
+	private long total(int index)
+	{
+		long total = 0;
+		
+		for (AtomicLongArray stripe : m_stripes)
+			total += stripe.get(index);
+		
+		return total;
+	}
+}
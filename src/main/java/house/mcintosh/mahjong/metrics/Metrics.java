@@ -0,0 +1,75 @@
+package house.mcintosh.mahjong.metrics;
+
+import house.mcintosh.mahjong.exception.InvalidHandException;
+
+/**
+ * The metrics the library records about its own work, in a shared registry.
+ *
+ * Recording is off unless the system property house.mcintosh.mahjong.metrics is true, or
+ * setEnabled(true) is called.  Every place that records first tests isEnabled(), a read of
+ * one static field, so recording costs next to nothing while it is off.  A change to the
+ * setting may take a moment to be seen by other threads.
+ */
+public final class Metrics
+{
+	/** Name of the MBean registered by registerMBean(). */
+	public static final String				OBJECT_NAME				= "house.mcintosh.mahjong:type=Metrics";
+	
+	private static final MetricsRegistry	s_registry				= new MetricsRegistry();
+	private static volatile boolean			s_enabled				= Boolean.getBoolean("house.mcintosh.mahjong.metrics");
+	
+	/** Calls to ScoredHand.updateScore. */
+	public static final Counter				HAND_UPDATES			= s_registry.counter("scoredHand.updates");
+	/**
+	 * Number of times each hand was scored, recorded as the hand is added to a Round.  Only
+	 * scorings while recording was on are counted, so a hand built while it was off is left
+	 * out, and one built while it was turned on is undercounted.
+	 */
+	public static final Histogram			HAND_UPDATES_PER_HAND	= s_registry.histogram("scoredHand.updatesPerHand");
+	public static final Counter				GROUPS_CONSTRUCTED		= s_registry.counter("scoredGroup.constructions");
+	/** Calls to either Round.getPlayerScore. */
+	public static final Counter				PLAYER_SCORE_CALLS		= s_registry.counter("round.getPlayerScore");
+	/** Time taken by Game.addRound, in nanoseconds. */
+	public static final Histogram			ADD_ROUND_NANOS			= s_registry.histogram("game.addRound.nanos");
+	/** InvalidHandExceptions created through invalidHand(). */
+	public static final Counter				INVALID_HANDS			= s_registry.counter("hands.invalid");
+	
+	private Metrics()
+	{
+	}
+	
+	public static boolean isEnabled()
+	{
+		return s_enabled;
+	}
+	
+	public static void setEnabled(boolean enabled)
+	{
+		s_enabled = enabled;
+	}
+	
+	/**
+	 * Create an exception for a hand that cannot be accepted, counting it in INVALID_HANDS.
+	 * Every place that rejects a hand throws what this returns.
+	 */
+	public static InvalidHandException invalidHand(String message)
+	{
+		if (s_enabled)
+			INVALID_HANDS.increment();
+		
+		return new InvalidHandException(message);
+	}
+	
+	public static MetricsRegistry getRegistry()
+	{
+		return s_registry;
+	}
+	
+	/**
+	 * Publish the library's metrics through JMX, as OBJECT_NAME.
+	 */
+	public static void registerMBean()
+	{
+		s_registry.registerMBean(OBJECT_NAME);
+	}
+}
@@ -0,0 +1,255 @@
+package house.mcintosh.mahjong.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+import house.mcintosh.mahjong.exception.MahjongException;
+
+/**
+ * Named counters and histograms, created on first use and shared from then on.
+ *
+ * The registry can be published as a JMX MBean, with an attribute for each counter and for
+ * the count, mean, 50th and 99th percentile and maximum of each histogram.  Attributes are
+ * read from the metrics when asked for, so metrics created after the MBean is registered
+ * appear too.
+ */
+public final class MetricsRegistry
+{
+	// Histogram attributes, appended to the name of the histogram.
+	
+	private static final String	COUNT	= ".count";
+	private static final String	MEAN	= ".mean";
+	private static final String	P50		= ".p50";
+	private static final String	P99		= ".p99";
+	private static final String	MAX		= ".max";
+	
+	private static final String[]	HISTOGRAM_ATTRIBUTES	= { COUNT, MEAN, P50, P99, MAX };
+	
+	private final ConcurrentMap<String, Counter>	m_counters		= new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Histogram>	m_histograms	= new ConcurrentHashMap<>();
+	
+	/**
+	 * @return The counter with the name, created if there is none.
+	 */
+	public Counter counter(String name)
+	{
+		Counter counter = m_counters.get(name);
+		
+		if (counter != null)
+			return counter;
+		
+		Counter created		= new Counter(name);
+		Counter existing	= m_counters.putIfAbsent(name, created);
+		
+		return existing == null ? created : existing;
+	}
+	
+	/**
+	 * @return The histogram with the name, created if there is none.
+	 */
+	public Histogram histogram(String name)
+	{
+		Histogram histogram = m_histograms.get(name);
+		
+		if (histogram != null)
+			return histogram;
+		
+		Histogram created	= new Histogram(name);
+		Histogram existing	= m_histograms.putIfAbsent(name, created);
+		
+		return existing == null ? created : existing;
+	}
+	
+	/**
+	 * @return The counters, in no particular order.
+	 */
+	public List<Counter> getCounters()
+	{
+		return new ArrayList<>(m_counters.values());
+	}
+	
+	/**
+	 * @return The histograms, in no particular order.
+	 */
+	public List<Histogram> getHistograms()
+	{
+		return new ArrayList<>(m_histograms.values());
+	}
+	
+	/**
+	 * Reset every counter and histogram.
+	 */
+	public void reset()
+	{
+		for (Counter counter : m_counters.values())
+			counter.reset();
+		
+		for (Histogram histogram : m_histograms.values())
+			histogram.reset();
+	}
+	
+	/**
+	 * Register the registry with the platform MBean server, replacing anything already
+	 * registered with the name.
+	 */
+	public void registerMBean(String objectName)
+	{
+		try
+		{
+			ObjectName	name	= new ObjectName(objectName);
+			MBeanServer	server	= ManagementFactory.getPlatformMBeanServer();
+			
+			try
+			{
+				server.registerMBean(new MBean(), name);
+			}
+			catch (InstanceAlreadyExistsException e)
+			{
+				server.unregisterMBean(name);
+				server.registerMBean(new MBean(), name);
+			}
+		}
+		catch (JMException e)
+		{
+			throw new MahjongException("Cannot register metrics as " + objectName, e);
+		}
+	}
+	
+	public void unregisterMBean(String objectName)
+	{
+		try
+		{
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(objectName));
+		}
+		catch (JMException e)
+		{
+			throw new MahjongException("Cannot unregister metrics " + objectName, e);
+		}
+	}
+	
+	/**
+	 * @return The value of an attribute of the MBean, or null if there is no such attribute.
+	 */
+	Object getAttribute(String attribute)
+	{
+		Counter counter = m_counters.get(attribute);
+		
+		if (counter != null)
+			return counter.get();
+		
+		int			dot			= attribute.lastIndexOf('.');
+		Histogram	histogram	= dot < 0 ? null : m_histograms.get(attribute.substring(0, dot));
+		
+		if (histogram == null)
+			return null;
+		
+		switch (attribute.substring(dot))
+		{
+		case COUNT:
+			return histogram.getCount();
+		
+		case MEAN:
+			return histogram.getMean();
+		
+		case P50:
+			return histogram.getPercentile(50);
+		
+		case P99:
+			return histogram.getPercentile(99);
+		
+		case MAX:
+			return histogram.getMax();
+		
+		default:
+			return null;
+		}
+	}
+	
+	/**
+	 * Read-only view of the metrics for JMX.
+	 */
+	private final class MBean implements DynamicMBean
+	{
+		@Override
+		public Object getAttribute(String attribute) throws AttributeNotFoundException
+		{
+			Object value = MetricsRegistry.this.getAttribute(attribute);
+			
+			if (value == null)
+				throw new AttributeNotFoundException(attribute);
+			
+			return value;
+		}
+		
+		@Override
+		public AttributeList getAttributes(String[] attributes)
+		{
+			AttributeList list = new AttributeList();
+			
+			for (String attribute : attributes)
+			{
+				Object value = MetricsRegistry.this.getAttribute(attribute);
+				
+				if (value != null)
+					list.add(new Attribute(attribute, value));
+			}
+			
+			return list;
+		}
+		
+		@Override
+		public void setAttribute(Attribute attribute) throws AttributeNotFoundException
+		{
+			throw new AttributeNotFoundException("Metrics are read only");
+		}
+		
+		@Override
+		public AttributeList setAttributes(AttributeList attributes)
+		{
+			return new AttributeList();
+		}
+		
+		@Override
+		public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException
+		{
+			throw new ReflectionException(new NoSuchMethodException(actionName));
+		}
+		
+		@Override
+		public MBeanInfo getMBeanInfo()
+		{
+			List<MBeanAttributeInfo> attributes = new ArrayList<>();
+			
+			for (String name : m_counters.keySet())
+				attributes.add(new MBeanAttributeInfo(name, "long", "Counter", true, false, false));
+			
+			for (String name : m_histograms.keySet())
+				for (String suffix : HISTOGRAM_ATTRIBUTES)
+					attributes.add(new MBeanAttributeInfo(name + suffix, MEAN.equals(suffix) ? "double" : "long", "Histogram", true, false, false));
+			
+			return new MBeanInfo(
+					MetricsRegistry.class.getName(),
+					"Mahjong library metrics",
+					attributes.toArray(new MBeanAttributeInfo[0]),
+					null,
+					new MBeanOperationInfo[0],
+					null);
+		}
+	}
+}
@@ -1,30 +1,79 @@
 package house.mcintosh.mahjong.model;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import house.mcintosh.mahjong.exception.InvalidGameStateException;
 import house.mcintosh.mahjong.exception.InvalidModelException;
+import house.mcintosh.mahjong.metrics.Metrics;
+import house.mcintosh.mahjong.scoring.ScoredHand;
 import house.mcintosh.mahjong.scoring.ScoringScheme;
 
+/**
+ * A game between two to four players, seated at fixed seats around the table.
+ * 
+ * Scores are held by seat.  A player's wind is fixed by the distance of their seat from the
+ * east player's seat, counting empty seats, so seat and wind convert by table lookup.
+ */
 public class Game
 {
-	private Player[]				m_seats				= new Player[4];;
+	/**
+	 * Told of the score changes of each round, on the thread that adds the round, once the game
+	 * has moved on to the next round.
+	 */
+	public interface ScoreListener
+	{
+		/**
+		 * @param changes	Score change of each seat, zero for an empty seat.  Only valid for
+		 * 					the duration of the call.
+		 */
+		void scoresChanged(Game game, int[] changes);
+	}
+	
+	private static final int	SEATS	= 4;
+	private static final Wind[]	WINDS	= Wind.values();
+	
+	/** Wind of each seat, indexed by east seat then seat. */
+	private static final Wind[][]	SEAT_WINDS	= new Wind[SEATS][SEATS];
+	
+	/** Seat of each wind, indexed by east seat then wind ordinal. */
+	private static final int[][]	WIND_SEATS	= new int[SEATS][SEATS];
+	
+	static
+	{
+		for (int eastSeat = 0 ; eastSeat < SEATS ; eastSeat++)
+		{
+			for (int seat = 0 ; seat < SEATS ; seat++)
+			{
+				int wind = (seat - eastSeat + SEATS) % SEATS;
+				
+				SEAT_WINDS[eastSeat][seat]	= WINDS[wind];
+				WIND_SEATS[eastSeat][wind]	= seat;
+			}
+		}
+	}
+	
+	private Player[]				m_seats				= new Player[SEATS];
 	private int						m_seatsOccupied		= 0;
 	private List<Round>				m_rounds			= new ArrayList<>();
-	private Map<Player, Integer>	m_scores			= new HashMap<>();
+	private int[]					m_scores			= new int[SEATS];
 	private boolean					m_started			= false;
 	private boolean					m_finished			= false;
 	
 	private final ScoringScheme		m_scheme;
 	
-	private Player		m_startingPlayer;
-	private Player		m_endingPlayer;
-	private Player		m_eastPlayer;
+	/** Next occupied seat after each seat.  Set when the game starts. */
+	private int[]		m_nextSeats			= new int[SEATS];
+	
+	private int			m_startingSeat;
+	private int			m_endingSeat;
+	private int			m_eastSeat;
 	private Wind		m_prevailingWind;
 	
+	/** Null until a listener is added. */
+	private List<ScoreListener>	m_listeners;
+	private int[]				m_changes;
+	
 	public Game(ScoringScheme scheme)
 	{
 		m_scheme = scheme;
@@ -44,7 +93,7 @@ public class Game
 		m_seats[index] = player;
 		m_seatsOccupied++;
 		
-		m_scores.put(player, m_scheme.InitialScore);
+		m_scores[index] = m_scheme.InitialScore;
 	}
 	
 	public void startGame(Player eastPlayer)
@@ -58,14 +107,45 @@ public class Game
 		if (m_seatsOccupied < 2)
 			throw new InvalidGameStateException("Must have at least two players.");
 		
-		m_startingPlayer	= eastPlayer;
-		m_endingPlayer		= endingPlayer();
-		m_eastPlayer		= eastPlayer;
+		for (int seat = 0 ; seat < SEATS ; seat++)
+		{
+			int next = seat;
+			
+			do
+				next = (next + 1) % SEATS;
+			while (m_seats[next] == null);
+			
+			m_nextSeats[seat] = next;
+		}
+		
+		m_startingSeat		= seatOf(eastPlayer);
+		m_endingSeat		= endingSeat();
+		m_eastSeat			= m_startingSeat;
 		m_prevailingWind	= Wind.EAST;
 		m_started			= true;
 	}
 	
 	public void addRound(Round round)
+	{
+		if (!Metrics.isEnabled())
+		{
+			applyRound(round);
+			return;
+		}
+		
+		long start = System.nanoTime();
+		
+		try
+		{
+			applyRound(round);
+		}
+		finally
+		{
+			Metrics.ADD_ROUND_NANOS.record(System.nanoTime() - start);
+		}
+	}
+	
+	private void applyRound(Round round)
 	{
 		if (!m_started)
 			throw new InvalidGameStateException("Game is not started.");
@@ -73,50 +153,98 @@ public class Game
 		if (m_finished)
 			throw new InvalidGameStateException("Game is finished.");
 		
-		m_rounds.add(round);
+		// Settle the round before changing anything, so that a round that cannot be settled
+		// leaves the game as it was.
 		
-		// Update the score with the new round scores.
+		int[] changes = m_changes != null ? m_changes : new int[SEATS];
 		
-		for (Player player : m_seats)
-		{
-			if (player == null)
-				continue;
-			
-			Integer currentScore = m_scores.get(player);
-			
-			m_scores.put(player, currentScore + round.getPlayerScore(player));
-		}
+		for (int seat = 0 ; seat < SEATS ; seat++)
+			changes[seat] = m_seats[seat] == null ? 0 : roundScore(round, seat);
 		
-		// Move the player and prevailing wind on to the next round.
+		boolean eastMahjong = roundHand(round, m_eastSeat).isMahjong();
 		
-		if (round.getHand(m_eastPlayer).isMahjong())
+		m_rounds.add(round);
+		
+		for (int seat = 0 ; seat < SEATS ; seat++)
+			m_scores[seat] += changes[seat];
+		
+		advance(eastMahjong);
+		
+		if (m_listeners != null)
+			notifyListeners();
+	}
+	
+	/**
+	 * Move the player and prevailing wind on to the next round.
+	 */
+	private void advance(boolean eastMahjong)
+	{
+		if (eastMahjong)
 			// Continue game without moving east player on.
 			return;
 		
 		// Check for the end of the game.
 		
-		if (m_eastPlayer.equals(m_endingPlayer) && m_prevailingWind == Wind.NORTH)
+		if (m_eastSeat == m_endingSeat && m_prevailingWind == Wind.NORTH)
 		{
 			m_finished = true;
 			return;
 		}
 		
-		//Step east player forward to find the next player.
-		int eastPlayerIndex = findPlayerIndex(m_eastPlayer);
+		// Step east player forward to the next player.
 		
-		do
+		m_eastSeat = m_nextSeats[m_eastSeat];
+		
+		if (m_eastSeat == m_startingSeat)
+			m_prevailingWind = m_prevailingWind.next();
+	}
+	
+	/**
+	 * Tell every listener of the round's changes, once the game is fully updated.  A listener
+	 * that throws does not stop the others being told; the first exception is thrown once all
+	 * have been, with the round already added.
+	 */
+	private void notifyListeners()
+	{
+		RuntimeException failure = null;
+		
+		for (int listener = 0 ; listener < m_listeners.size() ; listener++)
 		{
-			eastPlayerIndex++;
-			
-			if (eastPlayerIndex >= m_seats.length)
-				eastPlayerIndex = 0;
+			try
+			{
+				m_listeners.get(listener).scoresChanged(this, m_changes);
+			}
+			catch (RuntimeException e)
+			{
+				if (failure == null)
+					failure = e;
+				else
+					failure.addSuppressed(e);
+			}
 		}
-		while (m_seats[eastPlayerIndex] == null);
 		
-		m_eastPlayer = m_seats[eastPlayerIndex];
+		if (failure != null)
+			throw failure;
+	}
+	
+	/**
+	 * Add a listener to be told of the score changes of each round added from now on.
+	 */
+	public void addScoreListener(ScoreListener listener)
+	{
+		if (m_listeners == null)
+		{
+			m_listeners	= new ArrayList<>();
+			m_changes	= new int[SEATS];
+		}
 		
-		if (m_eastPlayer == m_startingPlayer)
-			m_prevailingWind = m_prevailingWind.next();
+		m_listeners.add(listener);
+	}
+	
+	public void removeScoreListener(ScoreListener listener)
+	{
+		if (m_listeners != null)
+			m_listeners.remove(listener);
 	}
 	
 	public Wind getPrevailingWind()
@@ -126,29 +254,91 @@ public class Game
 	
 	public Player getEastPlayer()
 	{
-		return m_eastPlayer;
+		return m_started ? m_seats[m_eastSeat] : null;
 	}
 	
 	public Wind getPlayerWind(Player player)
 	{
-		int		index	= findPlayerIndex(m_eastPlayer);
-		Wind	wind	= Wind.EAST;
-		
-		while (true)
-		{
-			if (player.equals(m_seats[index]))
-			{
-				return wind;
-			}
-			
-			index	= (index+1) % m_seats.length;
-			wind	= wind.next();
-		}
+		return SEAT_WINDS[m_eastSeat][seatOf(player)];
 	}
 	
 	public int getPlayerScore(Player player)
 	{
-		return m_scores.get(player);
+		return m_scores[seatOf(player)];
+	}
+	
+	/**
+	 * @return The seat index of the player.
+	 */
+	public int getPlayerSeat(Player player)
+	{
+		return seatOf(player);
+	}
+	
+	/**
+	 * @return The player in the seat, or null if it is empty.
+	 */
+	public Player getSeatPlayer(int seat)
+	{
+		return m_seats[seat];
+	}
+	
+	/**
+	 * @return The wind of the player in the seat.
+	 */
+	public Wind getSeatWind(int seat)
+	{
+		return SEAT_WINDS[m_eastSeat][seat];
+	}
+	
+	/**
+	 * @return The seat of the player with the wind.  The seat may be empty.
+	 */
+	public int getWindSeat(Wind wind)
+	{
+		return WIND_SEATS[m_eastSeat][wind.ordinal()];
+	}
+	
+	/**
+	 * @return The score of the player in the seat.
+	 */
+	public int getSeatScore(int seat)
+	{
+		return m_scores[seat];
+	}
+	
+	/**
+	 * @return The score of each seat.  Zero for an empty seat.  The array is a copy.
+	 */
+	public int[] getScores()
+	{
+		return m_scores.clone();
+	}
+	
+	public ScoringScheme getScheme()
+	{
+		return m_scheme;
+	}
+	
+	/**
+	 * @return The seat of the first east player of the game.
+	 */
+	public int getStartingSeat()
+	{
+		return m_startingSeat;
+	}
+	
+	public int getRoundCount()
+	{
+		return m_rounds.size();
+	}
+	
+	/**
+	 * @return The round at the index, in the order rounds were added.
+	 */
+	public Round getRound(int index)
+	{
+		return m_rounds.get(index);
 	}
 	
 	public boolean isStarted()
@@ -161,36 +351,60 @@ public class Game
 		return m_finished;
 	}
 	
+	/**
+	 * @return The score change of the player in the seat, looked up by wind where the round
+	 * has the player at the wind the game expects.
+	 */
+	private int roundScore(Round round, int seat)
+	{
+		Wind wind = SEAT_WINDS[m_eastSeat][seat];
+		
+		if (round.getPlayer(wind) == m_seats[seat])
+			return round.getPlayerScore(wind);
+		
+		return round.getPlayerScore(m_seats[seat]);
+	}
 	
+	private ScoredHand roundHand(Round round, int seat)
+	{
+		Wind wind = SEAT_WINDS[m_eastSeat][seat];
+		
+		if (round.getPlayer(wind) == m_seats[seat])
+			return round.getHand(wind);
+		
+		return round.getHand(m_seats[seat]);
+	}
 	
 	/**
-	 * @return The last player in the sequence around the table.
+	 * @return The seat of the last player in the sequence around the table.
 	 */
-	private Player endingPlayer()
+	private int endingSeat()
 	{
-		int		playerIndex;
-		
-		playerIndex = findPlayerIndex(m_startingPlayer);
+		int seat = m_startingSeat;
 		
-		// Found the player that is east, so step backwards to find the previous player.
+		// Step backwards from the starting player to find the previous player.
 		
 		do
 		{
-			if (playerIndex <= 0)
-				playerIndex = m_seats.length;
+			if (seat <= 0)
+				seat = m_seats.length;
 			
-			playerIndex--;
+			seat--;
 		}
-		while (m_seats[playerIndex] == null);
+		while (m_seats[seat] == null);
 		
-		return m_seats[playerIndex];
+		return seat;
 	}
 
-	private int findPlayerIndex(Player player)
+	/**
+	 * A seated Player stays registered, so it is the only instance with its name and can be
+	 * found by identity.
+	 */
+	private int seatOf(Player player)
 	{
-		for (int playerIndex = 0; playerIndex < m_seats.length ; playerIndex++)
-			if (player.equals(m_seats[playerIndex]))
-				return playerIndex;
+		for (int seat = 0 ; seat < SEATS ; seat++)
+			if (m_seats[seat] == player)
+				return seat;
 		
 		throw new InvalidModelException("Player not found");
 	}
@@ -39,47 +39,24 @@ public class Group
 		CONCEALED
 	}
 	
-	private final Type m_type;
-	/** List of the tiles in this set.  Unmodifiable list that is only ever created on construction. */
-	private final List<Tile> m_tiles;
-	private final Visibility m_visibility;
+	/**
+	 * Packed form of this group, from which everything else about it is read.  See GroupCode.
+	 * The tiles are held once for each code, by GroupCode.
+	 */
+	private final int m_code;
 	
 	/**
 	 * Construct a new instance from an existing instance.  Intended for use by sub-class.
-	 * 
-	 * Underlying data structures are shared with the other Set, but they are immutable. 
 	 */
 	protected Group(Group other)
 	{
-		this.m_type			= other.m_type;
-		this.m_tiles		= other.m_tiles;
-		this.m_visibility	= other.m_visibility;
+		this.m_code = other.m_code;
 	}
 	
 	public Group(Type type, Tile tile, Visibility visibility)
 	{
-		this.m_type = type;
-		List<Tile> tiles = new ArrayList<>(type.size);
-		
-		switch (type)
-		{
-		case PAIR:
-			this.m_visibility = Visibility.EXPOSED;
-			addIdenticalTiles(tiles, tile, type.size);
-			break;
-		
-		case CHOW:
-			this.m_visibility = Visibility.EXPOSED;
-			addChowTiles(tiles, tile);
-			break;
-			
-		default:
-			this.m_visibility = visibility;
-			addIdenticalTiles(tiles, tile, type.size);
-			break;
-		}
-		
-		this.m_tiles = Collections.unmodifiableList(tiles);
+		// Pairs and chows are always exposed, and chows start at SEVEN or lower.
+		this.m_code = GroupCode.encode(type, tile.getId(), visibility);
 	}
 	
 	public Group(Type type, Tile tile)
@@ -100,53 +77,76 @@ public class Group
 	
 	public Type getType()
 	{
-		return this.m_type;
+		return GroupCode.getType(this.m_code);
 	}
 	
 	public Visibility getVisibility()
 	{
-		return this.m_visibility;
+		return GroupCode.getVisibility(this.m_code);
 	}
 	
 	public boolean isConcealed()
 	{
-		return this.m_visibility == Visibility.CONCEALED;
+		return GroupCode.isConcealed(this.m_code);
 	}
 	
 	public List<Tile> getTiles()
 	{
-		return this.m_tiles;
+		return GroupCode.getTiles(this.m_code);
+	}
+	
+	/**
+	 * @return The packed form of this group.  See GroupCode.
+	 */
+	public int getCode()
+	{
+		return this.m_code;
 	}
 	
 	public Tile getFirstTile()
 	{
-		return this.m_tiles.get(0);
+		return GroupCode.getFirstTile(this.m_code);
 	}
 	
 	public Tile.Type getTileType()
 	{
-		return this.m_tiles.get(0).getType();
+		return GroupCode.getTileType(this.m_code);
+	}
+	
+	/**
+	 * @return An unmodifiable list of the tiles of a group, starting from its first tile.
+	 */
+	static List<Tile> createTiles(Type type, Tile tile)
+	{
+		List<Tile> tiles = new ArrayList<>(type.size);
+		
+		if (type == Type.CHOW)
+			addChowTiles(tiles, tile);
+		else
+			addIdenticalTiles(tiles, tile, type.size);
+		
+		return Collections.unmodifiableList(tiles);
 	}
 	
-	private final void addIdenticalTiles(List<Tile> tiles, Tile tile, int size)
+	private static void addIdenticalTiles(List<Tile> tiles, Tile tile, int size)
 	{
 		while (size-- > 0)
 			tiles.add(tile);
 	}
 	
-	private void addChowTiles(List<Tile> tiles, Tile tile)
+	private static void addChowTiles(List<Tile> tiles, Tile tile)
 	{
 		// Be tolerant of dodgy initial tile specified.
 		
 		Tile.Number number = tile.getNumber();
 		
 		if (number == Tile.Number.EIGHT || number == Tile.Number.NINE)
-			tile = new Tile(tile.getSuit(), Tile.Number.SEVEN);
+			tile = Tile.get(tile.getSuit(), Tile.Number.SEVEN);
 		
 		tiles.add(tile);
-		tile = tile.createNextNumber();
+		tile = tile.getNextNumber();
 		tiles.add(tile);
-		tile = tile.createNextNumber();
+		tile = tile.getNextNumber();
 		tiles.add(tile);
 	}
 	
@@ -156,13 +156,13 @@ public class Group
 		
 		sb
 			.append('[')
-			.append(m_visibility)
+			.append(getVisibility())
 			.append(',')
-			.append(m_type)
+			.append(getType())
 			.append(',');
 		
 		boolean first = true;
-		for (Tile tile : m_tiles)
+		for (Tile tile : getTiles())
 		{
 			if (!first)
 			{
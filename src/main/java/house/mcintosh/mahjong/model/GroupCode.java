@@ -0,0 +1,187 @@
+package house.mcintosh.mahjong.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import house.mcintosh.mahjong.exception.InvalidModelException;
+
+/**
+ * Packs a Group into a single int, and unpacks it again.
+ *
+ * The tile id is held in the low six bits, the Group.Type ordinal in the next two bits,
+ * and the Group.Visibility ordinal in the bit above that.  Codes are always in the range
+ * 0 to COUNT-1, so can be used directly as array indexes.
+ *
+ * Codes are normalised in the same way as Group construction, so a pair or chow is always
+ * exposed and a chow always starts at SEVEN or lower.  Equal groups therefore always have
+ * equal codes.
+ */
+public final class GroupCode
+{
+	private static final int TILE_BITS			= 6;
+	private static final int TILE_MASK			= (1 << TILE_BITS) - 1;
+	private static final int TYPE_SHIFT			= TILE_BITS;
+	private static final int TYPE_MASK			= 0x3;
+	private static final int VISIBILITY_SHIFT	= TYPE_SHIFT + 2;
+	
+	/** One more than the highest possible code. */
+	public static final int COUNT				= 1 << (VISIBILITY_SHIFT + 1);
+	
+	private static final Group.Type[]		TYPES			= Group.Type.values();
+	private static final Group.Visibility[]	VISIBILITIES	= Group.Visibility.values();
+	
+	/** Shared instance for each valid code.  Null where the code is not valid. */
+	private static final Group[] s_groups = new Group[COUNT];
+	
+	/** Shared list of the tiles for each code.  Null where the code is not valid. */
+	private static final List<List<Tile>> s_tiles = new ArrayList<>(COUNT);
+	
+	static
+	{
+		for (int code = 0 ; code < COUNT ; code++)
+			s_tiles.add(null);
+		
+		for (int tileId = 0 ; tileId < Tile.COUNT ; tileId++)
+		{
+			Tile tile = Tile.fromId(tileId);
+			
+			for (Group.Type type : TYPES)
+			{
+				if (type == Group.Type.CHOW && tile.getType() != Tile.Type.SUIT)
+					continue;
+				
+				for (Group.Visibility visibility : VISIBILITIES)
+				{
+					Group	group	= new Group(type, tile, visibility);
+					int		code	= group.getCode();
+					
+					s_groups[code] = group;
+					s_tiles.set(code, Group.createTiles(type, getFirstTile(code)));
+				}
+			}
+		}
+	}
+	
+	private GroupCode()
+	{
+	}
+	
+	/**
+	 * Pack the parts of a group into a code, without any normalisation.
+	 */
+	static int pack(Group.Type type, int tileId, Group.Visibility visibility)
+	{
+		return tileId | (type.ordinal() << TYPE_SHIFT) | (visibility.ordinal() << VISIBILITY_SHIFT);
+	}
+	
+	public static int encode(Group group)
+	{
+		return group.getCode();
+	}
+	
+	public static int encode(Group.Type type, Tile tile, Group.Visibility visibility)
+	{
+		return encode(type, tile.getId(), visibility);
+	}
+	
+	/**
+	 * Create a code for a group, normalising in the same way as Group construction.
+	 */
+	public static int encode(Group.Type type, int tileId, Group.Visibility visibility)
+	{
+		switch (type)
+		{
+		case PAIR:
+			visibility = Group.Visibility.EXPOSED;
+			break;
+		
+		case CHOW:
+			{
+				Tile tile = Tile.fromId(tileId);
+				
+				if (tile.getType() != Tile.Type.SUIT)
+					throw new InvalidModelException("Chow must be of suit tiles");
+				
+				if (tile.getNumber() == Tile.Number.EIGHT || tile.getNumber() == Tile.Number.NINE)
+					tileId = Tile.get(tile.getSuit(), Tile.Number.SEVEN).getId();
+				
+				visibility = Group.Visibility.EXPOSED;
+			}
+			break;
+		
+		default:
+			break;
+		}
+		
+		return pack(type, tileId, visibility);
+	}
+	
+	/**
+	 * @return The shared Group instance for the code.
+	 */
+	public static Group decode(int code)
+	{
+		Group group = (code >= 0 && code < COUNT) ? s_groups[code] : null;
+		
+		if (group == null)
+			throw new InvalidModelException("Invalid group code: " + code);
+		
+		return group;
+	}
+	
+	public static boolean isValid(int code)
+	{
+		return code >= 0 && code < COUNT && s_groups[code] != null;
+	}
+	
+	/**
+	 * @return The shared, unmodifiable list of the tiles of the group.
+	 */
+	public static List<Tile> getTiles(int code)
+	{
+		if (!isValid(code))
+			throw new InvalidModelException("Invalid group code: " + code);
+		
+		return s_tiles.get(code);
+	}
+	
+	public static int getTileId(int code)
+	{
+		return code & TILE_MASK;
+	}
+	
+	public static Tile getFirstTile(int code)
+	{
+		return Tile.fromId(code & TILE_MASK);
+	}
+	
+	public static Tile.Type getTileType(int code)
+	{
+		return Tile.fromId(code & TILE_MASK).getType();
+	}
+	
+	public static Group.Type getType(int code)
+	{
+		return TYPES[(code >>> TYPE_SHIFT) & TYPE_MASK];
+	}
+	
+	public static int getTypeOrdinal(int code)
+	{
+		return (code >>> TYPE_SHIFT) & TYPE_MASK;
+	}
+	
+	public static Group.Visibility getVisibility(int code)
+	{
+		return VISIBILITIES[code >>> VISIBILITY_SHIFT];
+	}
+	
+	public static boolean isConcealed(int code)
+	{
+		return (code >>> VISIBILITY_SHIFT) == Group.Visibility.CONCEALED.ordinal();
+	}
+	
+	public static int getHandSize(int code)
+	{
+		return getType(code).getHandSize();
+	}
+}
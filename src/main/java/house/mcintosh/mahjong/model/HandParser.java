@@ -0,0 +1,414 @@
+package house.mcintosh.mahjong.model;
+
+import java.nio.ByteBuffer;
+
+import house.mcintosh.mahjong.scoring.ScoredHand;
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+
+/**
+ * Parses hands written in a terse notation into GroupCodes, without allocating.  A parser
+ * holds the groups of the last hand parsed, so each thread needs its own.
+ *
+ * A hand is a list of groups separated by white space, such as "123b 555c! EEE RR".  A suit
+ * group is two to four digits followed by the suit: c for characters, b for bamboo or o for
+ * circles.  An honour group is two to four of the same letter: E, S, W or N for the winds,
+ * or R, G or P for the red, green and white (plain) dragons.  Two tiles are a pair, three in
+ * sequence a chow, three the same a pung and four the same a kong.  A group may be followed
+ * by ! for concealed and + for a kong given as three tiles.  Pairs and chows are always
+ * exposed, as in GroupCode.
+ *
+ * Errors are reported by an ERROR_ code and the position of the character at fault, rather
+ * than by exception.
+ */
+public final class HandParser
+{
+	public static final int ERROR_NONE					= 0;
+	/** A character that cannot start or continue a group. */
+	public static final int ERROR_UNEXPECTED_CHARACTER	= 1;
+	/** Digits without a suit letter after them. */
+	public static final int ERROR_MISSING_SUIT			= 2;
+	/** Tiles that do not make a pair, chow, pung or kong. */
+	public static final int ERROR_INVALID_GROUP			= 3;
+	/** A kong suffix on a pair or chow. */
+	public static final int ERROR_INVALID_KONG			= 4;
+	public static final int ERROR_TOO_MANY_GROUPS		= 5;
+	
+	/** Most groups that a hand can hold. */
+	public static final int MAX_GROUPS					= 16;
+	
+	private static final int MAX_TILES					= 4;
+	
+	/** Tile id of each honour letter, indexed by character.  -1 where not an honour. */
+	private static final int[]	s_honourIds	= new int[128];
+	
+	/** Tile id of the first tile of each suit letter, indexed by character.  -1 where not a suit. */
+	private static final int[]	s_suitIds	= new int[128];
+	
+	/** Letter of each honour tile and of the first tile of each suit, indexed by tile id. */
+	private static final char[]	s_letters	= new char[Tile.COUNT];
+	
+	static
+	{
+		for (int c = 0 ; c < 128 ; c++)
+		{
+			s_honourIds[c]	= -1;
+			s_suitIds[c]	= -1;
+		}
+		
+		s_honourIds['E']	= Tile.get(Wind.EAST).getId();
+		s_honourIds['S']	= Tile.get(Wind.SOUTH).getId();
+		s_honourIds['W']	= Tile.get(Wind.WEST).getId();
+		s_honourIds['N']	= Tile.get(Wind.NORTH).getId();
+		s_honourIds['R']	= Tile.get(Tile.Dragon.RED).getId();
+		s_honourIds['G']	= Tile.get(Tile.Dragon.GREEN).getId();
+		s_honourIds['P']	= Tile.get(Tile.Dragon.WHITE).getId();
+		
+		s_suitIds['c']		= Tile.get(Tile.Suit.CHARACTERS, Tile.Number.ONE).getId();
+		s_suitIds['b']		= Tile.get(Tile.Suit.BAMBOO, Tile.Number.ONE).getId();
+		s_suitIds['o']		= Tile.get(Tile.Suit.CIRCLES, Tile.Number.ONE).getId();
+		
+		// The same letters by tile id, for writing groups.
+		
+		for (char c = 0 ; c < 128 ; c++)
+		{
+			if (s_honourIds[c] >= 0)
+				s_letters[s_honourIds[c]] = c;
+			
+			if (s_suitIds[c] >= 0)
+				s_letters[s_suitIds[c]] = c;
+		}
+	}
+	
+	private final int[]		m_codes			= new int[MAX_GROUPS];
+	private int				m_groupCount;
+	private int				m_errorCode;
+	private int				m_errorPosition;
+	
+	// Source of the characters being parsed.  Only one is set.
+	
+	private CharSequence	m_chars;
+	private ByteBuffer		m_bytes;
+	
+	/**
+	 * Parse a whole character sequence.
+	 *
+	 * @return True if the hand was parsed, false if there is an error.
+	 */
+	public boolean parse(CharSequence text)
+	{
+		return parse(text, 0, text.length());
+	}
+	
+	/**
+	 * Parse the characters from start up to end.  Error positions are indexes into the text.
+	 */
+	public boolean parse(CharSequence text, int start, int end)
+	{
+		m_chars = text;
+		
+		try
+		{
+			return parse(start, end);
+		}
+		finally
+		{
+			m_chars = null;
+		}
+	}
+	
+	/**
+	 * Parse ASCII bytes from the position of a buffer up to its limit.  The position of the
+	 * buffer is not changed.  Error positions are absolute indexes into the buffer.
+	 */
+	public boolean parse(ByteBuffer bytes)
+	{
+		m_bytes = bytes;
+		
+		try
+		{
+			return parse(bytes.position(), bytes.limit());
+		}
+		finally
+		{
+			m_bytes = null;
+		}
+	}
+	
+	/**
+	 * @return The number of groups in the last hand parsed.  Zero if there was an error.
+	 */
+	public int getGroupCount()
+	{
+		return m_groupCount;
+	}
+	
+	/**
+	 * @return The GroupCode of a group in the last hand parsed, in the order written.
+	 */
+	public int getGroupCode(int index)
+	{
+		if (index < 0 || index >= m_groupCount)
+			throw new IndexOutOfBoundsException("Group index: " + index);
+		
+		return m_codes[index];
+	}
+	
+	/**
+	 * @return One of the ERROR_ constants for the last hand parsed.
+	 */
+	public int getErrorCode()
+	{
+		return m_errorCode;
+	}
+	
+	/**
+	 * @return The position of the character at fault in the last hand parsed, or -1 if there
+	 * was no error.
+	 */
+	public int getErrorPosition()
+	{
+		return m_errorPosition;
+	}
+	
+	/**
+	 * Score the last hand parsed.
+	 *
+	 * @param flags Bit field of the HandScorer.FLAG_ constants.
+	 */
+	public ScoredHand toScoredHand(ScoringScheme scheme, int flags, Wind ownWind, Wind prevailingWind)
+	{
+		ScoredHand.Builder builder = new ScoredHand.Builder(scheme).setFlags(flags);
+		
+		for (int index = 0 ; index < m_groupCount ; index++)
+			builder.add(m_codes[index], ownWind, prevailingWind);
+		
+		return builder.build();
+	}
+	
+	/**
+	 * Append a group in the notation read by the parser.  Kongs are written as four tiles.
+	 */
+	public static void appendGroup(StringBuilder sb, int code)
+	{
+		int			tileId	= GroupCode.getTileId(code);
+		Group.Type	type	= GroupCode.getType(code);
+		int			tiles	= type == Group.Type.PAIR ? 2 : type == Group.Type.KONG ? 4 : 3;
+		
+		if (tileId < Tile.FIRST_WIND_ID)
+		{
+			int number = tileId % Tile.SUIT_SIZE;
+			
+			for (int tile = 0 ; tile < tiles ; tile++)
+				sb.append((char) ('1' + number + (type == Group.Type.CHOW ? tile : 0)));
+			
+			sb.append(s_letters[tileId - number]);
+		}
+		else
+		{
+			for (int tile = 0 ; tile < tiles ; tile++)
+				sb.append(s_letters[tileId]);
+		}
+		
+		if (GroupCode.isConcealed(code))
+			sb.append('!');
+	}
+	
+	private boolean parse(int start, int end)
+	{
+		m_groupCount	= 0;
+		m_errorCode		= ERROR_NONE;
+		m_errorPosition	= -1;
+		
+		int position = skipSpace(start, end);
+		
+		while (position < end)
+		{
+			if (m_groupCount == MAX_GROUPS)
+				return error(ERROR_TOO_MANY_GROUPS, position);
+			
+			char c = charAt(position);
+			
+			if (c >= '1' && c <= '9')
+				position = parseSuitGroup(position, end);
+			else if (c < 128 && s_honourIds[c] >= 0)
+				position = parseHonourGroup(position, end);
+			else
+				return error(ERROR_UNEXPECTED_CHARACTER, position);
+			
+			if (position < 0)
+				return false;
+			
+			if (position < end && !isSpace(charAt(position)))
+				return error(ERROR_UNEXPECTED_CHARACTER, position);
+			
+			position = skipSpace(position, end);
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * @return The position after the group, or -1 if there is an error.
+	 */
+	private int parseSuitGroup(int start, int end)
+	{
+		int		position	= start;
+		int		first		= charAt(position) - '1';
+		int		last		= first;
+		int		tiles		= 0;
+		boolean	same		= true;
+		boolean	run			= true;
+		
+		while (position < end)
+		{
+			char c = charAt(position);
+			
+			if (c < '1' || c > '9')
+				break;
+			
+			if (++tiles > MAX_TILES)
+				return fail(ERROR_INVALID_GROUP, position);
+			
+			int number = c - '1';
+			
+			if (tiles > 1)
+			{
+				same	&= number == last;
+				run		&= number == last + 1;
+			}
+			
+			last = number;
+			position++;
+		}
+		
+		char suit = position < end ? charAt(position) : 0;
+		
+		if (suit >= 128 || s_suitIds[suit] < 0)
+			return fail(ERROR_MISSING_SUIT, position);
+		
+		Group.Type type;
+		
+		if (tiles == 3 && run && first + 2 == last)
+			type = Group.Type.CHOW;
+		else if (same)
+			type = sameType(tiles);
+		else
+			type = null;
+		
+		if (type == null)
+			return fail(ERROR_INVALID_GROUP, start);
+		
+		return parseSuffix(type, s_suitIds[suit] + first, position + 1, end);
+	}
+	
+	private int parseHonourGroup(int start, int end)
+	{
+		char	letter		= charAt(start);
+		int		position	= start;
+		
+		while (position < end && charAt(position) == letter)
+			position++;
+		
+		Group.Type type = sameType(position - start);
+		
+		if (type == null)
+			return fail(ERROR_INVALID_GROUP, start);
+		
+		return parseSuffix(type, s_honourIds[letter], position, end);
+	}
+	
+	/**
+	 * Read any suffixes and record the group.
+	 *
+	 * @return The position after the suffixes, or -1 if there is an error.
+	 */
+	private int parseSuffix(Group.Type type, int tileId, int position, int end)
+	{
+		Group.Visibility visibility = Group.Visibility.EXPOSED;
+		
+		while (position < end)
+		{
+			char c = charAt(position);
+			
+			if (c == '!')
+			{
+				visibility = Group.Visibility.CONCEALED;
+			}
+			else if (c == '+')
+			{
+				if (type != Group.Type.PUNG && type != Group.Type.KONG)
+					return fail(ERROR_INVALID_KONG, position);
+				
+				type = Group.Type.KONG;
+			}
+			else
+			{
+				break;
+			}
+			
+			position++;
+		}
+		
+		m_codes[m_groupCount++] = GroupCode.encode(type, tileId, visibility);
+		
+		return position;
+	}
+	
+	/**
+	 * @return The type of group made of a number of the same tile, or null if there is none.
+	 */
+	private static Group.Type sameType(int tiles)
+	{
+		switch (tiles)
+		{
+		case 2:
+			return Group.Type.PAIR;
+		
+		case 3:
+			return Group.Type.PUNG;
+		
+		case 4:
+			return Group.Type.KONG;
+		
+		default:
+			return null;
+		}
+	}
+	
+	private int skipSpace(int position, int end)
+	{
+		while (position < end && isSpace(charAt(position)))
+			position++;
+		
+		return position;
+	}
+	
+	private static boolean isSpace(char c)
+	{
+		return c == ' ' || c == '\t';
+	}
+	
+	private char charAt(int position)
+	{
+		if (m_chars != null)
+			return m_chars.charAt(position);
+		
+		return (char) (m_bytes.get(position) & 0xFF);
+	}
+	
+	private boolean error(int code, int position)
+	{
+		m_groupCount	= 0;
+		m_errorCode		= code;
+		m_errorPosition	= position;
+		
+		return false;
+	}
+	
+	private int fail(int code, int position)
+	{
+		error(code, position);
+		
+		return -1;
+	}
+}
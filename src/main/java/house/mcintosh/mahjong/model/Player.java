@@ -1,41 +1,69 @@
 package house.mcintosh.mahjong.model;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class Player
 {
-	// We expect no more than four players, so a list is probably more
-	// efficient than a Set or Map.
-	/** All the instances that have been created so far. */
-	static private final List<Player> s_allPlayers = new ArrayList<>();
+	/** All the instances that are still in use. */
+	static private final PlayerRegistry s_registry = new PlayerRegistry();
 	
-	private String m_name;
+	private final String	m_name;
+	private final int		m_id;
 	
 	/**
-	 * Private constructor so that instance must be created through factory methods to
+	 * Package constructor so that instances must be created through the factory method to
 	 * ensure that there is only one instance for each Player.
 	 */
-	private Player(String name)
+	Player(String name, int id)
 	{
-		m_name = name;
+		m_name	= name;
+		m_id	= id;
 	}
 	
 	/**
 	 * Get an existing Player if there is one that matches the name, or
-	 * create a new instance.
+	 * create a new instance.  Safe to call from any thread.
 	 */
-	static public synchronized Player get(String name)
+	static public Player get(String name)
 	{
-		Player newOne = new Player(name);
-		
-		for (Player player : s_allPlayers)
-			if (player.equals(newOne))
-				return player;
-		
-		s_allPlayers.add(newOne);
-		
-		return newOne;
+		return s_registry.get(name);
+	}
+	
+	/**
+	 * @return One more than the highest id of any Player, for sizing arrays indexed by id.
+	 */
+	static public int getIdLimit()
+	{
+		return s_registry.getIdLimit();
+	}
+	
+	/**
+	 * @return The number of Players currently registered.
+	 */
+	static int getRegisteredCount()
+	{
+		return s_registry.size();
+	}
+	
+	/**
+	 * Remove an unreferenced Player from the registry without waiting for garbage collection,
+	 * for tests.
+	 */
+	static void release(String name)
+	{
+		s_registry.release(name);
+	}
+	
+	public String getName()
+	{
+		return m_name;
+	}
+	
+	/**
+	 * A small integer that is unique among the Players in use, for indexing arrays.  Once a
+	 * Player is no longer referenced its id may be given to a new Player.
+	 */
+	public int getId()
+	{
+		return m_id;
 	}
 	
 	/** Override so that instances can be used as keys in maps and sets */
@@ -49,6 +77,9 @@ public class Player
 	@Override
 	public boolean equals(Object other)
 	{
+		if (this == other)
+			return true;
+		
 		if (!(other instanceof Player))
 			return false;
 		
@@ -0,0 +1,123 @@
+package house.mcintosh.mahjong.model;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Interns Players by name, so there is only one instance for each name, and gives each a
+ * dense integer id.
+ * 
+ * Players are held weakly.  Once a Player is no longer referenced anywhere else it is
+ * removed from the registry, and its id is reused by a later Player.  Lookups do not lock,
+ * other than within the concurrent map.
+ */
+final class PlayerRegistry
+{
+	private final ConcurrentHashMap<String, Entry>	m_players	= new ConcurrentHashMap<>();
+	private final ReferenceQueue<Player>			m_cleared	= new ReferenceQueue<>();
+	private final ConcurrentLinkedQueue<Integer>	m_freeIds	= new ConcurrentLinkedQueue<>();
+	private final AtomicInteger						m_nextId	= new AtomicInteger();
+	
+	/**
+	 * Get the Player with the name, creating it if there is none.
+	 */
+	Player get(String name)
+	{
+		expunge();
+		
+		while (true)
+		{
+			Entry	entry	= m_players.get(name);
+			Player	player	= entry == null ? null : entry.get();
+			
+			if (player != null)
+				return player;
+			
+			Player	created		= new Player(name, allocateId());
+			Entry	newEntry	= new Entry(created, m_cleared);
+			
+			boolean added = entry == null
+					? m_players.putIfAbsent(name, newEntry) == null
+					: m_players.replace(name, entry, newEntry);
+			
+			if (added)
+				return created;
+			
+			// Another thread got there first, so use its Player instead.
+			
+			newEntry.clear();
+			m_freeIds.add(created.getId());
+		}
+	}
+	
+	/**
+	 * @return The number of players registered, including any that are no longer referenced
+	 * but have not yet been removed.
+	 */
+	int size()
+	{
+		expunge();
+		
+		return m_players.size();
+	}
+	
+	/**
+	 * @return One more than the highest id given out so far.
+	 */
+	int getIdLimit()
+	{
+		return m_nextId.get();
+	}
+	
+	/**
+	 * Act as though the Player with the name had been garbage collected, for tests.  The
+	 * Player must no longer be referenced.
+	 */
+	void release(String name)
+	{
+		Entry entry = m_players.get(name);
+		
+		if (entry != null)
+			entry.enqueue();
+	}
+	
+	private int allocateId()
+	{
+		Integer id = m_freeIds.poll();
+		
+		return id != null ? id : m_nextId.getAndIncrement();
+	}
+	
+	/**
+	 * Remove the entries of players that have been garbage collected, and free their ids.
+	 */
+	private void expunge()
+	{
+		Entry entry;
+		
+		while ((entry = (Entry) m_cleared.poll()) != null)
+		{
+			// The entry may already have been replaced by a new Player of the same name.
+			
+			m_players.remove(entry.m_name, entry);
+			m_freeIds.add(entry.m_id);
+		}
+	}
+	
+	private static final class Entry extends WeakReference<Player>
+	{
+		private final String	m_name;
+		private final int		m_id;
+		
+		Entry(Player player, ReferenceQueue<Player> queue)
+		{
+			super(player, queue);
+			
+			m_name	= player.getName();
+			m_id	= player.getId();
+		}
+	}
+}
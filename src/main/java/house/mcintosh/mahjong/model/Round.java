@@ -1,30 +1,46 @@
 package house.mcintosh.mahjong.model;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import house.mcintosh.mahjong.exception.InvalidModelException;
+import house.mcintosh.mahjong.metrics.Metrics;
 import house.mcintosh.mahjong.scoring.ScoredHand;
 
 /**
  * A Round is a set of hands - one for each player.
+ * 
+ * Hands are held by the wind of the player, and the settlement between all the players is
+ * calculated in one pass the first time any score is asked for.  Hands should not be
+ * changed once they have been added.
  */
 public class Round
 {
-	private final Map<Player, Entry>	m_entries			= new HashMap<>();
-	private final Wind					m_prevailingWind;
-	private Player						m_mahjongPlayer;
+	private static final int	WINDS	= Wind.values().length;
+	private static final int	EAST	= Wind.EAST.ordinal();
+	
+	/** Entry for each player, indexed by player wind ordinal.  Null where there is no player. */
+	private final Entry[]		m_entries			= new Entry[WINDS];
+	private final Wind			m_prevailingWind;
+	private Player				m_mahjongPlayer;
+	
+	/** Score change of each player, indexed by player wind ordinal.  Null until calculated. */
+	private int[]				m_settlement;
 	
 	public Round(Wind prevailingWind)
 	{
 		m_prevailingWind = prevailingWind;
 	}
 	
+	/**
+	 * @throws InvalidModelException if the player, or another player with the same wind, is
+	 *			already in the round, or if both this hand and an earlier one are mahjong.
+	 */
 	public void addHand(Player player, ScoredHand hand, Wind playerWind)
 	{
-		if (m_entries.containsKey(player))
+		if (findEntry(player) != null)
 			throw new InvalidModelException("Duplicate player");
 		
+		if (m_entries[playerWind.ordinal()] != null)
+			throw new InvalidModelException("Duplicate player wind");
+		
 		if (hand.isMahjong())
 		{
 			if (m_mahjongPlayer != null)
@@ -33,7 +49,13 @@ public class Round
 			m_mahjongPlayer = player;
 		}
 		
-		m_entries.put(player, new Entry(player, hand, playerWind));
+		m_entries[playerWind.ordinal()] = new Entry(player, hand, playerWind);
+		m_settlement = null;
+		
+		// A hand scored only while recording was off has no count, and is left out.
+		
+		if (Metrics.isEnabled() && hand.getUpdateCount() > 0)
+			Metrics.HAND_UPDATES_PER_HAND.record(hand.getUpdateCount());
 	}
 
 	public Wind getPrevailingWind()
@@ -43,64 +65,144 @@ public class Round
 	
 	public Wind getPlayerWind(Player player)
 	{
-		return m_entries.get(player).playerWind;
+		return getEntry(player).playerWind;
 	}
 	
 	public ScoredHand getHand(Player player)
 	{
-		return m_entries.get(player).hand;
+		return getEntry(player).hand;
+	}
+	
+	/**
+	 * @return The player with the wind, or null if there is none.
+	 */
+	public Player getPlayer(Wind playerWind)
+	{
+		Entry entry = m_entries[playerWind.ordinal()];
+		
+		return entry == null ? null : entry.player;
+	}
+	
+	/**
+	 * @return The hand of the player with the wind, or null if there is none.
+	 */
+	public ScoredHand getHand(Wind playerWind)
+	{
+		Entry entry = m_entries[playerWind.ordinal()];
+		
+		return entry == null ? null : entry.hand;
 	}
 	
 	public int getPlayerScore(Player player)
 	{
+		if (Metrics.isEnabled())
+			Metrics.PLAYER_SCORE_CALLS.increment();
+		
+		return settlement()[getEntry(player).playerWind.ordinal()];
+	}
+	
+	/**
+	 * @return The score change of the player with the wind.  Zero if there is no such player.
+	 */
+	public int getPlayerScore(Wind playerWind)
+	{
+		if (Metrics.isEnabled())
+			Metrics.PLAYER_SCORE_CALLS.increment();
+		
+		return settlement()[playerWind.ordinal()];
+	}
+	
+	/**
+	 * @return The score change of each player, indexed by player wind ordinal.  Zero where
+	 * there is no player.  The array is a copy.
+	 */
+	public int[] getSettlement()
+	{
+		return settlement().clone();
+	}
+	
+	/**
+	 * Calculate the score changes of all players together, settling each pair of players once.
+	 * The mahjong player is paid the score of their hand by each other player, and every other
+	 * pair of players pays the difference between their scores.  Payments to or from east are
+	 * doubled.
+	 */
+	private int[] settlement()
+	{
+		if (m_settlement != null)
+			return m_settlement;
+		
 		if (m_mahjongPlayer == null)
 			throw new InvalidModelException("Round has no mahjong hand");
 		
-		int score = 0;
+		int[]		settlement	= new int[WINDS];
+		int[]		scores		= new int[WINDS];
+		boolean[]	mahjong		= new boolean[WINDS];
 		
-		if (player.equals(m_mahjongPlayer))
+		for (int wind = 0 ; wind < WINDS ; wind++)
 		{
-			// Calculate score based on this being the mahjong player.
-			
-			Entry receivingEntry = m_entries.get(player);
+			if (m_entries[wind] == null)
+				continue;
 			
-			for (Entry givingEntry : m_entries.values())
-			{
-				if (givingEntry.player.equals(player))
-					continue;
-				
-				int eastMultiplier = 1;
-				
-				if (receivingEntry.playerWind == Wind.EAST || givingEntry.playerWind == Wind.EAST)
-					eastMultiplier = 2;
-				
-				score += receivingEntry.hand.getTotalScore() * eastMultiplier;
-			}
+			scores[wind]	= m_entries[wind].hand.getTotalScore();
+			mahjong[wind]	= m_entries[wind].hand.isMahjong();
 		}
-		else
+		
+		for (int wind1 = 0 ; wind1 < WINDS ; wind1++)
 		{
-			// Calculate score based on this not being mahjong player.
-			
-			Entry thisPlayerEntry = m_entries.get(player);
+			if (m_entries[wind1] == null)
+				continue;
 			
-			for (Entry thatPlayerEntry : m_entries.values())
+			for (int wind2 = wind1 + 1 ; wind2 < WINDS ; wind2++)
 			{
-				if (thatPlayerEntry.player.equals(player))
+				if (m_entries[wind2] == null)
 					continue;
 				
-				int eastMultiplier = 1;
+				// East is the lowest wind, so can only be the first of the pair.
 				
-				if (thisPlayerEntry.playerWind == Wind.EAST || thatPlayerEntry.playerWind == Wind.EAST)
-					eastMultiplier = 2;
+				int eastMultiplier = wind1 == EAST ? 2 : 1;
+				int payment;
 				
-				if (thatPlayerEntry.hand.isMahjong())
-					score -= thatPlayerEntry.hand.getTotalScore() * eastMultiplier;
+				if (mahjong[wind1])
+					payment = scores[wind1];
+				else if (mahjong[wind2])
+					payment = -scores[wind2];
 				else
-					score += (thisPlayerEntry.hand.getTotalScore() - thatPlayerEntry.hand.getTotalScore()) * eastMultiplier;
+					payment = scores[wind1] - scores[wind2];
+				
+				settlement[wind1] += payment * eastMultiplier;
+				settlement[wind2] -= payment * eastMultiplier;
 			}
 		}
 		
-		return score;
+		m_settlement = settlement;
+		
+		return settlement;
+	}
+	
+	private Entry getEntry(Player player)
+	{
+		Entry entry = findEntry(player);
+		
+		if (entry == null)
+			throw new InvalidModelException("Player not found");
+		
+		return entry;
+	}
+	
+	private Entry findEntry(Player player)
+	{
+		// Players are normally the shared instance, so try identity before equality.
+		
+		for (Entry entry : m_entries)
+			if (entry != null && entry.player == player)
+				return entry;
+		
+		for (Entry entry : m_entries)
+			if (entry != null && entry.player.equals(player))
+				return entry;
+		
+		return null;
 	}
 	
 	private class Entry
@@ -2,9 +2,23 @@ package house.mcintosh.mahjong.model;
 
 /**
  * A tile in a hand.
+ * 
+ * There are only 34 distinct kinds of tile, so a canonical instance of each is held in a
+ * table and handed out by the static factories.  Each kind has a dense id in the range
+ * 0 to 33: the suits in order from 0 to 26, then the winds from 27 to 30, then the dragons
+ * from 31 to 33.
  */
 public final class Tile
 {
+	/** Number of distinct kinds of tile, and so one more than the highest tile id. */
+	public static final int COUNT				= 34;
+	
+	public static final int FIRST_SUIT_ID		= 0;
+	public static final int FIRST_WIND_ID		= 27;
+	public static final int FIRST_DRAGON_ID		= 31;
+	
+	/** Tiles in each suit. */
+	public static final int SUIT_SIZE			= 9;
 
 	//
 	// The ordering of these enumerations affects the sort order of Sets in a Hand.
@@ -18,10 +32,12 @@ public final class Tile
 	public enum Number
 	{
 		ONE, TWO, THREE, FOUR, FIVE, SIX, SEVEN, EIGHT, NINE;
+		
+		private static final Number[] VALUES = values();
 
 		Number next()
 		{
-			return Number.values()[this.ordinal() + 1];
+			return VALUES[this.ordinal() + 1];
 		}
 	}
 
@@ -40,6 +56,37 @@ public final class Tile
 	private final Wind m_wind;
 	private final Dragon m_dragon;
 	private final Type m_type;
+	private final int m_id;
+	private final boolean m_major;
+	
+	/** The canonical instance of each kind of tile, indexed by id. */
+	private static final Tile[] s_tiles = new Tile[COUNT];
+	
+	/** Id of the next tile in a chow sequence, indexed by id.  -1 where there is no next tile. */
+	private static final int[] s_nextIds = new int[COUNT];
+	
+	static
+	{
+		for (Suit suit : Suit.values())
+			for (Number number : Number.values())
+				register(new Tile(suit, number, null, null, Type.SUIT));
+		
+		for (Wind wind : Wind.values())
+			register(new Tile(null, null, wind, null, Type.WIND));
+		
+		for (Dragon dragon : Dragon.values())
+			register(new Tile(null, null, null, dragon, Type.DRAGON));
+		
+		for (int id = 0 ; id < COUNT ; id++)
+		{
+			Tile tile = s_tiles[id];
+			
+			if (tile.m_type == Type.SUIT && tile.m_number != Number.NINE)
+				s_nextIds[id] = id + 1;
+			else
+				s_nextIds[id] = -1;
+		}
+	}
 
 	private Tile(Suit suit, Number number, Wind wind, Dragon dragon, Type type)
 	{
@@ -48,22 +95,107 @@ public final class Tile
 		this.m_wind = wind;
 		this.m_dragon = dragon;
 		this.m_type = type;
+		
+		switch (type)
+		{
+		case SUIT:
+			this.m_id		= FIRST_SUIT_ID + suit.ordinal() * SUIT_SIZE + number.ordinal();
+			this.m_major	= number == Number.ONE || number == Number.NINE;
+			break;
+			
+		case WIND:
+			this.m_id		= FIRST_WIND_ID + wind.ordinal();
+			this.m_major	= true;
+			break;
+			
+		default:
+			this.m_id		= FIRST_DRAGON_ID + dragon.ordinal();
+			this.m_major	= true;
+			break;
+		}
 	}
 
+	/**
+	 * Prefer {@link #get(Suit, Number)}, which does not allocate.
+	 */
 	public Tile(Suit suit, Number number)
 	{
 		this(suit, number, null, null, Type.SUIT);
 	}
 
+	/**
+	 * Prefer {@link #get(Wind)}, which does not allocate.
+	 */
 	public Tile(Wind wind)
 	{
 		this(null, null, wind, null, Type.WIND);
 	}
 
+	/**
+	 * Prefer {@link #get(Dragon)}, which does not allocate.
+	 */
 	public Tile(Dragon dragon)
 	{
 		this(null, null, null, dragon, Type.DRAGON);
 	}
+	
+	private static void register(Tile tile)
+	{
+		s_tiles[tile.m_id] = tile;
+	}
+	
+	public static Tile get(Suit suit, Number number)
+	{
+		return s_tiles[FIRST_SUIT_ID + suit.ordinal() * SUIT_SIZE + number.ordinal()];
+	}
+	
+	public static Tile get(Wind wind)
+	{
+		return s_tiles[FIRST_WIND_ID + wind.ordinal()];
+	}
+	
+	public static Tile get(Dragon dragon)
+	{
+		return s_tiles[FIRST_DRAGON_ID + dragon.ordinal()];
+	}
+	
+	/**
+	 * @return The canonical tile with the given id.
+	 */
+	public static Tile fromId(int id)
+	{
+		return s_tiles[id];
+	}
+	
+	/**
+	 * @return The id of the next tile in a chow sequence, or -1 if the tile cannot be
+	 * followed in a chow.
+	 */
+	public static int nextId(int id)
+	{
+		return s_nextIds[id];
+	}
+	
+	public static boolean isMajor(int id)
+	{
+		return s_tiles[id].m_major;
+	}
+	
+	/**
+	 * @return The canonical instance of the same kind as this tile.
+	 */
+	public Tile canonical()
+	{
+		return s_tiles[m_id];
+	}
+	
+	/**
+	 * @return The dense id of this kind of tile, in the range 0 to COUNT-1.
+	 */
+	public int getId()
+	{
+		return m_id;
+	}
 
 	public Suit getSuit()
 	{
@@ -92,32 +224,44 @@ public final class Tile
 
 	public boolean isMajor()
 	{
-		switch (this.m_type)
-		{
-		case SUIT:
-			switch (this.m_number)
-			{
-			case ONE:
-			case NINE:
-				return true;
-			default:
-				return false;
-			}
-
-		default:
-			return true;
-		}
+		return m_major;
 	}
 
 	/**
-	 * Creates a new tile in same suit as the current tile but with the next number
+	 * Gets the tile in same suit as the current tile but with the next number
 	 * in sequence.
 	 * 
 	 * Only valid to be called for SUIT types with numbers up to EIGHT.
 	 */
+	public Tile getNextNumber()
+	{
+		return s_tiles[s_nextIds[m_id]];
+	}
+
+	/**
+	 * @deprecated Tiles are shared, so nothing is created.  Use {@link #getNextNumber()}.
+	 */
+	@Deprecated
 	public Tile createNextNumber()
 	{
-		return new Tile(this.m_suit, this.m_number.next());
+		return getNextNumber();
+	}
+	
+	/** Override so that instances can be used as keys in maps and sets */
+	@Override
+	public int hashCode()
+	{
+		return m_id;
+	}
+	
+	/** Override so that instances can be used as keys in maps and sets */
+	@Override
+	public boolean equals(Object other)
+	{
+		if (!(other instanceof Tile))
+			return false;
+		
+		return m_id == ((Tile)other).m_id;
 	}
 	
 	public String toString()
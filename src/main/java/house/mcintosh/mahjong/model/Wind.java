@@ -7,13 +7,13 @@ public enum Wind
 	WEST,
 	NORTH;
 	
+	private static final Wind[] VALUES = values();
+	
 	/**
 	 * @return The next wind in the normal rotation sequence of Winds.
 	 */
 	public Wind next()
 	{
-		Wind[] values = Wind.values();
-		
-		return values[(this.ordinal() + 1) % values.length];
+		return VALUES[(this.ordinal() + 1) % VALUES.length];
 	}
 }
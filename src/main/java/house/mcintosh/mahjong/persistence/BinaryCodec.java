@@ -0,0 +1,403 @@
+package house.mcintosh.mahjong.persistence;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import house.mcintosh.mahjong.exception.InvalidModelException;
+import house.mcintosh.mahjong.metrics.Metrics;
+import house.mcintosh.mahjong.model.Game;
+import house.mcintosh.mahjong.model.GroupCode;
+import house.mcintosh.mahjong.model.Player;
+import house.mcintosh.mahjong.model.Round;
+import house.mcintosh.mahjong.model.Wind;
+import house.mcintosh.mahjong.scoring.HandScorer;
+import house.mcintosh.mahjong.scoring.ScoredHand;
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+
+/**
+ * Compact binary format for hands, rounds and games, read and written directly from and to
+ * a ByteBuffer at its current position.
+ *
+ * Each encoded hand, round or game starts with a VERSION byte.  A hand is then a byte holding
+ * the own wind, the prevailing wind and the group count in 2, 2 and 4 bits, a short holding
+ * the hand flags, and a byte for each group.  The 191 valid GroupCodes are numbered densely
+ * so each fits in a byte.  A hand of four sets and a pair takes 9 bytes.
+ *
+ * A round is a byte holding the prevailing wind and hand count, then each hand preceded by
+ * the name of its player.  A game holds its players, starting seat and rounds, with the
+ * players of each round implied by the seat winds, and is decoded by replaying the rounds.
+ *
+ * Scores are not encoded.  Decoding rescores with the scheme given, using the shared
+ * ScoredGroup instances.
+ */
+public final class BinaryCodec
+{
+	public static final byte	VERSION		= 1;
+	
+	private static final int	SEATS		= 4;
+	private static final int	MAX_GROUPS	= 0xF;
+	private static final Wind[]	WINDS		= Wind.values();
+	
+	/** Dense number of each valid GroupCode, or -1. */
+	private static final byte[]	s_codeBytes	= new byte[GroupCode.COUNT];
+	
+	/** GroupCode of each dense number. */
+	private static final short[] s_byteCodes;
+	
+	static
+	{
+		int count = 0;
+		
+		for (int code = 0 ; code < GroupCode.COUNT ; code++)
+			if (GroupCode.isValid(code))
+				count++;
+		
+		s_byteCodes = new short[count];
+		count = 0;
+		
+		for (int code = 0 ; code < GroupCode.COUNT ; code++)
+		{
+			if (GroupCode.isValid(code))
+			{
+				s_codeBytes[code]	= (byte) count;
+				s_byteCodes[count]	= (short) code;
+				count++;
+			}
+			else
+			{
+				s_codeBytes[code] = -1;
+			}
+		}
+	}
+	
+	private BinaryCodec()
+	{
+	}
+	
+	/**
+	 * @return The number of bytes taken by the encoded hand.
+	 */
+	public static int handSize(ScoredHand hand)
+	{
+		return 1 + handBodySize(hand);
+	}
+	
+	/**
+	 * Encode a hand with the winds it was scored with.
+	 *
+	 * @throws java.nio.BufferOverflowException if the buffer does not have handSize bytes
+	 * remaining.
+	 */
+	public static void encode(ByteBuffer buffer, ScoredHand hand, Wind ownWind, Wind prevailingWind)
+	{
+		buffer.put(VERSION);
+		putHand(buffer, hand, ownWind, prevailingWind);
+	}
+	
+	/**
+	 * Decode a hand.
+	 *
+	 * @param winds	Array that receives the own and prevailing winds of the hand, or null.
+	 * @throws InvalidModelException if the data is not a valid encoded hand.
+	 * @throws java.nio.BufferUnderflowException if the hand is cut short.
+	 */
+	public static ScoredHand decodeHand(ByteBuffer buffer, ScoringScheme scheme, Wind[] winds)
+	{
+		checkVersion(buffer);
+		
+		return getHand(buffer, scheme, winds);
+	}
+	
+	/**
+	 * @return The number of bytes taken by the encoded round.
+	 */
+	public static int roundSize(Round round)
+	{
+		int size = 1 + roundBodySize(round);
+		
+		for (Wind wind : WINDS)
+			if (round.getPlayer(wind) != null)
+				size += nameSize(round.getPlayer(wind));
+		
+		return size;
+	}
+	
+	/**
+	 * Encode a round, with the names of its players.
+	 */
+	public static void encode(ByteBuffer buffer, Round round)
+	{
+		buffer.put(VERSION);
+		buffer.put((byte) (round.getPrevailingWind().ordinal() << 4 | handCount(round)));
+		
+		for (Wind wind : WINDS)
+		{
+			ScoredHand hand = round.getHand(wind);
+			
+			if (hand == null)
+				continue;
+			
+			putName(buffer, round.getPlayer(wind));
+			putHand(buffer, hand, wind, round.getPrevailingWind());
+		}
+	}
+	
+	public static Round decodeRound(ByteBuffer buffer, ScoringScheme scheme)
+	{
+		checkVersion(buffer);
+		
+		int		header	= buffer.get();
+		Round	round	= new Round(wind(header >>> 4));
+		int		hands	= header & MAX_GROUPS;
+		Wind[]	winds	= new Wind[2];
+		
+		for (int hand = 0 ; hand < hands ; hand++)
+		{
+			Player player = getName(buffer);
+			
+			round.addHand(player, getHand(buffer, scheme, winds), winds[0]);
+		}
+		
+		return round;
+	}
+	
+	/**
+	 * @return The number of bytes taken by the encoded game.
+	 */
+	public static int gameSize(Game game)
+	{
+		int size = 1 + 1;
+		
+		for (int seat = 0 ; seat < SEATS ; seat++)
+			if (game.getSeatPlayer(seat) != null)
+				size += nameSize(game.getSeatPlayer(seat));
+		
+		if (game.isStarted())
+		{
+			size += 1 + 4;
+			
+			for (int round = 0 ; round < game.getRoundCount() ; round++)
+				size += roundBodySize(game.getRound(round));
+		}
+		
+		return size;
+	}
+	
+	/**
+	 * Encode a game.  The rounds must have their players at the winds the game gave them.
+	 */
+	public static void encode(ByteBuffer buffer, Game game)
+	{
+		int seats = 0;
+		
+		for (int seat = 0 ; seat < SEATS ; seat++)
+			if (game.getSeatPlayer(seat) != null)
+				seats |= 1 << seat;
+		
+		if (game.isStarted())
+			seats |= 1 << SEATS;
+		
+		buffer.put(VERSION);
+		buffer.put((byte) seats);
+		
+		for (int seat = 0 ; seat < SEATS ; seat++)
+			if (game.getSeatPlayer(seat) != null)
+				putName(buffer, game.getSeatPlayer(seat));
+		
+		if (!game.isStarted())
+			return;
+		
+		buffer.put((byte) game.getStartingSeat());
+		buffer.putInt(game.getRoundCount());
+		
+		for (int round = 0 ; round < game.getRoundCount() ; round++)
+			putRoundBody(buffer, game.getRound(round));
+	}
+	
+	/**
+	 * Decode a game, replaying its rounds to restore its state.
+	 */
+	public static Game decodeGame(ByteBuffer buffer, ScoringScheme scheme)
+	{
+		checkVersion(buffer);
+		
+		int		seats	= buffer.get();
+		Game	game	= new Game(scheme);
+		
+		for (int seat = 0 ; seat < SEATS ; seat++)
+			if ((seats & (1 << seat)) != 0)
+				game.setPlayer(getName(buffer), seat);
+		
+		if ((seats & (1 << SEATS)) == 0)
+			return game;
+		
+		game.startGame(seatPlayer(game, buffer.get()));
+		
+		int rounds = buffer.getInt();
+		
+		for (int round = 0 ; round < rounds ; round++)
+			game.addRound(getRoundBody(buffer, scheme, game));
+		
+		return game;
+	}
+	
+	/**
+	 * @return The player in a seat read from encoded data.
+	 * @throws InvalidModelException if there is no such seat or it is empty.
+	 */
+	static Player seatPlayer(Game game, int seat)
+	{
+		if (seat < 0 || seat >= SEATS || game.getSeatPlayer(seat) == null)
+			throw new InvalidModelException("Invalid encoded seat: " + seat);
+		
+		return game.getSeatPlayer(seat);
+	}
+	
+	/**
+	 * @return The number of bytes taken by a round without its player names.
+	 */
+	static int roundBodySize(Round round)
+	{
+		int size = 1;
+		
+		for (Wind wind : WINDS)
+			if (round.getHand(wind) != null)
+				size += handBodySize(round.getHand(wind));
+		
+		return size;
+	}
+	
+	/**
+	 * Encode a round without its player names or a version, for use where the players are
+	 * known from the game.
+	 */
+	static void putRoundBody(ByteBuffer buffer, Round round)
+	{
+		buffer.put((byte) (round.getPrevailingWind().ordinal() << 4 | handCount(round)));
+		
+		for (Wind wind : WINDS)
+			if (round.getHand(wind) != null)
+				putHand(buffer, round.getHand(wind), wind, round.getPrevailingWind());
+	}
+	
+	/**
+	 * Decode a round written by putRoundBody, taking each player from the seat of their wind
+	 * in the game.
+	 */
+	static Round getRoundBody(ByteBuffer buffer, ScoringScheme scheme, Game game)
+	{
+		int		header	= buffer.get();
+		Round	round	= new Round(wind(header >>> 4));
+		int		hands	= header & MAX_GROUPS;
+		Wind[]	winds	= new Wind[2];
+		
+		for (int hand = 0 ; hand < hands ; hand++)
+		{
+			ScoredHand scoredHand = getHand(buffer, scheme, winds);
+			
+			round.addHand(game.getSeatPlayer(game.getWindSeat(winds[0])), scoredHand, winds[0]);
+		}
+		
+		return round;
+	}
+	
+	private static int handBodySize(ScoredHand hand)
+	{
+		return 1 + 2 + hand.getGroupCount();
+	}
+	
+	private static void putHand(ByteBuffer buffer, ScoredHand hand, Wind ownWind, Wind prevailingWind)
+	{
+		int count = hand.getGroupCount();
+		
+		if (count > MAX_GROUPS)
+			throw Metrics.invalidHand("Too many groups to encode: " + count);
+		
+		buffer.put((byte) (ownWind.ordinal() << 6 | prevailingWind.ordinal() << 4 | count));
+		buffer.putShort((short) hand.getFlags());
+		
+		for (int group = 0 ; group < count ; group++)
+			buffer.put(s_codeBytes[hand.getGroup(group).getCode()]);
+	}
+	
+	private static ScoredHand getHand(ByteBuffer buffer, ScoringScheme scheme, Wind[] winds)
+	{
+		int		header			= buffer.get();
+		Wind	ownWind			= wind(header >>> 6);
+		Wind	prevailingWind	= wind(header >>> 4);
+		int		count			= header & MAX_GROUPS;
+		int		flags			= buffer.getShort();
+		
+		if ((flags & ~HandScorer.FLAGS_ALL) != 0)
+			throw new InvalidModelException("Invalid hand flags: " + flags);
+		
+		ScoredHand.Builder builder = new ScoredHand.Builder(scheme).setFlags(flags);
+		
+		for (int group = 0 ; group < count ; group++)
+		{
+			int number = buffer.get() & 0xFF;
+			
+			if (number >= s_byteCodes.length)
+				throw new InvalidModelException("Invalid encoded group: " + number);
+			
+			builder.add(s_byteCodes[number], ownWind, prevailingWind);
+		}
+		
+		if (winds != null)
+		{
+			winds[0] = ownWind;
+			winds[1] = prevailingWind;
+		}
+		
+		return builder.build();
+	}
+	
+	private static int handCount(Round round)
+	{
+		int count = 0;
+		
+		for (Wind wind : WINDS)
+			if (round.getHand(wind) != null)
+				count++;
+		
+		return count;
+	}
+	
+	private static int nameSize(Player player)
+	{
+		return 2 + player.getName().getBytes(StandardCharsets.UTF_8).length;
+	}
+	
+	private static void putName(ByteBuffer buffer, Player player)
+	{
+		byte[] name = player.getName().getBytes(StandardCharsets.UTF_8);
+		
+		if (name.length > 0xFFFF)
+			throw new InvalidModelException("Player name too long to encode");
+		
+		buffer.putShort((short) name.length);
+		buffer.put(name);
+	}
+	
+	private static Player getName(ByteBuffer buffer)
+	{
+		byte[] name = new byte[buffer.getShort() & 0xFFFF];
+		
+		buffer.get(name);
+		
+		return Player.get(new String(name, StandardCharsets.UTF_8));
+	}
+	
+	private static Wind wind(int bits)
+	{
+		return WINDS[bits & 0x3];
+	}
+	
+	static void checkVersion(ByteBuffer buffer)
+	{
+		byte version = buffer.get();
+		
+		if (version != VERSION)
+			throw new InvalidModelException("Unsupported encoding version: " + version);
+	}
+}
@@ -0,0 +1,423 @@
+package house.mcintosh.mahjong.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+import house.mcintosh.mahjong.exception.InvalidModelException;
+import house.mcintosh.mahjong.model.Game;
+import house.mcintosh.mahjong.model.HandParser;
+import house.mcintosh.mahjong.model.Player;
+import house.mcintosh.mahjong.model.Round;
+import house.mcintosh.mahjong.model.Wind;
+import house.mcintosh.mahjong.scoring.ScoredHand;
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+
+/**
+ * Reads an archive of games written by GameJsonWriter, one round at a time, scoring each hand
+ * with the scheme given.  Only the round being read is held, so an archive of any size can be
+ * read.
+ *
+ * Members may be in any order, and unknown members are skipped, except that the rounds of a
+ * game must come after its players and eastSeat.
+ */
+public final class GameJsonReader implements Closeable
+{
+	private static final int		SEATS		= 4;
+	private static final Wind[]		WINDS		= Wind.values();
+	
+	// Where the reader is in the archive.
+	
+	private static final int		START		= 0;
+	private static final int		GAMES		= 1;
+	private static final int		ROUNDS		= 2;
+	private static final int		END			= 3;
+	
+	private final JsonReader		m_json;
+	private final ScoringScheme		m_scheme;
+	private final HandParser		m_parser	= new HandParser();
+	private final StringBuilder		m_text		= new StringBuilder();
+	private int						m_state		= START;
+	private Game					m_game;
+	
+	// The hands of the round being read, held until the whole round has been read.
+	
+	private final Player[]			m_players	= new Player[SEATS];
+	private final Wind[]			m_winds		= new Wind[SEATS];
+	private final int[]				m_flags		= new int[SEATS];
+	private final int[][]			m_codes		= new int[SEATS][HandParser.MAX_GROUPS];
+	private final int[]				m_counts	= new int[SEATS];
+	
+	/**
+	 * The reader is buffered internally, so need not be buffered itself.
+	 */
+	public GameJsonReader(Reader reader, ScoringScheme scheme)
+	{
+		m_json		= new JsonReader(reader);
+		m_scheme	= scheme;
+	}
+	
+	/**
+	 * Read up to the rounds of the next game, skipping any rounds of the current game that
+	 * have not been read.
+	 *
+	 * @return The next game, with its players and started if it has an eastSeat, but with no
+	 * rounds added.  Null if there are no more games.
+	 * @throws InvalidModelException if the archive is not valid.
+	 */
+	public Game nextGame() throws IOException
+	{
+		while (m_state == ROUNDS)
+			nextRound();
+		
+		if (m_state == START)
+			startArchive();
+		
+		if (m_state == END)
+			return null;
+		
+		if (!m_json.hasNext())
+		{
+			m_json.endArray();
+			endObject();
+			m_json.endDocument();
+			
+			m_state	= END;
+			m_game	= null;
+			
+			return null;
+		}
+		
+		m_json.beginObject();
+		m_game = new Game(m_scheme);
+		
+		int eastSeat = -1;
+		
+		while (m_json.hasNext())
+		{
+			CharSequence name = m_json.nextName();
+			
+			if (equals(name, GameJsonWriter.KEY_PLAYERS))
+			{
+				readPlayers();
+			}
+			else if (equals(name, GameJsonWriter.KEY_EAST_SEAT))
+			{
+				eastSeat = m_json.nextInt();
+			}
+			else if (equals(name, GameJsonWriter.KEY_ROUNDS))
+			{
+				startGame(eastSeat);
+				m_json.beginArray();
+				m_state = ROUNDS;
+				
+				return m_game;
+			}
+			else
+			{
+				m_json.skipValue();
+			}
+		}
+		
+		m_json.endObject();
+		startGame(eastSeat);
+		
+		return m_game;
+	}
+	
+	/**
+	 * Read the next round of the current game.  The round is not added to the game, so the
+	 * caller can decide what to do with it, but the game must have had all earlier rounds
+	 * added for the players to be found by wind.
+	 *
+	 * @return The round, or null if the game has no more rounds.
+	 */
+	public Round nextRound() throws IOException
+	{
+		if (m_state != ROUNDS)
+			return null;
+		
+		if (!m_json.hasNext())
+		{
+			m_json.endArray();
+			endObject();
+			m_state = GAMES;
+			
+			return null;
+		}
+		
+		return readRound();
+	}
+	
+	/**
+	 * Read the whole of the next game, adding each round as it is read.
+	 *
+	 * @return The game, or null if there are no more games.
+	 */
+	public Game readGame() throws IOException
+	{
+		Game game = nextGame();
+		
+		if (game == null)
+			return null;
+		
+		for (Round round = nextRound() ; round != null ; round = nextRound())
+			game.addRound(round);
+		
+		return game;
+	}
+	
+	@Override
+	public void close() throws IOException
+	{
+		m_json.close();
+	}
+	
+	private void startArchive() throws IOException
+	{
+		m_json.beginObject();
+		
+		while (m_json.hasNext())
+		{
+			if (equals(m_json.nextName(), GameJsonWriter.KEY_GAMES))
+			{
+				m_json.beginArray();
+				m_state = GAMES;
+				
+				return;
+			}
+			
+			m_json.skipValue();
+		}
+		
+		throw m_json.error("No games");
+	}
+	
+	/**
+	 * Skip the remaining members of the current object and leave it.
+	 */
+	private void endObject() throws IOException
+	{
+		while (m_json.hasNext())
+		{
+			m_json.nextName();
+			m_json.skipValue();
+		}
+		
+		m_json.endObject();
+	}
+	
+	private void readPlayers() throws IOException
+	{
+		m_json.beginArray();
+		
+		for (int seat = 0 ; m_json.hasNext() ; seat++)
+		{
+			if (seat == SEATS)
+				throw m_json.error("Too many players");
+			
+			if (!m_json.nextNull())
+				m_game.setPlayer(Player.get(m_json.nextString()), seat);
+		}
+		
+		m_json.endArray();
+	}
+	
+	private void startGame(int eastSeat)
+	{
+		if (eastSeat < 0)
+			return;
+		
+		if (eastSeat >= SEATS || m_game.getSeatPlayer(eastSeat) == null)
+			throw m_json.error("Invalid eastSeat " + eastSeat);
+		
+		m_game.startGame(m_game.getSeatPlayer(eastSeat));
+	}
+	
+	private Round readRound() throws IOException
+	{
+		if (!m_game.isStarted())
+			throw m_json.error("Rounds in a game with no eastSeat");
+		
+		Wind	prevailingWind	= null;
+		int		hands			= 0;
+		
+		m_json.beginObject();
+		
+		while (m_json.hasNext())
+		{
+			CharSequence name = m_json.nextName();
+			
+			if (equals(name, GameJsonWriter.KEY_PREVAILING_WIND))
+			{
+				prevailingWind = readWind();
+			}
+			else if (equals(name, GameJsonWriter.KEY_HANDS))
+			{
+				m_json.beginArray();
+				
+				for (hands = 0 ; m_json.hasNext() ; hands++)
+				{
+					if (hands == SEATS)
+						throw m_json.error("Too many hands");
+					
+					readHand(hands);
+				}
+				
+				m_json.endArray();
+			}
+			else
+			{
+				m_json.skipValue();
+			}
+		}
+		
+		m_json.endObject();
+		
+		if (prevailingWind == null)
+			throw m_json.error("Round has no prevailingWind");
+		
+		Round round = new Round(prevailingWind);
+		
+		for (int hand = 0 ; hand < hands ; hand++)
+		{
+			ScoredHand.Builder builder = new ScoredHand.Builder(m_scheme).setFlags(m_flags[hand]);
+			
+			for (int group = 0 ; group < m_counts[hand] ; group++)
+				builder.add(m_codes[hand][group], m_winds[hand], prevailingWind);
+			
+			round.addHand(m_players[hand], builder.build(), m_winds[hand]);
+		}
+		
+		return round;
+	}
+	
+	private void readHand(int hand) throws IOException
+	{
+		m_players[hand]	= null;
+		m_winds[hand]	= null;
+		m_flags[hand]	= 0;
+		m_counts[hand]	= 0;
+		
+		m_json.beginObject();
+		
+		while (m_json.hasNext())
+		{
+			CharSequence name = m_json.nextName();
+			
+			if (equals(name, GameJsonWriter.KEY_WIND))
+			{
+				m_winds[hand] = readWind();
+			}
+			else if (equals(name, GameJsonWriter.KEY_PLAYER))
+			{
+				m_players[hand] = readPlayer();
+			}
+			else if (equals(name, GameJsonWriter.KEY_GROUPS))
+			{
+				m_text.setLength(0);
+				m_json.nextString(m_text);
+				
+				if (!m_parser.parse(m_text))
+					throw m_json.error("Invalid groups, error " + m_parser.getErrorCode() + " at " + m_parser.getErrorPosition() + " in \"" + m_text + "\"");
+				
+				for (int group = 0 ; group < m_parser.getGroupCount() ; group++)
+					m_codes[hand][group] = m_parser.getGroupCode(group);
+				
+				m_counts[hand] = m_parser.getGroupCount();
+			}
+			else if (equals(name, GameJsonWriter.KEY_FLAGS))
+			{
+				m_flags[hand] = readFlags();
+			}
+			else
+			{
+				m_json.skipValue();
+			}
+		}
+		
+		m_json.endObject();
+		
+		if (m_winds[hand] == null)
+			throw m_json.error("Hand has no wind");
+		
+		// The player defaults to the one with the wind in the game.
+		
+		if (m_players[hand] == null)
+			m_players[hand] = m_game.getSeatPlayer(m_game.getWindSeat(m_winds[hand]));
+		
+		if (m_players[hand] == null)
+			throw m_json.error("Hand has no player");
+	}
+	
+	/**
+	 * @return The player named, using the player in the game if there is one, so that no name
+	 * need be created.
+	 */
+	private Player readPlayer() throws IOException
+	{
+		m_text.setLength(0);
+		m_json.nextString(m_text);
+		
+		for (int seat = 0 ; seat < SEATS ; seat++)
+		{
+			Player player = m_game.getSeatPlayer(seat);
+			
+			if (player != null && equals(m_text, player.getName()))
+				return player;
+		}
+		
+		return Player.get(m_text.toString());
+	}
+	
+	private Wind readWind() throws IOException
+	{
+		m_text.setLength(0);
+		m_json.nextString(m_text);
+		
+		for (Wind wind : WINDS)
+			if (equals(m_text, wind.name()))
+				return wind;
+		
+		throw m_json.error("Invalid wind \"" + m_text + "\"");
+	}
+	
+	private int readFlags() throws IOException
+	{
+		int flags = 0;
+		
+		m_json.beginArray();
+		
+		while (m_json.hasNext())
+		{
+			m_text.setLength(0);
+			m_json.nextString(m_text);
+			
+			int bit = 0;
+			
+			while (bit < GameJsonWriter.FLAG_NAMES.length && !equals(m_text, GameJsonWriter.FLAG_NAMES[bit]))
+				bit++;
+			
+			if (bit == GameJsonWriter.FLAG_NAMES.length)
+				throw m_json.error("Invalid flag \"" + m_text + "\"");
+			
+			flags |= 1 << bit;
+		}
+		
+		m_json.endArray();
+		
+		return flags;
+	}
+	
+	private static boolean equals(CharSequence text, String value)
+	{
+		if (text.length() != value.length())
+			return false;
+		
+		for (int index = 0 ; index < value.length() ; index++)
+			if (text.charAt(index) != value.charAt(index))
+				return false;
+		
+		return true;
+	}
+}
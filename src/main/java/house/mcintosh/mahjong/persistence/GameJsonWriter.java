@@ -0,0 +1,213 @@
+package house.mcintosh.mahjong.persistence;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+import house.mcintosh.mahjong.exception.InvalidGameStateException;
+import house.mcintosh.mahjong.model.Game;
+import house.mcintosh.mahjong.model.HandParser;
+import house.mcintosh.mahjong.model.Player;
+import house.mcintosh.mahjong.model.Round;
+import house.mcintosh.mahjong.model.Wind;
+import house.mcintosh.mahjong.scoring.ScoredHand;
+
+/**
+ * Writes an archive of games as JSON, one round at a time, so that an archive of any size
+ * can be written without holding more than the round being written.
+ *
+ * The archive is an object holding an array of games:
+ *
+ * <pre>
+ * {"games":[
+ * {"players":["Ann","Bob",null,"Dee"],"eastSeat":1,"rounds":[
+ * {"prevailingWind":"EAST","hands":[{"wind":"EAST","player":"Bob","groups":"123b 555c! EEE RR",
+ *  "flags":["MAHJONG_BY_WALL_TILE"],"score":46},...]},
+ * ...]}]}
+ * </pre>
+ *
+ * Players are by seat, with null for an empty seat, and eastSeat is the seat of the first
+ * east player, absent if the game has not started.  Groups are in the notation of
+ * HandParser.  The score of each hand is for information; GameJsonReader scores hands again.
+ * Each round is written on its own line.
+ */
+public final class GameJsonWriter implements Closeable, Flushable
+{
+	static final String KEY_GAMES			= "games";
+	static final String KEY_PLAYERS			= "players";
+	static final String KEY_EAST_SEAT		= "eastSeat";
+	static final String KEY_ROUNDS			= "rounds";
+	static final String KEY_PREVAILING_WIND	= "prevailingWind";
+	static final String KEY_HANDS			= "hands";
+	static final String KEY_WIND			= "wind";
+	static final String KEY_PLAYER			= "player";
+	static final String KEY_GROUPS			= "groups";
+	static final String KEY_FLAGS			= "flags";
+	static final String KEY_SCORE			= "score";
+	
+	/** Name of each HandScorer.FLAG_ constant, indexed by bit. */
+	static final String[] FLAG_NAMES =
+	{
+		"MAHJONG_PAIR_CONCEALED",
+		"MAHJONG_BY_LOOSE_TILE",
+		"MAHJONG_BY_WALL_TILE",
+		"MAHJONG_BY_LAST_WALL_TILE",
+		"MAHJONG_BY_LAST_DISCARD",
+		"MAHJONG_BY_ROBBING_KONG",
+		"MAHJONG_BY_ONLY_POSSIBLE_TILE",
+		"MAHJONG_BY_ORIGINAL_CALL",
+		"NON_MAHJONG_BY_ORIGINAL_CALL"
+	};
+	
+	private static final int		SEATS	= 4;
+	private static final Wind[]		WINDS	= Wind.values();
+	
+	private final JsonWriter		m_json;
+	private final StringBuilder		m_groups	= new StringBuilder();
+	private boolean					m_started;
+	private boolean					m_inGame;
+	private boolean					m_closed;
+	
+	/**
+	 * The writer is buffered internally, so need not be buffered itself.
+	 */
+	public GameJsonWriter(Writer writer)
+	{
+		m_json = new JsonWriter(writer);
+	}
+	
+	/**
+	 * Write all of a game.
+	 */
+	public void writeGame(Game game) throws IOException
+	{
+		beginGame(game);
+		
+		for (int round = 0 ; round < game.getRoundCount() ; round++)
+			writeRound(game.getRound(round));
+		
+		endGame();
+	}
+	
+	/**
+	 * Start writing a game, with the players and starting seat of the game given.  Rounds
+	 * are written by writeRound, and the game finished by endGame.
+	 */
+	public void beginGame(Game game) throws IOException
+	{
+		if (m_inGame)
+			throw new InvalidGameStateException("Previous game not ended");
+		
+		if (!m_started)
+		{
+			m_json.beginObject().name(KEY_GAMES).beginArray().newLine();
+			m_started = true;
+		}
+		
+		m_json.beginObject().name(KEY_PLAYERS).beginArray();
+		
+		for (int seat = 0 ; seat < SEATS ; seat++)
+		{
+			Player player = game.getSeatPlayer(seat);
+			
+			if (player == null)
+				m_json.nullValue();
+			else
+				m_json.value(player.getName());
+		}
+		
+		m_json.endArray();
+		
+		if (game.isStarted())
+			m_json.name(KEY_EAST_SEAT).value(game.getStartingSeat());
+		
+		m_json.name(KEY_ROUNDS).beginArray().newLine();
+		m_inGame = true;
+	}
+	
+	public void writeRound(Round round) throws IOException
+	{
+		if (!m_inGame)
+			throw new InvalidGameStateException("No game begun");
+		
+		m_json.beginObject().name(KEY_PREVAILING_WIND).value(round.getPrevailingWind().name());
+		m_json.name(KEY_HANDS).beginArray();
+		
+		for (Wind wind : WINDS)
+		{
+			ScoredHand hand = round.getHand(wind);
+			
+			if (hand == null)
+				continue;
+			
+			m_json.beginObject();
+			m_json.name(KEY_WIND).value(wind.name());
+			m_json.name(KEY_PLAYER).value(round.getPlayer(wind).getName());
+			
+			m_groups.setLength(0);
+			
+			for (int group = 0 ; group < hand.getGroupCount() ; group++)
+			{
+				if (group > 0)
+					m_groups.append(' ');
+				
+				HandParser.appendGroup(m_groups, hand.getGroup(group).getCode());
+			}
+			
+			m_json.name(KEY_GROUPS).value(m_groups);
+			
+			if (hand.getFlags() != 0)
+			{
+				m_json.name(KEY_FLAGS).beginArray();
+				
+				for (int bit = 0 ; bit < FLAG_NAMES.length ; bit++)
+					if ((hand.getFlags() & (1 << bit)) != 0)
+						m_json.value(FLAG_NAMES[bit]);
+				
+				m_json.endArray();
+			}
+			
+			m_json.name(KEY_SCORE).value(hand.getTotalScore());
+			m_json.endObject();
+		}
+		
+		m_json.endArray().endObject().newLine();
+	}
+	
+	public void endGame() throws IOException
+	{
+		if (!m_inGame)
+			throw new InvalidGameStateException("No game begun");
+		
+		m_json.endArray().endObject().newLine();
+		m_inGame = false;
+	}
+	
+	@Override
+	public void flush() throws IOException
+	{
+		m_json.flush();
+	}
+	
+	/**
+	 * Finish the archive and close the underlying writer.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if (m_closed)
+			return;
+		
+		m_closed = true;
+		
+		if (m_inGame)
+			endGame();
+		
+		if (!m_started)
+			m_json.beginObject().name(KEY_GAMES).beginArray();
+		
+		m_json.endArray().endObject().newLine();
+		m_json.close();
+	}
+}
@@ -0,0 +1,480 @@
+package house.mcintosh.mahjong.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+
+import house.mcintosh.mahjong.exception.InvalidGameStateException;
+import house.mcintosh.mahjong.exception.InvalidModelException;
+import house.mcintosh.mahjong.model.Game;
+import house.mcintosh.mahjong.model.Player;
+import house.mcintosh.mahjong.model.Round;
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+
+/**
+ * Append-only log of the events of any number of games, from which the games can be rebuilt
+ * after a restart.
+ * 
+ * The file starts with a magic number and a format version.  Each record is then framed as
+ * its length, a CRC32 of its contents, and the contents: an event type, the id of the game,
+ * and the event.  A round event is the round in BinaryCodec's format, preceded by the codec
+ * version.  A record that is cut short or fails its check marks the end of the log, since it
+ * can only be from a write that never completed.  A complete record that cannot be applied to
+ * its game is skipped, and the records after it are still replayed.
+ * 
+ * Appends from any number of threads are queued to a single writer thread, which writes
+ * everything queued and then forces it to disk with one fsync.  The future returned by each
+ * append completes once its record is durable.
+ */
+public final class GameLog implements Closeable
+{
+	static final byte	EVENT_SEAT		= 1;
+	static final byte	EVENT_START		= 2;
+	static final byte	EVENT_ROUND		= 3;
+	
+	private static final int	MAGIC				= 0x4D4A4C47;
+	private static final int	FORMAT_VERSION		= 2;
+	
+	/** Magic number and format version. */
+	static final int			FILE_HEADER_SIZE	= 8;
+	/** Length and CRC. */
+	private static final int	HEADER_SIZE			= 8;
+	private static final int	MAX_RECORD_SIZE		= 1 << 16;
+	
+	private final FileChannel							m_channel;
+	private final LinkedBlockingQueue<Pending>			m_queue		= new LinkedBlockingQueue<>();
+	private final Thread								m_writer;
+	/** Held to check for closing and enqueue as one step. */
+	private final Object								m_lock		= new Object();
+	private boolean										m_closed;
+	private volatile IOException						m_failure;
+	
+	private GameLog(FileChannel channel)
+	{
+		m_channel	= channel;
+		m_writer	= new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				write();
+			}
+		}, "game-log-writer");
+		
+		m_writer.setDaemon(true);
+		m_writer.start();
+	}
+	
+	/**
+	 * Open a log for appending, creating it if it does not exist.  The framing of the records
+	 * is checked to find the end of the log, and anything after the last complete record is
+	 * removed.  The records are not replayed; use recover for that.
+	 */
+	public static GameLog open(Path path) throws IOException
+	{
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		
+		try
+		{
+			long end;
+			
+			if (readFileHeader(channel))
+			{
+				end = scan(channel, null);
+			}
+			else
+			{
+				// New, or torn before its header was complete.
+				
+				ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+				
+				header.putInt(MAGIC);
+				header.putInt(FORMAT_VERSION);
+				header.flip();
+				
+				channel.truncate(0);
+				
+				while (header.hasRemaining())
+					channel.write(header, header.position());
+				
+				channel.force(false);
+				end = FILE_HEADER_SIZE;
+			}
+			
+			channel.truncate(end);
+			channel.position(end);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			channel.close();
+			throw e;
+		}
+		
+		return new GameLog(channel);
+	}
+	
+	/**
+	 * Rebuild games from a log, up to its last complete record.  Records that cannot be applied
+	 * to their games are skipped.
+	 * 
+	 * @return Each game in the log, by id, in the order they first appear.
+	 * @throws IOException if the file is not a game log of this version.
+	 */
+	public static Map<Long, Game> recover(Path path, ScoringScheme scheme) throws IOException
+	{
+		Map<Long, Game> games = new LinkedHashMap<>();
+		
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+		{
+			if (readFileHeader(channel))
+				scan(channel, new Replay(scheme, games));
+		}
+		
+		return games;
+	}
+	
+	/**
+	 * Record that a player has taken a seat in a game.
+	 */
+	public CompletableFuture<Void> logSeat(long gameId, int seat, Player player)
+	{
+		byte[]		name	= player.getName().getBytes(StandardCharsets.UTF_8);
+		ByteBuffer	record	= record(EVENT_SEAT, gameId, 1 + 2 + name.length);
+		
+		record.put((byte) seat);
+		record.putShort((short) name.length);
+		record.put(name);
+		
+		return append(record);
+	}
+	
+	/**
+	 * Record that a game has started.
+	 */
+	public CompletableFuture<Void> logStart(long gameId, int eastSeat)
+	{
+		ByteBuffer record = record(EVENT_START, gameId, 1);
+		
+		record.put((byte) eastSeat);
+		
+		return append(record);
+	}
+	
+	/**
+	 * Record a round that has been added to a game.  The players of the round are recorded by
+	 * wind, so rounds must be logged in the order they are added to the game.
+	 */
+	public CompletableFuture<Void> logRound(long gameId, Round round)
+	{
+		ByteBuffer record = record(EVENT_ROUND, gameId, 1 + BinaryCodec.roundBodySize(round));
+		
+		record.put(BinaryCodec.VERSION);
+		BinaryCodec.putRoundBody(record, round);
+		
+		return append(record);
+	}
+	
+	/**
+	 * Wait for everything appended so far to be durable, then close the log.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		synchronized (m_lock)
+		{
+			if (m_closed)
+				return;
+			
+			m_closed = true;
+			m_queue.add(Pending.CLOSE);
+		}
+		
+		try
+		{
+			m_writer.join();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		
+		m_channel.close();
+		
+		if (m_failure != null)
+			throw m_failure;
+	}
+	
+	/**
+	 * @return A buffer with space for a record with contents of the given size, positioned
+	 * after the event type and game id.
+	 */
+	private static ByteBuffer record(byte event, long gameId, int eventSize)
+	{
+		int contentSize = 1 + 8 + eventSize;
+		
+		if (contentSize > MAX_RECORD_SIZE)
+			throw new InvalidModelException("Log record too large");
+		
+		ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + contentSize);
+		
+		record.putInt(contentSize);
+		record.putInt(0);
+		record.put(event);
+		record.putLong(gameId);
+		
+		return record;
+	}
+	
+	private CompletableFuture<Void> append(ByteBuffer record)
+	{
+		CRC32 crc = new CRC32();
+		
+		crc.update(record.array(), HEADER_SIZE, record.capacity() - HEADER_SIZE);
+		
+		record.putInt(4, (int) crc.getValue());
+		record.rewind();
+		
+		Pending pending = new Pending(record);
+		
+		synchronized (m_lock)
+		{
+			if (m_closed)
+				throw new InvalidGameStateException("Log is closed");
+			
+			if (m_failure != null)
+				pending.m_result.completeExceptionally(m_failure);
+			else
+				m_queue.add(pending);
+		}
+		
+		return pending.m_result;
+	}
+	
+	/**
+	 * Body of the writer thread.  Writes everything queued as one batch, with one force to disk.
+	 */
+	private void write()
+	{
+		List<Pending>	batch	= new ArrayList<>();
+		boolean			closing	= false;
+		
+		while (!closing)
+		{
+			try
+			{
+				batch.add(m_queue.take());
+			}
+			catch (InterruptedException e)
+			{
+				continue;
+			}
+			
+			m_queue.drainTo(batch);
+			
+			closing = batch.remove(Pending.CLOSE);
+			
+			try
+			{
+				if (m_failure != null)
+					throw m_failure;
+				
+				for (Pending pending : batch)
+					while (pending.m_record.hasRemaining())
+						m_channel.write(pending.m_record);
+				
+				if (!batch.isEmpty())
+					m_channel.force(false);
+				
+				for (Pending pending : batch)
+					pending.m_result.complete(null);
+			}
+			catch (IOException e)
+			{
+				m_failure = e;
+				
+				for (Pending pending : batch)
+					pending.m_result.completeExceptionally(e);
+			}
+			
+			batch.clear();
+		}
+	}
+	
+	/**
+	 * Check the file header of a log.
+	 * 
+	 * @return False if the file is too short to hold a header.
+	 * @throws IOException if the header is not that of a game log of this version.
+	 */
+	private static boolean readFileHeader(FileChannel channel) throws IOException
+	{
+		ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+		
+		if (!readFully(channel, header, 0))
+			return false;
+		
+		if (header.getInt(0) != MAGIC)
+			throw new IOException("Not a game log");
+		
+		if (header.getInt(4) != FORMAT_VERSION)
+			throw new IOException("Unsupported game log version " + header.getInt(4));
+		
+		return true;
+	}
+	
+	/**
+	 * Read records from after the file header until the end of the log, and replay each one
+	 * if given a Replay.
+	 * 
+	 * @return The position after the last complete record.
+	 */
+	private static long scan(FileChannel channel, Replay replay) throws IOException
+	{
+		ByteBuffer	header		= ByteBuffer.allocate(HEADER_SIZE);
+		CRC32		crc			= new CRC32();
+		long		position	= FILE_HEADER_SIZE;
+		
+		while (true)
+		{
+			header.clear();
+			
+			if (!readFully(channel, header, position))
+				return position;
+			
+			int contentSize	= header.getInt(0);
+			int checksum	= header.getInt(4);
+			
+			if (contentSize < 9 || contentSize > MAX_RECORD_SIZE)
+				return position;
+			
+			ByteBuffer content = ByteBuffer.allocate(contentSize);
+			
+			if (!readFully(channel, content, position + HEADER_SIZE))
+				return position;
+			
+			crc.reset();
+			crc.update(content.array(), 0, contentSize);
+			
+			if ((int) crc.getValue() != checksum)
+				return position;
+			
+			if (replay != null)
+			{
+				content.flip();
+				replay.apply(content);
+			}
+			
+			position += HEADER_SIZE + contentSize;
+		}
+	}
+	
+	private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+	{
+		while (buffer.hasRemaining())
+			if (channel.read(buffer, position + buffer.position()) < 0)
+				return false;
+		
+		return true;
+	}
+	
+	/**
+	 * Applies logged events to the games being rebuilt.
+	 */
+	private static final class Replay
+	{
+		private final ScoringScheme		m_scheme;
+		private final Map<Long, Game>	m_games;
+		
+		Replay(ScoringScheme scheme, Map<Long, Game> games)
+		{
+			m_scheme	= scheme;
+			m_games		= games;
+		}
+		
+		/**
+		 * Apply a record to its game, or skip it if it cannot be applied.  Games check an event
+		 * before changing any state, so a record that cannot be applied leaves its game as it
+		 * was, and whatever the record holds it cannot affect another game.
+		 */
+		void apply(ByteBuffer content)
+		{
+			try
+			{
+				applyEvent(content);
+			}
+			catch (RuntimeException e)
+			{
+				// Skip the record.
+			}
+		}
+		
+		private void applyEvent(ByteBuffer content)
+		{
+			byte	event	= content.get();
+			long	gameId	= content.getLong();
+			Game	game	= m_games.get(gameId);
+			
+			if (game == null && event != EVENT_SEAT)
+				throw new InvalidGameStateException("Log has event for unknown game " + gameId);
+			
+			switch (event)
+			{
+			case EVENT_SEAT:
+				{
+					int seat	= content.get();
+					int length	= Short.toUnsignedInt(content.getShort());
+					
+					if (length != content.remaining())
+						throw new InvalidModelException("Invalid player name length " + length);
+					
+					byte[] name = new byte[length];
+					
+					content.get(name);
+					
+					if (game == null)
+						game = new Game(m_scheme);
+					
+					game.setPlayer(Player.get(new String(name, StandardCharsets.UTF_8)), seat);
+					m_games.put(gameId, game);
+				}
+				break;
+			
+			case EVENT_START:
+				game.startGame(BinaryCodec.seatPlayer(game, content.get()));
+				break;
+			
+			case EVENT_ROUND:
+				BinaryCodec.checkVersion(content);
+				game.addRound(BinaryCodec.getRoundBody(content, m_scheme, game));
+				break;
+			
+			default:
+				throw new InvalidModelException("Unknown log event " + event);
+			}
+		}
+	}
+	
+	private static final class Pending
+	{
+		static final Pending CLOSE = new Pending(null);
+		
+		private final ByteBuffer				m_record;
+		private final CompletableFuture<Void>	m_result	= new CompletableFuture<>();
+		
+		Pending(ByteBuffer record)
+		{
+			m_record = record;
+		}
+	}
+}
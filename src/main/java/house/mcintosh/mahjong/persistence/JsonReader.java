@@ -0,0 +1,492 @@
+package house.mcintosh.mahjong.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+import house.mcintosh.mahjong.exception.InvalidModelException;
+
+/**
+ * Pull reader of JSON tokens from a character stream, reading through its own buffer.
+ * Objects and arrays are entered and left explicitly, and values are read by type, so
+ * nothing is held beyond the value being read.
+ */
+final class JsonReader implements Closeable
+{
+	private static final int	BUFFER_SIZE	= 1 << 14;
+	private static final int	MAX_DEPTH	= 64;
+	
+	// State of each open object or array.
+	
+	private static final byte	EMPTY		= 0;
+	/** Has had at least one value, so the next needs a comma. */
+	private static final byte	ELEMENT		= 1;
+	/** Has had a name, so the value needs a colon. */
+	private static final byte	NAME		= 2;
+	
+	private final Reader		m_in;
+	private final char[]		m_buffer	= new char[BUFFER_SIZE];
+	private int					m_position;
+	private int					m_limit;
+	/** Characters read before the start of the buffer. */
+	private long				m_offset;
+	
+	private final byte[]		m_states	= new byte[MAX_DEPTH];
+	private final boolean[]		m_objects	= new boolean[MAX_DEPTH];
+	private int					m_depth;
+	/** True when the separator before the next value has been read, but not the value. */
+	private boolean				m_pending;
+	
+	private final StringBuilder	m_string	= new StringBuilder();
+	
+	JsonReader(Reader in)
+	{
+		m_in = in;
+	}
+	
+	void beginObject() throws IOException
+	{
+		begin('{', true);
+	}
+	
+	void endObject() throws IOException
+	{
+		end('}', true);
+	}
+	
+	void beginArray() throws IOException
+	{
+		begin('[', false);
+	}
+	
+	void endArray() throws IOException
+	{
+		end(']', false);
+	}
+	
+	/**
+	 * @return True if the current object or array has another member.
+	 */
+	boolean hasNext() throws IOException
+	{
+		int c = peek();
+		
+		return c != '}' && c != ']' && c >= 0;
+	}
+	
+	/**
+	 * Read the name of the next member of the current object into a reused builder.
+	 */
+	CharSequence nextName() throws IOException
+	{
+		if (m_depth == 0 || !m_objects[m_depth - 1])
+			throw error("Name outside object");
+		
+		if (m_states[m_depth - 1] == ELEMENT)
+			expect(',');
+		
+		m_states[m_depth - 1] = NAME;
+		m_string.setLength(0);
+		readString(m_string);
+		
+		return m_string;
+	}
+	
+	/**
+	 * Append a string value to a builder.
+	 */
+	void nextString(StringBuilder into) throws IOException
+	{
+		beforeValue();
+		readString(into);
+	}
+	
+	String nextString() throws IOException
+	{
+		m_string.setLength(0);
+		nextString(m_string);
+		
+		return m_string.toString();
+	}
+	
+	int nextInt() throws IOException
+	{
+		beforeValue();
+		peek();
+		
+		m_pending = false;
+		
+		long	value		= 0;
+		boolean	negative	= false;
+		int		c			= read();
+		
+		if (c == '-')
+		{
+			negative	= true;
+			c			= read();
+		}
+		
+		if (c < '0' || c > '9')
+			throw error("Expected integer");
+		
+		while (c >= '0' && c <= '9')
+		{
+			value = value * 10 + (c - '0');
+			
+			if (value > Integer.MAX_VALUE + 1L)
+				throw error("Integer too large");
+			
+			c = read();
+		}
+		
+		unread(c);
+		
+		if (c == '.' || c == 'e' || c == 'E')
+			throw error("Expected integer");
+		
+		value = negative ? -value : value;
+		
+		if (value > Integer.MAX_VALUE)
+			throw error("Integer too large");
+		
+		return (int) value;
+	}
+	
+	/**
+	 * Read a null if it is the next value.
+	 *
+	 * @return True if a null was read, false if the next value is something else.
+	 */
+	boolean nextNull() throws IOException
+	{
+		beforeValue();
+		
+		if (peek() != 'n')
+			return false;
+		
+		m_pending = false;
+		literal("null");
+		
+		return true;
+	}
+	
+	/**
+	 * Read and discard the next value, whatever it is.
+	 */
+	void skipValue() throws IOException
+	{
+		beforeValue();
+		
+		int c = peek();
+		
+		switch (c)
+		{
+		case '{':
+		case '[':
+			{
+				boolean object = c == '{';
+				
+				begin((char) c, object);
+				
+				while (hasNext())
+				{
+					if (object)
+						nextName();
+					
+					skipValue();
+				}
+				
+				end(object ? '}' : ']', object);
+			}
+			break;
+		
+		case '"':
+			m_pending = false;
+			skipString();
+			break;
+		
+		case 't':
+			m_pending = false;
+			literal("true");
+			break;
+		
+		case 'f':
+			m_pending = false;
+			literal("false");
+			break;
+		
+		case 'n':
+			m_pending = false;
+			literal("null");
+			break;
+		
+		default:
+			m_pending = false;
+			
+			if (c != '-' && (c < '0' || c > '9'))
+				throw error("Unexpected character");
+			
+			do
+				c = read();
+			while ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E');
+			
+			unread(c);
+			break;
+		}
+	}
+	
+	/**
+	 * Check that nothing but white space follows the last value.
+	 */
+	void endDocument() throws IOException
+	{
+		if (m_depth != 0 || peek() >= 0)
+			throw error("Unexpected content after document");
+	}
+	
+	@Override
+	public void close() throws IOException
+	{
+		m_in.close();
+	}
+	
+	/**
+	 * @return An exception for malformed input at the current position.
+	 */
+	InvalidModelException error(String message)
+	{
+		return new InvalidModelException(message + " at character " + (m_offset + m_position));
+	}
+	
+	private void begin(char open, boolean object) throws IOException
+	{
+		beforeValue();
+		
+		if (m_depth == MAX_DEPTH)
+			throw error("Nesting too deep");
+		
+		m_pending = false;
+		expect(open);
+		
+		m_objects[m_depth]	= object;
+		m_states[m_depth]	= EMPTY;
+		m_depth++;
+	}
+	
+	private void end(char close, boolean object) throws IOException
+	{
+		if (m_depth == 0 || m_objects[m_depth - 1] != object || m_states[m_depth - 1] == NAME)
+			throw error("Unexpected " + close);
+		
+		expect(close);
+		m_depth--;
+	}
+	
+	/**
+	 * Read the separator before a value, if not already read.
+	 */
+	private void beforeValue() throws IOException
+	{
+		if (m_pending)
+			return;
+		
+		if (m_depth > 0)
+		{
+			int index = m_depth - 1;
+			
+			if (m_objects[index])
+			{
+				if (m_states[index] != NAME)
+					throw error("Value without name");
+				
+				expect(':');
+			}
+			else if (m_states[index] == ELEMENT)
+			{
+				expect(',');
+			}
+			
+			m_states[index] = ELEMENT;
+		}
+		
+		m_pending = true;
+	}
+	
+	private void readString(StringBuilder into) throws IOException
+	{
+		m_pending = false;
+		expect('"');
+		
+		while (true)
+		{
+			// Copy runs of plain characters straight from the buffer.
+			
+			int start = m_position;
+			
+			while (m_position < m_limit)
+			{
+				char c = m_buffer[m_position];
+				
+				if (c == '"' || c == '\\' || c < 0x20)
+					break;
+				
+				m_position++;
+			}
+			
+			into.append(m_buffer, start, m_position - start);
+			
+			if (m_position >= m_limit)
+			{
+				if (!fill())
+					throw error("Unterminated string");
+				
+				continue;
+			}
+			
+			char c = m_buffer[m_position++];
+			
+			if (c == '"')
+				return;
+			
+			if (c == '\\')
+				into.append(escape());
+			else
+				throw error("Control character in string");
+		}
+	}
+	
+	private void skipString() throws IOException
+	{
+		expect('"');
+		
+		while (true)
+		{
+			int c = read();
+			
+			if (c == '"')
+				return;
+			
+			if (c < 0)
+				throw error("Unterminated string");
+			
+			if (c == '\\')
+				escape();
+		}
+	}
+	
+	private char escape() throws IOException
+	{
+		int c = read();
+		
+		switch (c)
+		{
+		case '"':
+		case '\\':
+		case '/':
+			return (char) c;
+		
+		case 'b':
+			return '\b';
+		
+		case 'f':
+			return '\f';
+		
+		case 'n':
+			return '\n';
+		
+		case 'r':
+			return '\r';
+		
+		case 't':
+			return '\t';
+		
+		case 'u':
+			{
+				int value = 0;
+				
+				for (int digit = 0 ; digit < 4 ; digit++)
+				{
+					int hex = Character.digit(read(), 16);
+					
+					if (hex < 0)
+						throw error("Invalid unicode escape");
+					
+					value = value << 4 | hex;
+				}
+				
+				return (char) value;
+			}
+		
+		default:
+			throw error("Invalid escape");
+		}
+	}
+	
+	private void literal(String literal) throws IOException
+	{
+		for (int index = 0 ; index < literal.length() ; index++)
+			if (read() != literal.charAt(index))
+				throw error("Expected " + literal);
+	}
+	
+	private void expect(char expected) throws IOException
+	{
+		if (peek() != expected)
+			throw error("Expected '" + expected + "'");
+		
+		m_position++;
+	}
+	
+	/**
+	 * @return The next character that is not white space, without reading it, or -1 at the
+	 * end of the input.
+	 */
+	private int peek() throws IOException
+	{
+		while (true)
+		{
+			if (m_position >= m_limit && !fill())
+				return -1;
+			
+			char c = m_buffer[m_position];
+			
+			if (c != ' ' && c != '\n' && c != '\r' && c != '\t')
+				return c;
+			
+			m_position++;
+		}
+	}
+	
+	/**
+	 * @return The next character, or -1 at the end of the input.
+	 */
+	private int read() throws IOException
+	{
+		if (m_position >= m_limit && !fill())
+			return -1;
+		
+		return m_buffer[m_position++];
+	}
+	
+	private void unread(int c)
+	{
+		if (c >= 0)
+			m_position--;
+	}
+	
+	private boolean fill() throws IOException
+	{
+		m_offset	+= m_limit;
+		m_position	= 0;
+		m_limit		= 0;
+		
+		int count = m_in.read(m_buffer, 0, m_buffer.length);
+		
+		if (count <= 0)
+			return false;
+		
+		m_limit = count;
+		
+		return true;
+	}
+}
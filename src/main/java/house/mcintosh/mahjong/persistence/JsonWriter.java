@@ -0,0 +1,218 @@
+package house.mcintosh.mahjong.persistence;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes JSON tokens to a character stream through its own buffer.  Commas and colons are
+ * added as needed; the caller is trusted to nest objects and arrays correctly.
+ */
+final class JsonWriter implements Closeable, Flushable
+{
+	private static final int	BUFFER_SIZE	= 1 << 14;
+	private static final int	MAX_DEPTH	= 64;
+	private static final char[]	HEX			= "0123456789abcdef".toCharArray();
+	
+	private final Writer		m_out;
+	private final char[]		m_buffer	= new char[BUFFER_SIZE];
+	private int					m_position;
+	
+	/** Whether each open object or array has had a member, so the next needs a comma. */
+	private final boolean[]		m_members	= new boolean[MAX_DEPTH];
+	private int					m_depth;
+	/** True after a name, when the value needs no comma. */
+	private boolean				m_afterName;
+	
+	JsonWriter(Writer out)
+	{
+		m_out = out;
+	}
+	
+	JsonWriter beginObject() throws IOException
+	{
+		return begin('{');
+	}
+	
+	JsonWriter endObject() throws IOException
+	{
+		return end('}');
+	}
+	
+	JsonWriter beginArray() throws IOException
+	{
+		return begin('[');
+	}
+	
+	JsonWriter endArray() throws IOException
+	{
+		return end(']');
+	}
+	
+	JsonWriter name(String name) throws IOException
+	{
+		beforeValue();
+		string(name);
+		put(':');
+		m_afterName = true;
+		
+		return this;
+	}
+	
+	JsonWriter value(CharSequence value) throws IOException
+	{
+		beforeValue();
+		string(value);
+		
+		return this;
+	}
+	
+	JsonWriter value(int number) throws IOException
+	{
+		long value = number;
+		
+		beforeValue();
+		
+		if (m_position + 20 > m_buffer.length)
+			flushBuffer();
+		
+		if (value < 0)
+		{
+			put('-');
+			value = -value;
+		}
+		
+		// Digits are written backwards into place.
+		
+		int digits = 1;
+		
+		for (long rest = value / 10 ; rest != 0 ; rest /= 10)
+			digits++;
+		
+		for (int index = m_position + digits - 1 ; index >= m_position ; index--)
+		{
+			m_buffer[index]	= (char) ('0' + value % 10);
+			value			/= 10;
+		}
+		
+		m_position += digits;
+		
+		return this;
+	}
+	
+	JsonWriter nullValue() throws IOException
+	{
+		beforeValue();
+		put('n');
+		put('u');
+		put('l');
+		put('l');
+		
+		return this;
+	}
+	
+	/**
+	 * Start a new line, between members, to keep the output readable a line at a time.
+	 */
+	JsonWriter newLine() throws IOException
+	{
+		put('\n');
+		
+		return this;
+	}
+	
+	@Override
+	public void flush() throws IOException
+	{
+		flushBuffer();
+		m_out.flush();
+	}
+	
+	@Override
+	public void close() throws IOException
+	{
+		flushBuffer();
+		m_out.close();
+	}
+	
+	private JsonWriter begin(char open) throws IOException
+	{
+		beforeValue();
+		put(open);
+		
+		m_members[m_depth++] = false;
+		
+		return this;
+	}
+	
+	private JsonWriter end(char close) throws IOException
+	{
+		m_depth--;
+		put(close);
+		
+		return this;
+	}
+	
+	private void beforeValue() throws IOException
+	{
+		if (m_afterName)
+		{
+			m_afterName = false;
+			return;
+		}
+		
+		if (m_depth == 0)
+			return;
+		
+		if (m_members[m_depth - 1])
+			put(',');
+		
+		m_members[m_depth - 1] = true;
+	}
+	
+	private void string(CharSequence value) throws IOException
+	{
+		put('"');
+		
+		for (int index = 0 ; index < value.length() ; index++)
+		{
+			char c = value.charAt(index);
+			
+			if (c == '"' || c == '\\')
+			{
+				put('\\');
+				put(c);
+			}
+			else if (c < 0x20)
+			{
+				put('\\');
+				put('u');
+				put('0');
+				put('0');
+				put(HEX[c >> 4]);
+				put(HEX[c & 0xF]);
+			}
+			else
+			{
+				put(c);
+			}
+		}
+		
+		put('"');
+	}
+	
+	private void put(char c) throws IOException
+	{
+		if (m_position == m_buffer.length)
+			flushBuffer();
+		
+		m_buffer[m_position++] = c;
+	}
+	
+	private void flushBuffer() throws IOException
+	{
+		m_out.write(m_buffer, 0, m_position);
+		m_position = 0;
+	}
+}
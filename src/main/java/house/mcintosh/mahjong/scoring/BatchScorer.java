@@ -0,0 +1,128 @@
+package house.mcintosh.mahjong.scoring;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import house.mcintosh.mahjong.metrics.Metrics;
+
+/**
+ * Scores a HandBatch across all cores, using HandScorer for each hand.
+ * 
+ * The batch is split into chunks large enough that two threads writing to the same cache
+ * line of the output arrays, at the edges of their chunks, costs next to nothing.  Each
+ * chunk is scored with a single scratch array, and nothing else is allocated per hand.
+ */
+public final class BatchScorer
+{
+	/** Most hands in a chunk. */
+	private static final int CHUNK_SIZE	= 1024;
+	
+	private final ScoringScheme	m_scheme;
+	private final ForkJoinPool	m_pool;
+	
+	public BatchScorer(ScoringScheme scheme)
+	{
+		this(scheme, ForkJoinPool.commonPool());
+	}
+	
+	public BatchScorer(ScoringScheme scheme, ForkJoinPool pool)
+	{
+		m_scheme	= scheme;
+		m_pool		= pool;
+	}
+	
+	/**
+	 * Score every hand in the batch.
+	 * 
+	 * @param totals	Receives the limited total score of each hand.  Must be at least as long
+	 *					as the batch.  Zero for a hand that could not be scored.
+	 * @param statuses	Receives the HandScorer.STATUS_ code of each hand.  May be null.
+	 * @return The number of hands that could not be scored.
+	 */
+	public int score(HandBatch batch, int[] totals, int[] statuses)
+	{
+		int size = batch.size();
+		
+		if (totals.length < size || (statuses != null && statuses.length < size))
+			throw Metrics.invalidHand("Result array is shorter than the batch");
+		
+		if (size <= CHUNK_SIZE)
+			return scoreRange(batch, 0, size, totals, statuses);
+		
+		return m_pool.invoke(new ScoreTask(batch, 0, size, totals, statuses));
+	}
+	
+	/**
+	 * Score every hand in the batch, on the calling thread only.
+	 */
+	public int scoreSequential(HandBatch batch, int[] totals, int[] statuses)
+	{
+		if (totals.length < batch.size() || (statuses != null && statuses.length < batch.size()))
+			throw Metrics.invalidHand("Result array is shorter than the batch");
+		
+		return scoreRange(batch, 0, batch.size(), totals, statuses);
+	}
+	
+	private int scoreRange(HandBatch batch, int from, int to, int[] totals, int[] statuses)
+	{
+		int[]	codes	= batch.getCodes();
+		int[]	result	= new int[HandScorer.RESULT_SIZE];
+		int		failed	= 0;
+		
+		for (int hand = from ; hand < to ; hand++)
+		{
+			int status = HandScorer.score(
+					m_scheme,
+					codes, batch.getOffset(hand), batch.getGroupCount(hand),
+					batch.getFlags(hand), batch.getOwnWind(hand), batch.getPrevailingWind(hand),
+					result, 0);
+			
+			totals[hand] = result[HandScorer.RESULT_TOTAL];
+			
+			if (statuses != null)
+				statuses[hand] = status;
+			
+			if (status != HandScorer.STATUS_OK)
+				failed++;
+		}
+		
+		return failed;
+	}
+	
+	@SuppressWarnings("serial")
+	private class ScoreTask extends RecursiveTask<Integer>
+	{
+		private final HandBatch	m_batch;
+		private final int		m_from;
+		private final int		m_to;
+		private final int[]		m_totals;
+		private final int[]		m_statuses;
+		
+		ScoreTask(HandBatch batch, int from, int to, int[] totals, int[] statuses)
+		{
+			m_batch		= batch;
+			m_from		= from;
+			m_to		= to;
+			m_totals	= totals;
+			m_statuses	= statuses;
+		}
+		
+		@Override
+		protected Integer compute()
+		{
+			if (m_to - m_from <= CHUNK_SIZE)
+				return scoreRange(m_batch, m_from, m_to, m_totals, m_statuses);
+			
+			int middle = m_from + (m_to - m_from) / 2;
+			
+			ScoreTask low	= new ScoreTask(m_batch, m_from, middle, m_totals, m_statuses);
+			ScoreTask high	= new ScoreTask(m_batch, middle, m_to, m_totals, m_statuses);
+			
+			low.fork();
+			
+			int failed = high.compute();
+			
+			return failed + low.join();
+		}
+	}
+}
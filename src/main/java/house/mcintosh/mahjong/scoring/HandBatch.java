@@ -0,0 +1,232 @@
+package house.mcintosh.mahjong.scoring;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+import house.mcintosh.mahjong.metrics.Metrics;
+import house.mcintosh.mahjong.model.Round;
+import house.mcintosh.mahjong.model.Wind;
+
+/**
+ * A batch of encoded hands, held in flat arrays for scoring by BatchScorer.
+ * 
+ * The GroupCodes of all the hands are held end to end in one array, with the groups of
+ * hand i from getOffset(i) up to getOffset(i+1).  The flags and winds of each hand are
+ * held in parallel arrays.
+ */
+public final class HandBatch
+{
+	private final int[]	m_codes;
+	private final int[]	m_offsets;
+	private final int[]	m_flags;
+	private final int[]	m_ownWinds;
+	private final int[]	m_prevailingWinds;
+	
+	/**
+	 * Wrap existing arrays, without copying them.
+	 * 
+	 * @param offsets	Start of each hand in codes, followed by the end of the last hand, so
+	 *					one longer than the other arrays.
+	 */
+	public HandBatch(int[] codes, int[] offsets, int[] flags, int[] ownWinds, int[] prevailingWinds)
+	{
+		int size = flags.length;
+		
+		if (offsets.length != size + 1 || ownWinds.length != size || prevailingWinds.length != size)
+			throw Metrics.invalidHand("Batch arrays have inconsistent lengths");
+		
+		if (offsets[0] < 0 || offsets[size] > codes.length)
+			throw Metrics.invalidHand("Batch offsets are outside the codes");
+		
+		for (int hand = 0 ; hand < size ; hand++)
+			if (offsets[hand] > offsets[hand + 1])
+				throw Metrics.invalidHand("Batch offsets are not in order at hand " + hand);
+		
+		m_codes				= codes;
+		m_offsets			= offsets;
+		m_flags				= flags;
+		m_ownWinds			= ownWinds;
+		m_prevailingWinds	= prevailingWinds;
+	}
+	
+	public int size()
+	{
+		return m_flags.length;
+	}
+	
+	int[] getCodes()
+	{
+		return m_codes;
+	}
+	
+	public int getOffset(int hand)
+	{
+		return m_offsets[hand];
+	}
+	
+	public int getGroupCount(int hand)
+	{
+		return m_offsets[hand + 1] - m_offsets[hand];
+	}
+	
+	public int getCode(int hand, int group)
+	{
+		return m_codes[m_offsets[hand] + group];
+	}
+	
+	public int getFlags(int hand)
+	{
+		return m_flags[hand];
+	}
+	
+	public int getOwnWind(int hand)
+	{
+		return m_ownWinds[hand];
+	}
+	
+	public int getPrevailingWind(int hand)
+	{
+		return m_prevailingWinds[hand];
+	}
+	
+	/**
+	 * @return A collector of the hands of a stream of rounds into a batch, in order, for
+	 * scoring archives that are read as streams.  Parallel streams are packed in parts and
+	 * the parts joined.
+	 */
+	public static Collector<Round, Builder, HandBatch> collector()
+	{
+		return Collector.of(
+				new Supplier<Builder>()
+				{
+					@Override
+					public Builder get()
+					{
+						return new Builder();
+					}
+				},
+				new BiConsumer<Builder, Round>()
+				{
+					@Override
+					public void accept(Builder builder, Round round)
+					{
+						builder.add(round);
+					}
+				},
+				new BinaryOperator<Builder>()
+				{
+					@Override
+					public Builder apply(Builder first, Builder second)
+					{
+						return first.addAll(second);
+					}
+				},
+				new Function<Builder, HandBatch>()
+				{
+					@Override
+					public HandBatch apply(Builder builder)
+					{
+						return builder.build();
+					}
+				});
+	}
+	
+	/**
+	 * Packs hands one at a time into a HandBatch, growing its arrays as needed.
+	 */
+	public static class Builder
+	{
+		private static final int INITIAL_HANDS = 64;
+		
+		private int[]	m_codes				= new int[INITIAL_HANDS * 5];
+		private int[]	m_offsets			= new int[INITIAL_HANDS + 1];
+		private int[]	m_flags				= new int[INITIAL_HANDS];
+		private int[]	m_ownWinds			= new int[INITIAL_HANDS];
+		private int[]	m_prevailingWinds	= new int[INITIAL_HANDS];
+		private int		m_size;
+		
+		public Builder add(int[] codes, int flags, Wind ownWind, Wind prevailingWind)
+		{
+			return add(codes, 0, codes.length, flags, ownWind.ordinal(), prevailingWind.ordinal());
+		}
+		
+		public Builder add(int[] codes, int offset, int count, int flags, int ownWind, int prevailingWind)
+		{
+			if (m_size == m_flags.length)
+			{
+				int capacity = m_size * 2;
+				
+				m_offsets			= Arrays.copyOf(m_offsets, capacity + 1);
+				m_flags				= Arrays.copyOf(m_flags, capacity);
+				m_ownWinds			= Arrays.copyOf(m_ownWinds, capacity);
+				m_prevailingWinds	= Arrays.copyOf(m_prevailingWinds, capacity);
+			}
+			
+			int start = m_offsets[m_size];
+			
+			if (start + count > m_codes.length)
+				m_codes = Arrays.copyOf(m_codes, Math.max(m_codes.length * 2, start + count));
+			
+			System.arraycopy(codes, offset, m_codes, start, count);
+			
+			m_flags[m_size]				= flags;
+			m_ownWinds[m_size]			= ownWind;
+			m_prevailingWinds[m_size]	= prevailingWind;
+			m_offsets[++m_size]			= start + count;
+			
+			return this;
+		}
+		
+		/**
+		 * Add the hand of each player in a round, in order of their winds.
+		 */
+		public Builder add(Round round)
+		{
+			Wind prevailingWind = round.getPrevailingWind();
+			
+			for (Wind wind : Wind.values())
+			{
+				ScoredHand hand = round.getHand(wind);
+				
+				if (hand != null)
+					add(hand.getGroupCodes(), hand.getFlags(), wind, prevailingWind);
+			}
+			
+			return this;
+		}
+		
+		/**
+		 * Add every hand of another builder, in order.
+		 */
+		public Builder addAll(Builder other)
+		{
+			for (int hand = 0 ; hand < other.m_size ; hand++)
+			{
+				int offset = other.m_offsets[hand];
+				
+				add(other.m_codes, offset, other.m_offsets[hand + 1] - offset, other.m_flags[hand], other.m_ownWinds[hand], other.m_prevailingWinds[hand]);
+			}
+			
+			return this;
+		}
+		
+		public int size()
+		{
+			return m_size;
+		}
+		
+		public HandBatch build()
+		{
+			return new HandBatch(
+					Arrays.copyOf(m_codes, m_offsets[m_size]),
+					Arrays.copyOf(m_offsets, m_size + 1),
+					Arrays.copyOf(m_flags, m_size),
+					Arrays.copyOf(m_ownWinds, m_size),
+					Arrays.copyOf(m_prevailingWinds, m_size));
+		}
+	}
+}
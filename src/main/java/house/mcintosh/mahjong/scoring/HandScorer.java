@@ -0,0 +1,285 @@
+package house.mcintosh.mahjong.scoring;
+
+import house.mcintosh.mahjong.model.GroupCode;
+import house.mcintosh.mahjong.model.Tile;
+import house.mcintosh.mahjong.scoring.ScoringScheme.ScoreElement;
+
+/**
+ * Scores a hand from primitive inputs, without allocating anything on the heap.  Gives the
+ * same results as ScoredHand, but a hand that ScoredHand would reject with an exception is
+ * reported by a status code instead.
+ *
+ * The hand is an array of GroupCodes, with the hand flags as a bit field of the FLAG_
+ * constants and the winds as ordinals.
+ */
+public final class HandScorer
+{
+	// Hand flags.  Each corresponds to a setter on ScoredHand.
+	
+	public static final int FLAG_MAHJONG_PAIR_CONCEALED			= 1 << 0;
+	public static final int FLAG_MAHJONG_BY_LOOSE_TILE			= 1 << 1;
+	public static final int FLAG_MAHJONG_BY_WALL_TILE			= 1 << 2;
+	public static final int FLAG_MAHJONG_BY_LAST_WALL_TILE		= 1 << 3;
+	public static final int FLAG_MAHJONG_BY_LAST_DISCARD		= 1 << 4;
+	public static final int FLAG_MAHJONG_BY_ROBBING_KONG		= 1 << 5;
+	public static final int FLAG_MAHJONG_BY_ONLY_POSSIBLE_TILE	= 1 << 6;
+	public static final int FLAG_MAHJONG_BY_ORIGINAL_CALL		= 1 << 7;
+	public static final int FLAG_NON_MAHJONG_BY_ORIGINAL_CALL	= 1 << 8;
+	
+	/** All the valid flags. */
+	public static final int FLAGS_ALL							= (1 << 9) - 1;
+	
+	// Status codes.
+	
+	public static final int STATUS_OK							= 0;
+	/** Too many tiles for a non-mahjong hand.  ScoredHand throws InvalidHandException. */
+	public static final int STATUS_TOO_MANY_TILES				= 1;
+	public static final int STATUS_INVALID_GROUP				= 2;
+	public static final int STATUS_INVALID_WIND					= 3;
+	
+	// Positions of the values written to the result array.
+	
+	public static final int RESULT_TOTAL						= 0;
+	public static final int RESULT_TOTAL_UNLIMITED				= 1;
+	/** 1 if the hand is a mahjong hand, otherwise 0. */
+	public static final int RESULT_MAHJONG						= 2;
+	
+	/** Number of values written to the result array. */
+	public static final int RESULT_SIZE							= 3;
+	
+	/** Element of each mahjong hand flag, indexed by bit.  Null for flags with no element. */
+	private static final ScoreElement[] FLAG_ELEMENTS =
+	{
+		null,
+		ScoreElement.MahjongByLooseTileHandScore,
+		ScoreElement.MahjongByWallTileHandScore,
+		ScoreElement.MahjongByLastWallTileHandScore,
+		ScoreElement.MahjongByLastDiscardHandScore,
+		ScoreElement.MahjongByRobbingKongHandScore,
+		ScoreElement.MahjongByOnlyPossibleTileHandScore,
+		ScoreElement.MahjongByOriginalCallHandScore
+	};
+	
+	private static final int PAIR								= 0;
+	private static final int CHOW								= 1;
+	
+	private HandScorer()
+	{
+	}
+	
+	/**
+	 * Score a hand held in an array of group codes.
+	 *
+	 * @param codes				Array holding the codes of the groups in the hand.
+	 * @param offset			Index of the first group of the hand in the array.
+	 * @param count				Number of groups in the hand.
+	 * @param flags				Bit field of the FLAG_ constants.
+	 * @param ownWind			Ordinal of the player's wind.
+	 * @param prevailingWind	Ordinal of the prevailing wind.
+	 * @param result			Array that receives RESULT_SIZE values, starting at resultOffset.
+	 *							All are zero if the status is not STATUS_OK.
+	 * @return One of the STATUS_ constants.
+	 */
+	public static int score(ScoringScheme scheme, int[] codes, int offset, int count, int flags, int ownWind, int prevailingWind, int[] result, int resultOffset)
+	{
+		result[resultOffset + RESULT_TOTAL]				= 0;
+		result[resultOffset + RESULT_TOTAL_UNLIMITED]	= 0;
+		result[resultOffset + RESULT_MAHJONG]			= 0;
+		
+		if (ownWind < 0 || ownWind > 3 || prevailingWind < 0 || prevailingWind > 3)
+			return STATUS_INVALID_WIND;
+		
+		ScoreTable table = scheme.getScoreTable();
+		
+		int setScore			= 0;
+		int setMultiplier		= 1;
+		int effectiveHandTiles	= 0;
+		int pairCount			= 0;
+		int chowCount			= 0;
+		int minorCount			= 0;
+		int suitMask			= 0;
+		int exposedSetCount		= 0;
+		
+		for (int position = offset ; position < offset + count ; position++)
+		{
+			int code = codes[position];
+			
+			if (!GroupCode.isValid(code))
+				return STATUS_INVALID_GROUP;
+			
+			int index	= ScoreTable.index(code, ownWind, prevailingWind);
+			int type	= GroupCode.getTypeOrdinal(code);
+			int tileId	= GroupCode.getTileId(code);
+			
+			setScore			+= table.getScore(index);
+			setMultiplier		*= table.getMultiplier(index);
+			effectiveHandTiles	+= GroupCode.getHandSize(code);
+			
+			if (type == PAIR)
+				pairCount++;
+			
+			if (type == CHOW)
+				chowCount++;
+			
+			if (!Tile.isMajor(tileId))
+				minorCount++;
+			
+			if (tileId < Tile.FIRST_WIND_ID)
+				suitMask |= 1 << (tileId / Tile.SUIT_SIZE);
+			
+			if (type != PAIR && !GroupCode.isConcealed(code))
+				exposedSetCount++;
+		}
+		
+		boolean isMahjong;
+		
+		if (effectiveHandTiles == scheme.MahjongHandSize && pairCount == 1)
+			isMahjong = true;
+		else if (effectiveHandTiles >= scheme.MahjongHandSize)
+			return STATUS_TOO_MANY_TILES;
+		else
+			isMahjong = false;
+		
+		int total = total(table, setScore, setMultiplier, isMahjong, chowCount, minorCount, suitMask, exposedSetCount, flags);
+		
+		result[resultOffset + RESULT_TOTAL]				= Math.min(total, scheme.LimitScore);
+		result[resultOffset + RESULT_TOTAL_UNLIMITED]	= total;
+		result[resultOffset + RESULT_MAHJONG]			= isMahjong ? 1 : 0;
+		
+		return STATUS_OK;
+	}
+	
+	/**
+	 * Score a complete hand given the running totals over its sets.  Shared with ScoredHand so
+	 * that both give exactly the same results.
+	 *
+	 * @return The unlimited total score of the hand.
+	 */
+	static int total(ScoreTable table, int setScore, int setMultiplier, boolean isMahjong, int chowCount, int minorCount, int suitMask, int exposedSetCount, int flags)
+	{
+		int score		= setScore;
+		int multiplier	= setMultiplier;
+		
+		if ((flags & FLAG_NON_MAHJONG_BY_ORIGINAL_CALL) != 0)
+		{
+			score		+= table.getElementScore(ScoreElement.OriginalCallHandScore);
+			multiplier	*= table.getElementMultiplier(ScoreElement.OriginalCallHandScore);
+		}
+		
+		if (isMahjong)
+		{
+			// Additional scoring that applies to mahjong hand only.
+			
+			boolean allMajor				= chowCount == 0 && minorCount == 0;
+			boolean noChow					= chowCount == 0;
+			boolean singleSuit				= Integer.bitCount(suitMask) == 1;
+			boolean allNonPairsConcealed	= exposedSetCount == 0;
+			
+			score		+= table.getElementScore(ScoreElement.MahjongHandScore);
+			multiplier	*= table.getElementMultiplier(ScoreElement.MahjongHandScore);
+			
+			if (allMajor)
+			{
+				score		+= table.getElementScore(ScoreElement.AllMajorHandScore);
+				multiplier	*= table.getElementMultiplier(ScoreElement.AllMajorHandScore);
+			}
+			
+			if (noChow)
+			{
+				score		+= table.getElementScore(ScoreElement.NoChowsHandScore);
+				multiplier	*= table.getElementMultiplier(ScoreElement.NoChowsHandScore);
+			}
+			
+			if (singleSuit)
+			{
+				score		+= table.getElementScore(ScoreElement.SingleSuitHandScore);
+				multiplier	*= table.getElementMultiplier(ScoreElement.SingleSuitHandScore);
+			}
+			
+			if (allNonPairsConcealed && (flags & FLAG_MAHJONG_PAIR_CONCEALED) != 0)
+			{
+				score		+= table.getElementScore(ScoreElement.AllConcealedHandScore);
+				multiplier	*= table.getElementMultiplier(ScoreElement.AllConcealedHandScore);
+			}
+			
+			if ((flags & FLAG_MAHJONG_BY_WALL_TILE) != 0)
+			{
+				score		+= table.getElementScore(ScoreElement.MahjongByWallTileHandScore);
+				multiplier	*= table.getElementMultiplier(ScoreElement.MahjongByWallTileHandScore);
+			}
+			
+			if ((flags & FLAG_MAHJONG_BY_LAST_WALL_TILE) != 0)
+			{
+				score		+= table.getElementScore(ScoreElement.MahjongByLastWallTileHandScore);
+				multiplier	*= table.getElementMultiplier(ScoreElement.MahjongByLastWallTileHandScore);
+			}
+			
+			if ((flags & FLAG_MAHJONG_BY_ONLY_POSSIBLE_TILE) != 0)
+			{
+				score		+= table.getElementScore(ScoreElement.MahjongByOnlyPossibleTileHandScore);
+				multiplier	*= table.getElementMultiplier(ScoreElement.MahjongByOnlyPossibleTileHandScore);
+			}
+			
+			if ((flags & FLAG_MAHJONG_BY_LOOSE_TILE) != 0)
+			{
+				score		+= table.getElementScore(ScoreElement.MahjongByLooseTileHandScore);
+				multiplier	*= table.getElementMultiplier(ScoreElement.MahjongByLooseTileHandScore);
+			}
+			
+			if ((flags & FLAG_MAHJONG_BY_LAST_DISCARD) != 0)
+			{
+				score		+= table.getElementScore(ScoreElement.MahjongByLastDiscardHandScore);
+				multiplier	*= table.getElementMultiplier(ScoreElement.MahjongByLastDiscardHandScore);
+			}
+			
+			if ((flags & FLAG_MAHJONG_BY_ROBBING_KONG) != 0)
+			{
+				score		+= table.getElementScore(ScoreElement.MahjongByRobbingKongHandScore);
+				multiplier	*= table.getElementMultiplier(ScoreElement.MahjongByRobbingKongHandScore);
+			}
+			
+			if ((flags & FLAG_MAHJONG_BY_ORIGINAL_CALL) != 0)
+			{
+				score		+= table.getElementScore(ScoreElement.MahjongByOriginalCallHandScore);
+				multiplier	*= table.getElementMultiplier(ScoreElement.MahjongByOriginalCallHandScore);
+			}
+		}
+		
+		return score * multiplier;
+	}
+	
+	/**
+	 * @return Bit set of the ordinals of the ScoreElements that apply to the whole of a hand,
+	 * under the same conditions as total applies them.
+	 */
+	static long handElements(ScoringScheme scheme, boolean isMahjong, int chowCount, int minorCount, int suitMask, int exposedSetCount, int flags)
+	{
+		long elements = 0;
+		
+		if ((flags & FLAG_NON_MAHJONG_BY_ORIGINAL_CALL) != 0)
+			elements |= scheme.getScoreContribution(ScoreElement.OriginalCallHandScore).getElementMask();
+		
+		if (!isMahjong)
+			return elements;
+		
+		elements |= scheme.getScoreContribution(ScoreElement.MahjongHandScore).getElementMask();
+		
+		if (chowCount == 0 && minorCount == 0)
+			elements |= scheme.getScoreContribution(ScoreElement.AllMajorHandScore).getElementMask();
+		
+		if (chowCount == 0)
+			elements |= scheme.getScoreContribution(ScoreElement.NoChowsHandScore).getElementMask();
+		
+		if (Integer.bitCount(suitMask) == 1)
+			elements |= scheme.getScoreContribution(ScoreElement.SingleSuitHandScore).getElementMask();
+		
+		if (exposedSetCount == 0 && (flags & FLAG_MAHJONG_PAIR_CONCEALED) != 0)
+			elements |= scheme.getScoreContribution(ScoreElement.AllConcealedHandScore).getElementMask();
+		
+		for (int flag = 0 ; flag < FLAG_ELEMENTS.length ; flag++)
+			if ((flags & (1 << flag)) != 0 && FLAG_ELEMENTS[flag] != null)
+				elements |= scheme.getScoreContribution(FLAG_ELEMENTS[flag]).getElementMask();
+		
+		return elements;
+	}
+}
@@ -0,0 +1,106 @@
+package house.mcintosh.mahjong.scoring;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import house.mcintosh.mahjong.exception.InvalidScoreSchemeException;
+
+/**
+ * Holds ScoringSchemes by name, so that many schemes can be used in one JVM.  The built-in
+ * scheme is always registered.  Schemes are immutable, and lookups do not lock.
+ */
+public final class SchemeRegistry
+{
+	static private final ConcurrentMap<String, ScoringScheme> s_schemes = new ConcurrentHashMap<>();
+	
+	static
+	{
+		register(ScoringScheme.instance());
+	}
+	
+	private SchemeRegistry()
+	{
+	}
+	
+	/**
+	 * Register a scheme under its name.
+	 * 
+	 * @throws InvalidScoreSchemeException if a scheme is already registered with that name.
+	 */
+	public static void register(ScoringScheme scheme)
+	{
+		if (s_schemes.putIfAbsent(scheme.getName(), scheme) != null)
+			throw new InvalidScoreSchemeException("A scoring scheme named " + scheme.getName() + " is already registered");
+	}
+	
+	/**
+	 * Register a scheme under its name, replacing any scheme already registered with that name.
+	 * 
+	 * @return The scheme that was replaced, or null if there was none.
+	 */
+	public static ScoringScheme replace(ScoringScheme scheme)
+	{
+		return s_schemes.put(scheme.getName(), scheme);
+	}
+	
+	/**
+	 * Get a registered scheme by name.
+	 */
+	public static ScoringScheme get(String name)
+	{
+		ScoringScheme scheme = s_schemes.get(name);
+		
+		if (scheme == null)
+			throw new InvalidScoreSchemeException("No scoring scheme named " + name);
+		
+		return scheme;
+	}
+	
+	public static boolean contains(String name)
+	{
+		return s_schemes.containsKey(name);
+	}
+	
+	public static Set<String> getNames()
+	{
+		return Collections.unmodifiableSet(s_schemes.keySet());
+	}
+	
+	/**
+	 * Load a scheme from a file and register it.
+	 * 
+	 * @throws InvalidScoreSchemeException if a scheme is already registered with its name.
+	 */
+	public static ScoringScheme load(Path file) throws IOException
+	{
+		ScoringScheme scheme = ScoringScheme.load(file);
+		
+		register(scheme);
+		
+		return scheme;
+	}
+	
+	/**
+	 * Load and register all the scheme files in a directory.
+	 */
+	public static List<ScoringScheme> loadDirectory(Path directory) throws IOException
+	{
+		List<ScoringScheme> schemes = new ArrayList<>();
+		
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + ScoringScheme.FILE_EXTENSION))
+		{
+			for (Path file : files)
+				schemes.add(load(file));
+		}
+		
+		return schemes;
+	}
+}
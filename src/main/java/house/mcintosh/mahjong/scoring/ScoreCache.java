@@ -0,0 +1,346 @@
+package house.mcintosh.mahjong.scoring;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import house.mcintosh.mahjong.exception.InvalidScoreSchemeException;
+import house.mcintosh.mahjong.model.GroupCode;
+import house.mcintosh.mahjong.model.Tile;
+
+/**
+ * Bounded cache of hand scores, shared between threads, in front of HandScorer.
+ *
+ * Each hand is reduced to a canonical key packed into a long: its group codes sorted, its
+ * flags and its winds.  Where the scheme scores every group the same whatever its suit, the
+ * suits are also renumbered into a canonical order, so that hands that differ only by suit
+ * share an entry.  Hands of more than MAX_GROUPS groups do not fit a key and are scored
+ * directly.
+ *
+ * Entries are held in sets of WAYS slots, so the cache never holds more than its capacity.
+ * A new entry goes into an empty slot of its set if there is one, and otherwise replaces a
+ * slot chosen from the key.  Entries are immutable, so slots are read and written without
+ * locking; a reader may miss an entry another thread has just added, which only costs a
+ * second scoring.
+ *
+ * HandScorer is table driven, so building a key costs more than scoring a hand directly, and
+ * BatchScorer does not use the cache.  It pays only in front of a dearer scorer.
+ */
+public final class ScoreCache
+{
+	/** Most groups in a hand that can be cached. */
+	public static final int		MAX_GROUPS		= 5;
+	
+	private static final int	WAYS			= 4;
+	/** Bits for each group in a key: enough for any code and MISSING. */
+	private static final int	SLOT_BITS		= 10;
+	private static final int	MISSING			= GroupCode.COUNT;
+	private static final int	WINDS			= 4;
+	
+	private final ScoringScheme	m_scheme;
+	private final boolean		m_suitSymmetric;
+	private final Entry[]		m_entries;
+	private final int			m_setMask;
+	
+	private final LongAdder		m_hits			= new LongAdder();
+	private final LongAdder		m_misses		= new LongAdder();
+	private final LongAdder		m_evictions		= new LongAdder();
+	
+	/**
+	 * @param capacity	Most entries to hold.  Rounded up to a power of two of at least WAYS.
+	 */
+	public ScoreCache(ScoringScheme scheme, int capacity)
+	{
+		if (capacity <= 0)
+			throw new InvalidScoreSchemeException("Cache capacity must be positive");
+		
+		int size = Math.max(WAYS, Integer.highestOneBit(capacity - 1) << 1);
+		
+		m_scheme		= scheme;
+		m_suitSymmetric	= isSuitSymmetric(scheme.getScoreTable());
+		m_entries		= new Entry[size];
+		m_setMask		= size / WAYS - 1;
+	}
+	
+	/**
+	 * Score a hand, from the cache if it holds the hand.  Takes the same arguments and gives
+	 * the same results as HandScorer.score.  Only hands that score STATUS_OK are cached.
+	 */
+	public int score(int[] codes, int offset, int count, int flags, int ownWind, int prevailingWind, int[] result, int resultOffset)
+	{
+		if (count > MAX_GROUPS || ownWind < 0 || ownWind >= WINDS || prevailingWind < 0 || prevailingWind >= WINDS)
+			return HandScorer.score(m_scheme, codes, offset, count, flags, ownWind, prevailingWind, result, resultOffset);
+		
+		for (int position = offset ; position < offset + count ; position++)
+			if (!GroupCode.isValid(codes[position]))
+				return HandScorer.score(m_scheme, codes, offset, count, flags, ownWind, prevailingWind, result, resultOffset);
+		
+		long	key		= key(codes, offset, count, flags & HandScorer.FLAGS_ALL, ownWind, prevailingWind);
+		int		set		= (mix(key) & m_setMask) * WAYS;
+		
+		for (int way = 0 ; way < WAYS ; way++)
+		{
+			Entry entry = m_entries[set + way];
+			
+			if (entry != null && entry.m_key == key)
+			{
+				m_hits.increment();
+				
+				result[resultOffset + HandScorer.RESULT_TOTAL]				= entry.m_total;
+				result[resultOffset + HandScorer.RESULT_TOTAL_UNLIMITED]	= entry.m_totalUnlimited;
+				result[resultOffset + HandScorer.RESULT_MAHJONG]			= entry.m_mahjong;
+				
+				return HandScorer.STATUS_OK;
+			}
+		}
+		
+		m_misses.increment();
+		
+		int status = HandScorer.score(m_scheme, codes, offset, count, flags, ownWind, prevailingWind, result, resultOffset);
+		
+		if (status == HandScorer.STATUS_OK)
+			insert(set, key, new Entry(key, result[resultOffset + HandScorer.RESULT_TOTAL], result[resultOffset + HandScorer.RESULT_TOTAL_UNLIMITED], result[resultOffset + HandScorer.RESULT_MAHJONG]));
+		
+		return status;
+	}
+	
+	public ScoringScheme getScheme()
+	{
+		return m_scheme;
+	}
+	
+	/**
+	 * @return The number of entries the cache can hold.
+	 */
+	public int getCapacity()
+	{
+		return m_entries.length;
+	}
+	
+	/**
+	 * @return True if hands that differ only by suit share entries.
+	 */
+	public boolean isSuitSymmetric()
+	{
+		return m_suitSymmetric;
+	}
+	
+	public long getHitCount()
+	{
+		return m_hits.sum();
+	}
+	
+	public long getMissCount()
+	{
+		return m_misses.sum();
+	}
+	
+	/**
+	 * @return The number of entries replaced by another.
+	 */
+	public long getEvictionCount()
+	{
+		return m_evictions.sum();
+	}
+	
+	/**
+	 * @return Hits as a fraction of lookups, or zero if there have been none.
+	 */
+	public double getHitRate()
+	{
+		long hits	= m_hits.sum();
+		long total	= hits + m_misses.sum();
+		
+		return total == 0 ? 0 : (double) hits / total;
+	}
+	
+	/**
+	 * Remove every entry and reset the statistics.
+	 */
+	public void clear()
+	{
+		for (int index = 0 ; index < m_entries.length ; index++)
+			m_entries[index] = null;
+		
+		m_hits.reset();
+		m_misses.reset();
+		m_evictions.reset();
+	}
+	
+	private void insert(int set, long key, Entry entry)
+	{
+		for (int way = 0 ; way < WAYS ; way++)
+		{
+			if (m_entries[set + way] == null)
+			{
+				m_entries[set + way] = entry;
+				return;
+			}
+		}
+		
+		m_entries[set + ((int) (key >>> 32) & (WAYS - 1))] = entry;
+		m_evictions.increment();
+	}
+	
+	/**
+	 * Pack a hand into its canonical key, without allocating.  The codes must be valid and no
+	 * more than MAX_GROUPS.
+	 */
+	long key(int[] codes, int offset, int count, int flags, int ownWind, int prevailingWind)
+	{
+		// Missing groups are given a code that sorts after any real one.
+		
+		int c0 = count > 0 ? codes[offset] : MISSING;
+		int c1 = count > 1 ? codes[offset + 1] : MISSING;
+		int c2 = count > 2 ? codes[offset + 2] : MISSING;
+		int c3 = count > 3 ? codes[offset + 3] : MISSING;
+		int c4 = count > 4 ? codes[offset + 4] : MISSING;
+		
+		long groups = sort(c0, c1, c2, c3, c4);
+		
+		if (m_suitSymmetric)
+		{
+			// Renumber the suits in descending order of a signature of their groups in sorted
+			// order, so that the numbering does not depend on which suit is which.  Suits only
+			// have equal signatures if they have the same groups.
+			
+			long s0 = 0;
+			long s1 = 0;
+			long s2 = 0;
+			
+			for (int slot = 0 ; slot < count ; slot++)
+			{
+				int code	= slotCode(groups, slot);
+				int tileId	= GroupCode.getTileId(code);
+				
+				if (tileId >= Tile.FIRST_WIND_ID)
+					continue;
+				
+				int suit		= tileId / Tile.SUIT_SIZE;
+				int signature	= code - suit * Tile.SUIT_SIZE + 1;
+				
+				if (suit == 0)
+					s0 = s0 * GroupCode.COUNT + signature;
+				else if (suit == 1)
+					s1 = s1 * GroupCode.COUNT + signature;
+				else
+					s2 = s2 * GroupCode.COUNT + signature;
+			}
+			
+			// New number of each suit, two bits each.  Ties go to the lower suit first.
+			
+			int numbers =
+					((s1 > s0 ? 1 : 0) + (s2 > s0 ? 1 : 0))
+					| ((s0 >= s1 ? 1 : 0) + (s2 > s1 ? 1 : 0)) << 2
+					| ((s0 >= s2 ? 1 : 0) + (s1 >= s2 ? 1 : 0)) << 4;
+			
+			groups = sort(renumber(c0, numbers), renumber(c1, numbers), renumber(c2, numbers), renumber(c3, numbers), renumber(c4, numbers));
+		}
+		
+		return groups << 13 | (long) flags << 4 | ownWind << 2 | prevailingWind;
+	}
+	
+	/**
+	 * Sort five codes with a sorting network.
+	 * 
+	 * @return The codes packed in SLOT_BITS each, lowest first in the highest bits.
+	 */
+	private static long sort(int c0, int c1, int c2, int c3, int c4)
+	{
+		int t;
+		
+		if (c0 > c1) { t = c0; c0 = c1; c1 = t; }
+		if (c3 > c4) { t = c3; c3 = c4; c4 = t; }
+		if (c2 > c4) { t = c2; c2 = c4; c4 = t; }
+		if (c2 > c3) { t = c2; c2 = c3; c3 = t; }
+		if (c0 > c3) { t = c0; c0 = c3; c3 = t; }
+		if (c0 > c2) { t = c0; c0 = c2; c2 = t; }
+		if (c1 > c4) { t = c1; c1 = c4; c4 = t; }
+		if (c1 > c3) { t = c1; c1 = c3; c3 = t; }
+		if (c1 > c2) { t = c1; c1 = c2; c2 = t; }
+		
+		return (long) c0 << (SLOT_BITS * 4) | (long) c1 << (SLOT_BITS * 3) | (long) c2 << (SLOT_BITS * 2) | (long) c3 << SLOT_BITS | c4;
+	}
+	
+	private static int slotCode(long groups, int slot)
+	{
+		return (int) (groups >>> (SLOT_BITS * (MAX_GROUPS - 1 - slot))) & ((1 << SLOT_BITS) - 1);
+	}
+	
+	/**
+	 * @param numbers New number of each suit, two bits each.
+	 */
+	private static int renumber(int code, int numbers)
+	{
+		if (code == MISSING)
+			return code;
+		
+		int tileId = GroupCode.getTileId(code);
+		
+		if (tileId >= Tile.FIRST_WIND_ID)
+			return code;
+		
+		int suit = tileId / Tile.SUIT_SIZE;
+		
+		return code + (((numbers >>> (suit * 2)) & 0x3) - suit) * Tile.SUIT_SIZE;
+	}
+	
+	/**
+	 * Spread every bit of a key over the low bits that choose its set.  The groups are held in
+	 * the high bits, so they are folded down before the multiply.
+	 */
+	private static int mix(long key)
+	{
+		key ^= key >>> 32;
+		key *= 0x9E3779B97F4A7C15L;
+		
+		return (int) (key ^ (key >>> 29));
+	}
+	
+	/**
+	 * @return True if every suit group scores the same as the same group in the first suit.
+	 */
+	private static boolean isSuitSymmetric(ScoreTable table)
+	{
+		for (int code = 0 ; code < GroupCode.COUNT ; code++)
+		{
+			if (!GroupCode.isValid(code))
+				continue;
+			
+			int tileId = GroupCode.getTileId(code);
+			
+			if (tileId >= Tile.FIRST_WIND_ID)
+				continue;
+			
+			int base = code - (tileId / Tile.SUIT_SIZE) * Tile.SUIT_SIZE;
+			
+			for (int ownWind = 0 ; ownWind < WINDS ; ownWind++)
+			{
+				for (int prevailingWind = 0 ; prevailingWind < WINDS ; prevailingWind++)
+				{
+					int index		= ScoreTable.index(code, ownWind, prevailingWind);
+					int baseIndex	= ScoreTable.index(base, ownWind, prevailingWind);
+					
+					if (table.getScore(index) != table.getScore(baseIndex) || table.getMultiplier(index) != table.getMultiplier(baseIndex))
+						return false;
+				}
+			}
+		}
+		
+		return true;
+	}
+	
+	private static final class Entry
+	{
+		private final long	m_key;
+		private final int	m_total;
+		private final int	m_totalUnlimited;
+		private final int	m_mahjong;
+		
+		Entry(long key, int total, int totalUnlimited, int mahjong)
+		{
+			m_key				= key;
+			m_total				= total;
+			m_totalUnlimited	= totalUnlimited;
+			m_mahjong			= mahjong;
+		}
+	}
+}
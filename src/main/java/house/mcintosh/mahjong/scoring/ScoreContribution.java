@@ -38,7 +38,7 @@ public class ScoreContribution
 		return m_multiplier;
 	}
 	
-	final ScoreElement getElement()
+	public final ScoreElement getElement()
 	{
 		return m_element;
 	}
@@ -1,25 +1,74 @@
 package house.mcintosh.mahjong.scoring;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 public class ScoreList extends ArrayList<ScoreContribution>
 {
 	private static final long serialVersionUID = 1L;
 	
-	public static final ScoreList EMPTY = new ScoreList();
+	public static final ScoreList EMPTY = new ScoreList().freeze();
+	
+	/** Set once the list is shared, after which it cannot be modified. */
+	private boolean m_frozen;
+	
+	static
+	{
+		// Element masks hold a bit for each ScoreElement in a long.
+		
+		if (ScoringScheme.ScoreElement.values().length > Long.SIZE)
+			throw new IllegalStateException("Too many score elements for a long element mask");
+	}
 
 	public int getTotal()
 	{
-		int score		= 0;
-		int multiplier	= 1;
+		return getScore() * getHandMultiplier();
+	}
+	
+	/**
+	 * @return The sum of the simple scores in the list, before any multiplier is applied.
+	 */
+	public int getScore()
+	{
+		int score = 0;
 		
 		for (ScoreContribution pair : this)
-		{
-			score 		+= pair.getScore();
-			multiplier	*= pair.getHandMultiplier();
-		}
+			score += pair.getScore();
 		
-		return score * multiplier;
+		return score;
+	}
+	
+	/**
+	 * @return The product of the hand multipliers in the list.
+	 */
+	public int getHandMultiplier()
+	{
+		int multiplier = 1;
+		
+		for (ScoreContribution pair : this)
+			multiplier *= pair.getHandMultiplier();
+		
+		return multiplier;
+	}
+	
+	/**
+	 * @return Bit set of the ordinals of the ScoreElements of the contributions in the list.
+	 */
+	public long getElementMask()
+	{
+		long elements = 0;
+		
+		for (ScoreContribution pair : this)
+			elements |= 1L << pair.getElement().ordinal();
+		
+		return elements;
 	}
 	
 	public boolean add(ScoreContribution score)
@@ -32,11 +81,7 @@ public class ScoreList extends ArrayList<ScoreContribution>
 	 */
 	public ScoreList append(ScoreContribution contribution)
 	{
-		// Won't stop all modifications to EMPTY, but helps.
-		
-		if (this == EMPTY)
-			throw new UnsupportedOperationException();
-		
+		checkMutable();
 		super.add(contribution);
 		
 		return this;
@@ -44,14 +89,217 @@ public class ScoreList extends ArrayList<ScoreContribution>
 	
 	public ScoreList append(ScoreList scores)
 	{
-		// Won't stop all modifications to EMPTY, but helps.
-		
-		if (this == EMPTY)
-			throw new UnsupportedOperationException();
+		checkMutable();
 		
 		for (ScoreContribution score : scores)
 			super.add(score);
 		
 		return this;
 	}
+	
+	/**
+	 * Stop any further changes to the list, so that it can be shared.
+	 * 
+	 * @return The list itself.
+	 */
+	ScoreList freeze()
+	{
+		m_frozen = true;
+		
+		return this;
+	}
+	
+	private void checkMutable()
+	{
+		if (m_frozen)
+			throw new UnsupportedOperationException("Score list is shared and cannot be modified");
+	}
+	
+	// Every other way of changing an ArrayList, refused once the list is frozen.
+	
+	@Override
+	public void add(int index, ScoreContribution contribution)
+	{
+		checkMutable();
+		super.add(index, contribution);
+	}
+	
+	@Override
+	public boolean addAll(Collection<? extends ScoreContribution> contributions)
+	{
+		checkMutable();
+		return super.addAll(contributions);
+	}
+	
+	@Override
+	public boolean addAll(int index, Collection<? extends ScoreContribution> contributions)
+	{
+		checkMutable();
+		return super.addAll(index, contributions);
+	}
+	
+	@Override
+	public ScoreContribution set(int index, ScoreContribution contribution)
+	{
+		checkMutable();
+		return super.set(index, contribution);
+	}
+	
+	@Override
+	public ScoreContribution remove(int index)
+	{
+		checkMutable();
+		return super.remove(index);
+	}
+	
+	@Override
+	public boolean remove(Object contribution)
+	{
+		checkMutable();
+		return super.remove(contribution);
+	}
+	
+	@Override
+	public boolean removeAll(Collection<?> contributions)
+	{
+		checkMutable();
+		return super.removeAll(contributions);
+	}
+	
+	@Override
+	public boolean retainAll(Collection<?> contributions)
+	{
+		checkMutable();
+		return super.retainAll(contributions);
+	}
+	
+	@Override
+	public boolean removeIf(Predicate<? super ScoreContribution> filter)
+	{
+		checkMutable();
+		return super.removeIf(filter);
+	}
+	
+	@Override
+	public void replaceAll(UnaryOperator<ScoreContribution> operator)
+	{
+		checkMutable();
+		super.replaceAll(operator);
+	}
+	
+	@Override
+	public void sort(Comparator<? super ScoreContribution> comparator)
+	{
+		checkMutable();
+		super.sort(comparator);
+	}
+	
+	@Override
+	public void clear()
+	{
+		checkMutable();
+		super.clear();
+	}
+	
+	@Override
+	protected void removeRange(int from, int to)
+	{
+		checkMutable();
+		super.removeRange(from, to);
+	}
+	
+	@Override
+	public List<ScoreContribution> subList(int from, int to)
+	{
+		List<ScoreContribution> list = super.subList(from, to);
+		
+		return m_frozen ? Collections.unmodifiableList(list) : list;
+	}
+	
+	@Override
+	public Iterator<ScoreContribution> iterator()
+	{
+		return listIterator(0);
+	}
+	
+	@Override
+	public ListIterator<ScoreContribution> listIterator()
+	{
+		return listIterator(0);
+	}
+	
+	@Override
+	public ListIterator<ScoreContribution> listIterator(int index)
+	{
+		ListIterator<ScoreContribution> iterator = super.listIterator(index);
+		
+		return m_frozen ? new FrozenIterator(iterator) : iterator;
+	}
+	
+	/**
+	 * Iterator over a frozen list, refusing every change.
+	 */
+	private static class FrozenIterator implements ListIterator<ScoreContribution>
+	{
+		private final ListIterator<ScoreContribution> m_iterator;
+		
+		FrozenIterator(ListIterator<ScoreContribution> iterator)
+		{
+			m_iterator = iterator;
+		}
+		
+		@Override
+		public boolean hasNext()
+		{
+			return m_iterator.hasNext();
+		}
+		
+		@Override
+		public ScoreContribution next()
+		{
+			return m_iterator.next();
+		}
+		
+		@Override
+		public boolean hasPrevious()
+		{
+			return m_iterator.hasPrevious();
+		}
+		
+		@Override
+		public ScoreContribution previous()
+		{
+			return m_iterator.previous();
+		}
+		
+		@Override
+		public int nextIndex()
+		{
+			return m_iterator.nextIndex();
+		}
+		
+		@Override
+		public int previousIndex()
+		{
+			return m_iterator.previousIndex();
+		}
+		
+		@Override
+		public void remove()
+		{
+			throw new UnsupportedOperationException("Score list is shared and cannot be modified");
+		}
+		
+		@Override
+		public void set(ScoreContribution contribution)
+		{
+			throw new UnsupportedOperationException("Score list is shared and cannot be modified");
+		}
+		
+		@Override
+		public void add(ScoreContribution contribution)
+		{
+			throw new UnsupportedOperationException("Score list is shared and cannot be modified");
+		}
+	}
 }
@@ -0,0 +1,216 @@
+package house.mcintosh.mahjong.scoring;
+
+import house.mcintosh.mahjong.model.Group;
+import house.mcintosh.mahjong.model.GroupCode;
+import house.mcintosh.mahjong.model.Tile;
+import house.mcintosh.mahjong.model.Wind;
+import house.mcintosh.mahjong.scoring.ScoringScheme.ScoreElement;
+
+/**
+ * The score of every possible group, for every combination of own and prevailing wind,
+ * compiled once for a ScoringScheme.  Scoring a group is then a single array lookup.
+ *
+ * Entries are indexed by index(code, ownWind, prevailingWind).  Entries for invalid
+ * group codes are empty.
+ */
+public final class ScoreTable
+{
+	private static final int	WIND_BITS	= 2;
+	private static final int	WINDS		= 1 << WIND_BITS;
+	
+	/** One more than the highest possible index. */
+	public static final int		SIZE		= GroupCode.COUNT * WINDS * WINDS;
+	
+	private final ScoreList[]	m_scoreLists	= new ScoreList[SIZE];
+	private final ScoredGroup[]	m_groups		= new ScoredGroup[SIZE];
+	private final int[]			m_scores		= new int[SIZE];
+	private final int[]			m_multipliers	= new int[SIZE];
+	
+	/** Simple score and multiplier of each ScoreElement, indexed by ordinal. */
+	private final int[]			m_elementScores;
+	private final int[]			m_elementMultipliers;
+	
+	ScoreTable(ScoringScheme scheme)
+	{
+		ScoreElement[] elements = ScoreElement.values();
+		
+		m_elementScores			= new int[elements.length];
+		m_elementMultipliers	= new int[elements.length];
+		
+		for (ScoreElement element : elements)
+		{
+			ScoreList list = scheme.getScoreContribution(element);
+			
+			if (list == null)
+				list = ScoreList.EMPTY;
+			
+			m_elementScores[element.ordinal()]		= list.getScore();
+			m_elementMultipliers[element.ordinal()]	= list.getHandMultiplier();
+		}
+		
+		for (int code = 0 ; code < GroupCode.COUNT ; code++)
+		{
+			boolean	valid	= GroupCode.isValid(code);
+			Group	group	= valid ? GroupCode.decode(code) : null;
+			
+			for (Wind ownWind : Wind.values())
+			{
+				for (Wind prevailingWind : Wind.values())
+				{
+					int index = index(code, ownWind.ordinal(), prevailingWind.ordinal());
+					
+					if (!valid)
+					{
+						m_scoreLists[index]		= ScoreList.EMPTY;
+						m_multipliers[index]	= 1;
+						continue;
+					}
+					
+					ScoreList list = scheme.getScoreContribution(element(code, ownWind, prevailingWind));
+					
+					if (list == null)
+						list = ScoreList.EMPTY;
+					
+					m_scoreLists[index]		= list;
+					m_scores[index]			= list.getScore();
+					m_multipliers[index]	= list.getHandMultiplier();
+					m_groups[index]			= new ScoredGroup(group, list);
+				}
+			}
+		}
+	}
+	
+	public static int index(int code, int ownWind, int prevailingWind)
+	{
+		return (((code << WIND_BITS) | ownWind) << WIND_BITS) | prevailingWind;
+	}
+	
+	public static int index(int code, Wind ownWind, Wind prevailingWind)
+	{
+		return index(code, ownWind.ordinal(), prevailingWind.ordinal());
+	}
+	
+	public ScoreList getScoreList(int index)
+	{
+		return m_scoreLists[index];
+	}
+	
+	/**
+	 * @return The shared ScoredGroup at the index, or null if the group code is invalid.
+	 */
+	public ScoredGroup getScoredGroup(int index)
+	{
+		return m_groups[index];
+	}
+	
+	/**
+	 * @return The sum of the simple scores at the index.
+	 */
+	public int getScore(int index)
+	{
+		return m_scores[index];
+	}
+	
+	/**
+	 * @return The product of the hand multipliers at the index.
+	 */
+	public int getMultiplier(int index)
+	{
+		return m_multipliers[index];
+	}
+	
+	int getElementScore(ScoreElement element)
+	{
+		return m_elementScores[element.ordinal()];
+	}
+	
+	int getElementMultiplier(ScoreElement element)
+	{
+		return m_elementMultipliers[element.ordinal()];
+	}
+	
+	/**
+	 * Determine which score element applies to a group.
+	 */
+	static ScoreElement element(int code, Wind ownWind, Wind prevailingWind)
+	{
+		Tile	tile		= GroupCode.getFirstTile(code);
+		boolean	concealed	= GroupCode.isConcealed(code);
+		
+		switch (GroupCode.getType(code))
+		{
+		case PAIR:
+			switch (tile.getType())
+			{
+			case SUIT:
+				return ScoreElement.PairSuitScore;
+			case WIND:
+				{
+					Wind wind = tile.getWind();
+					if (wind == ownWind)
+						return ScoreElement.PairOwnWindScore;
+					if (wind == prevailingWind)
+						return ScoreElement.PairPrevailingWindScore;
+					return ScoreElement.PairWindScore;
+				}
+			default:
+				return ScoreElement.PairDragonScore;
+			}
+		
+		case CHOW:
+			return ScoreElement.ChowSuitScore;
+		
+		case PUNG:
+			switch (tile.getType())
+			{
+			case SUIT:
+				if (tile.isMajor())
+					return concealed ? ScoreElement.PungConcealedMajorSuitScore : ScoreElement.PungExposedMajorSuitScore;
+				else
+					return concealed ? ScoreElement.PungConcealedMinorSuitScore : ScoreElement.PungExposedMinorSuitScore;
+			
+			case WIND:
+				{
+					Wind wind = tile.getWind();
+					if (wind == ownWind && wind == prevailingWind)
+						return concealed	? ScoreElement.PungConcealedPrevailingOwnWindScore	: ScoreElement.PungExposedPrevailingOwnWindScore;
+					if (wind == ownWind)
+						return concealed	? ScoreElement.PungConcealedOwnWindScore			: ScoreElement.PungExposedOwnWindScore;
+					if (wind == prevailingWind)
+						return concealed	? ScoreElement.PungConcealedPrevailingWindScore		: ScoreElement.PungExposedPrevailingWindScore;
+					
+					return concealed		? ScoreElement.PungConcealedWindScore				: ScoreElement.PungExposedWindScore;
+				}
+			
+			default:
+				return concealed ? ScoreElement.PungConcealedDragonScore : ScoreElement.PungExposedDragonScore;
+			}
+		
+		default:
+			switch (tile.getType())
+			{
+			case SUIT:
+				if (tile.isMajor())
+					return concealed ? ScoreElement.KongConcealedMajorSuitScore : ScoreElement.KongExposedMajorSuitScore;
+				else
+					return concealed ? ScoreElement.KongConcealedMinorSuitScore : ScoreElement.KongExposedMinorSuitScore;
+			
+			case WIND:
+				{
+					Wind wind = tile.getWind();
+					if (wind == ownWind && wind == prevailingWind)
+						return concealed	? ScoreElement.KongConcealedPrevailingOwnWindScore	: ScoreElement.KongExposedPrevailingOwnWindScore;
+					if (wind == ownWind)
+						return concealed	? ScoreElement.KongConcealedOwnWindScore			: ScoreElement.KongExposedOwnWindScore;
+					if (wind == prevailingWind)
+						return concealed	? ScoreElement.KongConcealedPrevailingWindScore		: ScoreElement.KongExposedPrevailingWindScore;
+					
+					return concealed		? ScoreElement.KongConcealedWindScore				: ScoreElement.KongExposedWindScore;
+				}
+			
+			default:
+				return concealed ? ScoreElement.KongConcealedDragonScore : ScoreElement.KongExposedDragonScore;
+			}
+		}
+	}
+}
@@ -1,9 +1,8 @@
 package house.mcintosh.mahjong.scoring;
 
+import house.mcintosh.mahjong.metrics.Metrics;
 import house.mcintosh.mahjong.model.Group;
-import house.mcintosh.mahjong.model.Tile;
 import house.mcintosh.mahjong.model.Wind;
-import house.mcintosh.mahjong.scoring.ScoringScheme.ScoreElement;
 
 /**
  * A Set that has been scored.  Immutable because the Set is is constructed from is immutable, and
@@ -12,146 +11,75 @@ import house.mcintosh.mahjong.scoring.ScoringScheme.ScoreElement;
 public class ScoredGroup extends Group
 {
 	private final ScoreList	m_score;
+	private final int		m_simpleScore;
+	private final int		m_multiplier;
+	private final long		m_elements;
 	
 	public ScoredGroup(Group set, ScoringScheme scheme, Wind ownWind, Wind prevailingWind)
+	{
+		this(set, scheme.getScoreTable().getScoreList(ScoreTable.index(set.getCode(), ownWind, prevailingWind)));
+	}
+	
+	/**
+	 * Constructor for use by ScoreTable, where the score has already been looked up.
+	 */
+	ScoredGroup(Group set, ScoreList score)
 	{
 		super(set);
 		
-		switch (getType())
-		{
-		case PAIR:
-			m_score = scorePair(scheme, ownWind, prevailingWind);
-			break;
-		case CHOW:
-			m_score = scoreChow(scheme, ownWind, prevailingWind);
-			break;
-		case PUNG:
-			m_score = scorePung(scheme, ownWind, prevailingWind);
-			break;
-		case KONG:
-			m_score = scoreKong(scheme, ownWind, prevailingWind);
-			break;
-			
-		default:
-			// Never get here.
-			m_score = ScoreList.EMPTY;
-		}
+		m_score			= score;
+		m_simpleScore	= score.getScore();
+		m_multiplier	= score.getHandMultiplier();
+		m_elements		= score.getElementMask();
+		
+		if (Metrics.isEnabled())
+			Metrics.GROUPS_CONSTRUCTED.increment();
 	}
 	
-	public ScoreList getScore()
+	/**
+	 * Get a shared instance of a scored group, rather than constructing a new one.  Scored groups
+	 * are immutable, so the instance can be used anywhere a new one could.
+	 */
+	public static ScoredGroup get(Group set, ScoringScheme scheme, Wind ownWind, Wind prevailingWind)
 	{
-		return m_score;
+		return get(set.getCode(), scheme, ownWind, prevailingWind);
 	}
 	
-	private ScoreList scorePair(ScoringScheme scheme, Wind ownWind, Wind prevailingWind)
+	/**
+	 * Get a shared instance of a scored group from its GroupCode.
+	 */
+	public static ScoredGroup get(int code, ScoringScheme scheme, Wind ownWind, Wind prevailingWind)
 	{
-		switch (getTileType())
-		{
-		case SUIT:
-			return scheme.getScoreContribution(ScoreElement.PairSuitScore);
-		case WIND:
-			{
-				Wind wind = getFirstTile().getWind();
-				if (wind == ownWind)
-					return scheme.getScoreContribution(ScoreElement.PairOwnWindScore);
-				if (wind == prevailingWind)
-					return scheme.getScoreContribution(ScoreElement.PairPrevailingWindScore);
-				return scheme.getScoreContribution(ScoreElement.PairWindScore);
-			}
-		case DRAGON:
-			return scheme.getScoreContribution(ScoreElement.PairDragonScore);
-		
-		default:
-			// Never get here.
-			return ScoreList.EMPTY;
-		}
+		return scheme.getScoreTable().getScoredGroup(ScoreTable.index(code, ownWind, prevailingWind));
 	}
 	
-	private ScoreList scoreChow(ScoringScheme scheme, Wind ownWind, Wind prevailingWind)
+	public ScoreList getScore()
 	{
-		switch (getTileType())
-		{
-		case SUIT:
-			return scheme.getScoreContribution(ScoreElement.ChowSuitScore);
-		
-		default:
-			// Never get here.
-			return ScoreList.EMPTY;
-		}
+		return m_score;
 	}
 	
-	private ScoreList scorePung(ScoringScheme scheme, Wind ownWind, Wind prevailingWind)
+	/**
+	 * @return Bit set of the ordinals of the ScoreElements that score this group.
+	 */
+	public long getElementMask()
 	{
-		Tile	tile		= getFirstTile();
-		boolean concealed	= isConcealed();
-		
-		switch (getTileType())
-		{
-		case SUIT:
-			{
-				if (tile.isMajor())
-					return concealed ? scheme.getScoreContribution(ScoreElement.PungConcealedMajorSuitScore) : scheme.getScoreContribution(ScoreElement.PungExposedMajorSuitScore);
-				else
-					return concealed ? scheme.getScoreContribution(ScoreElement.PungConcealedMinorSuitScore) : scheme.getScoreContribution(ScoreElement.PungExposedMinorSuitScore);
-			}
-			
-		case WIND:
-			{
-				Wind wind = tile.getWind();
-				if (wind == ownWind && wind == prevailingWind)
-					return concealed	? scheme.getScoreContribution(ScoreElement.PungConcealedPrevailingOwnWindScore)	: scheme.getScoreContribution(ScoreElement.PungExposedPrevailingOwnWindScore);
-				if (wind == ownWind)
-					return concealed	? scheme.getScoreContribution(ScoreElement.PungConcealedOwnWindScore)			: scheme.getScoreContribution(ScoreElement.PungExposedOwnWindScore);
-				if (wind == prevailingWind)
-					return concealed	? scheme.getScoreContribution(ScoreElement.PungConcealedPrevailingWindScore)	: scheme.getScoreContribution(ScoreElement.PungExposedPrevailingWindScore);
-				
-				return concealed		? scheme.getScoreContribution(ScoreElement.PungConcealedWindScore)				: scheme.getScoreContribution(ScoreElement.PungExposedWindScore);
-			}
-			
-		case DRAGON:
-			return concealed ? scheme.getScoreContribution(ScoreElement.PungConcealedDragonScore) : scheme.getScoreContribution(ScoreElement.PungExposedDragonScore);
-			
-		default:
-			// Never get here.
-			return ScoreList.EMPTY;
-		}
+		return m_elements;
 	}
 	
-	private ScoreList scoreKong(ScoringScheme scheme, Wind ownWind, Wind prevailingWind)
+	/**
+	 * @return The sum of the simple scores of this group.
+	 */
+	int getSimpleScore()
 	{
-		Tile	tile		= getFirstTile();
-		boolean concealed	= isConcealed();
-		
-		switch (getTileType())
-		{
-		case SUIT:
-			{
-				if (tile.isMajor())
-					return concealed ? scheme.getScoreContribution(ScoreElement.KongConcealedMajorSuitScore) : scheme.getScoreContribution(ScoreElement.KongExposedMajorSuitScore);
-				else
-					return concealed ? scheme.getScoreContribution(ScoreElement.KongConcealedMinorSuitScore) : scheme.getScoreContribution(ScoreElement.KongExposedMinorSuitScore);
-			}
-			
-		case WIND:
-			{
-				Wind wind = tile.getWind();
-				if (wind == ownWind && wind == prevailingWind)
-					return concealed	? scheme.getScoreContribution(ScoreElement.KongConcealedPrevailingOwnWindScore)	: scheme.getScoreContribution(ScoreElement.KongExposedPrevailingOwnWindScore);
-				if (wind == ownWind)
-					return concealed	? scheme.getScoreContribution(ScoreElement.KongConcealedOwnWindScore)			: scheme.getScoreContribution(ScoreElement.KongExposedOwnWindScore);
-				if (wind == prevailingWind)
-					return concealed	? scheme.getScoreContribution(ScoreElement.KongConcealedPrevailingWindScore)	: scheme.getScoreContribution(ScoreElement.KongExposedPrevailingWindScore);
-				
-				return concealed		? scheme.getScoreContribution(ScoreElement.KongConcealedWindScore)				: scheme.getScoreContribution(ScoreElement.KongExposedWindScore);
-			}
-			
-		case DRAGON:
-			return concealed ? scheme.getScoreContribution(ScoreElement.KongConcealedDragonScore) : scheme.getScoreContribution(ScoreElement.KongExposedDragonScore);
-			
-		default:
-			// Never get here.
-			return ScoreList.EMPTY;
-		}
+		return m_simpleScore;
+	}
+	
+	/**
+	 * @return The product of the hand multipliers of this group.
+	 */
+	int getHandMultiplier()
+	{
+		return m_multiplier;
 	}
 
 }
@@ -1,60 +1,90 @@
 package house.mcintosh.mahjong.scoring;
 
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.Set;
+import java.util.NoSuchElementException;
 
 import house.mcintosh.mahjong.exception.InvalidHandException;
+import house.mcintosh.mahjong.metrics.Metrics;
 import house.mcintosh.mahjong.model.Group;
+import house.mcintosh.mahjong.model.GroupCode;
 import house.mcintosh.mahjong.model.SetComparator;
 import house.mcintosh.mahjong.model.Tile;
-import house.mcintosh.mahjong.scoring.ScoringScheme.ScoreElement;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
-import javafx.collections.transformation.SortedList;
+import house.mcintosh.mahjong.model.Wind;
 
 /**
  * A hand that is scored.  A scored hand can change. As sets are added to it the score and
  * Mahjong status of the hand change.
+ * 
+ * The groups are held in a small array, kept in SetComparator order as they are added.
+ * A complete hand has no more than five groups, so the array only grows for hands that
+ * are invalid.
  */
 
 public class ScoredHand implements Iterable<ScoredGroup>
 {
+	/** Number of groups in a complete hand of four sets and a pair. */
+	private static final int					INITIAL_GROUPS	= 5;
+	private static final SetComparator			COMPARATOR		= new SetComparator();
+	
 	private final ScoringScheme					m_scheme;
-	private final ObservableList<ScoredGroup>	m_backingGroups;
-	private final SortedList<ScoredGroup>		m_sortedGroups;
+	private ScoredGroup[]						m_groups		= new ScoredGroup[INITIAL_GROUPS];
+	private int									m_groupCount	= 0;
 	
-	private ScoreList							m_scores;
+	// Running totals over the sets in the hand, maintained as each set is added.
 	
-	private boolean	m_requirePairConcealedInfo	= false;
-	private boolean	m_mahjongPairConcealed		= false;
-	private boolean	m_mahjongByLooseTile		= false;
-	private boolean	m_mahjongByWallTile			= false;
-	private boolean	m_mahjongByLastWallTile		= false;
-	private boolean	m_mahjongByLastDiscard		= false;
-	private boolean	m_mahjongByRobbingKong		= false;
-	private boolean	m_mahjongByOnlyPossibleTile	= false;
-	private boolean	m_mahjongByOriginalCall		= false;
-	private boolean	m_nonMahjongByOriginalCall	= false;
+	private int		m_setScore					= 0;
+	private int		m_setMultiplier				= 1;
+	private int		m_effectiveHandTiles		= 0;
+	private int		m_pairCount					= 0;
+	private int		m_chowCount					= 0;
+	/** Number of sets whose first tile is not a major tile. */
+	private int		m_minorCount				= 0;
+	/** Bit set of the ordinals of the suits in the hand. */
+	private int		m_suitMask					= 0;
+	/** Number of sets, other than pairs, that are exposed. */
+	private int		m_exposedSetCount			= 0;
 	
+	private boolean	m_requirePairConcealedInfo	= false;
+	/** Bit field of the HandScorer.FLAG_ constants. */
+	private int		m_flags						= 0;
 	
 	private boolean	m_isMahjong					= false;
 	private int		m_totalScoreUnlimited		= 0;
 	private int		m_totalScoreLimited			= 0;
+	/** Number of times the score has been updated while metrics were enabled. */
+	private int		m_updateCount				= 0;
 	
 	public ScoredHand(ScoringScheme scheme)
 	{
 		m_scheme		= scheme;
-		m_backingGroups	= FXCollections.observableArrayList();
-		m_sortedGroups	= new SortedList<ScoredGroup>(m_backingGroups, new SetComparator());
 	}
 	
 	public void add(ScoredGroup group)
 	{
-		m_backingGroups.add(group);
+		insert(group);
 		updateScore();
 	}
 	
+	/**
+	 * @return The number of groups in the hand.
+	 */
+	public int getGroupCount()
+	{
+		return m_groupCount;
+	}
+	
+	/**
+	 * @return The group at the index, in SetComparator order.
+	 */
+	public ScoredGroup getGroup(int index)
+	{
+		if (index < 0 || index >= m_groupCount)
+			throw new IndexOutOfBoundsException("Group index: " + index);
+		
+		return m_groups[index];
+	}
+	
 	public int getTotalScore()
 	{
 		return m_totalScoreLimited;
@@ -70,37 +100,59 @@ public class ScoredHand implements Iterable<ScoredGroup>
 		return m_isMahjong;
 	}
 	
+	/**
+	 * @return The number of times the score has been updated while metrics were enabled.
+	 */
+	public int getUpdateCount()
+	{
+		return m_updateCount;
+	}
+	
+	/**
+	 * @return Bit set of the ordinals of the ScoreElements that score the hand, from its
+	 * groups and from the hand as a whole.
+	 */
+	public long getElementMask()
+	{
+		long elements = HandScorer.handElements(m_scheme, m_isMahjong, m_chowCount, m_minorCount, m_suitMask, m_exposedSetCount, m_flags);
+		
+		for (int index = 0 ; index < m_groupCount ; index++)
+			elements |= m_groups[index].getElementMask();
+		
+		return elements;
+	}
+	
 	public void setMahjongByWallTile(boolean fromWall)
 	{
-		m_mahjongByWallTile = fromWall;
+		setFlag(HandScorer.FLAG_MAHJONG_BY_WALL_TILE, fromWall);
 		updateScore();
 	}
 	
 	public boolean isMahjongByWallTile()
 	{
-		return m_mahjongByWallTile;
+		return (m_flags & HandScorer.FLAG_MAHJONG_BY_WALL_TILE) != 0;
 	}
 
 	public void setMahjongByLastWallTile(boolean isLast)
 	{
-		m_mahjongByLastWallTile = isLast;
+		setFlag(HandScorer.FLAG_MAHJONG_BY_LAST_WALL_TILE, isLast);
 		updateScore();
 	}
 	
 	public boolean isMahjongByLastWallTile()
 	{
-		return m_mahjongByLastWallTile;
+		return (m_flags & HandScorer.FLAG_MAHJONG_BY_LAST_WALL_TILE) != 0;
 	}
 
 	public void setMahjongByOnlyPossibleTile(boolean only)
 	{
-		m_mahjongByOnlyPossibleTile = only;
+		setFlag(HandScorer.FLAG_MAHJONG_BY_ONLY_POSSIBLE_TILE, only);
 		updateScore();
 	}
 	
 	public boolean isMahjongByOnlyPossibleTile()
 	{
-		return m_mahjongByOnlyPossibleTile;
+		return (m_flags & HandScorer.FLAG_MAHJONG_BY_ONLY_POSSIBLE_TILE) != 0;
 	}
 	
 	/**
@@ -115,69 +167,90 @@ public class ScoredHand implements Iterable<ScoredGroup>
 	
 	public void setMahjongPairConcealed(boolean concealed)
 	{
-		m_mahjongPairConcealed = concealed;
+		setFlag(HandScorer.FLAG_MAHJONG_PAIR_CONCEALED, concealed);
 		updateScore();
 	}
 
 	public boolean isMahjongByLooseTile()
 	{
-		return m_mahjongByLooseTile;
+		return (m_flags & HandScorer.FLAG_MAHJONG_BY_LOOSE_TILE) != 0;
 	}
 
 	public void setMahjongByLooseTile(boolean mahjongByLooseTile)
 	{
-		this.m_mahjongByLooseTile = mahjongByLooseTile;
+		setFlag(HandScorer.FLAG_MAHJONG_BY_LOOSE_TILE, mahjongByLooseTile);
 		updateScore();
 	}
 
 	public boolean isMahjongByLastDiscard()
 	{
-		return m_mahjongByLastDiscard;
+		return (m_flags & HandScorer.FLAG_MAHJONG_BY_LAST_DISCARD) != 0;
 	}
 
 	public void setMahjongByLastDiscard(boolean mahjongByLastDiscard)
 	{
-		this.m_mahjongByLastDiscard = mahjongByLastDiscard;
+		setFlag(HandScorer.FLAG_MAHJONG_BY_LAST_DISCARD, mahjongByLastDiscard);
 		updateScore();
 	}
 
 	public boolean isMahjongByRobbingKong()
 	{
-		return m_mahjongByRobbingKong;
+		return (m_flags & HandScorer.FLAG_MAHJONG_BY_ROBBING_KONG) != 0;
 	}
 
 	public void setMahjongByRobbingKong(boolean mahjongByRobbingKong)
 	{
-		this.m_mahjongByRobbingKong = mahjongByRobbingKong;
+		setFlag(HandScorer.FLAG_MAHJONG_BY_ROBBING_KONG, mahjongByRobbingKong);
 		updateScore();
 	}
 
 	public boolean isMahjongByOriginalCall()
 	{
-		return m_mahjongByOriginalCall;
+		return (m_flags & HandScorer.FLAG_MAHJONG_BY_ORIGINAL_CALL) != 0;
 	}
 
 	public void setMahjongByOriginalCall(boolean mahjongByOriginalCall)
 	{
-		this.m_mahjongByOriginalCall = mahjongByOriginalCall;
+		setFlag(HandScorer.FLAG_MAHJONG_BY_ORIGINAL_CALL, mahjongByOriginalCall);
 		updateScore();
 	}
 
+	/**
+	 * @return The hand flags as a bit field of the HandScorer.FLAG_ constants.
+	 */
+	public int getFlags()
+	{
+		return m_flags;
+	}
+	
+	/**
+	 * @return The group codes of the hand, in SetComparator order.
+	 */
+	public int[] getGroupCodes()
+	{
+		int[] codes = new int[m_groupCount];
+		
+		for (int index = 0 ; index < m_groupCount ; index++)
+			codes[index] = m_groups[index].getCode();
+		
+		return codes;
+	}
+	
 	public boolean isNonMahjongByOriginalCall()
 	{
-		return m_nonMahjongByOriginalCall;
+		return (m_flags & HandScorer.FLAG_NON_MAHJONG_BY_ORIGINAL_CALL) != 0;
 	}
 
 	public void setNonMahjongByOriginalCall(boolean nonMahjongByOriginalCall)
 	{
-		this.m_nonMahjongByOriginalCall = nonMahjongByOriginalCall;
+		setFlag(HandScorer.FLAG_NON_MAHJONG_BY_ORIGINAL_CALL, nonMahjongByOriginalCall);
 		updateScore();
 	}
 
 	@Override
 	public Iterator<ScoredGroup> iterator()
 	{
-		return m_sortedGroups.iterator();
+		return new GroupIterator();
 	}
 	
 	public String toString()
@@ -199,114 +272,234 @@ public class ScoredHand implements Iterable<ScoredGroup>
 	}
 	
 	/**
-	 * Recalculate the score of the hand, based on the current sets.  Also performs some
-	 * sanity checking on the hand, and calculates whether it is a mahjong hand.
+	 * Recalculate the score of the hand, based on the running totals for the current sets
+	 * and the hand flags.  Also performs some sanity checking on the hand, and calculates
+	 * whether it is a mahjong hand.
+	 * 
+	 * Does not look at the sets themselves, so costs the same however many sets there are.
 	 */
 	private void updateScore()
 	{
+		if (Metrics.isEnabled())
+		{
+			Metrics.HAND_UPDATES.increment();
+			m_updateCount++;
+		}
+		
 		// Zero score in case we exit early.
 		m_totalScoreLimited = m_totalScoreUnlimited = 0;
 		
-		ScoreList scores = new ScoreList();
+		if (m_effectiveHandTiles == m_scheme.MahjongHandSize && m_pairCount == 1)
+			m_isMahjong = true;
+		else if (m_effectiveHandTiles >= m_scheme.MahjongHandSize)
+		{
+			m_isMahjong = false;
+			throw Metrics.invalidHand("Too many tiles for non-mahjong hand");
+		}
+		else
+			m_isMahjong = false;
+		
+		if (m_isMahjong && m_exposedSetCount == 0)
+			m_requirePairConcealedInfo = true;
+		
+		m_totalScoreUnlimited	= HandScorer.total(m_scheme.getScoreTable(), m_setScore, m_setMultiplier, m_isMahjong, m_chowCount, m_minorCount, m_suitMask, m_exposedSetCount, m_flags);
+		m_totalScoreLimited		= Math.min(m_totalScoreUnlimited, m_scheme.LimitScore);
+	}
+	
+	private void setFlag(int flag, boolean value)
+	{
+		if (value)
+			m_flags |= flag;
+		else
+			m_flags &= ~flag;
+	}
+	
+	/**
+	 * Add the contribution of a set to the running totals.
+	 */
+	private void accumulate(ScoredGroup group)
+	{
+		Group.Type	type		= group.getType();
+		Tile		firstTile	= group.getFirstTile();
+		
+		m_setScore				+= group.getSimpleScore();
+		m_setMultiplier			*= group.getHandMultiplier();
+		m_effectiveHandTiles	+= type.getHandSize();
+		
+		if (type == Group.Type.PAIR)
+			m_pairCount++;
+		
+		if (type == Group.Type.CHOW)
+			m_chowCount++;
+		
+		if (!firstTile.isMajor())
+			m_minorCount++;
 		
-		int effectiveHandTiles	= 0;
-		int pairCount			= 0;
+		if (firstTile.getType() == Tile.Type.SUIT)
+			m_suitMask |= 1 << firstTile.getSuit().ordinal();
 		
-		for (ScoredGroup group : this.m_backingGroups)
+		if (type != Group.Type.PAIR && !group.isConcealed())
+			m_exposedSetCount++;
+	}
+	
+	/**
+	 * Insert a group into the array, after any groups that sort before or equal to it.
+	 */
+	private void insert(ScoredGroup group)
+	{
+		if (m_groupCount == m_groups.length)
+			m_groups = Arrays.copyOf(m_groups, m_groups.length * 2);
+		
+		int position = m_groupCount;
+		
+		while (position > 0 && COMPARATOR.compare(m_groups[position - 1], group) > 0)
 		{
-			scores.append(group.getScore());
-			
-			effectiveHandTiles += group.getType().getHandSize();
-			
-			if (group.getType() == Group.Type.PAIR)
-				pairCount++;
+			m_groups[position] = m_groups[position - 1];
+			position--;
 		}
 		
-		if (m_nonMahjongByOriginalCall)
-			scores.append(m_scheme.getScoreContribution(ScoreElement.OriginalCallHandScore));
+		m_groups[position] = group;
+		m_groupCount++;
 		
-		if (effectiveHandTiles == m_scheme.MahjongHandSize && pairCount == 1)
-			m_isMahjong = true;
-		else if (effectiveHandTiles >= m_scheme.MahjongHandSize)
+		accumulate(group);
+	}
+	
+	private class GroupIterator implements Iterator<ScoredGroup>
+	{
+		private int m_next = 0;
+		
+		@Override
+		public boolean hasNext()
 		{
-			m_isMahjong = false;
-			throw new InvalidHandException("Too many tiles for non-mahjong hand");
+			return m_next < m_groupCount;
 		}
-		else
-			m_isMahjong = false;
 		
-		if (m_isMahjong)
+		@Override
+		public ScoredGroup next()
 		{
-			// Additional scoring that applies to mahjong hand only.
-			scores.append(m_scheme.getScoreContribution(ScoreElement.MahjongHandScore));
-			
-			// Look for all major and no chows
-			
-			boolean			allMajor				= true;
-			boolean			noChow					= true;
-			Set<Tile.Suit>	suits					= new HashSet<>();
-			boolean			allNonPairsConcealed	= true;
-			
-			for (ScoredGroup group : this)
-			{
-				Tile firstTile = group.getFirstTile();
-				
-				if (group.getType() == Group.Type.CHOW)
-				{
-					noChow		= false;
-					allMajor	= false;
-				}
-				
-				if (!firstTile.isMajor())
-					allMajor	= false;
-				
-				if (firstTile.getType() == Tile.Type.SUIT)
-					suits.add(firstTile.getSuit());
-				
-				if (group.getType() != Group.Type.PAIR && !group.isConcealed())
-					allNonPairsConcealed = false;
-			}
-			
-			if (allMajor)
-				scores.append(m_scheme.getScoreContribution(ScoreElement.AllMajorHandScore));
-			
-			if (noChow)
-				scores.append(m_scheme.getScoreContribution(ScoreElement.NoChowsHandScore));
-			
-			if (suits.size() == 1)
-				scores.append(m_scheme.getScoreContribution(ScoreElement.SingleSuitHandScore));
-			
-			if (allNonPairsConcealed)
-				m_requirePairConcealedInfo = true;
-			
-			if (allNonPairsConcealed && m_mahjongPairConcealed)
-				scores.append(m_scheme.getScoreContribution(ScoreElement.AllConcealedHandScore));
-			
-			if (m_mahjongByWallTile)
-				scores.append(m_scheme.getScoreContribution(ScoreElement.MahjongByWallTileHandScore));
-			
-			if (m_mahjongByLastWallTile)
-				scores.append(m_scheme.getScoreContribution(ScoreElement.MahjongByLastWallTileHandScore));
+			if (m_next >= m_groupCount)
+				throw new NoSuchElementException();
 			
-			if (m_mahjongByOnlyPossibleTile)
-				scores.append(m_scheme.getScoreContribution(ScoreElement.MahjongByOnlyPossibleTileHandScore));
+			return m_groups[m_next++];
+		}
+	}
+	
+	/**
+	 * Builds a hand from all its sets and flags, scoring it only once when it is built.  Sets
+	 * can be added in any order, and the hand is only checked for validity when it is built.
+	 */
+	public static class Builder
+	{
+		private ScoredHand m_hand;
+		
+		public Builder(ScoringScheme scheme)
+		{
+			m_hand = new ScoredHand(scheme);
+		}
+		
+		public Builder add(ScoredGroup group)
+		{
+			hand().insert(group);
+			return this;
+		}
+		
+		/**
+		 * Add the shared scored group for a GroupCode.
+		 */
+		public Builder add(int code, Wind ownWind, Wind prevailingWind)
+		{
+			ScoredHand hand = hand();
 			
-			if (m_mahjongByLooseTile)
-				scores.append(m_scheme.getScoreContribution(ScoreElement.MahjongByLooseTileHandScore));
+			hand.insert(ScoredGroup.get(GroupCode.decode(code), hand.m_scheme, ownWind, prevailingWind));
+			return this;
+		}
+		
+		/**
+		 * Set all the hand flags at once.
+		 * 
+		 * @param flags Bit field of the HandScorer.FLAG_ constants.
+		 */
+		public Builder setFlags(int flags)
+		{
+			hand().m_flags = flags & HandScorer.FLAGS_ALL;
+			return this;
+		}
+		
+		public Builder setMahjongByWallTile(boolean fromWall)
+		{
+			hand().setFlag(HandScorer.FLAG_MAHJONG_BY_WALL_TILE, fromWall);
+			return this;
+		}
+		
+		public Builder setMahjongByLastWallTile(boolean isLast)
+		{
+			hand().setFlag(HandScorer.FLAG_MAHJONG_BY_LAST_WALL_TILE, isLast);
+			return this;
+		}
+		
+		public Builder setMahjongByOnlyPossibleTile(boolean only)
+		{
+			hand().setFlag(HandScorer.FLAG_MAHJONG_BY_ONLY_POSSIBLE_TILE, only);
+			return this;
+		}
+		
+		public Builder setMahjongPairConcealed(boolean concealed)
+		{
+			hand().setFlag(HandScorer.FLAG_MAHJONG_PAIR_CONCEALED, concealed);
+			return this;
+		}
+		
+		public Builder setMahjongByLooseTile(boolean mahjongByLooseTile)
+		{
+			hand().setFlag(HandScorer.FLAG_MAHJONG_BY_LOOSE_TILE, mahjongByLooseTile);
+			return this;
+		}
+		
+		public Builder setMahjongByLastDiscard(boolean mahjongByLastDiscard)
+		{
+			hand().setFlag(HandScorer.FLAG_MAHJONG_BY_LAST_DISCARD, mahjongByLastDiscard);
+			return this;
+		}
+		
+		public Builder setMahjongByRobbingKong(boolean mahjongByRobbingKong)
+		{
+			hand().setFlag(HandScorer.FLAG_MAHJONG_BY_ROBBING_KONG, mahjongByRobbingKong);
+			return this;
+		}
+		
+		public Builder setMahjongByOriginalCall(boolean mahjongByOriginalCall)
+		{
+			hand().setFlag(HandScorer.FLAG_MAHJONG_BY_ORIGINAL_CALL, mahjongByOriginalCall);
+			return this;
+		}
+		
+		public Builder setNonMahjongByOriginalCall(boolean nonMahjongByOriginalCall)
+		{
+			hand().setFlag(HandScorer.FLAG_NON_MAHJONG_BY_ORIGINAL_CALL, nonMahjongByOriginalCall);
+			return this;
+		}
+		
+		/**
+		 * Score the hand and return it.  The builder cannot be used again afterwards.
+		 * 
+		 * @throws InvalidHandException if the hand has too many tiles for a non-mahjong hand.
+		 */
+		public ScoredHand build()
+		{
+			ScoredHand hand = hand();
 			
-			if (m_mahjongByLastDiscard)
-				scores.append(m_scheme.getScoreContribution(ScoreElement.MahjongByLastDiscardHandScore));
+			m_hand = null;
+			hand.updateScore();
 			
-			if (m_mahjongByRobbingKong)
-				scores.append(m_scheme.getScoreContribution(ScoreElement.MahjongByRobbingKongHandScore));
-
-			if (m_mahjongByOriginalCall)
-				scores.append(m_scheme.getScoreContribution(ScoreElement.MahjongByOriginalCallHandScore));
+			return hand;
 		}
 		
-		
-		m_totalScoreUnlimited	= scores.getTotal();
-		m_totalScoreLimited		= Math.min(m_totalScoreUnlimited, m_scheme.LimitScore);
-		m_scores				= scores;
+		private ScoredHand hand()
+		{
+			if (m_hand == null)
+				throw Metrics.invalidHand("Hand has already been built");
+			
+			return m_hand;
+		}
 	}
 }
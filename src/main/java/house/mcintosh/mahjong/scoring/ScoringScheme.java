@@ -1,11 +1,28 @@
 package house.mcintosh.mahjong.scoring;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.Map;
+import java.util.Properties;
 
+import house.mcintosh.mahjong.exception.InvalidScoreSchemeException;
+
+/**
+ * The scores that apply to each element of a hand.  A scheme is immutable once created, and
+ * its scores are compiled into arrays indexed by ScoreElement ordinal and into a ScoreTable,
+ * so it can be shared freely between threads.
+ * 
+ * The built-in scheme is returned by instance().  Variants can be loaded from files, and
+ * held by name in the SchemeRegistry.
+ */
 public class ScoringScheme
 {
-	enum ScoreElement
+	public enum ScoreElement
 	{
 		PairSuitScore,
 		PairWindScore,
@@ -78,115 +95,310 @@ public class ScoringScheme
 		UNKNOWN
 	}
 	
-	static private ScoringScheme s_instance = new ScoringScheme();
+	/** Name of the built-in scheme, returned by instance(). */
+	public static final String	DEFAULT_NAME	= "british";
+	
+	/** Extension of scheme files, which are in java.util.Properties format. */
+	public static final String	FILE_EXTENSION	= ".scheme";
+	
+	static private final ScoreElement[] ELEMENTS = ScoreElement.values();
+	
+	static private final ScoringScheme s_instance = new ScoringScheme(DEFAULT_NAME, load(new Definition()));
+	
+	private final String		m_name;
+	
+	/** Contributions for each ScoreElement, indexed by ordinal. */
+	private final ScoreList[]	m_contributions;
+	
+	/** Scores of all possible groups, compiled from the contributions. */
+	private final ScoreTable	m_scoreTable;
 	
-	private Map<ScoreElement, ScoreList> m_contributions = new HashMap<>();
+	// Based on scores from http://mahjongbritishrules.com/scoring/overview.html
+	
+	public final int MahjongHandSize;
+	public final int LimitScore;
+	public final int InitialScore;
 	
 	/**
-	 * Private constructor for creating an instance.
+	 * Private constructor for creating an instance from a complete definition.
 	 */
-	private ScoringScheme()
+	private ScoringScheme(String name, Definition definition)
 	{
-		load();
+		m_name				= name;
+		m_contributions		= definition.m_contributions.clone();
+		MahjongHandSize		= definition.m_mahjongHandSize;
+		LimitScore			= definition.m_limitScore;
+		InitialScore		= definition.m_initialScore;
+		
+		// The lists are shared with every caller, so freeze them.
+		
+		for (int ordinal = 0 ; ordinal < m_contributions.length ; ordinal++)
+			m_contributions[ordinal] = m_contributions[ordinal] == null ? ScoreList.EMPTY : m_contributions[ordinal].freeze();
+		
+		m_scoreTable		= new ScoreTable(this);
 	}
 	
+	/**
+	 * @return The built-in scheme.
+	 */
 	public static ScoringScheme instance()
 	{
 		return s_instance;
 	}
 	
+	/**
+	 * Load a scheme from a file.  The scheme is named after the file, without its extension,
+	 * unless the file sets a Name.  See parse() for the format.
+	 */
+	public static ScoringScheme load(Path file) throws IOException
+	{
+		String name = file.getFileName().toString();
+		
+		if (name.endsWith(FILE_EXTENSION))
+			name = name.substring(0, name.length() - FILE_EXTENSION.length());
+		
+		try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8))
+		{
+			return parse(name, reader);
+		}
+	}
+	
+	/**
+	 * Parse a scheme definition in java.util.Properties format.  The keys are:
+	 * <ul>
+	 * <li>Name, MahjongHandSize, LimitScore and InitialScore, each optional.  The sizes and
+	 * scores default to those of the built-in scheme.</li>
+	 * <li>The name of a ScoreElement.  The value is a simple score, optionally followed by a
+	 * hand multiplier such as x2, optionally followed by the names of other elements, each
+	 * preceded by a +, whose contributions are added as well.  For example:
+	 * <pre>PungExposedOwnWindScore = 4 + PungOwnWindMultiplier</pre></li>
+	 * </ul>
+	 * Elements that are not given score nothing.
+	 */
+	public static ScoringScheme parse(String name, Reader reader) throws IOException
+	{
+		Properties properties = new Properties();
+		
+		properties.load(reader);
+		
+		Definition								definition		= new Definition();
+		Map<ScoreElement, String[]>				references		= new EnumMap<>(ScoreElement.class);
+		Map<ScoreElement, ScoreContribution>	contributions	= new EnumMap<>(ScoreElement.class);
+		
+		for (String key : properties.stringPropertyNames())
+		{
+			String value = properties.getProperty(key).trim();
+			
+			switch (key)
+			{
+			case "Name":
+				name = value;
+				continue;
+				
+			case "MahjongHandSize":
+				definition.m_mahjongHandSize = parseInt(key, value);
+				continue;
+				
+			case "LimitScore":
+				definition.m_limitScore = parseInt(key, value);
+				continue;
+				
+			case "InitialScore":
+				definition.m_initialScore = parseInt(key, value);
+				continue;
+				
+			default:
+				break;
+			}
+			
+			ScoreElement element;
+			
+			try
+			{
+				element = ScoreElement.valueOf(key);
+			}
+			catch (IllegalArgumentException e)
+			{
+				throw new InvalidScoreSchemeException("Unknown score element: " + key);
+			}
+			
+			String[]	parts		= value.split("\\+");
+			String[]	base		= parts[0].trim().split("\\s+");
+			int			score		= parseInt(key, base[0]);
+			int			multiplier	= 1;
+			
+			if (base.length > 2 || (base.length == 2 && !base[1].startsWith("x")))
+				throw new InvalidScoreSchemeException("Invalid value for " + key + ": " + value);
+			
+			if (base.length == 2)
+				multiplier = parseInt(key, base[1].substring(1));
+			
+			contributions.put(element, new ScoreContribution(element, score, multiplier));
+			references.put(element, Arrays.copyOfRange(parts, 1, parts.length));
+		}
+		
+		// Now that all the elements are known, resolve the references between them.
+		
+		for (Map.Entry<ScoreElement, ScoreContribution> entry : contributions.entrySet())
+		{
+			ScoreList list = definition.addScoreContribution(entry.getValue());
+			
+			for (String reference : references.get(entry.getKey()))
+			{
+				ScoreContribution other = null;
+				
+				try
+				{
+					other = contributions.get(ScoreElement.valueOf(reference.trim()));
+				}
+				catch (IllegalArgumentException e)
+				{
+					// Reported below.
+				}
+				
+				if (other == null)
+					throw new InvalidScoreSchemeException("Unknown score element referenced by " + entry.getKey() + ": " + reference.trim());
+				
+				list.append(other);
+			}
+		}
+		
+		return new ScoringScheme(name, definition);
+	}
+	
+	public String getName()
+	{
+		return m_name;
+	}
+	
+	/**
+	 * @return The contributions of an element.  The list is shared and cannot be modified.
+	 */
 	public ScoreList getScoreContribution(ScoreElement element)
 	{
-		return m_contributions.get(element);
+		return m_contributions[element.ordinal()];
 	}
 	
-	// Based on scores from http://mahjongbritishrules.com/scoring/overview.html
+	/**
+	 * @return The precompiled scores of all groups under this scheme.
+	 */
+	public ScoreTable getScoreTable()
+	{
+		return m_scoreTable;
+	}
 	
-	public int MahjongHandSize	= 14;
-	public int LimitScore		= 1000;
-	public int InitialScore		= 2000;
+	@Override
+	public String toString()
+	{
+		return m_name;
+	}
 	
-	// Set scores
+	private static int parseInt(String key, String value)
+	{
+		try
+		{
+			return Integer.parseInt(value.trim());
+		}
+		catch (NumberFormatException e)
+		{
+			throw new InvalidScoreSchemeException("Invalid number for " + key + ": " + value);
+		}
+	}
 	
-	private ScoreList addScoreContribution(ScoreContribution contribution)
+	/**
+	 * The parts of a scheme while it is being defined.
+	 */
+	private static class Definition
 	{
-		ScoreList list = new ScoreList();
-		
-		list.append(contribution);
-		m_contributions.put(contribution.getElement(), list);
+		private final ScoreList[]	m_contributions		= new ScoreList[ELEMENTS.length];
+		private int					m_mahjongHandSize	= 14;
+		private int					m_limitScore		= 1000;
+		private int					m_initialScore		= 2000;
 		
-		return list;
+		private ScoreList addScoreContribution(ScoreContribution contribution)
+		{
+			ScoreList list = new ScoreList();
+			
+			list.append(contribution);
+			m_contributions[contribution.getElement().ordinal()] = list;
+			
+			return list;
+		}
 	}
 	
-	private void load()
+	/**
+	 * Define the built-in scheme.
+	 */
+	private static Definition load(Definition definition)
 	{
-		addScoreContribution(new ScoreContribution(ScoreElement.PairSuitScore, 0, 1));
-		addScoreContribution(new ScoreContribution(ScoreElement.PairWindScore, 0, 1));
-		addScoreContribution(new ScoreContribution(ScoreElement.PairOwnWindScore, 2, 1));
-		addScoreContribution(new ScoreContribution(ScoreElement.PairPrevailingWindScore, 2, 1));
-		addScoreContribution(new ScoreContribution(ScoreElement.PairDragonScore, 2, 1));
-		addScoreContribution(new ScoreContribution(ScoreElement.ChowSuitScore, 0, 1));
-		addScoreContribution(new ScoreContribution(ScoreElement.PungExposedMinorSuitScore, 2, 1));
-		addScoreContribution(new ScoreContribution(ScoreElement.PungExposedMajorSuitScore, 4, 1));
-		addScoreContribution(new ScoreContribution(ScoreElement.PungConcealedMinorSuitScore, 4, 1));
-		addScoreContribution(new ScoreContribution(ScoreElement.PungConcealedMajorSuitScore, 8, 1));
-		addScoreContribution(new ScoreContribution(ScoreElement.PungExposedPrevailingOwnWindScore, 4, 1))
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.PairSuitScore, 0, 1));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.PairWindScore, 0, 1));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.PairOwnWindScore, 2, 1));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.PairPrevailingWindScore, 2, 1));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.PairDragonScore, 2, 1));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.ChowSuitScore, 0, 1));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.PungExposedMinorSuitScore, 2, 1));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.PungExposedMajorSuitScore, 4, 1));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.PungConcealedMinorSuitScore, 4, 1));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.PungConcealedMajorSuitScore, 8, 1));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.PungExposedPrevailingOwnWindScore, 4, 1))
 			.append(new ScoreContribution(ScoreElement.PungOwnWindMultiplier, 0, 2))
 			.append(new ScoreContribution(ScoreElement.PungPrevailingWindMultiplier, 0, 2));
-		addScoreContribution(new ScoreContribution(ScoreElement.PungExposedOwnWindScore, 4, 1))
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.PungExposedOwnWindScore, 4, 1))
 			.append(new ScoreContribution(ScoreElement.PungOwnWindMultiplier, 0, 2));
-		addScoreContribution(new ScoreContribution(ScoreElement.PungExposedPrevailingWindScore, 4, 1))
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.PungExposedPrevailingWindScore, 4, 1))
 			.append(new ScoreContribution(ScoreElement.PungPrevailingWindMultiplier, 0, 2));
-		addScoreContribution(new ScoreContribution(ScoreElement.PungExposedWindScore, 4, 1));
-		addScoreContribution(new ScoreContribution(ScoreElement.PungConcealedPrevailingOwnWindScore, 8, 1))
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.PungExposedWindScore, 4, 1));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.PungConcealedPrevailingOwnWindScore, 8, 1))
 			.append(new ScoreContribution(ScoreElement.PungOwnWindMultiplier, 0, 2))
 			.append(new ScoreContribution(ScoreElement.PungPrevailingWindMultiplier, 0, 2));
-		addScoreContribution(new ScoreContribution(ScoreElement.PungConcealedOwnWindScore, 8, 1))
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.PungConcealedOwnWindScore, 8, 1))
 			.append(new ScoreContribution(ScoreElement.PungOwnWindMultiplier, 0, 2));
-		addScoreContribution(new ScoreContribution(ScoreElement.PungConcealedPrevailingWindScore, 8, 1))
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.PungConcealedPrevailingWindScore, 8, 1))
 			.append(new ScoreContribution(ScoreElement.PungPrevailingWindMultiplier, 0, 2));
-		addScoreContribution(new ScoreContribution(ScoreElement.PungConcealedWindScore, 8, 1));
-		addScoreContribution(new ScoreContribution(ScoreElement.PungExposedDragonScore, 4, 2));
-		addScoreContribution(new ScoreContribution(ScoreElement.PungConcealedDragonScore, 8, 2));
-		addScoreContribution(new ScoreContribution(ScoreElement.KongExposedMinorSuitScore, 8, 1));
-		addScoreContribution(new ScoreContribution(ScoreElement.KongExposedMajorSuitScore, 16, 1));
-		addScoreContribution(new ScoreContribution(ScoreElement.KongConcealedMinorSuitScore, 16, 1));
-		addScoreContribution(new ScoreContribution(ScoreElement.KongConcealedMajorSuitScore, 32, 1));
-		addScoreContribution(new ScoreContribution(ScoreElement.KongExposedPrevailingOwnWindScore, 16, 1))
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.PungConcealedWindScore, 8, 1));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.PungExposedDragonScore, 4, 2));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.PungConcealedDragonScore, 8, 2));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.KongExposedMinorSuitScore, 8, 1));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.KongExposedMajorSuitScore, 16, 1));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.KongConcealedMinorSuitScore, 16, 1));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.KongConcealedMajorSuitScore, 32, 1));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.KongExposedPrevailingOwnWindScore, 16, 1))
 			.append(new ScoreContribution(ScoreElement.KongOwnWindMultiplier, 0, 2))
 			.append(new ScoreContribution(ScoreElement.KongPrevailingWindMultiplier, 0, 2));
-		addScoreContribution(new ScoreContribution(ScoreElement.KongExposedOwnWindScore, 16, 1))
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.KongExposedOwnWindScore, 16, 1))
 			.append(new ScoreContribution(ScoreElement.KongOwnWindMultiplier, 0, 2));
-		addScoreContribution(new ScoreContribution(ScoreElement.KongExposedPrevailingWindScore, 16, 1))
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.KongExposedPrevailingWindScore, 16, 1))
 			.append(new ScoreContribution(ScoreElement.KongPrevailingWindMultiplier, 0, 2));
-		addScoreContribution(new ScoreContribution(ScoreElement.KongExposedWindScore, 16, 1));
-		addScoreContribution(new ScoreContribution(ScoreElement.KongConcealedPrevailingOwnWindScore, 32, 1))
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.KongExposedWindScore, 16, 1));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.KongConcealedPrevailingOwnWindScore, 32, 1))
 			.append(new ScoreContribution(ScoreElement.KongOwnWindMultiplier, 0, 2))
 			.append(new ScoreContribution(ScoreElement.KongPrevailingWindMultiplier, 0, 2));
-		addScoreContribution(new ScoreContribution(ScoreElement.KongConcealedOwnWindScore, 32, 1))
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.KongConcealedOwnWindScore, 32, 1))
 			.append(new ScoreContribution(ScoreElement.KongOwnWindMultiplier, 0, 2));
-		addScoreContribution(new ScoreContribution(ScoreElement.KongConcealedPrevailingWindScore, 32, 1))
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.KongConcealedPrevailingWindScore, 32, 1))
 			.append(new ScoreContribution(ScoreElement.KongPrevailingWindMultiplier, 0, 2));
-		addScoreContribution(new ScoreContribution(ScoreElement.KongConcealedWindScore, 32, 1));
-		addScoreContribution(new ScoreContribution(ScoreElement.KongExposedDragonScore, 16, 2));
-		addScoreContribution(new ScoreContribution(ScoreElement.KongConcealedDragonScore, 32, 2));
-	//	addScoreContribution(new ScoreContribution(ScoreElement.OwnFlowerHandScore, 0, 2));
-	//	addScoreContribution(new ScoreContribution(ScoreElement.OwnSeasonHandScore, 0, 2));
-	//	addScoreContribution(new ScoreContribution(ScoreElement.AllFlowersHandScore, 0, 2));
-	//	addScoreContribution(new ScoreContribution(ScoreElement.AllSeasonsHandScore, 0, 2));
-		addScoreContribution(new ScoreContribution(ScoreElement.OriginalCallHandScore, 0, 2));
-		addScoreContribution(new ScoreContribution(ScoreElement.MahjongHandScore, 10, 1));
-		addScoreContribution(new ScoreContribution(ScoreElement.NoChowsHandScore, 0, 2));
-		addScoreContribution(new ScoreContribution(ScoreElement.SingleSuitHandScore, 0, 2));
-		addScoreContribution(new ScoreContribution(ScoreElement.AllMajorHandScore, 0, 2));
-		addScoreContribution(new ScoreContribution(ScoreElement.AllConcealedHandScore, 0, 2));
-		addScoreContribution(new ScoreContribution(ScoreElement.MahjongByLooseTileHandScore, 0, 2));
-		addScoreContribution(new ScoreContribution(ScoreElement.MahjongByOnlyPossibleTileHandScore, 0, 2));
-		addScoreContribution(new ScoreContribution(ScoreElement.MahjongByWallTileHandScore, 2, 1));
-		addScoreContribution(new ScoreContribution(ScoreElement.MahjongByLastWallTileHandScore, 0, 2));
-		addScoreContribution(new ScoreContribution(ScoreElement.MahjongByLastDiscardHandScore, 0, 2));
-		addScoreContribution(new ScoreContribution(ScoreElement.MahjongByRobbingKongHandScore, 0, 2));
-		addScoreContribution(new ScoreContribution(ScoreElement.MahjongByOriginalCallHandScore, 0, 2));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.KongConcealedWindScore, 32, 1));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.KongExposedDragonScore, 16, 2));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.KongConcealedDragonScore, 32, 2));
+	//	definition.addScoreContribution(new ScoreContribution(ScoreElement.OwnFlowerHandScore, 0, 2));
+	//	definition.addScoreContribution(new ScoreContribution(ScoreElement.OwnSeasonHandScore, 0, 2));
+	//	definition.addScoreContribution(new ScoreContribution(ScoreElement.AllFlowersHandScore, 0, 2));
+	//	definition.addScoreContribution(new ScoreContribution(ScoreElement.AllSeasonsHandScore, 0, 2));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.OriginalCallHandScore, 0, 2));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.MahjongHandScore, 10, 1));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.NoChowsHandScore, 0, 2));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.SingleSuitHandScore, 0, 2));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.AllMajorHandScore, 0, 2));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.AllConcealedHandScore, 0, 2));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.MahjongByLooseTileHandScore, 0, 2));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.MahjongByOnlyPossibleTileHandScore, 0, 2));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.MahjongByWallTileHandScore, 2, 1));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.MahjongByLastWallTileHandScore, 0, 2));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.MahjongByLastDiscardHandScore, 0, 2));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.MahjongByRobbingKongHandScore, 0, 2));
+		definition.addScoreContribution(new ScoreContribution(ScoreElement.MahjongByOriginalCallHandScore, 0, 2));
+		
+		return definition;
 	}
 }
-
@@ -0,0 +1,146 @@
+package house.mcintosh.mahjong.simulation;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import house.mcintosh.mahjong.exception.InvalidGameStateException;
+import house.mcintosh.mahjong.model.Game;
+import house.mcintosh.mahjong.model.Player;
+import house.mcintosh.mahjong.model.Round;
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+
+/**
+ * Plays complete Games of random Rounds, to exercise the rules of Game at scale and to
+ * study how a ScoringScheme plays out.
+ * 
+ * Each game is played with its own SplittableRandom, seeded from a sequence generated from
+ * the simulation seed before any game starts.  The result of a simulation therefore depends
+ * only on the seed and the number of games, not on how the games are spread over threads.
+ */
+public class GameSimulator
+{
+	/** Games played per task. */
+	private static final int	CHUNK_SIZE	= 64;
+	private static final int	MAX_SEATS	= 4;
+	
+	private static final Player[] s_players = new Player[MAX_SEATS];
+	
+	static
+	{
+		for (int seat = 0 ; seat < MAX_SEATS ; seat++)
+			s_players[seat] = Player.get("Simulated player " + (seat + 1));
+	}
+	
+	private final ScoringScheme	m_scheme;
+	private final int			m_seats;
+	private final ForkJoinPool	m_pool;
+	
+	/**
+	 * @param seats	Number of players, from two to four.
+	 */
+	public GameSimulator(ScoringScheme scheme, int seats)
+	{
+		this(scheme, seats, ForkJoinPool.commonPool());
+	}
+	
+	public GameSimulator(ScoringScheme scheme, int seats, ForkJoinPool pool)
+	{
+		if (seats < 2 || seats > MAX_SEATS)
+			throw new InvalidGameStateException("Must have two to four players.");
+		
+		m_scheme	= scheme;
+		m_seats		= seats;
+		m_pool		= pool;
+	}
+	
+	/**
+	 * Play a number of games, in parallel.
+	 */
+	public SimulationResult run(long seed, int games)
+	{
+		SplittableRandom	random	= new SplittableRandom(seed);
+		long[]				seeds	= new long[games];
+		
+		for (int game = 0 ; game < games ; game++)
+			seeds[game] = random.nextLong();
+		
+		return m_pool.invoke(new GamesTask(seeds, 0, games));
+	}
+	
+	private SimulationResult play(long[] seeds, int from, int to)
+	{
+		SimulationResult	result		= new SimulationResult(m_seats);
+		HandGenerator		generator	= new HandGenerator(m_scheme);
+		int[]				scores		= new int[m_seats];
+		
+		for (int game = from ; game < to ; game++)
+			play(new SplittableRandom(seeds[game]), generator, result, scores);
+		
+		return result;
+	}
+	
+	/**
+	 * Play one game, with a mahjong hand in every round from a random player.
+	 */
+	private void play(SplittableRandom random, HandGenerator generator, SimulationResult result, int[] scores)
+	{
+		Game game = new Game(m_scheme);
+		
+		for (int seat = 0 ; seat < m_seats ; seat++)
+			game.setPlayer(s_players[seat], seat);
+		
+		game.startGame(s_players[0]);
+		
+		int rounds = 0;
+		
+		while (!game.isFinished())
+		{
+			Player	eastPlayer	= game.getEastPlayer();
+			Round	round		= generator.round(random, game);
+			
+			game.addRound(round);
+			rounds++;
+			
+			result.addRound(round.getHand(eastPlayer).isMahjong());
+		}
+		
+		for (int seat = 0 ; seat < m_seats ; seat++)
+			scores[seat] = game.getPlayerScore(s_players[seat]);
+		
+		result.addGame(rounds, scores);
+	}
+	
+	@SuppressWarnings("serial")
+	private class GamesTask extends RecursiveTask<SimulationResult>
+	{
+		private final long[]	m_seeds;
+		private final int		m_from;
+		private final int		m_to;
+		
+		GamesTask(long[] seeds, int from, int to)
+		{
+			m_seeds	= seeds;
+			m_from	= from;
+			m_to	= to;
+		}
+		
+		@Override
+		protected SimulationResult compute()
+		{
+			if (m_to - m_from <= CHUNK_SIZE)
+				return play(m_seeds, m_from, m_to);
+			
+			int middle = (m_from + m_to) >>> 1;
+			
+			GamesTask low	= new GamesTask(m_seeds, m_from, middle);
+			GamesTask high	= new GamesTask(m_seeds, middle, m_to);
+			
+			low.fork();
+			
+			SimulationResult result = high.compute();
+			
+			return result.merge(low.join());
+		}
+	}
+}
@@ -0,0 +1,223 @@
+package house.mcintosh.mahjong.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import house.mcintosh.mahjong.model.Game;
+import house.mcintosh.mahjong.model.Group;
+import house.mcintosh.mahjong.model.GroupCode;
+import house.mcintosh.mahjong.model.Player;
+import house.mcintosh.mahjong.model.Round;
+import house.mcintosh.mahjong.model.Tile;
+import house.mcintosh.mahjong.model.Wind;
+import house.mcintosh.mahjong.scoring.HandScorer;
+import house.mcintosh.mahjong.scoring.ScoredHand;
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+
+/**
+ * Generates random hands for the players of a round.  All the hands of a round are drawn
+ * from the same tiles, so no tile is used more than four times between them.
+ * 
+ * Not thread safe: each thread should use its own instance.
+ */
+public class HandGenerator
+{
+	private static final int	MAX_COUNT	= 4;
+	private static final int	SETS		= 4;
+	private static final int	MAX_SEATS	= 4;
+	
+	private static final int[]	SET_CODES;
+	private static final int[]	PAIR_CODES;
+	
+	static
+	{
+		List<Integer> sets	= new ArrayList<>();
+		List<Integer> pairs	= new ArrayList<>();
+		
+		for (int code = 0 ; code < GroupCode.COUNT ; code++)
+		{
+			if (!GroupCode.isValid(code))
+				continue;
+			
+			if (GroupCode.getType(code) == Group.Type.PAIR)
+				pairs.add(code);
+			else
+				sets.add(code);
+		}
+		
+		SET_CODES	= toArray(sets);
+		PAIR_CODES	= toArray(pairs);
+	}
+	
+	private final ScoringScheme	m_scheme;
+	private final int[]			m_counts	= new int[Tile.COUNT];
+	private final int[]			m_codes		= new int[SETS + 1];
+	
+	public HandGenerator(ScoringScheme scheme)
+	{
+		m_scheme = scheme;
+	}
+	
+	/**
+	 * Start a new round, with all the tiles available again.
+	 */
+	public void reset()
+	{
+		for (int id = 0 ; id < m_counts.length ; id++)
+			m_counts[id] = 0;
+	}
+	
+	/**
+	 * @return A mahjong hand of four sets and a pair, with random ways of going out.
+	 */
+	public ScoredHand mahjongHand(SplittableRandom random, Wind ownWind, Wind prevailingWind)
+	{
+		for (int set = 0 ; set < SETS ; set++)
+			m_codes[set] = draw(random, SET_CODES);
+		
+		m_codes[SETS] = draw(random, PAIR_CODES);
+		
+		int flags = 0;
+		
+		if (random.nextBoolean())
+			flags |= HandScorer.FLAG_MAHJONG_BY_WALL_TILE;
+		
+		if (random.nextInt(4) == 0)
+			flags |= HandScorer.FLAG_MAHJONG_PAIR_CONCEALED;
+		
+		if (random.nextInt(8) == 0)
+			flags |= HandScorer.FLAG_MAHJONG_BY_ONLY_POSSIBLE_TILE;
+		
+		return build(SETS + 1, flags, ownWind, prevailingWind);
+	}
+	
+	/**
+	 * @return A hand that has not gone mahjong, of up to four sets and possibly a pair.
+	 */
+	public ScoredHand losingHand(SplittableRandom random, Wind ownWind, Wind prevailingWind)
+	{
+		int sets	= random.nextInt(SETS + 1);
+		int count	= 0;
+		
+		while (count < sets)
+			m_codes[count++] = draw(random, SET_CODES);
+		
+		// Four sets and a pair would be mahjong.
+		
+		if (sets < SETS && random.nextBoolean())
+			m_codes[count++] = draw(random, PAIR_CODES);
+		
+		return build(count, 0, ownWind, prevailingWind);
+	}
+	
+	/**
+	 * @return The next round of a started game, drawn from all the tiles, with a mahjong hand
+	 * from a random player and a losing hand from each of the others.
+	 */
+	public Round round(SplittableRandom random, Game game)
+	{
+		int players = 0;
+		
+		for (int seat = 0 ; seat < MAX_SEATS ; seat++)
+			if (game.getSeatPlayer(seat) != null)
+				players++;
+		
+		int mahjongPlayer	= random.nextInt(players);
+		int mahjongSeat		= 0;
+		
+		while (game.getSeatPlayer(mahjongSeat) == null || mahjongPlayer-- > 0)
+			mahjongSeat++;
+		
+		return round(random, game, mahjongSeat);
+	}
+	
+	/**
+	 * @param mahjongSeat	Seat of the player who goes mahjong.  If the seat is empty, nobody does.
+	 * @return The next round of a started game, drawn from all the tiles.
+	 */
+	public Round round(SplittableRandom random, Game game, int mahjongSeat)
+	{
+		Wind	prevailingWind	= game.getPrevailingWind();
+		Round	round			= new Round(prevailingWind);
+		
+		reset();
+		
+		for (int seat = 0 ; seat < MAX_SEATS ; seat++)
+		{
+			Player player = game.getSeatPlayer(seat);
+			
+			if (player == null)
+				continue;
+			
+			Wind wind = game.getSeatWind(seat);
+			
+			if (seat == mahjongSeat)
+				round.addHand(player, mahjongHand(random, wind, prevailingWind), wind);
+			else
+				round.addHand(player, losingHand(random, wind, prevailingWind), wind);
+		}
+		
+		return round;
+	}
+	
+	private ScoredHand build(int count, int flags, Wind ownWind, Wind prevailingWind)
+	{
+		ScoredHand.Builder builder = new ScoredHand.Builder(m_scheme).setFlags(flags);
+		
+		for (int index = 0 ; index < count ; index++)
+			builder.add(m_codes[index], ownWind, prevailingWind);
+		
+		return builder.build();
+	}
+	
+	/**
+	 * Pick a group whose tiles are all still available, and take its tiles.
+	 */
+	private int draw(SplittableRandom random, int[] codes)
+	{
+		while (true)
+		{
+			int code = codes[random.nextInt(codes.length)];
+			
+			if (take(code))
+				return code;
+		}
+	}
+	
+	private boolean take(int code)
+	{
+		int tileId = GroupCode.getTileId(code);
+		
+		if (GroupCode.getType(code) == Group.Type.CHOW)
+		{
+			if (m_counts[tileId] == MAX_COUNT || m_counts[tileId + 1] == MAX_COUNT || m_counts[tileId + 2] == MAX_COUNT)
+				return false;
+			
+			m_counts[tileId]++;
+			m_counts[tileId + 1]++;
+			m_counts[tileId + 2]++;
+			
+			return true;
+		}
+		
+		int tiles = GroupCode.getType(code) == Group.Type.KONG ? 4 : GroupCode.getHandSize(code);
+		
+		if (m_counts[tileId] + tiles > MAX_COUNT)
+			return false;
+		
+		m_counts[tileId] += tiles;
+		
+		return true;
+	}
+	
+	private static int[] toArray(List<Integer> list)
+	{
+		int[] array = new int[list.size()];
+		
+		for (int index = 0 ; index < array.length ; index++)
+			array[index] = list.get(index);
+		
+		return array;
+	}
+}
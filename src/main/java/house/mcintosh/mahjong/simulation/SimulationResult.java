@@ -0,0 +1,167 @@
+package house.mcintosh.mahjong.simulation;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Statistics gathered by GameSimulator over a number of games.
+ * 
+ * Built up by a single thread at a time, and then merged.  Should not be changed once
+ * returned to the caller.
+ */
+public final class SimulationResult
+{
+	/** Width of the buckets of the final score distribution. */
+	public static final int SCORE_BUCKET = 100;
+	
+	private final SortedMap<Integer, Long>	m_finalScores	= new TreeMap<>();
+	private final SortedMap<Integer, Long>	m_gameLengths	= new TreeMap<>();
+	private final long[]					m_seatTotals;
+	private long							m_games;
+	private long							m_rounds;
+	private long							m_eastRepeats;
+	private int								m_minScore		= Integer.MAX_VALUE;
+	private int								m_maxScore		= Integer.MIN_VALUE;
+	
+	SimulationResult(int seats)
+	{
+		m_seatTotals = new long[seats];
+	}
+	
+	void addRound(boolean eastRepeats)
+	{
+		m_rounds++;
+		
+		if (eastRepeats)
+			m_eastRepeats++;
+	}
+	
+	/**
+	 * @param finalScores	Score of each seat at the end of the game, in seat order.
+	 */
+	void addGame(int rounds, int[] finalScores)
+	{
+		m_games++;
+		increment(m_gameLengths, rounds, 1);
+		
+		for (int seat = 0 ; seat < finalScores.length ; seat++)
+		{
+			int score = finalScores[seat];
+			
+			m_seatTotals[seat] += score;
+			m_minScore = Math.min(m_minScore, score);
+			m_maxScore = Math.max(m_maxScore, score);
+			
+			increment(m_finalScores, Math.floorDiv(score, SCORE_BUCKET) * SCORE_BUCKET, 1);
+		}
+	}
+	
+	SimulationResult merge(SimulationResult other)
+	{
+		for (Map.Entry<Integer, Long> entry : other.m_finalScores.entrySet())
+			increment(m_finalScores, entry.getKey(), entry.getValue());
+		
+		for (Map.Entry<Integer, Long> entry : other.m_gameLengths.entrySet())
+			increment(m_gameLengths, entry.getKey(), entry.getValue());
+		
+		for (int seat = 0 ; seat < m_seatTotals.length ; seat++)
+			m_seatTotals[seat] += other.m_seatTotals[seat];
+		
+		m_games			+= other.m_games;
+		m_rounds		+= other.m_rounds;
+		m_eastRepeats	+= other.m_eastRepeats;
+		m_minScore		= Math.min(m_minScore, other.m_minScore);
+		m_maxScore		= Math.max(m_maxScore, other.m_maxScore);
+		
+		return this;
+	}
+	
+	public long getGameCount()
+	{
+		return m_games;
+	}
+	
+	public long getRoundCount()
+	{
+		return m_rounds;
+	}
+	
+	/**
+	 * @return The number of rounds after which the east player stayed east, by going mahjong.
+	 */
+	public long getEastRepeatCount()
+	{
+		return m_eastRepeats;
+	}
+	
+	public double getEastRepeatRate()
+	{
+		return m_rounds == 0 ? 0 : (double) m_eastRepeats / m_rounds;
+	}
+	
+	public double getMeanGameLength()
+	{
+		return m_games == 0 ? 0 : (double) m_rounds / m_games;
+	}
+	
+	/**
+	 * @return The number of games of each length in rounds.
+	 */
+	public SortedMap<Integer, Long> getGameLengths()
+	{
+		return new TreeMap<>(m_gameLengths);
+	}
+	
+	/**
+	 * @return The number of final scores in each bucket, keyed by the lowest score in the bucket.
+	 */
+	public SortedMap<Integer, Long> getFinalScores()
+	{
+		return new TreeMap<>(m_finalScores);
+	}
+	
+	/**
+	 * @return The mean final score of the player in the seat, where seat 0 starts as east.
+	 */
+	public double getMeanFinalScore(int seat)
+	{
+		return m_games == 0 ? 0 : (double) m_seatTotals[seat] / m_games;
+	}
+	
+	public int getMinFinalScore()
+	{
+		return m_minScore;
+	}
+	
+	public int getMaxFinalScore()
+	{
+		return m_maxScore;
+	}
+	
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		
+		sb.append("Games: ").append(m_games)
+			.append(", rounds: ").append(m_rounds)
+			.append(", mean length: ").append(String.format("%.2f", getMeanGameLength()))
+			.append(", east repeat rate: ").append(String.format("%.4f", getEastRepeatRate()))
+			.append('\n');
+		
+		sb.append("Final scores: ").append(m_minScore).append(" to ").append(m_maxScore);
+		
+		for (int seat = 0 ; seat < m_seatTotals.length ; seat++)
+			sb.append(seat == 0 ? ", seat means: " : " ").append(String.format("%.1f", getMeanFinalScore(seat)));
+		
+		return sb.toString();
+	}
+	
+	private static void increment(Map<Integer, Long> counts, int key, long count)
+	{
+		Long previous = counts.get(key);
+		
+		counts.put(key, previous == null ? count : previous + count);
+	}
+}
@@ -0,0 +1,488 @@
+package house.mcintosh.mahjong.tournament;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import house.mcintosh.mahjong.exception.InvalidModelException;
+import house.mcintosh.mahjong.model.Game;
+import house.mcintosh.mahjong.model.Player;
+
+/**
+ * Standings of players across any number of games, kept in order as scores change, so that
+ * ranks and ranges of the order are read without sorting.
+ *
+ * A player's score is the total of their gains and losses in every game tracked, without the
+ * initial score of each game.  Players are held in a
+ * treap, a binary search tree balanced by pseudo-random priorities, ordered by score, highest
+ * first, and then by player id.  Each node holds the size of its subtree, so a rank is found
+ * in one descent.  Updates and ranks take O(log n), and a range of k players O(log n + k).
+ * Nodes are held in arrays indexed by player id, so an update allocates nothing.
+ *
+ * Updates and reads may come from any thread.  The changes of a round are applied under one
+ * write lock, so a reader sees all or none of a round.
+ */
+public final class Leaderboard implements Game.ScoreListener
+{
+	private static final int	NONE			= -1;
+	private static final int	INITIAL_SIZE	= 16;
+	
+	private final ReentrantReadWriteLock	m_lock		= new ReentrantReadWriteLock();
+	
+	// The tree, indexed by player id.  A player is on the board if it has an entry in m_players.
+	
+	private Player[]						m_players	= new Player[INITIAL_SIZE];
+	private int[]							m_scores	= new int[INITIAL_SIZE];
+	private int[]							m_left		= new int[INITIAL_SIZE];
+	private int[]							m_right		= new int[INITIAL_SIZE];
+	private int[]							m_sizes		= new int[INITIAL_SIZE];
+	private int								m_root		= NONE;
+	
+	/**
+	 * Add what the players in a game have gained or lost in it so far, and follow the game's
+	 * score changes from now on.  Call before rounds are added, or on the thread that adds them.
+	 */
+	public void track(Game game)
+	{
+		int initialScore = game.getScheme().InitialScore;
+		
+		m_lock.writeLock().lock();
+		
+		try
+		{
+			for (int seat = 0 ; seat < 4 ; seat++)
+			{
+				Player player = game.getSeatPlayer(seat);
+				
+				if (player != null)
+					change(player, game.getSeatScore(seat) - initialScore);
+			}
+		}
+		finally
+		{
+			m_lock.writeLock().unlock();
+		}
+		
+		game.addScoreListener(this);
+	}
+	
+	@Override
+	public void scoresChanged(Game game, int[] changes)
+	{
+		m_lock.writeLock().lock();
+		
+		try
+		{
+			for (int seat = 0 ; seat < changes.length ; seat++)
+				if (changes[seat] != 0)
+					change(game.getSeatPlayer(seat), changes[seat]);
+		}
+		finally
+		{
+			m_lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Add to a player's score, adding the player to the board if they are not on it.
+	 */
+	public void addScore(Player player, int change)
+	{
+		m_lock.writeLock().lock();
+		
+		try
+		{
+			change(player, change);
+		}
+		finally
+		{
+			m_lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * @return The number of players on the board.
+	 */
+	public int size()
+	{
+		m_lock.readLock().lock();
+		
+		try
+		{
+			return size(m_root);
+		}
+		finally
+		{
+			m_lock.readLock().unlock();
+		}
+	}
+	
+	public boolean contains(Player player)
+	{
+		m_lock.readLock().lock();
+		
+		try
+		{
+			return isPresent(player);
+		}
+		finally
+		{
+			m_lock.readLock().unlock();
+		}
+	}
+	
+	public int getScore(Player player)
+	{
+		m_lock.readLock().lock();
+		
+		try
+		{
+			return m_scores[find(player)];
+		}
+		finally
+		{
+			m_lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * @return The rank of the player, from 1.  Players with the same score share a rank, and
+	 * the rank after them is skipped.
+	 */
+	public int getRank(Player player)
+	{
+		m_lock.readLock().lock();
+		
+		try
+		{
+			return countHigher(m_scores[find(player)]) + 1;
+		}
+		finally
+		{
+			m_lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * @return The highest scoring players, up to the count given.
+	 */
+	public List<Entry> getTop(int count)
+	{
+		return getRange(0, count);
+	}
+	
+	/**
+	 * @param from	Position in the order of the first player, from 0.
+	 * @return Up to count players in order from the position.
+	 */
+	public List<Entry> getRange(int from, int count)
+	{
+		if (from < 0 || count < 0)
+			throw new InvalidModelException("Invalid leaderboard range.");
+		
+		m_lock.readLock().lock();
+		
+		try
+		{
+			int			to		= (int) Math.min((long) from + count, size(m_root));
+			List<Entry>	entries	= new ArrayList<>(Math.max(0, to - from));
+			
+			if (to > from)
+				collect(m_root, 0, from, to, entries);
+			
+			// Ranks follow from the number of players with a higher score than the first.
+			
+			int rank = 0;
+			
+			for (int index = 0 ; index < entries.size() ; index++)
+			{
+				Entry entry = entries.get(index);
+				
+				if (index == 0)
+					rank = countHigher(entry.m_score) + 1;
+				else if (entry.m_score != entries.get(index - 1).m_score)
+					rank = from + index + 1;
+				
+				entry.m_rank = rank;
+			}
+			
+			return entries;
+		}
+		finally
+		{
+			m_lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Move a player to their new place.  Must hold the write lock.
+	 */
+	private void change(Player player, int change)
+	{
+		int id = player.getId();
+		
+		if (id >= m_players.length)
+			grow(id);
+		
+		if (m_players[id] == null)
+		{
+			m_players[id]	= player;
+			m_scores[id]	= change;
+		}
+		else
+		{
+			if (change == 0)
+				return;
+			
+			m_root			= remove(m_root, id);
+			m_scores[id]	+= change;
+		}
+		
+		m_left[id]	= NONE;
+		m_right[id]	= NONE;
+		m_sizes[id]	= 1;
+		m_root		= insert(m_root, id);
+	}
+	
+	private void grow(int id)
+	{
+		int length = Math.max(id + 1, m_players.length * 2);
+		
+		m_players	= Arrays.copyOf(m_players, length);
+		m_scores	= Arrays.copyOf(m_scores, length);
+		m_left		= Arrays.copyOf(m_left, length);
+		m_right		= Arrays.copyOf(m_right, length);
+		m_sizes		= Arrays.copyOf(m_sizes, length);
+	}
+	
+	private boolean isPresent(Player player)
+	{
+		int id = player.getId();
+		
+		return id < m_players.length && m_players[id] == player;
+	}
+	
+	private int find(Player player)
+	{
+		if (!isPresent(player))
+			throw new InvalidModelException("Player not on leaderboard");
+		
+		return player.getId();
+	}
+	
+	/**
+	 * @return The number of players with a score higher than the score given.
+	 */
+	private int countHigher(int score)
+	{
+		int count = 0;
+		
+		for (int node = m_root ; node != NONE ; )
+		{
+			if (m_scores[node] > score)
+			{
+				count	+= size(m_left[node]) + 1;
+				node	= m_right[node];
+			}
+			else
+			{
+				node	= m_left[node];
+			}
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Add the players of a subtree that are between two positions to a list, in order.
+	 *
+	 * @param offset	Position of the first player of the subtree.
+	 */
+	private void collect(int node, int offset, int from, int to, List<Entry> entries)
+	{
+		if (node == NONE || offset >= to || offset + m_sizes[node] <= from)
+			return;
+		
+		int position = offset + size(m_left[node]);
+		
+		collect(m_left[node], offset, from, to, entries);
+		
+		if (position >= from && position < to)
+			entries.add(new Entry(m_players[node], m_scores[node]));
+		
+		collect(m_right[node], position + 1, from, to, entries);
+	}
+	
+	/**
+	 * @return The new root of the subtree with the node inserted.
+	 */
+	private int insert(int root, int node)
+	{
+		if (root == NONE)
+			return node;
+		
+		if (before(node, root))
+		{
+			m_left[root] = insert(m_left[root], node);
+			update(root);
+			
+			if (priority(m_left[root]) > priority(root))
+				root = rotateRight(root);
+		}
+		else
+		{
+			m_right[root] = insert(m_right[root], node);
+			update(root);
+			
+			if (priority(m_right[root]) > priority(root))
+				root = rotateLeft(root);
+		}
+		
+		return root;
+	}
+	
+	/**
+	 * @return The new root of the subtree with the node removed.  The node's score must be
+	 * the one it was inserted with.
+	 */
+	private int remove(int root, int node)
+	{
+		if (root == node)
+			return merge(m_left[root], m_right[root]);
+		
+		if (before(node, root))
+			m_left[root] = remove(m_left[root], node);
+		else
+			m_right[root] = remove(m_right[root], node);
+		
+		update(root);
+		
+		return root;
+	}
+	
+	/**
+	 * @return The root of the two subtrees joined, where every node of the first is before
+	 * every node of the second.
+	 */
+	private int merge(int first, int second)
+	{
+		if (first == NONE)
+			return second;
+		
+		if (second == NONE)
+			return first;
+		
+		if (priority(first) > priority(second))
+		{
+			m_right[first] = merge(m_right[first], second);
+			update(first);
+			
+			return first;
+		}
+		
+		m_left[second] = merge(first, m_left[second]);
+		update(second);
+		
+		return second;
+	}
+	
+	private int rotateRight(int node)
+	{
+		int left = m_left[node];
+		
+		m_left[node]	= m_right[left];
+		m_right[left]	= node;
+		
+		update(node);
+		update(left);
+		
+		return left;
+	}
+	
+	private int rotateLeft(int node)
+	{
+		int right = m_right[node];
+		
+		m_right[node]	= m_left[right];
+		m_left[right]	= node;
+		
+		update(node);
+		update(right);
+		
+		return right;
+	}
+	
+	private void update(int node)
+	{
+		m_sizes[node] = size(m_left[node]) + size(m_right[node]) + 1;
+	}
+	
+	private int size(int node)
+	{
+		return node == NONE ? 0 : m_sizes[node];
+	}
+	
+	/**
+	 * @return True if the first node comes before the second: a higher score, or the same
+	 * score and a lower id.
+	 */
+	private boolean before(int first, int second)
+	{
+		if (m_scores[first] != m_scores[second])
+			return m_scores[first] > m_scores[second];
+		
+		return first < second;
+	}
+	
+	/**
+	 * @return A priority scrambled from the id.  The scrambling is one to one, so no two
+	 * nodes have the same priority.
+	 */
+	private static int priority(int node)
+	{
+		int hash = node * 0x9E3779B9;
+		
+		return hash ^ (hash >>> 16);
+	}
+	
+	/**
+	 * One player's place on the board when it was read.
+	 */
+	public static final class Entry
+	{
+		private final Player	m_player;
+		private final int		m_score;
+		private int				m_rank;
+		
+		Entry(Player player, int score)
+		{
+			m_player	= player;
+			m_score		= score;
+		}
+		
+		public Player getPlayer()
+		{
+			return m_player;
+		}
+		
+		public int getScore()
+		{
+			return m_score;
+		}
+		
+		/**
+		 * @return The rank, from 1, shared by players with the same score.
+		 */
+		public int getRank()
+		{
+			return m_rank;
+		}
+		
+		@Override
+		public String toString()
+		{
+			return m_rank + ". " + m_player + " " + m_score;
+		}
+	}
+}
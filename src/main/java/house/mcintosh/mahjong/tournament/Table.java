@@ -0,0 +1,194 @@
+package house.mcintosh.mahjong.tournament;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import house.mcintosh.mahjong.model.Game;
+import house.mcintosh.mahjong.model.Player;
+import house.mcintosh.mahjong.model.Round;
+import house.mcintosh.mahjong.model.Wind;
+import house.mcintosh.mahjong.scoring.ScoredHand;
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+
+/**
+ * One table of a tournament: a Game, and a mailbox of work for it.
+ * 
+ * The Game is only ever touched by the task draining the mailbox, and at most one such task
+ * is scheduled at a time, so the Game needs no locking and rounds are applied in the order
+ * they were submitted.  After each round a new TableStanding is published for readers, and
+ * the score changes go to the tournament's Leaderboard.
+ */
+final class Table
+{
+	/** Messages handled before giving the thread back to other tables. */
+	private static final int BATCH_SIZE = 32;
+	
+	private final int								m_id;
+	private final ScoringScheme						m_scheme;
+	private final Game								m_game;
+	private final Player[]							m_players;
+	private final Executor							m_executor;
+	private final ConcurrentLinkedQueue<Message>	m_mailbox	= new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean						m_scheduled	= new AtomicBoolean();
+	private final Runnable							m_drain;
+	
+	private volatile TableStanding					m_standing;
+	
+	Table(int id, ScoringScheme scheme, Player[] players, int eastSeat, Executor executor, Leaderboard leaderboard)
+	{
+		m_id		= id;
+		m_scheme	= scheme;
+		m_game		= new Game(scheme);
+		m_players	= players.clone();
+		m_executor	= executor;
+		m_drain		= new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				drain();
+			}
+		};
+		
+		for (int seat = 0 ; seat < m_players.length ; seat++)
+			if (m_players[seat] != null)
+				m_game.setPlayer(m_players[seat], seat);
+		
+		m_game.startGame(m_players[eastSeat]);
+		leaderboard.track(m_game);
+		
+		publish();
+	}
+	
+	int getId()
+	{
+		return m_id;
+	}
+	
+	TableStanding getStanding()
+	{
+		return m_standing;
+	}
+	
+	/**
+	 * Queue a round of hands, given as group codes and flags for each seat.  The hands are
+	 * scored with the winds of the seats when the round is applied.
+	 */
+	CompletableFuture<TableStanding> submit(int[][] seatCodes, int[] seatFlags)
+	{
+		Message message = new Message(seatCodes, seatFlags);
+		
+		m_mailbox.add(message);
+		
+		schedule();
+		
+		return message.m_result;
+	}
+	
+	private void schedule()
+	{
+		if (m_scheduled.compareAndSet(false, true))
+			m_executor.execute(m_drain);
+	}
+	
+	private void drain()
+	{
+		try
+		{
+			for (int handled = 0 ; handled < BATCH_SIZE ; handled++)
+			{
+				Message message = m_mailbox.poll();
+				
+				if (message == null)
+					break;
+				
+				try
+				{
+					apply(message);
+					message.m_result.complete(m_standing);
+				}
+				catch (Throwable e)
+				{
+					message.m_result.completeExceptionally(e);
+					
+					if (e instanceof Error)
+						throw (Error) e;
+				}
+			}
+		}
+		finally
+		{
+			m_scheduled.set(false);
+		}
+		
+		// Messages may have arrived after the last poll but before the flag was cleared.
+		
+		if (!m_mailbox.isEmpty())
+			schedule();
+	}
+	
+	private void apply(Message message)
+	{
+		Wind	prevailingWind	= m_game.getPrevailingWind();
+		Round	round			= new Round(prevailingWind);
+		
+		for (int seat = 0 ; seat < m_players.length ; seat++)
+		{
+			if (m_players[seat] == null)
+				continue;
+			
+			Wind				wind	= m_game.getSeatWind(seat);
+			ScoredHand.Builder	builder	= new ScoredHand.Builder(m_scheme).setFlags(message.m_seatFlags[seat]);
+			
+			for (int code : message.m_seatCodes[seat])
+				builder.add(code, wind, prevailingWind);
+			
+			round.addHand(m_players[seat], builder.build(), wind);
+		}
+		
+		// A listener may throw after the round has been added, so publish whatever happens.
+		
+		try
+		{
+			m_game.addRound(round);
+		}
+		finally
+		{
+			publish();
+		}
+	}
+	
+	private void publish()
+	{
+		m_standing = new TableStanding(
+				m_id,
+				m_players,
+				m_game.getScores(),
+				m_game.getRoundCount(),
+				m_game.getPrevailingWind(),
+				m_game.getPlayerSeat(m_game.getEastPlayer()),
+				m_game.isFinished());
+	}
+	
+	private static final class Message
+	{
+		private final int[][]							m_seatCodes;
+		private final int[]								m_seatFlags;
+		private final CompletableFuture<TableStanding>	m_result	= new CompletableFuture<>();
+		
+		/**
+		 * Copy the hands, since the caller may reuse its arrays before the round is applied.
+		 */
+		Message(int[][] seatCodes, int[] seatFlags)
+		{
+			m_seatCodes	= new int[seatCodes.length][];
+			m_seatFlags	= seatFlags.clone();
+			
+			for (int seat = 0 ; seat < seatCodes.length ; seat++)
+				if (seatCodes[seat] != null)
+					m_seatCodes[seat] = seatCodes[seat].clone();
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package house.mcintosh.mahjong.tournament;
+
+import house.mcintosh.mahjong.model.Player;
+import house.mcintosh.mahjong.model.Wind;
+
+/**
+ * The state of one table after a number of rounds.  Immutable, so every value in it is from
+ * the same point in the game.
+ */
+public final class TableStanding
+{
+	private final int		m_table;
+	private final Player[]	m_players;
+	private final int[]		m_scores;
+	private final int		m_rounds;
+	private final Wind		m_prevailingWind;
+	private final int		m_eastSeat;
+	private final boolean	m_finished;
+	
+	TableStanding(int table, Player[] players, int[] scores, int rounds, Wind prevailingWind, int eastSeat, boolean finished)
+	{
+		m_table				= table;
+		m_players			= players;
+		m_scores			= scores;
+		m_rounds			= rounds;
+		m_prevailingWind	= prevailingWind;
+		m_eastSeat			= eastSeat;
+		m_finished			= finished;
+	}
+	
+	public int getTable()
+	{
+		return m_table;
+	}
+	
+	/**
+	 * @return The player in the seat, or null if it is empty.
+	 */
+	public Player getPlayer(int seat)
+	{
+		return m_players[seat];
+	}
+	
+	public int getScore(int seat)
+	{
+		return m_scores[seat];
+	}
+	
+	/**
+	 * @return The number of rounds played so far.
+	 */
+	public int getRoundCount()
+	{
+		return m_rounds;
+	}
+	
+	public Wind getPrevailingWind()
+	{
+		return m_prevailingWind;
+	}
+	
+	public int getEastSeat()
+	{
+		return m_eastSeat;
+	}
+	
+	public boolean isFinished()
+	{
+		return m_finished;
+	}
+	
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		
+		sb.append("Table ").append(m_table).append(" after ").append(m_rounds).append(" rounds:");
+		
+		for (int seat = 0 ; seat < m_players.length ; seat++)
+			if (m_players[seat] != null)
+				sb.append(' ').append(m_players[seat]).append('=').append(m_scores[seat]);
+		
+		return sb.toString();
+	}
+}
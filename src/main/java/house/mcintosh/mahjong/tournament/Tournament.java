@@ -0,0 +1,160 @@
+package house.mcintosh.mahjong.tournament;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import house.mcintosh.mahjong.exception.InvalidGameStateException;
+import house.mcintosh.mahjong.exception.InvalidModelException;
+import house.mcintosh.mahjong.model.Player;
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+
+/**
+ * Runs any number of tables at once.  Each table owns its Game, and handles the rounds
+ * submitted to it one at a time, in the order they were submitted.  Different tables run in
+ * parallel on a shared Executor, and a table gives its thread back after a short batch of
+ * rounds, so a busy or slow table does not hold up the others.
+ * 
+ * Standings are published by each table after every round, and can be read from any thread
+ * without waiting for the table.  The Leaderboard ranks players by their total score across
+ * all tables, and is kept up to date as each round is applied.
+ * 
+ * Applying a round only computes and never blocks, so by default tables share the common
+ * ForkJoinPool, with a thread for each core.  Virtual threads would not apply rounds any
+ * faster.  They help where the work blocks, such as a ScoreListener that writes to a
+ * GameLog.  Where the JDK has them, newVirtualThreadExecutor gives an executor to pass in.
+ */
+public class Tournament
+{
+	private static final int SEATS = 4;
+	
+	private final ScoringScheme						m_scheme;
+	private final Executor							m_executor;
+	private final ConcurrentHashMap<Integer, Table>	m_tables		= new ConcurrentHashMap<>();
+	private final AtomicInteger						m_nextTable		= new AtomicInteger();
+	private final Leaderboard						m_leaderboard	= new Leaderboard();
+	
+	public Tournament(ScoringScheme scheme)
+	{
+		this(scheme, ForkJoinPool.commonPool());
+	}
+	
+	public Tournament(ScoringScheme scheme, Executor executor)
+	{
+		m_scheme	= scheme;
+		m_executor	= executor;
+	}
+	
+	/**
+	 * @return A new executor that starts a virtual thread for each task, or null if the JDK
+	 * has no virtual threads (before Java 21).  Close it once the tournament is finished.
+	 */
+	public static ExecutorService newVirtualThreadExecutor()
+	{
+		try
+		{
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch (ReflectiveOperationException e)
+		{
+			return null;
+		}
+	}
+	
+	/**
+	 * Seat players at a new table and start its game.
+	 * 
+	 * @param players	Player in each of the four seats, or null for an empty seat.
+	 * @param eastSeat	Seat of the player who starts as east.
+	 * @return The id of the table.
+	 */
+	public int addTable(Player[] players, int eastSeat)
+	{
+		if (players.length != SEATS)
+			throw new InvalidModelException("Table must have four seats.");
+		
+		if (eastSeat < 0 || eastSeat >= SEATS || players[eastSeat] == null)
+			throw new InvalidModelException("East seat must have a player.");
+		
+		int		id		= m_nextTable.getAndIncrement();
+		Table	table	= new Table(id, m_scheme, players, eastSeat, m_executor, m_leaderboard);
+		
+		m_tables.put(id, table);
+		
+		return id;
+	}
+	
+	/**
+	 * Queue a round for a table.
+	 * 
+	 * @param seatCodes	GroupCodes of the hand in each seat.  Ignored for empty seats.
+	 * @param seatFlags	HandScorer.FLAG_ bit field of the hand in each seat.  The arrays are
+	 *					copied, so may be reused as soon as this returns.
+	 * @return Completes with the standing of the table once the round has been applied, or
+	 * exceptionally if it could not be.
+	 */
+	public CompletableFuture<TableStanding> submitRound(int table, int[][] seatCodes, int[] seatFlags)
+	{
+		if (seatCodes.length != SEATS || seatFlags.length != SEATS)
+			throw new InvalidModelException("Round must have a hand for each of the four seats.");
+		
+		return getTable(table).submit(seatCodes, seatFlags);
+	}
+	
+	/**
+	 * @return The standing of the table after the last round applied.
+	 */
+	public TableStanding getStanding(int table)
+	{
+		return getTable(table).getStanding();
+	}
+	
+	/**
+	 * @return The latest standing of every table, in table order.  Each standing is consistent
+	 * in itself, but tables may have moved on by different amounts while they were collected.
+	 */
+	public List<TableStanding> getStandings()
+	{
+		int					count		= m_nextTable.get();
+		List<TableStanding>	standings	= new ArrayList<>(count);
+		
+		for (int id = 0 ; id < count ; id++)
+		{
+			Table table = m_tables.get(id);
+			
+			if (table != null)
+				standings.add(table.getStanding());
+		}
+		
+		return standings;
+	}
+	
+	/**
+	 * @return The players of every table, ranked by their total score.
+	 */
+	public Leaderboard getLeaderboard()
+	{
+		return m_leaderboard;
+	}
+	
+	public int getTableCount()
+	{
+		return m_tables.size();
+	}
+	
+	private Table getTable(int id)
+	{
+		Table table = m_tables.get(id);
+		
+		if (table == null)
+			throw new InvalidGameStateException("No such table: " + id);
+		
+		return table;
+	}
+}
@@ -0,0 +1,124 @@
+package house.mcintosh.mahjong.analysis;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import house.mcintosh.mahjong.model.Group;
+import house.mcintosh.mahjong.model.GroupCode;
+import house.mcintosh.mahjong.model.Tile;
+import house.mcintosh.mahjong.model.Wind;
+import house.mcintosh.mahjong.scoring.ScoredHand;
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+
+public class TestHandDecomposer
+{
+	private final HandDecomposer decomposer = new HandDecomposer(ScoringScheme.instance());
+	
+	@Test
+	public void pungsOrChows()
+	{
+		// 111222333 bamboo, 55 circles, east wind pung.
+		
+		int[] counts = TileHistogram.create();
+		
+		add(counts, Tile.get(Tile.Suit.BAMBOO, Tile.Number.ONE), 3);
+		add(counts, Tile.get(Tile.Suit.BAMBOO, Tile.Number.TWO), 3);
+		add(counts, Tile.get(Tile.Suit.BAMBOO, Tile.Number.THREE), 3);
+		add(counts, Tile.get(Tile.Suit.CIRCLES, Tile.Number.FIVE), 2);
+		add(counts, Tile.get(Wind.EAST), 3);
+		
+		List<Decomposition> all = decomposer.decompose(counts, null, 0, Wind.SOUTH, Wind.SOUTH);
+		
+		assertEquals(2, all.size());
+		
+		Decomposition best = decomposer.best(counts, null, 0, Wind.SOUTH, Wind.SOUTH);
+		
+		// Concealed pungs: major 8, minor 4 and 4, wind 8, doubled for no chows.
+		assertEquals((10+8+4+4+8)*2, best.getTotalScore());
+		
+		for (int code : best.getGroupCodes())
+			assertNotEquals(Group.Type.CHOW, GroupCode.getType(code));
+		
+		ScoredHand hand = best.toScoredHand();
+		
+		assertTrue(hand.isMahjong());
+		assertEquals(best.getTotalScore(), hand.getTotalScore());
+	}
+	
+	@Test
+	public void withMeldedGroups()
+	{
+		int[] counts = TileHistogram.create();
+		
+		add(counts, Tile.get(Tile.Suit.CHARACTERS, Tile.Number.TWO), 1);
+		add(counts, Tile.get(Tile.Suit.CHARACTERS, Tile.Number.THREE), 1);
+		add(counts, Tile.get(Tile.Suit.CHARACTERS, Tile.Number.FOUR), 1);
+		add(counts, Tile.get(Tile.Dragon.RED), 2);
+		
+		int[] melded =
+		{
+			GroupCode.encode(Group.Type.PUNG, Tile.get(Wind.NORTH), Group.Visibility.EXPOSED),
+			GroupCode.encode(Group.Type.KONG, Tile.get(Tile.Suit.BAMBOO, Tile.Number.NINE), Group.Visibility.EXPOSED),
+			GroupCode.encode(Group.Type.CHOW, Tile.get(Tile.Suit.CIRCLES, Tile.Number.FOUR), Group.Visibility.EXPOSED),
+		};
+		
+		Decomposition best = decomposer.best(counts, melded, 0, Wind.EAST, Wind.EAST);
+		
+		assertNotNull(best);
+		assertEquals(5, best.getGroupCodes().length);
+		assertEquals(10+4+16+2, best.getTotalScore());
+	}
+	
+	@Test
+	public void notMahjong()
+	{
+		int[] counts = TileHistogram.create();
+		
+		add(counts, Tile.get(Tile.Suit.BAMBOO, Tile.Number.ONE), 3);
+		add(counts, Tile.get(Tile.Suit.BAMBOO, Tile.Number.TWO), 3);
+		add(counts, Tile.get(Tile.Suit.BAMBOO, Tile.Number.FOUR), 3);
+		add(counts, Tile.get(Tile.Suit.CIRCLES, Tile.Number.FIVE), 2);
+		add(counts, Tile.get(Wind.EAST), 2);
+		add(counts, Tile.get(Wind.WEST), 1);
+		
+		assertNull(decomposer.best(counts, null, 0, Wind.EAST, Wind.EAST));
+		assertTrue(decomposer.decompose(counts, null, 0, Wind.EAST, Wind.EAST).isEmpty());
+	}
+	
+	@Test
+	public void nineGates()
+	{
+		// 1112345678999 + 5 in one suit has several decompositions.
+		
+		int[] counts = TileHistogram.create();
+		
+		add(counts, Tile.get(Tile.Suit.CIRCLES, Tile.Number.ONE), 3);
+		
+		for (Tile.Number number : Tile.Number.values())
+			if (number != Tile.Number.ONE && number != Tile.Number.NINE)
+				add(counts, Tile.get(Tile.Suit.CIRCLES, number), 1);
+		
+		add(counts, Tile.get(Tile.Suit.CIRCLES, Tile.Number.NINE), 3);
+		add(counts, Tile.get(Tile.Suit.CIRCLES, Tile.Number.FIVE), 1);
+		
+		List<Decomposition> all = decomposer.decompose(counts, null, 0, Wind.EAST, Wind.EAST);
+		
+		assertFalse(all.isEmpty());
+		
+		Decomposition best = decomposer.best(counts, null, 0, Wind.EAST, Wind.EAST);
+		
+		for (Decomposition decomposition : all)
+			assertFalse(decomposition.isBetterThan(best));
+		
+		for (Decomposition decomposition : all)
+			assertEquals(decomposition.getTotalScore(), decomposition.toScoredHand().getTotalScore());
+	}
+	
+	private static void add(int[] counts, Tile tile, int count)
+	{
+		counts[tile.getId()] += count;
+	}
+}
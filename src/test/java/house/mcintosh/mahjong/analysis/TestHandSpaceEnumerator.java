@@ -0,0 +1,165 @@
+package house.mcintosh.mahjong.analysis;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import house.mcintosh.mahjong.model.Group;
+import house.mcintosh.mahjong.model.GroupCode;
+import house.mcintosh.mahjong.model.Tile;
+import house.mcintosh.mahjong.scoring.HandScorer;
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+import house.mcintosh.mahjong.scoring.ScoringScheme.ScoreElement;
+
+public class TestHandSpaceEnumerator
+{
+	/**
+	 * Legal hands of four sets and a pair for one combination of winds, counted by brute force
+	 * outside the tests.  reducedSpace checks the enumeration against brute force in the tests.
+	 */
+	private static final long HANDS_PER_WIND = 635796393L;
+	
+	private final ScoringScheme			scheme		= ScoringScheme.instance();
+	private final HandSpaceEnumerator	enumerator	= new HandSpaceEnumerator(scheme);
+	
+	@Test
+	public void allHands()
+	{
+		ScoreDistribution distribution = enumerator.enumerate(0);
+		
+		assertEquals(HANDS_PER_WIND * 16, distribution.getHandCount());
+		assertEquals(distribution.getHandCount(), distribution.getElementHits(ScoreElement.MahjongHandScore));
+		assertEquals(0, distribution.getElementHits(ScoreElement.AllConcealedHandScore));
+		
+		SortedMap<Integer, Long> counts = distribution.getCounts();
+		
+		long total = 0;
+		
+		for (Map.Entry<Integer, Long> entry : counts.entrySet())
+		{
+			assertTrue(entry.getKey() <= scheme.LimitScore);
+			total += entry.getValue();
+		}
+		
+		assertEquals(distribution.getHandCount(), total);
+		
+		// Four chows and a pair of suit tiles score only for mahjong.
+		assertEquals(10, (int) counts.firstKey());
+		assertEquals(scheme.LimitScore, (int) counts.lastKey());
+	}
+	
+	@Test
+	public void flagsApplyToEveryHand()
+	{
+		ScoreDistribution distribution = enumerator.enumerate(HandScorer.FLAG_MAHJONG_PAIR_CONCEALED | HandScorer.FLAG_MAHJONG_BY_WALL_TILE);
+		
+		assertEquals(HANDS_PER_WIND * 16, distribution.getHandCount());
+		assertEquals(distribution.getHandCount(), distribution.getElementHits(ScoreElement.MahjongByWallTileHandScore));
+		assertTrue(distribution.getElementHits(ScoreElement.AllConcealedHandScore) > 0);
+		assertTrue(distribution.getElementHits(ScoreElement.AllConcealedHandScore) < distribution.getHandCount());
+		assertTrue(distribution.getCount(10) == 0);
+	}
+	
+	@Test
+	public void reducedSpace()
+	{
+		final int sets = 2;
+		
+		ScoreDistribution distribution = new HandSpaceEnumerator(scheme, ForkJoinPool.commonPool(), sets).enumerate(0);
+		
+		// Score every multiset of sets with every pair, for every combination of winds.
+		
+		List<Integer>	setCodes	= new ArrayList<>();
+		List<Integer>	pairCodes	= new ArrayList<>();
+		
+		for (int code = 0 ; code < GroupCode.COUNT ; code++)
+			if (GroupCode.isValid(code))
+				(GroupCode.getType(code) == Group.Type.PAIR ? pairCodes : setCodes).add(code);
+		
+		SortedMap<Integer, Long>	counts	= new TreeMap<>();
+		int[]						codes	= new int[sets + 1];
+		int[]						result	= new int[HandScorer.RESULT_SIZE];
+		int[]						tiles	= new int[Tile.COUNT];
+		long						hands	= 0;
+		
+		for (int pair : pairCodes)
+		{
+			for (int first = 0 ; first < setCodes.size() ; first++)
+			{
+				for (int second = first ; second < setCodes.size() ; second++)
+				{
+					codes[0] = pair;
+					codes[1] = setCodes.get(first);
+					codes[2] = setCodes.get(second);
+					
+					if (!legal(codes, tiles))
+						continue;
+					
+					for (int ownWind = 0 ; ownWind < 4 ; ownWind++)
+					{
+						for (int prevailingWind = 0 ; prevailingWind < 4 ; prevailingWind++)
+						{
+							HandScorer.score(scheme, codes, 0, codes.length, 0, ownWind, prevailingWind, result, 0);
+							
+							Long count = counts.get(result[HandScorer.RESULT_TOTAL]);
+							
+							counts.put(result[HandScorer.RESULT_TOTAL], count == null ? 1 : count + 1);
+							hands++;
+						}
+					}
+				}
+			}
+		}
+		
+		assertEquals(hands, distribution.getHandCount());
+		assertEquals(counts, distribution.getCounts());
+	}
+	
+	/**
+	 * @return True if the groups use no more than four of any tile.
+	 */
+	private static boolean legal(int[] codes, int[] tiles)
+	{
+		Arrays.fill(tiles, 0);
+		
+		for (int code : codes)
+		{
+			int tileId = GroupCode.getTileId(code);
+			
+			switch (GroupCode.getType(code))
+			{
+			case CHOW:
+				tiles[tileId]++;
+				tiles[tileId + 1]++;
+				tiles[tileId + 2]++;
+				break;
+			
+			case PAIR:
+				tiles[tileId] += 2;
+				break;
+			
+			case PUNG:
+				tiles[tileId] += 3;
+				break;
+			
+			default:
+				tiles[tileId] += 4;
+				break;
+			}
+		}
+		
+		for (int count : tiles)
+			if (count > 4)
+				return false;
+		
+		return true;
+	}
+}
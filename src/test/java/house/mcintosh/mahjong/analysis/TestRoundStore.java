@@ -0,0 +1,208 @@
+package house.mcintosh.mahjong.analysis;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import house.mcintosh.mahjong.exception.InvalidModelException;
+import house.mcintosh.mahjong.model.Game;
+import house.mcintosh.mahjong.model.Player;
+import house.mcintosh.mahjong.model.Round;
+import house.mcintosh.mahjong.model.RoundUtil;
+import house.mcintosh.mahjong.model.Wind;
+import house.mcintosh.mahjong.scoring.HandScorer;
+import house.mcintosh.mahjong.scoring.ScoredHand;
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+import house.mcintosh.mahjong.scoring.ScoringScheme.ScoreElement;
+
+public class TestRoundStore
+{
+	/** Enough games for more than one chunk of rows. */
+	private static final int GAMES = 1000;
+	
+	private final ScoringScheme scheme = ScoringScheme.instance();
+	
+	@Test
+	public void summaries()
+	{
+		List<Game>	games	= games(GAMES);
+		RoundStore	store	= new RoundStore();
+		RoundStore	serial	= new RoundStore(new ForkJoinPool(1));
+		
+		for (Game game : games)
+		{
+			store.add(game);
+			serial.add(game);
+		}
+		
+		assertTrue(store.getRowCount() > 1 << 16);
+		
+		for (RoundStore.Dimension by : RoundStore.Dimension.values())
+		{
+			RoundStore.Summary summary = store.summarise(by);
+			
+			assertEquals(by, summary.getDimension());
+			assertEquals(summary.toString(), serial.summarise(by).toString());
+			
+			long[]	counts		= new long[summary.getGroupCount()];
+			long[]	scores		= new long[summary.getGroupCount()];
+			long[]	changes		= new long[summary.getGroupCount()];
+			long[]	mahjongs	= new long[summary.getGroupCount()];
+			long[]	hits		= new long[summary.getGroupCount()];
+			
+			for (Game game : games)
+			{
+				for (int index = 0 ; index < game.getRoundCount() ; index++)
+				{
+					Round round = game.getRound(index);
+					
+					for (Wind wind : Wind.values())
+					{
+						ScoredHand	hand	= round.getHand(wind);
+						Player		player	= round.getPlayer(wind);
+						int			key;
+						
+						switch (by)
+						{
+						case PLAYER:
+							key = store.getPlayerIndex(player);
+							break;
+						
+						case SEAT:
+							key = game.getPlayerSeat(player);
+							break;
+						
+						case WIND:
+							key = wind.ordinal();
+							break;
+						
+						case PREVAILING_WIND:
+							key = round.getPrevailingWind().ordinal();
+							break;
+						
+						default:
+							key = 0;
+							break;
+						}
+						
+						counts[key]++;
+						scores[key]		+= hand.getTotalScore();
+						changes[key]	+= round.getPlayerScore(wind);
+						mahjongs[key]	+= hand.isMahjong() ? 1 : 0;
+						
+						if ((hand.getElementMask() & (1L << ScoreElement.PungConcealedDragonScore.ordinal())) != 0)
+							hits[key]++;
+					}
+				}
+			}
+			
+			for (int key = 0 ; key < summary.getGroupCount() ; key++)
+			{
+				assertEquals(counts[key], summary.getCount(key));
+				assertEquals(scores[key], summary.getTotalScore(key));
+				assertEquals(changes[key], summary.getTotalChange(key));
+				assertEquals(mahjongs[key], summary.getMahjongCount(key));
+				assertEquals(hits[key], summary.getElementHits(key, ScoreElement.PungConcealedDragonScore));
+			}
+		}
+		
+		// Every round has one mahjong hand, and settles to zero.
+		
+		RoundStore.Summary all = store.summarise(RoundStore.Dimension.ALL);
+		
+		assertEquals(store.getRoundCount(), all.getMahjongCount(0));
+		assertEquals(store.getRoundCount(), all.getElementHits(0, ScoreElement.MahjongHandScore));
+		assertEquals(0, all.getTotalChange(0));
+		assertEquals(8, store.getPlayerCount());
+	}
+	
+	@Test
+	public void countMatching()
+	{
+		List<Game>	games	= games(20);
+		RoundStore	store	= new RoundStore();
+		
+		for (Game game : games)
+			store.add(game);
+		
+		long	elements	= 1L << ScoreElement.MahjongHandScore.ordinal() | 1L << ScoreElement.NoChowsHandScore.ordinal();
+		long	expected	= 0;
+		long	wall		= 0;
+		
+		for (Game game : games)
+		{
+			for (int index = 0 ; index < game.getRoundCount() ; index++)
+			{
+				for (Wind wind : Wind.values())
+				{
+					ScoredHand hand = game.getRound(index).getHand(wind);
+					
+					if ((hand.getElementMask() & elements) == elements)
+					{
+						expected++;
+						
+						if (hand.isMahjongByWallTile())
+							wall++;
+					}
+				}
+			}
+		}
+		
+		assertEquals(expected, store.countMatching(elements, 0));
+		assertEquals(wall, store.countMatching(elements, HandScorer.FLAG_MAHJONG_BY_WALL_TILE));
+		assertEquals(store.getRowCount(), store.countMatching(0, 0));
+	}
+	
+	@Test
+	public void unsettledRound()
+	{
+		Game		game		= games(1).get(0);
+		RoundStore	store		= new RoundStore();
+		Round		settled		= game.getRound(0);
+		Round		unsettled	= new Round(settled.getPrevailingWind());
+		
+		// The same hands without the mahjong hand.
+		
+		for (Wind wind : Wind.values())
+			if (!settled.getHand(wind).isMahjong())
+				unsettled.addHand(settled.getPlayer(wind), settled.getHand(wind), wind);
+		
+		store.add(game, settled);
+		
+		try
+		{
+			store.add(game, unsettled);
+			fail();
+		}
+		catch (InvalidModelException e)
+		{
+		}
+		
+		assertEquals(4, store.getRowCount());
+		assertEquals(1, store.getRoundCount());
+	}
+	
+	/**
+	 * Complete games between two sets of four players, with random hands.
+	 */
+	private List<Game> games(int count)
+	{
+		List<Game> games = new ArrayList<>();
+		
+		for (int index = 0 ; index < count ; index++)
+		{
+			Player[] players = new Player[4];
+			
+			for (int seat = 0 ; seat < 4 ; seat++)
+				players[seat] = Player.get("Store " + (index % 2) + " " + seat);
+			
+			games.add(RoundUtil.playRandomGame(scheme, players, index % 4, 11 + index, Integer.MAX_VALUE));
+		}
+		
+		return games;
+	}
+}
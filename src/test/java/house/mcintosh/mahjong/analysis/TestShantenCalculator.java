@@ -0,0 +1,226 @@
+package house.mcintosh.mahjong.analysis;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import house.mcintosh.mahjong.model.Group;
+import house.mcintosh.mahjong.model.GroupCode;
+import house.mcintosh.mahjong.model.Tile;
+import house.mcintosh.mahjong.model.Wind;
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+
+public class TestShantenCalculator
+{
+	private final ShantenCalculator	calculator	= new ShantenCalculator(ScoringScheme.instance());
+	private final HandDecomposer	decomposer	= new HandDecomposer(ScoringScheme.instance());
+	
+	@Test
+	public void complete()
+	{
+		int[] counts = TileHistogram.create();
+		
+		add(counts, Tile.get(Tile.Suit.BAMBOO, Tile.Number.ONE), 3);
+		add(counts, Tile.get(Tile.Suit.BAMBOO, Tile.Number.TWO), 3);
+		add(counts, Tile.get(Tile.Suit.BAMBOO, Tile.Number.THREE), 3);
+		add(counts, Tile.get(Tile.Suit.CIRCLES, Tile.Number.FIVE), 2);
+		add(counts, Tile.get(Wind.EAST), 3);
+		
+		assertEquals(-1, ShantenCalculator.shanten(counts, 0));
+	}
+	
+	@Test
+	public void waiting()
+	{
+		// 234 characters and a pair of red dragons with three sets melded; waits on 1 or 4.
+		
+		int[] counts = TileHistogram.create();
+		
+		add(counts, Tile.get(Tile.Suit.CHARACTERS, Tile.Number.TWO), 1);
+		add(counts, Tile.get(Tile.Suit.CHARACTERS, Tile.Number.THREE), 1);
+		add(counts, Tile.get(Tile.Dragon.RED), 2);
+		
+		int[] melded =
+		{
+			GroupCode.encode(Group.Type.PUNG, Tile.get(Wind.NORTH), Group.Visibility.EXPOSED),
+			GroupCode.encode(Group.Type.KONG, Tile.get(Tile.Suit.BAMBOO, Tile.Number.NINE), Group.Visibility.EXPOSED),
+			GroupCode.encode(Group.Type.CHOW, Tile.get(Tile.Suit.CIRCLES, Tile.Number.FOUR), Group.Visibility.EXPOSED),
+		};
+		
+		assertEquals(0, ShantenCalculator.shanten(counts, melded.length));
+		
+		List<Wait> waits = calculator.getWaits(counts, melded, 0, Wind.EAST, Wind.EAST);
+		
+		assertEquals(2, waits.size());
+		assertEquals(Tile.get(Tile.Suit.CHARACTERS, Tile.Number.ONE), waits.get(0).getTile());
+		assertEquals(Tile.get(Tile.Suit.CHARACTERS, Tile.Number.FOUR), waits.get(1).getTile());
+		assertEquals(10+4+16+2, waits.get(1).getTotalScore());
+		assertEquals(waits.get(1).getTotalScore(), waits.get(1).toScoredHand().getTotalScore());
+	}
+	
+	@Test
+	public void meldedPair()
+	{
+		// 23 characters with three sets and a pair of red dragons melded; the pair is not a set.
+		
+		int[] counts = TileHistogram.create();
+		
+		add(counts, Tile.get(Tile.Suit.CHARACTERS, Tile.Number.TWO), 1);
+		add(counts, Tile.get(Tile.Suit.CHARACTERS, Tile.Number.THREE), 1);
+		
+		int[] melded =
+		{
+			GroupCode.encode(Group.Type.PUNG, Tile.get(Wind.NORTH), Group.Visibility.EXPOSED),
+			GroupCode.encode(Group.Type.KONG, Tile.get(Tile.Suit.BAMBOO, Tile.Number.NINE), Group.Visibility.EXPOSED),
+			GroupCode.encode(Group.Type.CHOW, Tile.get(Tile.Suit.CIRCLES, Tile.Number.FOUR), Group.Visibility.EXPOSED),
+			GroupCode.encode(Group.Type.PAIR, Tile.get(Tile.Dragon.RED), Group.Visibility.EXPOSED),
+		};
+		
+		List<Wait> waits = calculator.getWaits(counts, melded, 0, Wind.EAST, Wind.EAST);
+		
+		assertEquals(2, waits.size());
+		assertEquals(Tile.get(Tile.Suit.CHARACTERS, Tile.Number.ONE), waits.get(0).getTile());
+		assertEquals(Tile.get(Tile.Suit.CHARACTERS, Tile.Number.FOUR), waits.get(1).getTile());
+	}
+	
+	@Test
+	public void nineGates()
+	{
+		int[] counts = TileHistogram.create();
+		
+		add(counts, Tile.get(Tile.Suit.CIRCLES, Tile.Number.ONE), 3);
+		
+		for (Tile.Number number : Tile.Number.values())
+			if (number != Tile.Number.ONE && number != Tile.Number.NINE)
+				add(counts, Tile.get(Tile.Suit.CIRCLES, number), 1);
+		
+		add(counts, Tile.get(Tile.Suit.CIRCLES, Tile.Number.NINE), 3);
+		
+		List<Wait> waits = calculator.getWaits(counts, null, 0, Wind.EAST, Wind.EAST);
+		
+		assertEquals(Tile.SUIT_SIZE, waits.size());
+		
+		for (Wait wait : waits)
+			assertEquals(Tile.Suit.CIRCLES, wait.getTile().getSuit());
+	}
+	
+	@Test
+	public void farFromComplete()
+	{
+		// Thirteen unrelated tiles: one pair could be made, and nothing else.
+		
+		int[] counts = TileHistogram.create();
+		
+		for (int id = 0 ; id < Tile.FIRST_WIND_ID ; id += 3)
+			counts[id]++;
+		
+		for (int id = Tile.FIRST_WIND_ID ; id < Tile.COUNT - 3 ; id++)
+			counts[id]++;
+		
+		assertEquals(13, TileHistogram.size(counts));
+		assertEquals(8, ShantenCalculator.shanten(counts, 0));
+		assertTrue(calculator.getWaits(counts, null, 0, Wind.EAST, Wind.EAST).isEmpty());
+	}
+	
+	@Test
+	public void agreesWithDecomposer()
+	{
+		Random random = new Random(9);
+		
+		for (int hand = 0 ; hand < 2000 ; hand++)
+		{
+			int[] counts = (hand % 2 == 0) ? randomComplete(random) : randomTiles(random, 14);
+			
+			boolean complete = decomposer.best(counts, null, 0, Wind.EAST, Wind.EAST) != null;
+			
+			assertEquals(complete, ShantenCalculator.shanten(counts, 0) == -1);
+			
+			if (!complete)
+				continue;
+			
+			// Removing any tile must leave a hand that is waiting on that tile.
+			
+			for (int id = 0 ; id < Tile.COUNT ; id++)
+			{
+				if (counts[id] == 0)
+					continue;
+				
+				counts[id]--;
+				
+				assertEquals(0, ShantenCalculator.shanten(counts, 0));
+				
+				boolean found = false;
+				
+				for (Wait wait : calculator.getWaits(counts, null, 0, Wind.EAST, Wind.EAST))
+					found |= wait.getTile().getId() == id;
+				
+				assertTrue(found);
+				
+				counts[id]++;
+			}
+		}
+	}
+	
+	private static int[] randomComplete(Random random)
+	{
+		while (true)
+		{
+			int[] counts = TileHistogram.create();
+			
+			for (int set = 0 ; set < 4 ; set++)
+			{
+				if (random.nextBoolean())
+				{
+					int suit	= random.nextInt(3);
+					int number	= random.nextInt(Tile.SUIT_SIZE - 2);
+					
+					for (int offset = 0 ; offset < 3 ; offset++)
+						counts[suit * Tile.SUIT_SIZE + number + offset]++;
+				}
+				else
+				{
+					counts[random.nextInt(Tile.COUNT)] += 3;
+				}
+			}
+			
+			counts[random.nextInt(Tile.COUNT)] += 2;
+			
+			if (isValid(counts))
+				return counts;
+		}
+	}
+	
+	private static int[] randomTiles(Random random, int size)
+	{
+		int[] counts = TileHistogram.create();
+		
+		for (int tile = 0 ; tile < size ; tile++)
+		{
+			int id = random.nextInt(Tile.COUNT);
+			
+			if (counts[id] < TileHistogram.MAX_COUNT)
+				counts[id]++;
+			else
+				tile--;
+		}
+		
+		return counts;
+	}
+	
+	private static boolean isValid(int[] counts)
+	{
+		for (int count : counts)
+			if (count > TileHistogram.MAX_COUNT)
+				return false;
+		
+		return true;
+	}
+	
+	private static void add(int[] counts, Tile tile, int count)
+	{
+		counts[tile.getId()] += count;
+	}
+}
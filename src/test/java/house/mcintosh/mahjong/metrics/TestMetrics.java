@@ -0,0 +1,268 @@
+package house.mcintosh.mahjong.metrics;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+import org.junit.Test;
+
+import house.mcintosh.mahjong.analysis.TileHistogram;
+import house.mcintosh.mahjong.exception.InvalidHandException;
+import house.mcintosh.mahjong.model.Game;
+import house.mcintosh.mahjong.model.Group;
+import house.mcintosh.mahjong.model.Player;
+import house.mcintosh.mahjong.model.Round;
+import house.mcintosh.mahjong.model.RoundUtil;
+import house.mcintosh.mahjong.model.Tile;
+import house.mcintosh.mahjong.model.Wind;
+import house.mcintosh.mahjong.scoring.HandBatch;
+import house.mcintosh.mahjong.scoring.ScoredGroup;
+import house.mcintosh.mahjong.scoring.ScoredHand;
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+
+public class TestMetrics
+{
+	@Test
+	public void buckets()
+	{
+		// Every value falls in a bucket whose highest value is no lower than it and no more
+		// than an eighth above it.
+		
+		for (long value = 0 ; value < 100000 ; value++)
+			checkBucket(value);
+		
+		for (long value = 1 ; value > 0 && value < Long.MAX_VALUE / 3 ; value = value * 3 + 1)
+			checkBucket(value);
+		
+		checkBucket(Long.MAX_VALUE);
+		
+		for (int bucket = 1 ; bucket <= Histogram.bucket(Long.MAX_VALUE) ; bucket++)
+			assertEquals(Histogram.highest(bucket - 1) + 1, lowest(bucket));
+	}
+	
+	@Test
+	public void percentiles()
+	{
+		Histogram histogram = new MetricsRegistry().histogram("test");
+		
+		assertEquals(0, histogram.getPercentile(50));
+		
+		for (int value = 1 ; value <= 1000 ; value++)
+			histogram.record(value);
+		
+		assertEquals(1000, histogram.getCount());
+		assertEquals(500500, histogram.getSum());
+		assertEquals(500.5, histogram.getMean(), 0);
+		assertEquals(1000, histogram.getMax());
+		assertEquals(1000, histogram.getPercentile(100));
+		assertEquals(1, histogram.getPercentile(0));
+		
+		long median = histogram.getPercentile(50);
+		
+		assertTrue(median >= 500 && median <= 500 * 9 / 8);
+		
+		histogram.reset();
+		
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+	}
+	
+	@Test
+	public void concurrentRecording() throws Exception
+	{
+		MetricsRegistry		registry	= new MetricsRegistry();
+		final Counter		counter		= registry.counter("concurrent");
+		final Histogram		histogram	= registry.histogram("concurrent");
+		List<Thread>		threads		= new ArrayList<>();
+		
+		assertSame(counter, registry.counter("concurrent"));
+		assertSame(histogram, registry.histogram("concurrent"));
+		
+		for (int thread = 0 ; thread < 8 ; thread++)
+		{
+			threads.add(new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					for (int value = 0 ; value < 100000 ; value++)
+					{
+						counter.increment();
+						histogram.record(value);
+					}
+				}
+			}));
+		}
+		
+		for (Thread thread : threads)
+			thread.start();
+		
+		for (Thread thread : threads)
+			thread.join();
+		
+		assertEquals(800000, counter.get());
+		assertEquals(800000, histogram.getCount());
+		assertEquals(8 * (99999L * 100000 / 2), histogram.getSum());
+		assertEquals(99999, histogram.getMax());
+	}
+	
+	@Test
+	public void jmx() throws Exception
+	{
+		MetricsRegistry registry	= new MetricsRegistry();
+		String			name		= "house.mcintosh.mahjong:type=TestMetrics";
+		
+		registry.counter("calls").add(3);
+		registry.histogram("latency").record(40);
+		registry.registerMBean(name);
+		
+		try
+		{
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName	object = new ObjectName(name);
+			
+			assertEquals(3L, server.getAttribute(object, "calls"));
+			assertEquals(1L, server.getAttribute(object, "latency.count"));
+			assertEquals(40L, server.getAttribute(object, "latency.max"));
+			assertEquals(40.0, server.getAttribute(object, "latency.mean"));
+			assertEquals(6, server.getMBeanInfo(object).getAttributes().length);
+			
+			registry.counter("later").increment();
+			
+			assertEquals(1L, server.getAttribute(object, "later"));
+			
+			try
+			{
+				server.invoke(object, "reset", null, null);
+				fail();
+			}
+			catch (ReflectionException e)
+			{
+				assertTrue(e.getCause() instanceof NoSuchMethodException);
+			}
+		}
+		finally
+		{
+			registry.unregisterMBean(name);
+		}
+	}
+	
+	@Test
+	public void library()
+	{
+		ScoringScheme	scheme		= ScoringScheme.instance();
+		MetricsRegistry	registry	= Metrics.getRegistry();
+		
+		registry.reset();
+		
+		// Nothing is recorded while disabled.
+		
+		play(scheme);
+		
+		assertEquals(0, Metrics.HAND_UPDATES.get());
+		assertEquals(0, Metrics.PLAYER_SCORE_CALLS.get());
+		assertEquals(0, Metrics.ADD_ROUND_NANOS.getCount());
+		
+		ScoredHand early = RoundUtil.createHand2(Wind.EAST, Wind.EAST);
+		
+		Metrics.setEnabled(true);
+		
+		try
+		{
+			play(scheme);
+			
+			assertTrue(Metrics.HAND_UPDATES.get() > 0);
+			assertEquals(Metrics.HAND_UPDATES.get(), Metrics.HAND_UPDATES_PER_HAND.getSum());
+			assertEquals(8 * 4, Metrics.HAND_UPDATES_PER_HAND.getCount());
+			assertTrue(Metrics.PLAYER_SCORE_CALLS.get() >= 8 * 4);
+			assertEquals(8, Metrics.ADD_ROUND_NANOS.getCount());
+			
+			// A hand scored while disabled has no count to record.
+			
+			new Round(Wind.EAST).addHand(Player.get("Metrics 1"), early, Wind.EAST);
+			
+			assertEquals(8 * 4, Metrics.HAND_UPDATES_PER_HAND.getCount());
+			
+			long constructed = Metrics.GROUPS_CONSTRUCTED.get();
+			
+			new ScoredGroup(new Group(Group.Type.PUNG, new Tile(Tile.Dragon.RED), Group.Visibility.EXPOSED), scheme, Wind.EAST, Wind.EAST);
+			
+			assertEquals(constructed + 1, Metrics.GROUPS_CONSTRUCTED.get());
+			
+			ScoredHand hand = new ScoredHand(scheme);
+			
+			try
+			{
+				for (int index = 0 ; index < 6 ; index++)
+					hand.add(ScoredGroup.get(new Group(Group.Type.PUNG, new Tile(Tile.Dragon.RED), Group.Visibility.EXPOSED), scheme, Wind.EAST, Wind.EAST));
+				
+				fail();
+			}
+			catch (InvalidHandException e)
+			{
+			}
+			
+			assertEquals(1, Metrics.INVALID_HANDS.get());
+			
+			// Other places that reject a hand count it too.
+			
+			try
+			{
+				TileHistogram.validate(new int[1]);
+				fail();
+			}
+			catch (InvalidHandException e)
+			{
+			}
+			
+			try
+			{
+				new HandBatch(new int[0], new int[0], new int[1], new int[0], new int[0]);
+				fail();
+			}
+			catch (InvalidHandException e)
+			{
+			}
+			
+			assertEquals(3, Metrics.INVALID_HANDS.get());
+		}
+		finally
+		{
+			Metrics.setEnabled(false);
+			registry.reset();
+		}
+	}
+	
+	private static void play(ScoringScheme scheme)
+	{
+		Player[]	players	= { Player.get("Metrics 1"), Player.get("Metrics 2"), Player.get("Metrics 3"), Player.get("Metrics 4") };
+		Game		game	= new Game(scheme);
+		
+		for (int seat = 0 ; seat < 4 ; seat++)
+			game.setPlayer(players[seat], seat);
+		
+		game.startGame(players[0]);
+		
+		for (int round = 0 ; round < 8 ; round++)
+			game.addRound(RoundUtil.createRound(players, game.getPrevailingWind(), game.getEastPlayer(), players[round % 4]));
+	}
+	
+	private static void checkBucket(long value)
+	{
+		long highest = Histogram.highest(Histogram.bucket(value));
+		
+		assertTrue(value + " in bucket to " + highest, highest >= value);
+		assertTrue(value + " in bucket to " + highest, highest - value <= value / 8);
+	}
+	
+	private static long lowest(int bucket)
+	{
+		return bucket == 0 ? 0 : Histogram.highest(bucket - 1) + 1;
+	}
+}
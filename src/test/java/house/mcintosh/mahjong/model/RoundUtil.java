@@ -3,10 +3,13 @@ package house.mcintosh.mahjong.model;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.SplittableRandom;
+
 import house.mcintosh.mahjong.exception.InvalidModelException;
 import house.mcintosh.mahjong.scoring.ScoredGroup;
 import house.mcintosh.mahjong.scoring.ScoredHand;
 import house.mcintosh.mahjong.scoring.ScoringScheme;
+import house.mcintosh.mahjong.simulation.HandGenerator;
 
 public class RoundUtil
 {
@@ -53,6 +56,30 @@ public class RoundUtil
 		return round;
 	}
 	
+	/**
+	 * Play a game of random rounds, with a mahjong hand in each from a random player.
+	 * 
+	 * @param players	Player in each seat, or null for an empty seat.
+	 * @return The game, played until it finishes or has maxRounds rounds.
+	 */
+	public static Game playRandomGame(ScoringScheme scheme, Player[] players, int eastSeat, long seed, int maxRounds)
+	{
+		SplittableRandom	random		= new SplittableRandom(seed);
+		HandGenerator		generator	= new HandGenerator(scheme);
+		Game				game		= new Game(scheme);
+		
+		for (int seat = 0 ; seat < players.length ; seat++)
+			if (players[seat] != null)
+				game.setPlayer(players[seat], seat);
+		
+		game.startGame(players[eastSeat]);
+		
+		while (!game.isFinished() && game.getRoundCount() < maxRounds)
+			game.addRound(generator.round(random, game));
+		
+		return game;
+	}
+	
 	public static ScoredHand createMahjongHand136(Wind playerWind, Wind prevailingWind)
 	{
 		ScoringScheme scheme = ScoringScheme.instance();
@@ -5,6 +5,7 @@ import static org.junit.Assert.*;
 import org.junit.Test;
 
 import house.mcintosh.mahjong.exception.InvalidGameStateException;
+import house.mcintosh.mahjong.exception.InvalidModelException;
 import house.mcintosh.mahjong.scoring.ScoringScheme;
 
 public class TestGame
@@ -148,5 +149,110 @@ public class TestGame
 			// OK - expected.
 		}
 	}
+	
+	@Test
+	public void threePlayersWithEmptySeat()
+	{
+		Game game = new Game(ScoringScheme.instance());
+		
+		Player mickey	= Player.get("Mickey");
+		Player donald	= Player.get("Donald");
+		Player goofy	= Player.get("Goofy");
+		
+		game.setPlayer(mickey, 0);
+		game.setPlayer(donald, 1);
+		game.setPlayer(goofy, 3);
+		
+		game.startGame(donald);
+		
+		// Winds count the empty seat.
+		
+		assertEquals(Wind.EAST, game.getPlayerWind(donald));
+		assertEquals(Wind.WEST, game.getPlayerWind(goofy));
+		assertEquals(Wind.NORTH, game.getPlayerWind(mickey));
+		assertEquals(1, game.getWindSeat(Wind.EAST));
+		assertEquals(3, game.getWindSeat(Wind.WEST));
+		assertNull(game.getSeatPlayer(game.getWindSeat(Wind.SOUTH)));
+		assertEquals(3, game.getPlayerSeat(goofy));
+		
+		try
+		{
+			game.getPlayerSeat(Player.get("Pluto"));
+			fail();
+		}
+		catch (InvalidModelException e)
+		{
+		}
+		
+		Round round = new Round(game.getPrevailingWind());
+		
+		round.addHand(donald, RoundUtil.createHand2(Wind.EAST, Wind.EAST), Wind.EAST);
+		round.addHand(goofy, RoundUtil.createMahjongHand136(Wind.WEST, Wind.EAST), Wind.WEST);
+		round.addHand(mickey, RoundUtil.createHand16(Wind.NORTH, Wind.EAST), Wind.NORTH);
+		
+		game.addRound(round);
+		
+		assertEquals(2000 + round.getPlayerScore(donald), game.getPlayerScore(donald));
+		assertEquals(2000 + round.getPlayerScore(goofy), game.getSeatScore(3));
+		assertEquals(0, game.getScores()[2]);
+		assertEquals(6000, game.getSeatScore(0) + game.getSeatScore(1) + game.getSeatScore(3));
+		
+		// East moves on past the empty seat.
+		
+		assertEquals(goofy, game.getEastPlayer());
+		assertEquals(Wind.EAST, game.getSeatWind(3));
+		assertEquals(Wind.SOUTH, game.getPlayerWind(mickey));
+		assertEquals(Wind.WEST, game.getPlayerWind(donald));
+	}
+	
+	@Test
+	public void listenersSeeUpdatedGame()
+	{
+		final Game game = new Game(ScoringScheme.instance());
+		
+		Player[] players = { Player.get("Mickey"), Player.get("Donald"), Player.get("Pluto"), Player.get("Goofy") };
+		
+		for (int seat = 0 ; seat < 4 ; seat++)
+			game.setPlayer(players[seat], seat);
+		
+		game.startGame(players[0]);
+		
+		final int[] seen = new int[2];
+		
+		// The first listener fails, which must not stop the second being told or undo the round.
+		
+		game.addScoreListener(new Game.ScoreListener()
+		{
+			@Override
+			public void scoresChanged(Game changed, int[] changes)
+			{
+				throw new IllegalStateException("Listener failed");
+			}
+		});
+		
+		game.addScoreListener(new Game.ScoreListener()
+		{
+			@Override
+			public void scoresChanged(Game changed, int[] changes)
+			{
+				seen[0] = changed.getRoundCount();
+				seen[1] = changed.getPlayerSeat(changed.getEastPlayer());
+			}
+		});
+		
+		try
+		{
+			game.addRound(RoundUtil.createRound(players, Wind.EAST, players[0], players[2]));
+			fail();
+		}
+		catch (IllegalStateException e)
+		{
+		}
+		
+		assertEquals(1, game.getRoundCount());
+		assertEquals(1, seen[0]);
+		assertEquals(1, seen[1]);
+		assertEquals(players[1], game.getEastPlayer());
+		assertEquals(8000, game.getSeatScore(0) + game.getSeatScore(1) + game.getSeatScore(2) + game.getSeatScore(3));
+	}
 }
-
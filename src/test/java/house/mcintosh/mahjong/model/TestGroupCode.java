@@ -0,0 +1,78 @@
+package house.mcintosh.mahjong.model;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import house.mcintosh.mahjong.exception.InvalidModelException;
+
+public class TestGroupCode
+{
+	@Test
+	public void roundTrip()
+	{
+		int validCodes = 0;
+		
+		for (int code = 0 ; code < GroupCode.COUNT ; code++)
+		{
+			if (!GroupCode.isValid(code))
+				continue;
+			
+			validCodes++;
+			
+			Group group = GroupCode.decode(code);
+			
+			assertEquals(code, group.getCode());
+			assertEquals(group.getType(), GroupCode.getType(code));
+			assertEquals(group.getVisibility(), GroupCode.getVisibility(code));
+			assertEquals(group.isConcealed(), GroupCode.isConcealed(code));
+			assertEquals(group.getFirstTile(), GroupCode.getFirstTile(code));
+			assertEquals(group.getTileType(), GroupCode.getTileType(code));
+			assertEquals(group.getType().getHandSize(), GroupCode.getHandSize(code));
+		}
+		
+		// Pair and chow are always exposed, and chows cannot start at eight or nine.
+		assertEquals(34 + 3*7 + 34*2 + 34*2, validCodes);
+	}
+	
+	@Test
+	public void encodeNormalises()
+	{
+		Group chow = new Group(Group.Type.CHOW, Tile.get(Tile.Suit.CIRCLES, Tile.Number.NINE), Group.Visibility.CONCEALED);
+		
+		assertEquals(chow.getCode(), GroupCode.encode(Group.Type.CHOW, Tile.get(Tile.Suit.CIRCLES, Tile.Number.NINE), Group.Visibility.CONCEALED));
+		assertEquals(chow.getCode(), GroupCode.encode(Group.Type.CHOW, Tile.get(Tile.Suit.CIRCLES, Tile.Number.SEVEN), Group.Visibility.EXPOSED));
+		assertEquals(Group.Visibility.EXPOSED, GroupCode.getVisibility(chow.getCode()));
+		assertEquals(Tile.Number.SEVEN, GroupCode.getFirstTile(chow.getCode()).getNumber());
+		
+		Group pung = new Group(Group.Type.PUNG, Tile.get(Wind.WEST), Group.Visibility.CONCEALED);
+		
+		assertEquals(pung.getCode(), GroupCode.encode(Group.Type.PUNG, Tile.get(Wind.WEST), Group.Visibility.CONCEALED));
+		assertSame(GroupCode.decode(pung.getCode()), GroupCode.decode(pung.getCode()));
+	}
+	
+	@Test
+	public void tilesShared()
+	{
+		Group chow = new Group(Group.Type.CHOW, new Tile(Tile.Suit.BAMBOO, Tile.Number.EIGHT), Group.Visibility.EXPOSED);
+		
+		assertSame(GroupCode.getTiles(chow.getCode()), chow.getTiles());
+		assertSame(chow.getTiles(), GroupCode.decode(chow.getCode()).getTiles());
+		assertEquals(3, chow.getTiles().size());
+		assertSame(Tile.get(Tile.Suit.BAMBOO, Tile.Number.SEVEN), chow.getTiles().get(0));
+		assertSame(Tile.get(Tile.Suit.BAMBOO, Tile.Number.NINE), chow.getTiles().get(2));
+		
+		Group kong = new Group(Group.Type.KONG, Tile.get(Tile.Dragon.GREEN), Group.Visibility.CONCEALED);
+		
+		assertEquals(4, kong.getTiles().size());
+		
+		for (Tile tile : kong.getTiles())
+			assertSame(Tile.get(Tile.Dragon.GREEN), tile);
+	}
+	
+	@Test(expected = InvalidModelException.class)
+	public void chowOfHonours()
+	{
+		GroupCode.encode(Group.Type.CHOW, Tile.get(Tile.Dragon.RED), Group.Visibility.EXPOSED);
+	}
+}
@@ -0,0 +1,132 @@
+package house.mcintosh.mahjong.model;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import house.mcintosh.mahjong.scoring.HandScorer;
+import house.mcintosh.mahjong.scoring.ScoredHand;
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+
+public class TestHandParser
+{
+	private final HandParser parser = new HandParser();
+	
+	@Test
+	public void groups()
+	{
+		assertTrue(parser.parse("123b 555c! EEE RR"));
+		assertEquals(HandParser.ERROR_NONE, parser.getErrorCode());
+		assertEquals(-1, parser.getErrorPosition());
+		assertEquals(4, parser.getGroupCount());
+		
+		assertEquals(GroupCode.encode(Group.Type.CHOW, Tile.get(Tile.Suit.BAMBOO, Tile.Number.ONE), Group.Visibility.EXPOSED), parser.getGroupCode(0));
+		assertEquals(GroupCode.encode(Group.Type.PUNG, Tile.get(Tile.Suit.CHARACTERS, Tile.Number.FIVE), Group.Visibility.CONCEALED), parser.getGroupCode(1));
+		assertEquals(GroupCode.encode(Group.Type.PUNG, Tile.get(Wind.EAST), Group.Visibility.EXPOSED), parser.getGroupCode(2));
+		assertEquals(GroupCode.encode(Group.Type.PAIR, Tile.get(Tile.Dragon.RED), Group.Visibility.EXPOSED), parser.getGroupCode(3));
+	}
+	
+	@Test
+	public void kongs()
+	{
+		assertTrue(parser.parse("  9999o\tGGG+! PPPP+ 111c!+ "));
+		assertEquals(4, parser.getGroupCount());
+		
+		assertEquals(GroupCode.encode(Group.Type.KONG, Tile.get(Tile.Suit.CIRCLES, Tile.Number.NINE), Group.Visibility.EXPOSED), parser.getGroupCode(0));
+		assertEquals(GroupCode.encode(Group.Type.KONG, Tile.get(Tile.Dragon.GREEN), Group.Visibility.CONCEALED), parser.getGroupCode(1));
+		assertEquals(GroupCode.encode(Group.Type.KONG, Tile.get(Tile.Dragon.WHITE), Group.Visibility.EXPOSED), parser.getGroupCode(2));
+		assertEquals(GroupCode.encode(Group.Type.KONG, Tile.get(Tile.Suit.CHARACTERS, Tile.Number.ONE), Group.Visibility.CONCEALED), parser.getGroupCode(3));
+	}
+	
+	@Test
+	public void errors()
+	{
+		assertError("123b 555", HandParser.ERROR_MISSING_SUIT, 8);
+		assertError("123b 55x5c", HandParser.ERROR_MISSING_SUIT, 7);
+		assertError("124b", HandParser.ERROR_INVALID_GROUP, 0);
+		assertError("EEE 55555c", HandParser.ERROR_INVALID_GROUP, 8);
+		assertError("E", HandParser.ERROR_INVALID_GROUP, 0);
+		assertError("RR+", HandParser.ERROR_INVALID_KONG, 2);
+		assertError("789c+", HandParser.ERROR_INVALID_KONG, 4);
+		assertError("EEE x", HandParser.ERROR_UNEXPECTED_CHARACTER, 4);
+		assertError("EEEN", HandParser.ERROR_UNEXPECTED_CHARACTER, 3);
+		assertError("55c!?", HandParser.ERROR_UNEXPECTED_CHARACTER, 4);
+		assertError("012c", HandParser.ERROR_UNEXPECTED_CHARACTER, 0);
+		
+		StringBuilder tooMany = new StringBuilder();
+		
+		for (int group = 0 ; group <= HandParser.MAX_GROUPS ; group++)
+			tooMany.append("EE ");
+		
+		assertError(tooMany, HandParser.ERROR_TOO_MANY_GROUPS, 3 * HandParser.MAX_GROUPS);
+		
+		// The parser can be reused after an error.
+		
+		assertTrue(parser.parse("EE"));
+		assertEquals(HandParser.ERROR_NONE, parser.getErrorCode());
+		assertEquals(1, parser.getGroupCount());
+	}
+	
+	@Test
+	public void range()
+	{
+		String text = "555c! | 123b RR";
+		
+		assertTrue(parser.parse(text, 8, text.length()));
+		assertEquals(2, parser.getGroupCount());
+		
+		assertFalse(parser.parse(text, 0, text.length()));
+		assertEquals(6, parser.getErrorPosition());
+	}
+	
+	@Test
+	public void bytes()
+	{
+		ByteBuffer buffer = ByteBuffer.wrap("xx 123b 555c! EEE RR".getBytes(StandardCharsets.US_ASCII));
+		
+		buffer.position(3);
+		
+		assertTrue(parser.parse(buffer));
+		assertEquals(3, buffer.position());
+		assertEquals(4, parser.getGroupCount());
+		
+		buffer.position(0);
+		
+		assertFalse(parser.parse(buffer));
+		assertEquals(HandParser.ERROR_UNEXPECTED_CHARACTER, parser.getErrorCode());
+		assertEquals(0, parser.getErrorPosition());
+	}
+	
+	@Test
+	public void scoredHand()
+	{
+		ScoringScheme scheme = ScoringScheme.instance();
+		
+		assertTrue(parser.parse("123b 555c! EEE+ WWW 99o"));
+		
+		ScoredHand hand		= parser.toScoredHand(scheme, HandScorer.FLAG_MAHJONG_BY_WALL_TILE, Wind.EAST, Wind.SOUTH);
+		ScoredHand expected	= new ScoredHand.Builder(scheme)
+				.add(new Group(Group.Type.CHOW, Tile.get(Tile.Suit.BAMBOO, Tile.Number.ONE), Group.Visibility.EXPOSED).getCode(), Wind.EAST, Wind.SOUTH)
+				.add(new Group(Group.Type.PUNG, Tile.get(Tile.Suit.CHARACTERS, Tile.Number.FIVE), Group.Visibility.CONCEALED).getCode(), Wind.EAST, Wind.SOUTH)
+				.add(new Group(Group.Type.KONG, Tile.get(Wind.EAST), Group.Visibility.EXPOSED).getCode(), Wind.EAST, Wind.SOUTH)
+				.add(new Group(Group.Type.PUNG, Tile.get(Wind.WEST), Group.Visibility.EXPOSED).getCode(), Wind.EAST, Wind.SOUTH)
+				.add(new Group(Group.Type.PAIR, Tile.get(Tile.Suit.CIRCLES, Tile.Number.NINE), Group.Visibility.EXPOSED).getCode(), Wind.EAST, Wind.SOUTH)
+				.setMahjongByWallTile(true)
+				.build();
+		
+		assertTrue(hand.isMahjong());
+		assertArrayEquals(expected.getGroupCodes(), hand.getGroupCodes());
+		assertEquals(expected.getTotalScore(), hand.getTotalScore());
+	}
+	
+	private void assertError(CharSequence text, int code, int position)
+	{
+		assertFalse(parser.parse(text));
+		assertEquals(code, parser.getErrorCode());
+		assertEquals(position, parser.getErrorPosition());
+		assertEquals(0, parser.getGroupCount());
+	}
+}
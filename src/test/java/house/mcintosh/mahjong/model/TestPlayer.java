@@ -0,0 +1,101 @@
+package house.mcintosh.mahjong.model;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class TestPlayer
+{
+	@Test
+	public void interned()
+	{
+		Player player = Player.get("Interned");
+		
+		assertSame(player, Player.get("Interned"));
+		assertEquals("Interned", player.getName());
+		assertNotEquals(player.getId(), Player.get("Interned 2").getId());
+		assertTrue(player.getId() < Player.getIdLimit());
+	}
+	
+	@Test
+	public void concurrent() throws Exception
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		
+		try
+		{
+			List<Future<Player[]>> futures = new ArrayList<>();
+			
+			for (int thread = 0 ; thread < 4 ; thread++)
+			{
+				futures.add(executor.submit(new Callable<Player[]>()
+				{
+					@Override
+					public Player[] call()
+					{
+						Player[] players = new Player[1000];
+						
+						for (int index = 0 ; index < players.length ; index++)
+							players[index] = Player.get("Concurrent " + index);
+						
+						return players;
+					}
+				}));
+			}
+			
+			Player[] first = futures.get(0).get();
+			
+			for (Future<Player[]> future : futures)
+			{
+				Player[] players = future.get();
+				
+				for (int index = 0 ; index < players.length ; index++)
+					assertSame(first[index], players[index]);
+			}
+			
+			Set<Integer> ids = new HashSet<>();
+			
+			for (Player player : first)
+				assertTrue(ids.add(player.getId()));
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+	
+	@Test
+	public void reclaimed()
+	{
+		for (int index = 0 ; index < 1000 ; index++)
+			Player.get("Unreferenced " + index);
+		
+		int registered = Player.getRegisteredCount();
+		
+		// Collection of weakly reachable objects is not guaranteed, so clear the references
+		// as the collector would.
+		
+		for (int index = 0 ; index < 1000 ; index++)
+			Player.release("Unreferenced " + index);
+		
+		assertTrue(Player.getRegisteredCount() <= registered - 1000);
+		
+		// Ids are reused rather than growing without limit.
+		
+		int limit = Player.getIdLimit();
+		
+		for (int index = 0 ; index < 1000 ; index++)
+			Player.get("Reused " + index);
+		
+		assertEquals(limit, Player.getIdLimit());
+	}
+}
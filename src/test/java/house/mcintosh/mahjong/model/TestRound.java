@@ -4,6 +4,7 @@ import static org.junit.Assert.*;
 
 import org.junit.Test;
 
+import house.mcintosh.mahjong.exception.InvalidModelException;
 import house.mcintosh.mahjong.scoring.ScoredGroup;
 import house.mcintosh.mahjong.scoring.ScoredHand;
 import house.mcintosh.mahjong.scoring.ScoringScheme;
@@ -102,4 +103,60 @@ public class TestRound
 		assertEquals(-136 +32-4+16-4, northScore);
 		assertEquals(0, eastScore + southScore + westScore + northScore);		
 	}
+	
+	@Test
+	public void settlement()
+	{
+		Wind prevailingWind = Wind.SOUTH;
+		
+		Round round = new Round(prevailingWind);
+		
+		Player eastPlayer	= Player.get("East Player");
+		Player westPlayer	= Player.get("West Player");
+		Player northPlayer	= Player.get("North Player");
+		
+		// Three players, with the south seat empty.
+		
+		round.addHand(northPlayer, RoundUtil.createHand16(Wind.NORTH, prevailingWind), Wind.NORTH);
+		round.addHand(westPlayer, RoundUtil.createMahjongHand136(Wind.WEST, prevailingWind), Wind.WEST);
+		round.addHand(eastPlayer, RoundUtil.createHand2(Wind.EAST, prevailingWind), Wind.EAST);
+		
+		int[] settlement = round.getSettlement();
+		
+		assertEquals(-136*2 -32+4, settlement[Wind.EAST.ordinal()]);
+		assertEquals(0, settlement[Wind.SOUTH.ordinal()]);
+		assertEquals(+136*3, settlement[Wind.WEST.ordinal()]);
+		assertEquals(-136 +32-4, settlement[Wind.NORTH.ordinal()]);
+		
+		for (Wind wind : Wind.values())
+			assertEquals(settlement[wind.ordinal()], round.getPlayerScore(wind));
+		
+		assertEquals(settlement[Wind.WEST.ordinal()], round.getPlayerScore(westPlayer));
+		assertEquals(westPlayer, round.getPlayer(Wind.WEST));
+		assertNull(round.getPlayer(Wind.SOUTH));
+		
+		// The settlement is a copy.
+		
+		settlement[Wind.EAST.ordinal()] = 0;
+		
+		assertEquals(-136*2 -32+4, round.getPlayerScore(eastPlayer));
+	}
+	
+	@Test(expected = InvalidModelException.class)
+	public void duplicateWind()
+	{
+		Round round = new Round(Wind.EAST);
+		
+		round.addHand(Player.get("East Player"), RoundUtil.createHand2(Wind.EAST, Wind.EAST), Wind.EAST);
+		round.addHand(Player.get("South Player"), RoundUtil.createHand4(Wind.EAST, Wind.EAST), Wind.EAST);
+	}
+	
+	@Test(expected = InvalidModelException.class)
+	public void noMahjong()
+	{
+		Round round = new Round(Wind.EAST);
+		
+		round.addHand(Player.get("East Player"), RoundUtil.createHand2(Wind.EAST, Wind.EAST), Wind.EAST);
+		round.getSettlement();
+	}
 }
@@ -0,0 +1,75 @@
+package house.mcintosh.mahjong.model;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class TestTile
+{
+	@Test
+	public void idsAreDenseAndUnique()
+	{
+		Set<Tile> tiles = new HashSet<>();
+		
+		for (int id = 0 ; id < Tile.COUNT ; id++)
+		{
+			Tile tile = Tile.fromId(id);
+			
+			assertEquals(id, tile.getId());
+			assertTrue(tiles.add(tile));
+		}
+		
+		assertEquals(Tile.COUNT, tiles.size());
+	}
+	
+	@Test
+	public void factoriesReturnSharedInstance()
+	{
+		assertSame(Tile.get(Tile.Suit.BAMBOO, Tile.Number.FIVE), Tile.get(Tile.Suit.BAMBOO, Tile.Number.FIVE));
+		assertSame(Tile.get(Wind.NORTH), Tile.get(Wind.NORTH));
+		assertSame(Tile.get(Tile.Dragon.GREEN), Tile.get(Tile.Dragon.GREEN));
+		
+		// Constructed tiles are equal to, but not the same as, the shared instance.
+		
+		Tile constructed = new Tile(Tile.Suit.CIRCLES, Tile.Number.TWO);
+		
+		assertEquals(Tile.get(Tile.Suit.CIRCLES, Tile.Number.TWO), constructed);
+		assertEquals(Tile.get(Tile.Suit.CIRCLES, Tile.Number.TWO).hashCode(), constructed.hashCode());
+		assertSame(Tile.get(Tile.Suit.CIRCLES, Tile.Number.TWO), constructed.canonical());
+		assertNotEquals(Tile.get(Tile.Suit.BAMBOO, Tile.Number.TWO), constructed);
+	}
+	
+	@Test
+	public void chowSuccessors()
+	{
+		Tile tile = Tile.get(Tile.Suit.CHARACTERS, Tile.Number.ONE);
+		
+		for (int count = 1 ; count < Tile.SUIT_SIZE ; count++)
+		{
+			Tile next = tile.getNextNumber();
+			
+			assertEquals(Tile.Suit.CHARACTERS, next.getSuit());
+			assertEquals(tile.getNumber().ordinal() + 1, next.getNumber().ordinal());
+			assertEquals(next.getId(), Tile.nextId(tile.getId()));
+			
+			tile = next;
+		}
+		
+		assertEquals(-1, Tile.nextId(tile.getId()));
+		assertEquals(-1, Tile.nextId(Tile.get(Wind.EAST).getId()));
+		assertEquals(-1, Tile.nextId(Tile.get(Tile.Dragon.WHITE).getId()));
+	}
+	
+	@Test
+	public void groupsShareTiles()
+	{
+		Group chow = new Group(Group.Type.CHOW, new Tile(Tile.Suit.BAMBOO, Tile.Number.THREE));
+		
+		assertSame(Tile.get(Tile.Suit.BAMBOO, Tile.Number.THREE), chow.getTiles().get(0));
+		assertSame(Tile.get(Tile.Suit.BAMBOO, Tile.Number.FOUR), chow.getTiles().get(1));
+		assertSame(Tile.get(Tile.Suit.BAMBOO, Tile.Number.FIVE), chow.getTiles().get(2));
+	}
+}
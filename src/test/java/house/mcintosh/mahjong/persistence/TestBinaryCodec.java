@@ -0,0 +1,200 @@
+package house.mcintosh.mahjong.persistence;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+import house.mcintosh.mahjong.exception.InvalidModelException;
+import house.mcintosh.mahjong.model.Game;
+import house.mcintosh.mahjong.model.GroupCode;
+import house.mcintosh.mahjong.model.Player;
+import house.mcintosh.mahjong.model.Round;
+import house.mcintosh.mahjong.model.RoundUtil;
+import house.mcintosh.mahjong.model.Wind;
+import house.mcintosh.mahjong.scoring.HandScorer;
+import house.mcintosh.mahjong.scoring.ScoredHand;
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+import house.mcintosh.mahjong.simulation.HandGenerator;
+
+public class TestBinaryCodec
+{
+	private final ScoringScheme scheme = ScoringScheme.instance();
+	
+	@Test
+	public void hands()
+	{
+		SplittableRandom	random		= new SplittableRandom(5);
+		HandGenerator		generator	= new HandGenerator(scheme);
+		Wind[]				winds		= new Wind[2];
+		
+		for (int count = 0 ; count < 1000 ; count++)
+		{
+			Wind		ownWind			= Wind.values()[random.nextInt(4)];
+			Wind		prevailingWind	= Wind.values()[random.nextInt(4)];
+			ScoredHand	hand			= count % 2 == 0
+					? generator.mahjongHand(random, ownWind, prevailingWind)
+					: generator.losingHand(random, ownWind, prevailingWind);
+			
+			generator.reset();
+			
+			ByteBuffer buffer = ByteBuffer.allocate(BinaryCodec.handSize(hand));
+			
+			BinaryCodec.encode(buffer, hand, ownWind, prevailingWind);
+			
+			assertFalse(buffer.hasRemaining());
+			assertTrue(buffer.capacity() < 16);
+			
+			buffer.flip();
+			
+			ScoredHand decoded = BinaryCodec.decodeHand(buffer, scheme, winds);
+			
+			assertFalse(buffer.hasRemaining());
+			assertArrayEquals(hand.getGroupCodes(), decoded.getGroupCodes());
+			assertEquals(hand.getFlags(), decoded.getFlags());
+			assertEquals(hand.getTotalScore(), decoded.getTotalScore());
+			assertEquals(ownWind, winds[0]);
+			assertEquals(prevailingWind, winds[1]);
+		}
+	}
+	
+	@Test
+	public void allGroupsAndFlags()
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(16);
+		
+		for (int code = 0 ; code < GroupCode.COUNT ; code++)
+		{
+			if (!GroupCode.isValid(code))
+				continue;
+			
+			ScoredHand hand = new ScoredHand.Builder(scheme).add(code, Wind.WEST, Wind.SOUTH).setFlags(HandScorer.FLAGS_ALL).build();
+			
+			buffer.clear();
+			BinaryCodec.encode(buffer, hand, Wind.WEST, Wind.SOUTH);
+			buffer.flip();
+			
+			ScoredHand decoded = BinaryCodec.decodeHand(buffer, scheme, null);
+			
+			assertEquals(code, decoded.getGroup(0).getCode());
+			assertEquals(HandScorer.FLAGS_ALL, decoded.getFlags());
+		}
+	}
+	
+	@Test
+	public void round()
+	{
+		SplittableRandom	random		= new SplittableRandom(9);
+		HandGenerator		generator	= new HandGenerator(scheme);
+		Round				round		= new Round(Wind.SOUTH);
+		
+		round.addHand(Player.get("Codec East"), generator.losingHand(random, Wind.EAST, Wind.SOUTH), Wind.EAST);
+		round.addHand(Player.get("Codec West"), generator.mahjongHand(random, Wind.WEST, Wind.SOUTH), Wind.WEST);
+		round.addHand(Player.get("Codec North"), generator.losingHand(random, Wind.NORTH, Wind.SOUTH), Wind.NORTH);
+		
+		ByteBuffer buffer = ByteBuffer.allocate(BinaryCodec.roundSize(round));
+		
+		BinaryCodec.encode(buffer, round);
+		assertFalse(buffer.hasRemaining());
+		buffer.flip();
+		
+		Round decoded = BinaryCodec.decodeRound(buffer, scheme);
+		
+		assertEquals(Wind.SOUTH, decoded.getPrevailingWind());
+		assertNull(decoded.getPlayer(Wind.SOUTH));
+		assertArrayEquals(round.getSettlement(), decoded.getSettlement());
+		
+		for (Wind wind : new Wind[] { Wind.EAST, Wind.WEST, Wind.NORTH })
+		{
+			assertSame(round.getPlayer(wind), decoded.getPlayer(wind));
+			assertArrayEquals(round.getHand(wind).getGroupCodes(), decoded.getHand(wind).getGroupCodes());
+		}
+	}
+	
+	@Test
+	public void game()
+	{
+		Player[]	players	= { Player.get("Codec 1"), Player.get("Codec 2"), null, Player.get("Codec 3") };
+		Game		game	= RoundUtil.playRandomGame(scheme, players, 1, 11, Integer.MAX_VALUE);
+		
+		ByteBuffer buffer = ByteBuffer.allocate(BinaryCodec.gameSize(game));
+		
+		BinaryCodec.encode(buffer, game);
+		assertFalse(buffer.hasRemaining());
+		buffer.flip();
+		
+		Game decoded = BinaryCodec.decodeGame(buffer, scheme);
+		
+		assertTrue(decoded.isFinished());
+		assertEquals(game.getRoundCount(), decoded.getRoundCount());
+		assertEquals(game.getStartingSeat(), decoded.getStartingSeat());
+		assertNull(decoded.getSeatPlayer(2));
+		assertArrayEquals(game.getScores(), decoded.getScores());
+	}
+	
+	@Test
+	public void unstartedGame()
+	{
+		Game game = new Game(scheme);
+		
+		game.setPlayer(Player.get("Codec 1"), 2);
+		
+		ByteBuffer buffer = ByteBuffer.allocate(BinaryCodec.gameSize(game));
+		
+		BinaryCodec.encode(buffer, game);
+		buffer.flip();
+		
+		Game decoded = BinaryCodec.decodeGame(buffer, scheme);
+		
+		assertFalse(decoded.isStarted());
+		assertSame(Player.get("Codec 1"), decoded.getSeatPlayer(2));
+	}
+	
+	@Test(expected = InvalidModelException.class)
+	public void unknownVersion()
+	{
+		BinaryCodec.decodeHand(ByteBuffer.wrap(new byte[] { BinaryCodec.VERSION + 1, 0, 0, 0 }), scheme, null);
+	}
+	
+	@Test(expected = InvalidModelException.class)
+	public void invalidGroup()
+	{
+		BinaryCodec.decodeHand(ByteBuffer.wrap(new byte[] { BinaryCodec.VERSION, 1, 0, 0, (byte) 200 }), scheme, null);
+	}
+	
+	@Test
+	public void invalidStartingSeat()
+	{
+		Game game = new Game(scheme);
+		
+		game.setPlayer(Player.get("Codec 1"), 0);
+		game.setPlayer(Player.get("Codec 2"), 1);
+		game.startGame(Player.get("Codec 1"));
+		
+		ByteBuffer buffer = ByteBuffer.allocate(BinaryCodec.gameSize(game));
+		
+		BinaryCodec.encode(buffer, game);
+		
+		// The starting seat follows the version, seat mask and two names.  Try an empty seat
+		// and seats out of range.
+		
+		int position = 2 + 2 * (2 + "Codec 1".length());
+		
+		for (byte seat : new byte[] { 2, 4, -1 })
+		{
+			buffer.put(position, seat);
+			buffer.rewind();
+			
+			try
+			{
+				BinaryCodec.decodeGame(buffer, scheme);
+				fail();
+			}
+			catch (InvalidModelException e)
+			{
+			}
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package house.mcintosh.mahjong.persistence;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import house.mcintosh.mahjong.exception.InvalidModelException;
+import house.mcintosh.mahjong.model.Game;
+import house.mcintosh.mahjong.model.Player;
+import house.mcintosh.mahjong.model.Round;
+import house.mcintosh.mahjong.model.RoundUtil;
+import house.mcintosh.mahjong.model.Wind;
+import house.mcintosh.mahjong.scoring.HandScorer;
+import house.mcintosh.mahjong.scoring.ScoredHand;
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+
+public class TestGameJson
+{
+	private static final int GAMES = 5;
+	
+	private final ScoringScheme scheme = ScoringScheme.instance();
+	
+	@Test
+	public void roundTrip() throws IOException
+	{
+		Game[]			games	= new Game[GAMES];
+		StringWriter	out		= new StringWriter();
+		
+		try (GameJsonWriter writer = new GameJsonWriter(out))
+		{
+			for (int index = 0 ; index < GAMES ; index++)
+			{
+				games[index] = playGame(index);
+				writer.writeGame(games[index]);
+			}
+			
+			Game unstarted = new Game(scheme);
+			
+			unstarted.setPlayer(Player.get("Json \"quoted\"\n"), 1);
+			writer.writeGame(unstarted);
+		}
+		
+		try (GameJsonReader reader = new GameJsonReader(new StringReader(out.toString()), scheme))
+		{
+			for (int index = 0 ; index < GAMES ; index++)
+			{
+				Game expected	= games[index];
+				Game actual		= reader.readGame();
+				
+				assertEquals(expected.getRoundCount(), actual.getRoundCount());
+				assertEquals(expected.getStartingSeat(), actual.getStartingSeat());
+				assertEquals(expected.isFinished(), actual.isFinished());
+				assertArrayEquals(expected.getScores(), actual.getScores());
+				
+				for (int round = 0 ; round < expected.getRoundCount() ; round++)
+				{
+					for (Wind wind : Wind.values())
+					{
+						ScoredHand hand = expected.getRound(round).getHand(wind);
+						
+						assertSame(expected.getRound(round).getPlayer(wind), actual.getRound(round).getPlayer(wind));
+						assertArrayEquals(hand.getGroupCodes(), actual.getRound(round).getHand(wind).getGroupCodes());
+						assertEquals(hand.getFlags(), actual.getRound(round).getHand(wind).getFlags());
+					}
+				}
+			}
+			
+			Game unstarted = reader.readGame();
+			
+			assertFalse(unstarted.isStarted());
+			assertEquals(Player.get("Json \"quoted\"\n"), unstarted.getSeatPlayer(1));
+			
+			assertNull(reader.readGame());
+			assertNull(reader.nextGame());
+		}
+	}
+	
+	@Test
+	public void streaming() throws IOException
+	{
+		Game			game	= playGame(7);
+		StringWriter	out		= new StringWriter();
+		
+		try (GameJsonWriter writer = new GameJsonWriter(out))
+		{
+			writer.writeGame(game);
+			writer.writeGame(playGame(8));
+		}
+		
+		try (GameJsonReader reader = new GameJsonReader(new StringReader(out.toString()), scheme))
+		{
+			Game	copy	= reader.nextGame();
+			int		rounds	= 0;
+			
+			for (Round round = reader.nextRound() ; round != null ; round = reader.nextRound())
+			{
+				copy.addRound(round);
+				rounds++;
+			}
+			
+			assertEquals(game.getRoundCount(), rounds);
+			assertArrayEquals(game.getScores(), copy.getScores());
+			
+			// Rounds not read are skipped.
+			
+			assertNotNull(reader.nextGame());
+			assertNull(reader.nextGame());
+		}
+	}
+	
+	@Test
+	public void handWritten() throws IOException
+	{
+		String json =
+				"{ \"club\": {\"name\": \"Other\", \"since\": [1998, 2.5e3, true, null]},\n" +
+				"  \"games\": [ {\n" +
+				"    \"eastSeat\": 0, \"players\": [\"Json A\", \"Json B\"],\n" +
+				"    \"rounds\": [ { \"hands\": [\n" +
+				"        { \"groups\": \"123b 555c! EEE+ WWW 99o\", \"flags\": [\"MAHJONG_BY_WALL_TILE\"], \"wind\": \"EAST\", \"score\": -1 },\n" +
+				"        { \"wind\": \"SOUTH\", \"player\": \"Json B\", \"groups\": \"RR\" } ],\n" +
+				"      \"prevailingWind\": \"EAST\" } ] } ] }";
+		
+		try (GameJsonReader reader = new GameJsonReader(new StringReader(json), scheme))
+		{
+			Game		game	= reader.readGame();
+			ScoredHand	hand	= game.getRound(0).getHand(Wind.EAST);
+			
+			assertEquals(1, game.getRoundCount());
+			assertSame(Player.get("Json A"), game.getRound(0).getPlayer(Wind.EAST));
+			assertTrue(hand.isMahjong());
+			assertEquals(HandScorer.FLAG_MAHJONG_BY_WALL_TILE, hand.getFlags());
+			assertTrue(hand.getTotalScore() > 0);
+			assertEquals(game.getRound(0).getPlayerScore(Wind.EAST), game.getSeatScore(0) - scheme.InitialScore);
+			
+			assertNull(reader.readGame());
+		}
+	}
+	
+	@Test
+	public void malformed() throws IOException
+	{
+		assertInvalid("{\"games\": [ {\"players\": [\"A\" \"B\"]} ] }");
+		assertInvalid("{\"games\": [ {\"players\": [\"A\", \"B\"], \"eastSeat\": 2} ] }");
+		assertInvalid("{\"games\": [ {\"players\": [\"A\", \"B\"], \"eastSeat\": 0, \"rounds\": [{\"prevailingWind\": \"UP\"}]} ] }");
+		assertInvalid("{\"games\": [ {\"players\": [\"A\", \"B\"], \"eastSeat\": 0, \"rounds\": [{\"prevailingWind\": \"EAST\", \"hands\": [{\"wind\": \"EAST\", \"groups\": \"12b\"}]}]} ] }");
+		assertInvalid("{\"games\": [ ] } trailing");
+		assertInvalid("{\"games\": [ {\"players\": [\"A\", \"B\"]} ]");
+	}
+	
+	/**
+	 * Each flag name is the name of the HandScorer constant for its bit, and every flag has one.
+	 */
+	@Test
+	public void flagNames() throws ReflectiveOperationException
+	{
+		assertEquals(Integer.bitCount(HandScorer.FLAGS_ALL), GameJsonWriter.FLAG_NAMES.length);
+		
+		for (int bit = 0 ; bit < GameJsonWriter.FLAG_NAMES.length ; bit++)
+			assertEquals(GameJsonWriter.FLAG_NAMES[bit], 1 << bit, HandScorer.class.getField("FLAG_" + GameJsonWriter.FLAG_NAMES[bit]).getInt(null));
+	}
+	
+	private void assertInvalid(String json) throws IOException
+	{
+		try (GameJsonReader reader = new GameJsonReader(new StringReader(json), scheme))
+		{
+			while (reader.readGame() != null)
+				;
+			
+			fail(json);
+		}
+		catch (InvalidModelException e)
+		{
+			assertTrue(e.getMessage(), e.getMessage().contains(" at character "));
+		}
+	}
+	
+	private Game playGame(long seed)
+	{
+		Player[] players = new Player[4];
+		
+		for (int seat = 0 ; seat < 4 ; seat++)
+			players[seat] = Player.get("Json " + seed + " seat " + seat);
+		
+		return RoundUtil.playRandomGame(scheme, players, (int) (seed % 4), seed, Integer.MAX_VALUE);
+	}
+}
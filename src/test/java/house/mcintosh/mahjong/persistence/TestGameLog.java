@@ -0,0 +1,338 @@
+package house.mcintosh.mahjong.persistence;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.CRC32;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import house.mcintosh.mahjong.model.Game;
+import house.mcintosh.mahjong.model.Player;
+import house.mcintosh.mahjong.model.Round;
+import house.mcintosh.mahjong.model.RoundUtil;
+import house.mcintosh.mahjong.model.Wind;
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+import house.mcintosh.mahjong.simulation.HandGenerator;
+
+public class TestGameLog
+{
+	private static final int GAMES	= 8;
+	private static final int ROUNDS	= 12;
+	
+	private final ScoringScheme scheme = ScoringScheme.instance();
+	
+	private Path m_path;
+	
+	@Before
+	public void createFile() throws IOException
+	{
+		m_path = Files.createTempFile("game", ".log");
+	}
+	
+	@After
+	public void deleteFile() throws IOException
+	{
+		Files.deleteIfExists(m_path);
+	}
+	
+	@Test
+	public void recover() throws Exception
+	{
+		Game[] games = new Game[GAMES];
+		
+		try (GameLog log = GameLog.open(m_path))
+		{
+			play(log, games, 0);
+		}
+		
+		assertRecovered(games, GameLog.recover(m_path, scheme));
+	}
+	
+	@Test
+	public void tornTail() throws Exception
+	{
+		Game[] games = new Game[GAMES];
+		
+		try (GameLog log = GameLog.open(m_path))
+		{
+			play(log, games, 0);
+		}
+		
+		long length = Files.size(m_path);
+		
+		// A record header promising more than was written, as left by a crash mid-write.
+		
+		try (FileChannel channel = FileChannel.open(m_path, StandardOpenOption.APPEND))
+		{
+			ByteBuffer torn = ByteBuffer.allocate(12);
+			
+			torn.putInt(100);
+			torn.putInt(12345);
+			torn.putInt(0);
+			torn.flip();
+			channel.write(torn);
+		}
+		
+		assertRecovered(games, GameLog.recover(m_path, scheme));
+		
+		// Reopening discards the torn record, and later records can be recovered.
+		
+		Game[] more = new Game[GAMES];
+		
+		try (GameLog log = GameLog.open(m_path))
+		{
+			assertEquals(length, Files.size(m_path));
+			play(log, more, GAMES);
+		}
+		
+		Map<Long, Game> recovered = GameLog.recover(m_path, scheme);
+		
+		assertEquals(2 * GAMES, recovered.size());
+		
+		Game[] all = new Game[2 * GAMES];
+		
+		System.arraycopy(games, 0, all, 0, GAMES);
+		System.arraycopy(more, 0, all, GAMES, GAMES);
+		
+		assertRecovered(all, recovered);
+	}
+	
+	@Test
+	public void corruptRecord() throws Exception
+	{
+		try (GameLog log = GameLog.open(m_path))
+		{
+			log.logSeat(1, 0, Player.get("Log 1")).get();
+			log.logSeat(1, 1, Player.get("Log 2")).get();
+		}
+		
+		// Damage the second record, so that it and anything after it is ignored.
+		
+		byte[] bytes = Files.readAllBytes(m_path);
+		
+		bytes[bytes.length - 1] ^= 1;
+		Files.write(m_path, bytes);
+		
+		Game game = GameLog.recover(m_path, scheme).get(1L);
+		
+		assertEquals(Player.get("Log 1"), game.getSeatPlayer(0));
+		assertNull(game.getSeatPlayer(1));
+	}
+	
+	@Test
+	public void invalidRecord() throws Exception
+	{
+		try (GameLog log = GameLog.open(m_path))
+		{
+			log.logSeat(1, 0, Player.get("Log 1")).get();
+			log.logSeat(1, 1, Player.get("Log 2")).get();
+			log.logSeat(2, 0, Player.get("Log 3")).get();
+			log.logSeat(2, 1, Player.get("Log 4")).get();
+		}
+		
+		// Records with good checks that cannot be applied: a start from an empty seat, and a
+		// name length that sign-extends to a negative length.  They are skipped, and the
+		// records after them are still recovered.
+		
+		ByteBuffer start = ByteBuffer.allocate(10);
+		
+		start.put(GameLog.EVENT_START);
+		start.putLong(1);
+		start.put((byte) 3);
+		
+		ByteBuffer seat = ByteBuffer.allocate(12);
+		
+		seat.put(GameLog.EVENT_SEAT);
+		seat.putLong(2);
+		seat.put((byte) 1);
+		seat.putShort((short) 0x8000);
+		
+		appendRecord(start);
+		appendRecord(seat);
+		
+		long length = Files.size(m_path);
+		
+		// Reopening keeps them.  Then a round with a hand for an empty seat, and a seat taken
+		// after the start, which cannot be applied either.
+		
+		SplittableRandom	random		= new SplittableRandom(3);
+		HandGenerator		generator	= new HandGenerator(scheme);
+		Round				round		= new Round(Wind.EAST);
+		
+		round.addHand(Player.get("Log 3"), generator.mahjongHand(random, Wind.EAST, Wind.EAST), Wind.EAST);
+		round.addHand(Player.get("Log 5"), generator.losingHand(random, Wind.WEST, Wind.EAST), Wind.WEST);
+		
+		try (GameLog log = GameLog.open(m_path))
+		{
+			assertEquals(length, Files.size(m_path));
+			
+			log.logStart(2, 0).get();
+			log.logRound(2, round).get();
+			log.logSeat(2, 2, Player.get("Log 5")).get();
+			log.logStart(1, 1).get();
+		}
+		
+		Map<Long, Game> games = GameLog.recover(m_path, scheme);
+		
+		assertEquals(2, games.size());
+		assertTrue(games.get(1L).isStarted());
+		assertEquals(Player.get("Log 2"), games.get(1L).getEastPlayer());
+		assertTrue(games.get(2L).isStarted());
+		assertEquals(0, games.get(2L).getRoundCount());
+		assertEquals(Player.get("Log 4"), games.get(2L).getSeatPlayer(1));
+		assertNull(games.get(2L).getSeatPlayer(2));
+	}
+	
+	@Test
+	public void fileHeader() throws Exception
+	{
+		// An empty file is an empty log, and opening it writes the header.
+		
+		assertTrue(GameLog.recover(m_path, scheme).isEmpty());
+		
+		GameLog.open(m_path).close();
+		
+		assertEquals(GameLog.FILE_HEADER_SIZE, Files.size(m_path));
+		
+		Files.write(m_path, new byte[] { 'N', 'o', 't', ' ', 'a', ' ', 'l', 'o', 'g' });
+		
+		try
+		{
+			GameLog.recover(m_path, scheme);
+			fail();
+		}
+		catch (IOException e)
+		{
+		}
+		
+		try
+		{
+			GameLog.open(m_path).close();
+			fail();
+		}
+		catch (IOException e)
+		{
+		}
+	}
+	
+	/**
+	 * Append a record with a good length and check, whatever its contents.
+	 */
+	private void appendRecord(ByteBuffer content) throws IOException
+	{
+		CRC32 crc = new CRC32();
+		
+		crc.update(content.array(), 0, content.capacity());
+		
+		ByteBuffer record = ByteBuffer.allocate(8 + content.capacity());
+		
+		record.putInt(content.capacity());
+		record.putInt((int) crc.getValue());
+		record.put(content.array());
+		record.flip();
+		
+		try (FileChannel channel = FileChannel.open(m_path, StandardOpenOption.APPEND))
+		{
+			channel.write(record);
+		}
+	}
+	
+	/**
+	 * Play games on separate threads, logging every event, and wait until all are durable.
+	 */
+	private void play(final GameLog log, final Game[] games, final long firstId) throws Exception
+	{
+		final List<CompletableFuture<Void>>	results	= new ArrayList<>();
+		List<Thread>						threads	= new ArrayList<>();
+		
+		for (int index = 0 ; index < games.length ; index++)
+		{
+			final int game = index;
+			
+			Thread thread = new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					List<CompletableFuture<Void>> logged = playGame(log, firstId + game, games, game);
+					
+					synchronized (results)
+					{
+						results.addAll(logged);
+					}
+				}
+			});
+			
+			threads.add(thread);
+			thread.start();
+		}
+		
+		for (Thread thread : threads)
+			thread.join();
+		
+		for (CompletableFuture<Void> result : results)
+			result.get();
+	}
+	
+	/**
+	 * Play a random game, and log its events as they happened.
+	 */
+	private List<CompletableFuture<Void>> playGame(GameLog log, long id, Game[] games, int index)
+	{
+		List<CompletableFuture<Void>>	logged		= new ArrayList<>();
+		Player[]						players		= new Player[4];
+		int								eastSeat	= (int) (id % 4);
+		
+		for (int seat = 0 ; seat < 4 ; seat++)
+			players[seat] = Player.get("Game " + id + " seat " + seat);
+		
+		Game game = RoundUtil.playRandomGame(scheme, players, eastSeat, id, ROUNDS);
+		
+		for (int seat = 0 ; seat < 4 ; seat++)
+			logged.add(log.logSeat(id, seat, players[seat]));
+		
+		logged.add(log.logStart(id, eastSeat));
+		
+		for (int round = 0 ; round < game.getRoundCount() ; round++)
+			logged.add(log.logRound(id, game.getRound(round)));
+		
+		games[index] = game;
+		
+		return logged;
+	}
+	
+	private void assertRecovered(Game[] games, Map<Long, Game> recovered)
+	{
+		assertEquals(games.length, recovered.size());
+		
+		for (int index = 0 ; index < games.length ; index++)
+		{
+			Game expected	= games[index];
+			Game actual		= recovered.get((long) index);
+			
+			assertNotNull(actual);
+			assertEquals(expected.getPrevailingWind(), actual.getPrevailingWind());
+			assertEquals(expected.getEastPlayer(), actual.getEastPlayer());
+			assertEquals(expected.isFinished(), actual.isFinished());
+			
+			for (int seat = 0 ; seat < 4 ; seat++)
+			{
+				assertEquals(expected.getSeatPlayer(seat), actual.getSeatPlayer(seat));
+				assertEquals(expected.getSeatScore(seat), actual.getSeatScore(seat));
+			}
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package house.mcintosh.mahjong.scoring;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import house.mcintosh.mahjong.model.Game;
+import house.mcintosh.mahjong.model.Group;
+import house.mcintosh.mahjong.model.GroupCode;
+import house.mcintosh.mahjong.model.Player;
+import house.mcintosh.mahjong.model.Round;
+import house.mcintosh.mahjong.model.RoundUtil;
+import house.mcintosh.mahjong.model.Wind;
+
+public class TestBatchScorer
+{
+	@Test
+	public void matchesHandScorer()
+	{
+		ScoringScheme		scheme	= ScoringScheme.instance();
+		Random				random	= new Random(4321);
+		HandBatch.Builder	builder	= new HandBatch.Builder();
+		int[]				codes	= new int[6];
+		
+		for (int hand = 0 ; hand < 50000 ; hand++)
+		{
+			int count = 1 + random.nextInt(codes.length);
+			
+			for (int index = 0 ; index < count ; index++)
+				codes[index] = randomCode(random, index == 0);
+			
+			// An occasional invalid group, to check the status is reported.
+			if (hand % 1000 == 999)
+				codes[0] = -1;
+			
+			builder.add(codes, 0, count, random.nextInt(HandScorer.FLAGS_ALL + 1), random.nextInt(4), random.nextInt(4));
+		}
+		
+		HandBatch	batch		= builder.build();
+		int[]		totals		= new int[batch.size()];
+		int[]		statuses	= new int[batch.size()];
+		int[]		result		= new int[HandScorer.RESULT_SIZE];
+		
+		int failed = new BatchScorer(scheme).score(batch, totals, statuses);
+		
+		int expectedFailed = 0;
+		
+		for (int hand = 0 ; hand < batch.size() ; hand++)
+		{
+			int status = HandScorer.score(
+					scheme, codes(batch, hand), 0, batch.getGroupCount(hand),
+					batch.getFlags(hand), batch.getOwnWind(hand), batch.getPrevailingWind(hand), result, 0);
+			
+			assertEquals(status, statuses[hand]);
+			assertEquals(result[HandScorer.RESULT_TOTAL], totals[hand]);
+			
+			if (status != HandScorer.STATUS_OK)
+				expectedFailed++;
+		}
+		
+		assertTrue(expectedFailed >= 50);
+		assertEquals(expectedFailed, failed);
+		
+		int[] sequential = new int[batch.size()];
+		
+		assertEquals(failed, new BatchScorer(scheme).scoreSequential(batch, sequential, null));
+		assertArrayEquals(totals, sequential);
+	}
+	
+	@Test
+	public void streamOfRounds()
+	{
+		ScoringScheme	scheme	= ScoringScheme.instance();
+		Player[]		players	= { Player.get("Batch 1"), Player.get("Batch 2"), null, Player.get("Batch 3") };
+		List<Round>		rounds	= new ArrayList<>();
+		
+		for (int seed = 0 ; seed < 20 ; seed++)
+		{
+			Game game = RoundUtil.playRandomGame(scheme, players, seed % 2, seed, Integer.MAX_VALUE);
+			
+			for (int round = 0 ; round < game.getRoundCount() ; round++)
+				rounds.add(game.getRound(round));
+		}
+		
+		HandBatch	batch	= rounds.parallelStream().collect(HandBatch.collector());
+		int[]		totals	= new int[batch.size()];
+		int			hand	= 0;
+		
+		assertEquals(3 * rounds.size(), batch.size());
+		assertEquals(0, new BatchScorer(scheme).score(batch, totals, null));
+		
+		for (Round round : rounds)
+		{
+			for (Wind wind : Wind.values())
+			{
+				if (round.getHand(wind) == null)
+					continue;
+				
+				assertEquals(wind.ordinal(), batch.getOwnWind(hand));
+				assertEquals(round.getHand(wind).getTotalScore(), totals[hand]);
+				hand++;
+			}
+		}
+	}
+	
+	private static int[] codes(HandBatch batch, int hand)
+	{
+		int[] codes = new int[batch.getGroupCount(hand)];
+		
+		for (int group = 0 ; group < codes.length ; group++)
+			codes[group] = batch.getCode(hand, group);
+		
+		return codes;
+	}
+	
+	private int randomCode(Random random, boolean pair)
+	{
+		while (true)
+		{
+			int code = random.nextInt(GroupCode.COUNT);
+			
+			if (GroupCode.isValid(code) && pair == (GroupCode.getType(code) == Group.Type.PAIR))
+				return code;
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package house.mcintosh.mahjong.scoring;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import house.mcintosh.mahjong.exception.InvalidHandException;
+import house.mcintosh.mahjong.model.Group;
+import house.mcintosh.mahjong.model.GroupCode;
+import house.mcintosh.mahjong.model.Wind;
+
+public class TestHandScorer
+{
+	@Test
+	public void matchesScoredHand()
+	{
+		ScoringScheme	scheme	= ScoringScheme.instance();
+		Random			random	= new Random(1234);
+		int[]			codes	= new int[6];
+		int[]			result	= new int[HandScorer.RESULT_SIZE];
+		int				hands	= 100000;
+		
+		while (hands-- > 0)
+		{
+			int		count			= 1 + random.nextInt(codes.length);
+			int		flags			= random.nextInt(HandScorer.FLAGS_ALL + 1);
+			Wind	ownWind			= Wind.values()[random.nextInt(4)];
+			Wind	prevailingWind	= Wind.values()[random.nextInt(4)];
+			
+			// Favour hands with one pair so that plenty of them are mahjong.
+			
+			for (int index = 0 ; index < count ; index++)
+				codes[index] = randomCode(random, index == 0);
+			
+			int status = HandScorer.score(scheme, codes, 0, count, flags, ownWind.ordinal(), prevailingWind.ordinal(), result, 0);
+			
+			ScoredHand.Builder builder = new ScoredHand.Builder(scheme).setFlags(flags);
+			
+			for (int index = 0 ; index < count ; index++)
+				builder.add(codes[index], ownWind, prevailingWind);
+			
+			try
+			{
+				ScoredHand hand = builder.build();
+				
+				assertEquals(HandScorer.STATUS_OK, status);
+				assertEquals(hand.getTotalScore(), result[HandScorer.RESULT_TOTAL]);
+				assertEquals(hand.getTotalScoreUnlimited(), result[HandScorer.RESULT_TOTAL_UNLIMITED]);
+				assertEquals(hand.isMahjong() ? 1 : 0, result[HandScorer.RESULT_MAHJONG]);
+			}
+			catch (InvalidHandException e)
+			{
+				assertEquals(HandScorer.STATUS_TOO_MANY_TILES, status);
+				assertEquals(0, result[HandScorer.RESULT_TOTAL]);
+			}
+		}
+	}
+	
+	@Test
+	public void invalidInput()
+	{
+		ScoringScheme	scheme	= ScoringScheme.instance();
+		int[]			result	= new int[HandScorer.RESULT_SIZE + 1];
+		int[]			codes	= { -1 };
+		
+		assertEquals(HandScorer.STATUS_INVALID_GROUP, HandScorer.score(scheme, codes, 0, 1, 0, 0, 0, result, 1));
+		
+		codes[0] = GroupCode.encode(Group.Type.PAIR, 0, Group.Visibility.EXPOSED);
+		
+		assertEquals(HandScorer.STATUS_INVALID_WIND, HandScorer.score(scheme, codes, 0, 1, 0, 4, 0, result, 1));
+		assertEquals(HandScorer.STATUS_OK, HandScorer.score(scheme, codes, 0, 1, 0, 0, 0, result, 1));
+	}
+	
+	private int randomCode(Random random, boolean pair)
+	{
+		while (true)
+		{
+			int code = random.nextInt(GroupCode.COUNT);
+			
+			if (GroupCode.isValid(code) && pair == (GroupCode.getType(code) == Group.Type.PAIR))
+				return code;
+		}
+	}
+}
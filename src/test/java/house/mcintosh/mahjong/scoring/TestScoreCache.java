@@ -0,0 +1,194 @@
+package house.mcintosh.mahjong.scoring;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import house.mcintosh.mahjong.model.Game;
+import house.mcintosh.mahjong.model.Group;
+import house.mcintosh.mahjong.model.GroupCode;
+import house.mcintosh.mahjong.model.Player;
+import house.mcintosh.mahjong.model.RoundUtil;
+import house.mcintosh.mahjong.model.Tile;
+import house.mcintosh.mahjong.model.Wind;
+
+public class TestScoreCache
+{
+	private static final int HANDS = 5000;
+	
+	private final ScoringScheme scheme = ScoringScheme.instance();
+	
+	@Test
+	public void matchesHandScorer()
+	{
+		ScoreCache	cache		= new ScoreCache(scheme, 1 << 16);
+		int[][]		hands		= randomHands(HANDS);
+		int[]		expected	= new int[HandScorer.RESULT_SIZE];
+		int[]		actual		= new int[HandScorer.RESULT_SIZE];
+		
+		assertTrue(cache.isSuitSymmetric());
+		
+		for (int pass = 0 ; pass < 2 ; pass++)
+		{
+			for (int hand = 0 ; hand < HANDS ; hand++)
+			{
+				int[]	codes			= hands[hand];
+				int		flags			= hand % HandScorer.FLAGS_ALL;
+				int		ownWind			= hand % 4;
+				int		prevailingWind	= hand / 4 % 4;
+				
+				int status = HandScorer.score(scheme, codes, 0, codes.length, flags, ownWind, prevailingWind, expected, 0);
+				
+				assertEquals(status, cache.score(codes, 0, codes.length, flags, ownWind, prevailingWind, actual, 0));
+				assertArrayEquals(expected, actual);
+			}
+		}
+		
+		assertEquals(HANDS, cache.getMissCount());
+		assertEquals(HANDS, cache.getHitCount());
+		assertEquals(0.5, cache.getHitRate(), 0);
+	}
+	
+	@Test
+	public void canonicalKey()
+	{
+		ScoreCache cache = new ScoreCache(scheme, 64);
+		
+		int[] hand =
+		{
+			GroupCode.encode(Group.Type.CHOW, Tile.get(Tile.Suit.BAMBOO, Tile.Number.ONE), Group.Visibility.EXPOSED),
+			GroupCode.encode(Group.Type.PUNG, Tile.get(Tile.Suit.CHARACTERS, Tile.Number.FIVE), Group.Visibility.CONCEALED),
+			GroupCode.encode(Group.Type.PUNG, Tile.get(Wind.EAST), Group.Visibility.EXPOSED),
+			GroupCode.encode(Group.Type.CHOW, Tile.get(Tile.Suit.BAMBOO, Tile.Number.FOUR), Group.Visibility.EXPOSED),
+			GroupCode.encode(Group.Type.PAIR, Tile.get(Tile.Suit.CIRCLES, Tile.Number.NINE), Group.Visibility.EXPOSED)
+		};
+		
+		// The same groups in another order, with the suits swapped round.
+		
+		int[] other =
+		{
+			GroupCode.encode(Group.Type.PAIR, Tile.get(Tile.Suit.BAMBOO, Tile.Number.NINE), Group.Visibility.EXPOSED),
+			GroupCode.encode(Group.Type.CHOW, Tile.get(Tile.Suit.CHARACTERS, Tile.Number.FOUR), Group.Visibility.EXPOSED),
+			GroupCode.encode(Group.Type.PUNG, Tile.get(Tile.Suit.CIRCLES, Tile.Number.FIVE), Group.Visibility.CONCEALED),
+			GroupCode.encode(Group.Type.PUNG, Tile.get(Wind.EAST), Group.Visibility.EXPOSED),
+			GroupCode.encode(Group.Type.CHOW, Tile.get(Tile.Suit.CHARACTERS, Tile.Number.ONE), Group.Visibility.EXPOSED)
+		};
+		
+		long key = cache.key(hand, 0, hand.length, 0, 1, 2);
+		
+		assertEquals(key, cache.key(other, 0, other.length, 0, 1, 2));
+		assertNotEquals(key, cache.key(other, 0, other.length, 1, 1, 2));
+		assertNotEquals(key, cache.key(other, 0, other.length, 0, 2, 1));
+		assertNotEquals(key, cache.key(other, 0, other.length - 1, 0, 1, 2));
+		
+		int[] result = new int[HandScorer.RESULT_SIZE];
+		
+		cache.score(hand, 0, hand.length, 0, 1, 2, result, 0);
+		cache.score(other, 0, other.length, 0, 1, 2, result, 0);
+		
+		assertEquals(1, cache.getHitCount());
+		
+		// Swapping only one of the suits makes a different hand.
+		
+		other[0] = GroupCode.encode(Group.Type.PAIR, Tile.get(Tile.Suit.CHARACTERS, Tile.Number.NINE), Group.Visibility.EXPOSED);
+		
+		assertNotEquals(key, cache.key(other, 0, other.length, 0, 1, 2));
+	}
+	
+	@Test
+	public void bounded()
+	{
+		ScoreCache	cache	= new ScoreCache(scheme, 10);
+		int[][]		hands	= randomHands(1000);
+		int[]		result	= new int[HandScorer.RESULT_SIZE];
+		
+		assertEquals(16, cache.getCapacity());
+		
+		for (int[] codes : hands)
+			cache.score(codes, 0, codes.length, 0, 0, 0, result, 0);
+		
+		assertTrue(cache.getMissCount() > 16);
+		assertTrue(cache.getEvictionCount() >= cache.getMissCount() - 16);
+		
+		cache.clear();
+		
+		assertEquals(0, cache.getMissCount());
+		assertEquals(0, cache.getEvictionCount());
+	}
+	
+	@Test
+	public void sharedByThreads() throws Exception
+	{
+		final ScoreCache	cache	= new ScoreCache(scheme, 256);
+		final int[][]		hands	= randomHands(HANDS);
+		final List<Throwable> errors = new ArrayList<>();
+		
+		List<Thread> threads = new ArrayList<>();
+		
+		for (int index = 0 ; index < 4 ; index++)
+		{
+			Thread thread = new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					int[] expected	= new int[HandScorer.RESULT_SIZE];
+					int[] actual	= new int[HandScorer.RESULT_SIZE];
+					
+					try
+					{
+						for (int pass = 0 ; pass < 4 ; pass++)
+						{
+							for (int[] codes : hands)
+							{
+								HandScorer.score(scheme, codes, 0, codes.length, 0, 1, 0, expected, 0);
+								cache.score(codes, 0, codes.length, 0, 1, 0, actual, 0);
+								assertArrayEquals(expected, actual);
+							}
+						}
+					}
+					catch (Throwable e)
+					{
+						synchronized (errors)
+						{
+							errors.add(e);
+						}
+					}
+				}
+			});
+			
+			threads.add(thread);
+			thread.start();
+		}
+		
+		for (Thread thread : threads)
+			thread.join();
+		
+		assertTrue(errors.toString(), errors.isEmpty());
+		assertEquals(4 * 4 * HANDS, cache.getHitCount() + cache.getMissCount());
+	}
+	
+	/**
+	 * The hands of random games, with many repeats.
+	 */
+	private int[][] randomHands(int count)
+	{
+		Player[]	players	= { Player.get("Cache 1"), Player.get("Cache 2"), Player.get("Cache 3"), Player.get("Cache 4") };
+		int[][]		hands	= new int[count][];
+		int			hand	= 0;
+		
+		for (long seed = 23 ; hand < count ; seed++)
+		{
+			Game game = RoundUtil.playRandomGame(scheme, players, 0, seed, Integer.MAX_VALUE);
+			
+			for (int round = 0 ; round < game.getRoundCount() && hand < count ; round++)
+				for (int seat = 0 ; seat < 4 && hand < count ; seat++)
+					hands[hand++] = game.getRound(round).getHand(players[seat]).getGroupCodes();
+		}
+		
+		return hands;
+	}
+}
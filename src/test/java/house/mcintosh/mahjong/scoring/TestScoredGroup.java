@@ -0,0 +1,63 @@
+package house.mcintosh.mahjong.scoring;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import house.mcintosh.mahjong.model.Group;
+import house.mcintosh.mahjong.model.Tile;
+import house.mcintosh.mahjong.model.Wind;
+
+public class TestScoredGroup
+{
+	@Test
+	public void tableMatchesScheme()
+	{
+		ScoringScheme	scheme	= ScoringScheme.instance();
+		ScoreTable		table	= scheme.getScoreTable();
+		
+		Group pung = new Group(Group.Type.PUNG, Tile.get(Wind.SOUTH), Group.Visibility.CONCEALED);
+		
+		int index = ScoreTable.index(pung.getCode(), Wind.SOUTH, Wind.SOUTH);
+		
+		assertEquals(8, table.getScore(index));
+		assertEquals(4, table.getMultiplier(index));
+		assertEquals(8*4, table.getScoreList(index).getTotal());
+		
+		index = ScoreTable.index(pung.getCode(), Wind.EAST, Wind.SOUTH);
+		
+		assertEquals(8, table.getScore(index));
+		assertEquals(2, table.getMultiplier(index));
+		
+		index = ScoreTable.index(pung.getCode(), Wind.EAST, Wind.EAST);
+		
+		assertEquals(8, table.getScore(index));
+		assertEquals(1, table.getMultiplier(index));
+		
+		Group kong = new Group(Group.Type.KONG, Tile.get(Tile.Suit.BAMBOO, Tile.Number.NINE), Group.Visibility.EXPOSED);
+		
+		assertEquals(16, table.getScoreList(ScoreTable.index(kong.getCode(), Wind.WEST, Wind.NORTH)).getTotal());
+		
+		Group chow = new Group(Group.Type.CHOW, Tile.get(Tile.Suit.CHARACTERS, Tile.Number.FOUR));
+		
+		assertEquals(0, table.getScoreList(ScoreTable.index(chow.getCode(), Wind.WEST, Wind.NORTH)).getTotal());
+	}
+	
+	@Test
+	public void sharedInstances()
+	{
+		ScoringScheme	scheme	= ScoringScheme.instance();
+		Group			pair	= new Group(Group.Type.PAIR, Tile.get(Tile.Dragon.RED));
+		
+		ScoredGroup shared = ScoredGroup.get(pair, scheme, Wind.EAST, Wind.NORTH);
+		
+		assertSame(shared, ScoredGroup.get(pair.getCode(), scheme, Wind.EAST, Wind.NORTH));
+		assertEquals(pair.getCode(), shared.getCode());
+		assertEquals(2, shared.getScore().getTotal());
+		
+		ScoredGroup constructed = new ScoredGroup(pair, scheme, Wind.EAST, Wind.NORTH);
+		
+		assertNotSame(shared, constructed);
+		assertSame(shared.getScore(), constructed.getScore());
+	}
+}
@@ -3,6 +3,7 @@ package house.mcintosh.mahjong.scoring;
 import static org.junit.Assert.*;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
@@ -51,6 +52,37 @@ public class TestScoredHand
 		}
 	}
 	
+	@Test
+	public void elementMask()
+	{
+		ScoringScheme	scheme	= ScoringScheme.instance();
+		ScoredHand		hand	= new ScoredHand(scheme);
+		
+		hand.add(new ScoredGroup(new Group(Group.Type.PUNG, new Tile(Tile.Dragon.RED), Group.Visibility.EXPOSED), scheme, Wind.EAST, Wind.EAST));
+		hand.add(new ScoredGroup(new Group(Group.Type.CHOW, new Tile(Tile.Suit.CHARACTERS, Tile.Number.TWO), Group.Visibility.CONCEALED), scheme, Wind.EAST, Wind.EAST));
+		hand.add(new ScoredGroup(new Group(Group.Type.KONG, new Tile(Tile.Suit.BAMBOO, Tile.Number.SEVEN), Group.Visibility.CONCEALED), scheme, Wind.EAST, Wind.EAST));
+		hand.add(new ScoredGroup(new Group(Group.Type.PAIR, new Tile(Wind.EAST)), scheme, Wind.EAST, Wind.EAST));
+		
+		assertFalse(hasElement(hand, ScoringScheme.ScoreElement.MahjongHandScore));
+		
+		hand.add(new ScoredGroup(new Group(Group.Type.PUNG, new Tile(Wind.SOUTH), Group.Visibility.EXPOSED), scheme, Wind.EAST, Wind.EAST));
+		hand.setMahjongByWallTile(true);
+		
+		assertTrue(hasElement(hand, ScoringScheme.ScoreElement.PungExposedDragonScore));
+		assertTrue(hasElement(hand, ScoringScheme.ScoreElement.ChowSuitScore));
+		assertTrue(hasElement(hand, ScoringScheme.ScoreElement.KongConcealedMinorSuitScore));
+		assertTrue(hasElement(hand, ScoringScheme.ScoreElement.MahjongHandScore));
+		assertTrue(hasElement(hand, ScoringScheme.ScoreElement.MahjongByWallTileHandScore));
+		assertFalse(hasElement(hand, ScoringScheme.ScoreElement.NoChowsHandScore));
+		assertFalse(hasElement(hand, ScoringScheme.ScoreElement.SingleSuitHandScore));
+		assertFalse(hasElement(hand, ScoringScheme.ScoreElement.MahjongByLastDiscardHandScore));
+	}
+	
+	private static boolean hasElement(ScoredHand hand, ScoringScheme.ScoreElement element)
+	{
+		return (hand.getElementMask() & (1L << element.ordinal())) != 0;
+	}
+	
 	@Test
 	public void testMahjongHands()
 	{
@@ -159,6 +191,76 @@ public class TestScoredHand
 		assertEquals((10+2+32+32+32+32+2)*2*2*2*2*2*2*2*2*2*2*2*2*2, hand.getTotalScoreUnlimited());
 	}
 
+	@Test
+	public void testBuilder()
+	{
+		ScoringScheme	scheme	= ScoringScheme.instance();
+		
+		ScoredGroup[] groups =
+		{
+			new ScoredGroup(new Group(Group.Type.KONG, new Tile(Wind.EAST), Group.Visibility.CONCEALED), scheme, Wind.NORTH, Wind.NORTH),
+			new ScoredGroup(new Group(Group.Type.PAIR, new Tile(Tile.Dragon.WHITE)), scheme, Wind.NORTH, Wind.NORTH),
+			new ScoredGroup(new Group(Group.Type.KONG, new Tile(Wind.NORTH), Group.Visibility.CONCEALED), scheme, Wind.NORTH, Wind.NORTH),
+			new ScoredGroup(new Group(Group.Type.KONG, new Tile(Tile.Dragon.RED), Group.Visibility.CONCEALED), scheme, Wind.NORTH, Wind.NORTH),
+			new ScoredGroup(new Group(Group.Type.KONG, new Tile(Tile.Dragon.GREEN), Group.Visibility.CONCEALED), scheme, Wind.NORTH, Wind.NORTH)
+		};
+		
+		ScoredHand.Builder builder = new ScoredHand.Builder(scheme);
+		ScoredHand incremental = new ScoredHand(scheme);
+		
+		for (ScoredGroup group : groups)
+		{
+			builder.add(group);
+			incremental.add(group);
+		}
+		
+		builder.setMahjongPairConcealed(true).setMahjongByLooseTile(true).setMahjongByWallTile(true);
+		incremental.setMahjongPairConcealed(true);
+		incremental.setMahjongByLooseTile(true);
+		incremental.setMahjongByWallTile(true);
+		
+		ScoredHand built = builder.build();
+		
+		assertTrue(built.isMahjong());
+		assertTrue(built.requiresPairConcealedInfo());
+		assertEquals((10+2+32+32+32+32+2)*2*2*2*2*2*2*2*2, built.getTotalScoreUnlimited());
+		assertEquals(incremental.getTotalScoreUnlimited(), built.getTotalScoreUnlimited());
+		assertEquals(scheme.LimitScore, built.getTotalScore());
+		
+		// Groups are in the same order however they were added.
+		
+		Iterator<ScoredGroup> builtGroups = built.iterator();
+		
+		for (ScoredGroup group : incremental)
+			assertSame(group, builtGroups.next());
+		
+		assertFalse(builtGroups.hasNext());
+		
+		// Builder cannot be reused.
+		
+		try
+		{
+			builder.add(groups[0]);
+			fail();
+		}
+		catch (InvalidHandException e)
+		{
+			// OK - expected.
+		}
+	}
+	
+	@Test(expected = InvalidHandException.class)
+	public void testBuilderTooManyTiles()
+	{
+		ScoringScheme		scheme	= ScoringScheme.instance();
+		ScoredHand.Builder	builder	= new ScoredHand.Builder(scheme);
+		
+		for (int count = 0 ; count < 5 ; count++)
+			builder.add(new ScoredGroup(new Group(Group.Type.PUNG, new Tile(Wind.EAST), Group.Visibility.EXPOSED), scheme, Wind.EAST, Wind.EAST));
+		
+		builder.build();
+	}
+	
 	private void buildAndCheckHandRandomOrder(List<ScoredGroup> sets)
 	{
 		// Copy the sets so that we can randomise the order of adding entries to the hand.
@@ -0,0 +1,219 @@
+package house.mcintosh.mahjong.scoring;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.ListIterator;
+
+import org.junit.Test;
+
+import house.mcintosh.mahjong.exception.InvalidScoreSchemeException;
+import house.mcintosh.mahjong.model.Group;
+import house.mcintosh.mahjong.model.Tile;
+import house.mcintosh.mahjong.model.Wind;
+import house.mcintosh.mahjong.scoring.ScoringScheme.ScoreElement;
+
+public class TestScoringScheme
+{
+	private static final String VARIANT =
+			"LimitScore = 500\n" +
+			"PairDragonScore = 4\n" +
+			"PungExposedDragonScore = 4 x4\n" +
+			"PungExposedWindScore = 4\n" +
+			"PungOwnWindMultiplier = 0 x2\n" +
+			"PungPrevailingWindMultiplier = 0 x3\n" +
+			"PungExposedPrevailingOwnWindScore = 4 + PungOwnWindMultiplier + PungPrevailingWindMultiplier\n" +
+			"MahjongHandScore = 20\n";
+	
+	@Test
+	public void parseVariant() throws IOException
+	{
+		ScoringScheme scheme = ScoringScheme.parse("variant", new StringReader(VARIANT));
+		
+		assertEquals("variant", scheme.getName());
+		assertEquals(500, scheme.LimitScore);
+		assertEquals(14, scheme.MahjongHandSize);
+		assertEquals(2000, scheme.InitialScore);
+		
+		assertEquals(4, scheme.getScoreContribution(ScoreElement.PairDragonScore).getTotal());
+		assertEquals(16, scheme.getScoreContribution(ScoreElement.PungExposedDragonScore).getTotal());
+		assertEquals(24, scheme.getScoreContribution(ScoreElement.PungExposedPrevailingOwnWindScore).getTotal());
+		assertEquals(3, scheme.getScoreContribution(ScoreElement.PungExposedPrevailingOwnWindScore).size());
+		
+		// Elements not defined score nothing.
+		assertEquals(0, scheme.getScoreContribution(ScoreElement.KongConcealedDragonScore).getTotal());
+		
+		ScoredGroup pung = new ScoredGroup(new Group(Group.Type.PUNG, Tile.get(Wind.EAST), Group.Visibility.EXPOSED), scheme, Wind.EAST, Wind.EAST);
+		
+		assertEquals(24, pung.getScore().getTotal());
+		
+		// Built-in scheme is unaffected.
+		
+		ScoredGroup builtIn = new ScoredGroup(new Group(Group.Type.PUNG, Tile.get(Wind.EAST), Group.Visibility.EXPOSED), ScoringScheme.instance(), Wind.EAST, Wind.EAST);
+		
+		assertEquals(16, builtIn.getScore().getTotal());
+	}
+	
+	@Test
+	public void invalidDefinitions() throws IOException
+	{
+		String[] invalid =
+		{
+			"NoSuchScore = 2",
+			"PairDragonScore = two",
+			"PairDragonScore = 2 y2",
+			"PairDragonScore = 2 x0",
+			"PairDragonScore = 2 + NoSuchScore",
+			"PairDragonScore = 2 + PairWindScore",
+		};
+		
+		for (String definition : invalid)
+		{
+			try
+			{
+				ScoringScheme.parse("invalid", new StringReader(definition));
+				fail(definition);
+			}
+			catch (InvalidScoreSchemeException e)
+			{
+				// OK - expected.
+			}
+		}
+	}
+	
+	@Test
+	public void registry() throws IOException
+	{
+		assertSame(ScoringScheme.instance(), SchemeRegistry.get(ScoringScheme.DEFAULT_NAME));
+		
+		Path directory = Files.createTempDirectory("schemes");
+		Path file = directory.resolve("house" + ScoringScheme.FILE_EXTENSION);
+		
+		try
+		{
+			try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8))
+			{
+				writer.write(VARIANT);
+			}
+			
+			assertEquals(1, SchemeRegistry.loadDirectory(directory).size());
+			assertTrue(SchemeRegistry.contains("house"));
+			assertEquals(500, SchemeRegistry.get("house").LimitScore);
+		}
+		finally
+		{
+			Files.delete(file);
+			Files.delete(directory);
+		}
+	}
+	
+	@Test
+	public void registerDuplicate() throws IOException
+	{
+		ScoringScheme british = ScoringScheme.parse(ScoringScheme.DEFAULT_NAME, new StringReader(VARIANT));
+		
+		try
+		{
+			SchemeRegistry.register(british);
+			fail();
+		}
+		catch (InvalidScoreSchemeException e)
+		{
+		}
+		
+		assertSame(ScoringScheme.instance(), SchemeRegistry.get(ScoringScheme.DEFAULT_NAME));
+		
+		// Replacing is explicit.
+		
+		ScoringScheme first		= ScoringScheme.parse("replaced", new StringReader(VARIANT));
+		ScoringScheme second	= ScoringScheme.parse("replaced", new StringReader(VARIANT));
+		
+		SchemeRegistry.register(first);
+		
+		assertSame(first, SchemeRegistry.replace(second));
+		assertSame(second, SchemeRegistry.get("replaced"));
+	}
+	
+	@Test
+	public void sharedListsAreFrozen() throws IOException
+	{
+		ScoringScheme scheme = ScoringScheme.parse("frozen", new StringReader(VARIANT));
+		
+		ScoreList[] lists =
+		{
+			scheme.getScoreContribution(ScoreElement.PungExposedPrevailingOwnWindScore),
+			scheme.getScoreContribution(ScoreElement.KongConcealedDragonScore),
+			ScoringScheme.instance().getScoreContribution(ScoreElement.MahjongHandScore)
+		};
+		
+		for (ScoreList list : lists)
+		{
+			try
+			{
+				list.append(new ScoreContribution(ScoreElement.PairDragonScore, 2, 1));
+				fail();
+			}
+			catch (UnsupportedOperationException e)
+			{
+			}
+			
+			try
+			{
+				list.clear();
+				fail();
+			}
+			catch (UnsupportedOperationException e)
+			{
+			}
+			
+			// Nor through an iterator.
+			
+			Iterator<ScoreContribution> iterator = list.iterator();
+			
+			try
+			{
+				iterator.remove();
+				fail();
+			}
+			catch (UnsupportedOperationException e)
+			{
+			}
+			
+			ListIterator<ScoreContribution> listIterator = list.listIterator(list.size());
+			
+			try
+			{
+				listIterator.add(new ScoreContribution(ScoreElement.PairDragonScore, 2, 1));
+				fail();
+			}
+			catch (UnsupportedOperationException e)
+			{
+			}
+			
+			listIterator = list.listIterator();
+			
+			try
+			{
+				listIterator.set(new ScoreContribution(ScoreElement.PairDragonScore, 2, 1));
+				fail();
+			}
+			catch (UnsupportedOperationException e)
+			{
+			}
+		}
+		
+		assertEquals(24, lists[0].getTotal());
+	}
+	
+	@Test(expected = InvalidScoreSchemeException.class)
+	public void unknownScheme()
+	{
+		SchemeRegistry.get("no such scheme");
+	}
+}
@@ -0,0 +1,72 @@
+package house.mcintosh.mahjong.simulation;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+
+public class TestGameSimulator
+{
+	private final ScoringScheme scheme = ScoringScheme.instance();
+	
+	@Test
+	public void gameLength()
+	{
+		SimulationResult result = new GameSimulator(scheme, 4).run(42, 500);
+		
+		assertEquals(500, result.getGameCount());
+		
+		// Every round either keeps the same east player or moves on; a game moves on sixteen times.
+		assertEquals(500 * 16 + result.getEastRepeatCount(), result.getRoundCount());
+		
+		for (Map.Entry<Integer, Long> entry : result.getGameLengths().entrySet())
+			assertTrue(entry.getKey() >= 16);
+		
+		// Each round is won by a random one of the four players.
+		assertEquals(0.25, result.getEastRepeatRate(), 0.02);
+		
+		// Scores are only moved between players.
+		
+		double total = 0;
+		
+		for (int seat = 0 ; seat < 4 ; seat++)
+			total += result.getMeanFinalScore(seat);
+		
+		assertEquals(4 * scheme.InitialScore, total, 1e-6);
+		
+		long finalScores = 0;
+		
+		for (long count : result.getFinalScores().values())
+			finalScores += count;
+		
+		assertEquals(500 * 4, finalScores);
+	}
+	
+	@Test
+	public void reproducible()
+	{
+		SimulationResult	parallel	= new GameSimulator(scheme, 3).run(7, 300);
+		ForkJoinPool		pool		= new ForkJoinPool(1);
+		SimulationResult	serial;
+		
+		try
+		{
+			serial = new GameSimulator(scheme, 3, pool).run(7, 300);
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+		
+		assertEquals(parallel.getRoundCount(), serial.getRoundCount());
+		assertEquals(parallel.getGameLengths(), serial.getGameLengths());
+		assertEquals(parallel.getFinalScores(), serial.getFinalScores());
+		assertEquals(parallel.getMeanFinalScore(2), serial.getMeanFinalScore(2), 0);
+		
+		assertEquals(300 * 12 + parallel.getEastRepeatCount(), parallel.getRoundCount());
+	}
+}
@@ -0,0 +1,284 @@
+package house.mcintosh.mahjong.tournament;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+import house.mcintosh.mahjong.exception.InvalidModelException;
+import house.mcintosh.mahjong.model.Game;
+import house.mcintosh.mahjong.model.Player;
+import house.mcintosh.mahjong.model.RoundUtil;
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+
+public class TestLeaderboard
+{
+	private static final int PLAYERS = 200;
+	
+	@Test
+	public void matchesSort()
+	{
+		Leaderboard	board	= new Leaderboard();
+		Player[]	players	= players("Sorted", PLAYERS);
+		int[]		scores	= new int[PLAYERS];
+		
+		SplittableRandom random = new SplittableRandom(5);
+		
+		for (int update = 0 ; update < 5000 ; update++)
+		{
+			int player = random.nextInt(PLAYERS);
+			
+			// Small changes, so that many players share a score.
+			
+			int change = random.nextInt(-20, 21);
+			
+			if (!board.contains(players[player]))
+				assertEquals(0, scores[player]);
+			
+			board.addScore(players[player], change);
+			scores[player] += change;
+			
+			if (update % 500 == 0)
+				check(board, players, scores);
+		}
+		
+		check(board, players, scores);
+	}
+	
+	@Test
+	public void ranges()
+	{
+		Leaderboard	board	= new Leaderboard();
+		Player[]	players	= players("Range", 5);
+		
+		board.addScore(players[0], 10);
+		board.addScore(players[1], 30);
+		board.addScore(players[2], 20);
+		board.addScore(players[3], 20);
+		board.addScore(players[4], 5);
+		
+		List<Leaderboard.Entry> top = board.getTop(3);
+		
+		assertEquals(3, top.size());
+		assertSame(players[1], top.get(0).getPlayer());
+		assertEquals(1, top.get(0).getRank());
+		assertEquals(2, top.get(1).getRank());
+		assertEquals(2, top.get(2).getRank());
+		
+		List<Leaderboard.Entry> rest = board.getRange(3, 10);
+		
+		assertEquals(2, rest.size());
+		assertSame(players[0], rest.get(0).getPlayer());
+		assertEquals(4, rest.get(0).getRank());
+		assertEquals(5, rest.get(1).getRank());
+		
+		// A range starting in a tie takes the rank of the tie.
+		
+		assertEquals(2, board.getRange(2, 1).get(0).getRank());
+		assertTrue(board.getRange(5, 1).isEmpty());
+		
+		assertEquals(2, board.getRank(players[3]));
+		
+		board.addScore(players[4], 100);
+		
+		assertEquals(1, board.getRank(players[4]));
+		assertEquals(105, board.getScore(players[4]));
+		
+		try
+		{
+			board.getRank(Player.get("Range absent"));
+			fail();
+		}
+		catch (InvalidModelException e)
+		{
+		}
+	}
+	
+	@Test
+	public void tracksGame()
+	{
+		ScoringScheme	scheme	= ScoringScheme.instance();
+		Leaderboard		board	= new Leaderboard();
+		Player[]		players	= players("Tracked", 4);
+		Game			game	= new Game(scheme);
+		
+		for (int seat = 0 ; seat < 4 ; seat++)
+			game.setPlayer(players[seat], seat);
+		
+		game.startGame(players[0]);
+		board.track(game);
+		
+		for (int round = 0 ; round < 8 ; round++)
+		{
+			Player mahjong = players[round % 4];
+			
+			game.addRound(RoundUtil.createRound(players, game.getPrevailingWind(), game.getEastPlayer(), mahjong));
+			
+			for (Player player : players)
+				assertEquals(game.getPlayerScore(player) - scheme.InitialScore, board.getScore(player));
+		}
+		
+		assertEquals(4, board.size());
+	}
+	
+	@Test
+	public void playersInSeveralGames()
+	{
+		ScoringScheme	scheme	= ScoringScheme.instance();
+		Leaderboard		board	= new Leaderboard();
+		Player[]		players	= players("Several", 6);
+		
+		// The first player is in three games, the fourth in one and the rest in two.
+		
+		Player[][] seats =
+		{
+			{ players[0], players[1], players[2], players[3] },
+			{ players[0], players[1], players[4], players[5] },
+			{ players[0], players[2], players[4], players[5] }
+		};
+		
+		Game[] games = new Game[seats.length];
+		
+		for (int index = 0 ; index < games.length ; index++)
+		{
+			games[index] = new Game(scheme);
+			
+			for (int seat = 0 ; seat < 4 ; seat++)
+				games[index].setPlayer(seats[index][seat], seat);
+			
+			games[index].startGame(seats[index][0]);
+		}
+		
+		// The last game is tracked after a round has been played in it.
+		
+		board.track(games[0]);
+		board.track(games[1]);
+		addRound(games[2], seats[2], seats[2][1]);
+		board.track(games[2]);
+		
+		for (int round = 0 ; round < 6 ; round++)
+			for (int index = 0 ; index < games.length ; index++)
+				addRound(games[index], seats[index], seats[index][round % 4]);
+		
+		for (Player player : players)
+		{
+			int expected = 0;
+			
+			for (int index = 0 ; index < games.length ; index++)
+				if (Arrays.asList(seats[index]).contains(player))
+					expected += games[index].getPlayerScore(player) - scheme.InitialScore;
+			
+			assertEquals(player.toString(), expected, board.getScore(player));
+		}
+		
+		assertEquals(6, board.size());
+	}
+	
+	private static void addRound(Game game, Player[] players, Player mahjong)
+	{
+		game.addRound(RoundUtil.createRound(players, game.getPrevailingWind(), game.getEastPlayer(), mahjong));
+	}
+	
+	@Test
+	public void concurrentUpdates() throws Exception
+	{
+		final Leaderboard	board	= new Leaderboard();
+		final Player[]		players	= players("Concurrent", PLAYERS);
+		final int			updates	= 20000;
+		
+		List<Thread> threads = new ArrayList<>();
+		
+		for (int thread = 0 ; thread < 4 ; thread++)
+		{
+			final int seed = thread;
+			
+			threads.add(new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					SplittableRandom random = new SplittableRandom(seed);
+					
+					for (int update = 0 ; update < updates ; update++)
+					{
+						board.addScore(players[random.nextInt(PLAYERS)], 1);
+						
+						if (update % 100 == 0)
+							board.getTop(10);
+					}
+				}
+			}));
+		}
+		
+		for (Thread thread : threads)
+			thread.start();
+		
+		for (Thread thread : threads)
+			thread.join();
+		
+		int total = 0;
+		
+		for (Leaderboard.Entry entry : board.getTop(PLAYERS))
+			total += entry.getScore();
+		
+		assertEquals(4 * updates, total);
+	}
+	
+	private static Player[] players(String prefix, int count)
+	{
+		Player[] players = new Player[count];
+		
+		for (int player = 0 ; player < count ; player++)
+			players[player] = Player.get(prefix + " " + player);
+		
+		return players;
+	}
+	
+	/**
+	 * Check the board against a sort of the players on it.
+	 */
+	private static void check(Leaderboard board, Player[] players, int[] scores)
+	{
+		List<Integer> sorted = new ArrayList<>();
+		
+		for (int player = 0 ; player < players.length ; player++)
+			if (board.contains(players[player]))
+				sorted.add(scores[player]);
+		
+		Integer[] order = sorted.toArray(new Integer[0]);
+		
+		Arrays.sort(order, Collections.reverseOrder());
+		
+		assertEquals(order.length, board.size());
+		
+		List<Leaderboard.Entry> entries = board.getTop(order.length);
+		
+		for (int index = 0 ; index < order.length ; index++)
+		{
+			Leaderboard.Entry entry = entries.get(index);
+			
+			assertEquals(order[index].intValue(), entry.getScore());
+			assertEquals(board.getRank(entry.getPlayer()), entry.getRank());
+		}
+		
+		for (int player = 0 ; player < players.length ; player++)
+		{
+			if (!board.contains(players[player]))
+				continue;
+			
+			int higher = 0;
+			
+			for (Integer score : order)
+				if (score > scores[player])
+					higher++;
+			
+			assertEquals(higher + 1, board.getRank(players[player]));
+			assertEquals(scores[player], board.getScore(players[player]));
+		}
+	}
+}
@@ -0,0 +1,261 @@
+package house.mcintosh.mahjong.tournament;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import house.mcintosh.mahjong.exception.InvalidModelException;
+import house.mcintosh.mahjong.model.Game;
+import house.mcintosh.mahjong.model.Player;
+import house.mcintosh.mahjong.model.Round;
+import house.mcintosh.mahjong.model.RoundUtil;
+import house.mcintosh.mahjong.scoring.ScoredHand;
+import house.mcintosh.mahjong.scoring.ScoringScheme;
+import house.mcintosh.mahjong.simulation.HandGenerator;
+
+public class TestTournament
+{
+	private static final int TABLES	= 40;
+	private static final int ROUNDS	= 10;
+	
+	private final ScoringScheme scheme = ScoringScheme.instance();
+	
+	@Test
+	public void tablesInParallel() throws Exception
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		
+		try
+		{
+			Tournament	tournament	= new Tournament(scheme, executor);
+			Player[][]	players		= new Player[TABLES][];
+			Game[]		expected	= new Game[TABLES];
+			int[][][][]	codes		= new int[TABLES][ROUNDS][4][];
+			int[][][]	flags		= new int[TABLES][ROUNDS][4];
+			
+			for (int table = 0 ; table < TABLES ; table++)
+			{
+				players[table] = new Player[4];
+				
+				for (int seat = 0 ; seat < 4 ; seat++)
+					players[table][seat] = Player.get("Table " + table + " seat " + seat);
+				
+				assertEquals(table, tournament.addTable(players[table], table % 4));
+				
+				expected[table] = RoundUtil.playRandomGame(scheme, players[table], table % 4, 17 + table, ROUNDS);
+				
+				for (int round = 0 ; round < ROUNDS ; round++)
+					hands(expected[table].getRound(round), players[table], codes[table][round], flags[table][round]);
+			}
+			
+			// Submit the rounds of each table in order, with tables interleaved across threads.
+			
+			List<CompletableFuture<TableStanding>> results = new ArrayList<>();
+			
+			for (int round = 0 ; round < ROUNDS ; round++)
+				for (int table = 0 ; table < TABLES ; table++)
+					results.add(tournament.submitRound(table, codes[table][round], flags[table][round]));
+			
+			for (CompletableFuture<TableStanding> result : results)
+				result.get();
+			
+			for (int table = 0 ; table < TABLES ; table++)
+			{
+				TableStanding	standing	= tournament.getStanding(table);
+				Game			game		= expected[table];
+				
+				assertEquals(ROUNDS, standing.getRoundCount());
+				assertEquals(game.getPrevailingWind(), standing.getPrevailingWind());
+				assertEquals(game.getPlayerSeat(game.getEastPlayer()), standing.getEastSeat());
+				
+				for (int seat = 0 ; seat < 4 ; seat++)
+				{
+					assertEquals(game.getSeatScore(seat), standing.getScore(seat));
+					assertEquals(game.getSeatScore(seat) - scheme.InitialScore, tournament.getLeaderboard().getScore(players[table][seat]));
+				}
+			}
+			
+			assertEquals(TABLES, tournament.getStandings().size());
+			
+			List<Leaderboard.Entry> top = tournament.getLeaderboard().getTop(TABLES * 4);
+			
+			assertEquals(TABLES * 4, top.size());
+			
+			for (int index = 1 ; index < top.size() ; index++)
+				assertTrue(top.get(index - 1).getScore() >= top.get(index).getScore());
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+	
+	@Test
+	public void failedRound() throws Exception
+	{
+		Tournament	tournament	= new Tournament(scheme);
+		Player[]	players		= { Player.get("Failing 1"), Player.get("Failing 2"), null, Player.get("Failing 3") };
+		int			table		= tournament.addTable(players, 0);
+		
+		Game	game	= RoundUtil.playRandomGame(scheme, players, 0, 3, 1);
+		int[][]	codes	= new int[4][];
+		int[]	flags	= new int[4];
+		
+		hands(game.getRound(0), players, codes, flags);
+		
+		// Two mahjong hands in one round.
+		
+		int mahjongSeat = 0;
+		
+		while (players[mahjongSeat] == null || !game.getRound(0).getHand(players[mahjongSeat]).isMahjong())
+			mahjongSeat++;
+		
+		int[][] invalid = codes.clone();
+		
+		invalid[mahjongSeat == 0 ? 1 : 0] = codes[mahjongSeat];
+		
+		// No mahjong hand among the seated players.
+		
+		Round	losing			= new HandGenerator(scheme).round(new SplittableRandom(3), game, 2);
+		int[][]	noMahjong		= new int[4][];
+		int[]	noMahjongFlags	= new int[4];
+		
+		hands(losing, players, noMahjong, noMahjongFlags);
+		
+		CompletableFuture<TableStanding> failed		= tournament.submitRound(table, invalid, flags);
+		CompletableFuture<TableStanding> unsettled	= tournament.submitRound(table, noMahjong, noMahjongFlags);
+		CompletableFuture<TableStanding> applied	= tournament.submitRound(table, codes, flags);
+		
+		assertFails(failed);
+		assertFails(unsettled);
+		
+		// Neither failed round is left in the game.
+		
+		TableStanding standing = applied.get();
+		
+		assertEquals(1, standing.getRoundCount());
+		assertEquals(6000, standing.getScore(0) + standing.getScore(1) + standing.getScore(3));
+	}
+	
+	@Test
+	public void reusedBuffers() throws Exception
+	{
+		// Tasks are held until released, so the round is applied after its arrays are reused.
+		
+		final List<Runnable> tasks = new ArrayList<>();
+		
+		Tournament tournament = new Tournament(scheme, new Executor()
+		{
+			@Override
+			public void execute(Runnable task)
+			{
+				tasks.add(task);
+			}
+		});
+		
+		Player[]	players	= { Player.get("Reuse 1"), Player.get("Reuse 2"), Player.get("Reuse 3"), Player.get("Reuse 4") };
+		int			table	= tournament.addTable(players, 0);
+		Game		game	= RoundUtil.playRandomGame(scheme, players, 0, 5, 2);
+		int[][]		codes	= new int[4][];
+		int[]		flags	= new int[4];
+		
+		List<CompletableFuture<TableStanding>> results = new ArrayList<>();
+		
+		for (int round = 0 ; round < game.getRoundCount() ; round++)
+		{
+			hands(game.getRound(round), players, codes, flags);
+			results.add(tournament.submitRound(table, codes, flags));
+			
+			for (int seat = 0 ; seat < 4 ; seat++)
+			{
+				codes[seat][0]	= -1;
+				flags[seat]		= -1;
+			}
+		}
+		
+		for (int task = 0 ; task < tasks.size() ; task++)
+			tasks.get(task).run();
+		
+		for (CompletableFuture<TableStanding> result : results)
+			assertTrue(result.isDone());
+		
+		for (int seat = 0 ; seat < 4 ; seat++)
+			assertEquals(game.getSeatScore(seat), tournament.getStanding(table).getScore(seat));
+	}
+	
+	@Test
+	public void virtualThreads() throws Exception
+	{
+		ExecutorService executor = Tournament.newVirtualThreadExecutor();
+		
+		Assume.assumeNotNull(executor);
+		
+		try
+		{
+			Tournament	tournament	= new Tournament(scheme, executor);
+			Player[]	players		= { Player.get("Virtual 1"), Player.get("Virtual 2"), Player.get("Virtual 3"), Player.get("Virtual 4") };
+			int			table		= tournament.addTable(players, 1);
+			Game		game		= RoundUtil.playRandomGame(scheme, players, 1, 7, ROUNDS);
+			
+			CompletableFuture<TableStanding> last = null;
+			
+			for (int round = 0 ; round < ROUNDS ; round++)
+			{
+				int[][]	codes	= new int[4][];
+				int[]	flags	= new int[4];
+				
+				hands(game.getRound(round), players, codes, flags);
+				last = tournament.submitRound(table, codes, flags);
+			}
+			
+			TableStanding standing = last.get();
+			
+			for (int seat = 0 ; seat < 4 ; seat++)
+				assertEquals(game.getSeatScore(seat), standing.getScore(seat));
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+	
+	private static void assertFails(CompletableFuture<TableStanding> result) throws InterruptedException
+	{
+		try
+		{
+			result.get();
+			fail();
+		}
+		catch (ExecutionException e)
+		{
+			assertTrue(e.getCause() instanceof InvalidModelException);
+		}
+	}
+	
+	/**
+	 * Take the codes and flags of the hand of each seated player in a round.
+	 */
+	private static void hands(Round round, Player[] players, int[][] codes, int[] flags)
+	{
+		for (int seat = 0 ; seat < 4 ; seat++)
+		{
+			if (players[seat] == null)
+				continue;
+			
+			ScoredHand hand = round.getHand(players[seat]);
+			
+			codes[seat] = hand.getGroupCodes();
+			flags[seat] = hand.getFlags();
+		}
+	}
+}